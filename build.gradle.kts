@@ -1,11 +1,13 @@
 plugins {
     id("application")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 repositories { mavenCentral() }
 
 val lwjglVersion = "3.3.4"
 val gsonVersion = "2.11.0"
+val junitVersion = "5.10.3"
 
 // use the LWJGL BOM to keep versions aligned
 dependencies {
@@ -30,6 +32,10 @@ dependencies {
     runtimeOnly("org.lwjgl:lwjgl-stb::$natives")
 
     implementation("com.google.code.gson:gson:$gsonVersion")
+
+    testImplementation(platform("org.junit:junit-bom:$junitVersion"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 
@@ -44,3 +50,27 @@ application {
 java {
     toolchain { languageVersion.set(JavaLanguageVersion.of(17)) }
 }
+
+// GL-free unit tests live in src/test/java; `gradle test`
+tasks.test {
+    useJUnitPlatform()
+}
+
+// CPU hot-path benchmarks live in src/jmh/java; `gradle jmh` writes build/reports/jmh/results.json
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
+// Binary scene pack for fast startup: `gradle pack`, then run with -Dplanet.pack=build/scene.pack
+tasks.register<JavaExec>("pack") {
+    group = "application"
+    description = "Builds build/scene.pack from src/main/resources"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("app.PackTool")
+    args(layout.buildDirectory.file("scene.pack").get().asFile.path, "src/main/resources")
+}
@@ -0,0 +1,77 @@
+package engine.config;
+
+import com.google.gson.Gson;
+import engine.util.Resources;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * planet.json through reflective Gson + applyDefaultsIfNeeded (the old Main.loadPlanetConfig)
+ * against the streaming {@link PlanetConfigReader}. {@code layers} > 0 swaps in a synthetic
+ * file with that many cloud layers, standing in for large scene files. Run with -prof gc
+ * for allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlanetConfigBenchmark {
+    @Param({"0", "2000"})
+    public int layers;
+
+    private String json;
+    private Gson gson;
+
+    @Setup
+    public void setup() {
+        json = layers == 0 ? Resources.text("data/planet.json") : synthetic(layers);
+        gson = new Gson();
+    }
+
+    /** Old Main path: whole resource into a String, new Gson per load. */
+    @Benchmark
+    public PlanetConfig loadGson() {
+        String text = layers == 0 ? Resources.text("data/planet.json") : json;
+        PlanetConfig cfg = new Gson().fromJson(text, PlanetConfig.class);
+        cfg.applyDefaultsIfNeeded();
+        return cfg;
+    }
+
+    /** New Main path: streamed straight from the resource. */
+    @Benchmark
+    public PlanetConfig loadStreaming() throws Exception {
+        if (layers != 0) return PlanetConfigReader.read(new StringReader(json), null);
+        try (Reader r = Resources.reader("data/planet.json")) {
+            return PlanetConfigReader.read(r, null);
+        }
+    }
+
+    @Benchmark
+    public PlanetConfig parseGson() {
+        PlanetConfig cfg = gson.fromJson(json, PlanetConfig.class);
+        cfg.applyDefaultsIfNeeded();
+        return cfg;
+    }
+
+    @Benchmark
+    public PlanetConfig parseStreaming() {
+        return PlanetConfigReader.read(new StringReader(json), null);
+    }
+
+    private static String synthetic(int n) {
+        StringBuilder sb = new StringBuilder(n * 260 + 512);
+        sb.append("{\"center\":[0,0,0],\"baseRadius\":1.0,\"size\":[1,1,1],\"albedo\":\"\",")
+          .append("\"atmosphere\":{\"enabled\":true,\"thicknessPct\":0.02,\"intensity\":0.25,\"power\":2.5,\"color\":[0.88,0.55,0.28]},")
+          .append("\"clouds\":{\"enabled\":true,\"layers\":[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"altitudePct\":").append(0.01 + i * 1e-5)
+              .append(",\"thicknessPct\":0.0015,\"color\":[0.95,0.97,1.0],\"opacity\":0.18")
+              .append(",\"scrollUV\":[0.002,0.0],\"rotationDegPS\":").append(i % 7 * 0.1)
+              .append(",\"coverage\":0.8,\"noiseScale\":5.5,\"texture\":\"\",\"storminess\":0.1}");
+        }
+        return sb.append("]}}").toString();
+    }
+}
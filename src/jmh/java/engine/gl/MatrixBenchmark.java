@@ -0,0 +1,39 @@
+package engine.gl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** The renderers' float[16] helpers, including the per-body model matrix built in drawPlanet. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatrixBenchmark {
+    private float[] a, b;
+    private float angle = 17f;
+    private final float[] out = new float[16];
+
+    @Setup
+    public void setup() {
+        a = Renderer.matRotateY(33f);
+        b = Renderer.matTranslate(1f, 2f, 3f);
+    }
+
+    @Benchmark
+    public float[] mul() { return Renderer.mul(a, b); }
+
+    @Benchmark
+    public float[] planetModel() {
+        angle += 0.1f;
+        return Renderer.mul(Renderer.mul(Renderer.matTranslate(1f, 2f, 3f), Renderer.matRotateY(angle)),
+                Renderer.matUniformScale(1.5f));
+    }
+
+    /** The same model matrix as drawPlanet builds it now: in place, no temporaries. */
+    @Benchmark
+    public float[] planetModelInPlace() {
+        angle += 0.1f;
+        Renderer.modelMatrix(out, 1f, 2f, 3f, angle, 1.5f);
+        return out;
+    }
+}
@@ -0,0 +1,76 @@
+package engine.gl;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL30.GL_RGBA16F;
+import static org.lwjgl.opengl.GL30.GL_RG16F;
+
+/**
+ * Per-frame cost of the frame graph on the CPU: declare the scene + post chain
+ * ({@code levels} bloom mips), compile (cull, order, alias) and walk it against a backend that
+ * only hands out texture names. No GL context needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RenderGraphBenchmark {
+    @Param({"6", "12"})
+    public int levels;
+
+    private RenderGraph graph;
+    private Blackhole bh;
+
+    private static final class NullBackend implements RenderGraph.Backend {
+        int next = 100;
+        @Override public int acquire(RenderGraph.TextureDesc desc) { return next++; }
+        @Override public void release(int texture) {}
+        @Override public void bindTarget(int[] textures, RenderGraph.TextureDesc[] descs, int count, int width, int height) {}
+        @Override public void beginPass(String name, boolean timed) {}
+        @Override public void endPass(String name, boolean timed) {}
+    }
+
+    @Setup
+    public void setup(Blackhole bh) {
+        this.bh = bh;
+        graph = new RenderGraph(new NullBackend());
+    }
+
+    @Benchmark
+    public int frame() {
+        RenderGraph g = graph;
+        g.reset();
+        var color = g.importTexture("scene color", 1, 1920, 1080, GL_RGBA16F);
+        var back = g.backbuffer(2560, 1440);
+        g.pass("scene", ctx -> bh.consume(1)).write(color).untimed();
+
+        var lum = g.importTexture("luminance", 2, 128, 128, GL_RG16F);
+        g.pass("luminance", ctx -> bh.consume(ctx.texture(color))).read(color).write(lum);
+
+        RenderGraph.Resource[] mips = new RenderGraph.Resource[levels];
+        int w = 960, h = 540;
+        for (int i = 0; i < levels; i++) {
+            mips[i] = g.create("bloom " + i, w, h, GL_RGBA16F);
+            RenderGraph.Resource src = i == 0 ? color : mips[i - 1];
+            g.pass("bloom down " + i, ctx -> bh.consume(ctx.texture(src))).read(src).write(mips[i]);
+            w = Math.max(1, w / 2); h = Math.max(1, h / 2);
+        }
+        for (int i = levels - 2; i >= 0; i--) {
+            RenderGraph.Resource src = mips[i + 1];
+            g.pass("bloom up " + i, ctx -> bh.consume(ctx.texture(src))).read(src).modify(mips[i]);
+        }
+
+        var ldr = g.create("tonemapped", 1920, 1080, GL_RGBA8);
+        g.pass("tonemap", ctx -> bh.consume(ctx.texture(mips[0]))).read(color).read(mips[0]).write(ldr);
+        g.pass("upscale", ctx -> bh.consume(ctx.texture(ldr))).read(ldr).write(back);
+        g.pass("menu", ctx -> bh.consume(0)).modify(back);
+        g.output(back);
+
+        g.compile();
+        g.execute();
+        return g.physicalCount();
+    }
+}
@@ -0,0 +1,39 @@
+package engine.gl;
+
+import engine.util.Resources;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/** STB decode from memory (the CPU half of Texture.load). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextureDecodeBenchmark {
+    @Param({"assets/textures/mars.jpg", "assets/textures/earth.jpg", "assets/textures/kerbin.png"})
+    public String path;
+
+    private ByteBuffer encoded;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = Resources.bytes(path);
+        if (bytes == null) throw new IllegalStateException("missing " + path);
+        encoded = memAlloc(bytes.length);
+        encoded.put(bytes).flip();
+    }
+
+    @TearDown
+    public void tearDown() { memFree(encoded); }
+
+    @Benchmark
+    public int decode() {
+        try (Texture.Image img = Texture.decode(encoded, path)) {
+            return img.width;
+        }
+    }
+}
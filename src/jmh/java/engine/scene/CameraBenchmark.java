@@ -0,0 +1,38 @@
+package engine.scene;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CameraBenchmark {
+    private Camera free, follow;
+
+    @Setup
+    public void setup() {
+        free = new Camera();
+        free.x = 1.5f; free.y = 0.4f; free.z = 3f;
+        free.yawDeg = -110f; free.pitchDeg = 12f;
+
+        follow = new Camera();
+        follow.x = 2f; follow.y = 1f; follow.z = 2.5f;
+        follow.followTarget = true;
+        follow.setTarget(0f, 0f, 0f);
+    }
+
+    @Benchmark
+    public float[] viewMatrixFree() { return free.viewMatrix(); }
+
+    @Benchmark
+    public float[] viewMatrixFollow() { return follow.viewMatrix(); }
+
+    @Benchmark
+    public float[] lookAtStable() {
+        return Camera.lookAtStable(0f, 0f, 0f, (float)-follow.x, (float)-follow.y, (float)-follow.z, 0f, 1f, 0f);
+    }
+
+    @Benchmark
+    public float[] projMatrix() { return free.projMatrix(1280, 720); }
+}
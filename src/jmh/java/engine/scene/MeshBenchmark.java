@@ -0,0 +1,19 @@
+package engine.scene;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** CPU side of Mesh.uvSphere (vertex + index generation), without the GL upload. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MeshBenchmark {
+    @Param({"16", "64", "256"})
+    public int stacks;
+
+    @Benchmark
+    public Mesh.Data uvSphere() {
+        return Mesh.uvSphereData(stacks, stacks * 2, 1f);
+    }
+}
@@ -0,0 +1,100 @@
+package engine.scene;
+
+import app.PackTool;
+import engine.config.PlanetConfig;
+import engine.config.PlanetConfigReader;
+import engine.gl.Texture;
+import engine.util.Resources;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * CPU side of startup asset loading, up to the point where buffers would go to GL: planet.json
+ * + uv-sphere + albedo decode from resources, against mapping a {@link ScenePack}. Both
+ * touch every page of what they'd upload, since the driver would read it.
+ *
+ * cold* are single shots in fresh JVMs (class loading, no JIT; the OS page cache stays
+ * warm, so this is not a disk-cold number); warm* are steady state.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SceneLoadBenchmark {
+    private static final int STACKS = 64, SLICES = 128;
+    private Path packFile;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        packFile = Files.createTempFile("scene", ".pack");
+        PackTool.main(new String[]{packFile.toString()});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception { Files.deleteIfExists(packFile); }
+
+    @Benchmark @BenchmarkMode(Mode.SingleShotTime) @Warmup(iterations = 0) @Measurement(iterations = 1) @Fork(10)
+    public long coldResources() throws Exception { return fromResources(); }
+
+    @Benchmark @BenchmarkMode(Mode.SingleShotTime) @Warmup(iterations = 0) @Measurement(iterations = 1) @Fork(10)
+    public long coldPack() throws Exception { return fromPack(); }
+
+    @Benchmark @BenchmarkMode(Mode.AverageTime)
+    public long warmResources() throws Exception { return fromResources(); }
+
+    @Benchmark @BenchmarkMode(Mode.AverageTime)
+    public long warmPack() throws Exception { return fromPack(); }
+
+    private long fromResources() throws Exception {
+        PlanetConfig cfg;
+        try (Reader r = Resources.reader("data/planet.json")) { cfg = PlanetConfigReader.read(r, null); }
+        long sum = 0;
+
+        // what Mesh.uvSphere builds and copies into upload buffers
+        Mesh.Data d = Mesh.uvSphereData(STACKS, SLICES, cfg.baseRadius);
+        FloatBuffer vb = memAllocFloat(d.vertices.length);
+        IntBuffer ib = memAllocInt(d.indices.length);
+        vb.put(d.vertices).flip();
+        ib.put(d.indices).flip();
+        sum += vb.get(vb.limit() - 1) > 0 ? 1 : 0;
+        sum += ib.get(ib.limit() - 1);
+        memFree(vb);
+        memFree(ib);
+
+        byte[] bytes = Resources.bytes(cfg.albedo);
+        ByteBuffer enc = memAlloc(bytes.length);
+        enc.put(bytes).flip();
+        try (Texture.Image img = Texture.decode(enc, cfg.albedo)) {
+            sum += touch(img.pixels);
+        } finally {
+            memFree(enc);
+        }
+        return sum;
+    }
+
+    private long fromPack() throws Exception {
+        long sum = 0;
+        try (ScenePack pack = ScenePack.open(packFile)) {
+            PlanetConfig cfg = pack.config(null);
+            ScenePack.Entry m = pack.find(ScenePack.TYPE_MESH, ScenePack.sphereName(STACKS, SLICES, cfg.baseRadius));
+            sum += touch(pack.meshVertices(m));
+            sum += touch(pack.meshIndices(m));
+            sum += touch(pack.blob(pack.find(ScenePack.TYPE_TEXTURE, cfg.albedo)));
+        }
+        return sum;
+    }
+
+    // one read per 4 KB page
+    private static long touch(ByteBuffer b) {
+        long s = 0;
+        for (int i = 0; i < b.limit(); i += 4096) s += b.get(i);
+        return s;
+    }
+}
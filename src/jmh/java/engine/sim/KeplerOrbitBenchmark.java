@@ -0,0 +1,30 @@
+package engine.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** One on-rails position: a Kepler solve plus the basis transform. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeplerOrbitBenchmark {
+    @Param({"0.0167", "0.6", "0.95"})
+    public double e;
+
+    private KeplerOrbit orbit;
+    private final double[] out = new double[3];
+    private double t;
+
+    @Setup
+    public void setup() {
+        orbit = new KeplerOrbit(10.0, e, 7.0, 40.0, 110.0, 0.0, 60.0);
+    }
+
+    @Benchmark
+    public double[] position() {
+        t += 0.37;
+        orbit.position(t, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,53 @@
+package engine.sim;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integration steps per second. "belt" is massless asteroids around one on-rails body (what
+ * the asteroid scenes run); "cluster" is all-massive, so above NBody.directMax it goes
+ * through the Barnes-Hut tree. Both with and without the parallel force loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NBodyBenchmark {
+    @Param({"1000", "10000", "50000"})
+    public int bodies;
+
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private OrbitalSystem belt;
+    private NBody cluster;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        belt = new OrbitalSystem(1.0 / 240.0, bodies);
+        int sun = belt.addFixed(-1, 0, 0, 0, 1.0);
+        belt.addBelt(sun, bodies, 2.0, 3.0, 5.0, 42L);
+        belt.free.parallel = parallel;
+
+        Random rnd = new Random(42);
+        cluster = new NBody(bodies);
+        for (int i = 0; i < bodies; i++) {
+            cluster.add(rnd.nextGaussian(), rnd.nextGaussian(), rnd.nextGaussian(), 0, 0, 0, 1.0 / bodies);
+        }
+        cluster.softening = 0.05;
+        cluster.parallel = parallel;
+    }
+
+    @Benchmark
+    public double beltStep() {
+        belt.advance(belt.stepSec);
+        return belt.free.x[0];
+    }
+
+    @Benchmark
+    public double clusterStep() {
+        cluster.step(1e-3);
+        return cluster.x[0];
+    }
+}
@@ -0,0 +1,26 @@
+package engine.util;
+
+import engine.config.PlanetConfig;
+import engine.gl.AtmosphereRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Per-frame overlay text composition (no GL; the menu creates its GL objects lazily). */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DebugMenuBenchmark {
+    private DebugMenu menu;
+
+    @Setup
+    public void setup() {
+        PlanetConfig.Lighting lighting = new PlanetConfig.Lighting();
+        AtmosphereRenderer.Settings atmo = new AtmosphereRenderer.Settings();
+        atmo.enabled = true;
+        menu = new DebugMenu(lighting, atmo);
+    }
+
+    @Benchmark
+    public CharSequence buildText() { return menu.buildText(); }
+}
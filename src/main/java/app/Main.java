@@ -1,17 +1,38 @@
 package app;
 
 import engine.config.PlanetConfig;
+import engine.config.PlanetConfigReader;
+import engine.debug.DebugDraw;
 import engine.gl.*;
+import engine.input.Action;
+import engine.input.Input;
+import engine.input.InputQueue;
+import engine.perf.Profiler;
+import engine.res.ResourceManager;
 import engine.scene.Camera;
 import engine.scene.Mesh;
 import engine.scene.Planet;
+import engine.scene.ScenePack;
+import engine.sim.OrbitalSystem;
+import engine.sim.SimSnapshot;
+import engine.sim.SimStats;
+import engine.sim.Simulation;
+import engine.sim.SnapshotInterpolator;
 import engine.util.CameraController;
 import engine.util.DebugMenu;
 import engine.util.DebugMenuController;
+import engine.util.HotReload;
 import engine.util.Resources;
 
-import static org.lwjgl.glfw.GLFW.*;   // for SHIFT keys
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.GL_RGBA16F;
 
 public class Main {
     public static void main(String[] args){ new Main().run(); }
@@ -19,11 +40,23 @@ public class Main {
     private void run() {
         // Window, camera, controller
         GLWindow win = new GLWindow(1280, 720, "PlanetRender");
-        Camera cam = new Camera();
-        CameraController ctrl = new CameraController();
+        Camera cam = new Camera();          // render-side copy, interpolated from sim snapshots
+        // Reversed-Z infinite projection where GL 4.5 / ARB_clip_control allows; -Dplanet.reversedZ=false opts out
+        cam.reversedZ = win.setReversedZ(Boolean.parseBoolean(System.getProperty("planet.reversedZ", "true")));
+        // -Dplanet.fpsCap=N starts capped at N FPS instead of vsync; F2 cycles the modes and caps
+        int fpsCap = Integer.getInteger("planet.fpsCap", 0);
+        if (fpsCap > 0) win.setPacing(FramePacer.Mode.CAPPED, fpsCap);
+        Input input = new Input(win.openInputQueue());
+
+        // Resources come from the source tree when it's there, so edits can be hot-reloaded
+        Path devRoot = Path.of(System.getProperty("planet.resources", "src/main/resources"));
+        if (Files.isDirectory(devRoot)) Resources.setDevRoot(devRoot);
 
         // ---- Load config ----
-        PlanetConfig cfg = loadPlanetConfig();
+        // A binary scene pack (see PackTool, -Dplanet.pack=<file>) replaces JSON parsing, sphere
+        // building and image decoding with one memory mapping
+        ScenePack pack = openPack(System.getProperty("planet.pack"));
+        PlanetConfig cfg = pack != null ? packConfig(pack) : loadPlanetConfig();
         normalizeDir(cfg.lighting.direction);
 
         // Convert cfg.atmosphere -> renderer settings
@@ -32,22 +65,34 @@ public class Main {
         // Uniform scale for planet + atmo (keep sphere math happy)
         float UNIFORM_S = Math.max(cfg.size[0], Math.max(cfg.size[1], cfg.size[2]));
 
+        // Shared, refcounted GL resources; textures + meshes over the budget get evicted (LRU)
+        ResourceManager res = new ResourceManager(Long.getLong("planet.vramMB", 512L) << 20);
+
         // Mesh + shaders
-        Mesh sphere = Mesh.uvSphere(64, 128, cfg.baseRadius);
-        Shader planetShader = new Shader(Resources.text("shaders/basic.vert"),
-                Resources.text("shaders/basic.frag"));
-        Shader atmoShader   = (cfg.atmosphere != null && cfg.atmosphere.enabled)
-                ? new Shader(Resources.text("shaders/atmo.vert"),
-                Resources.text("shaders/atmo.frag"))
+        ResourceManager.Handle<Mesh> sphereRef = res.mesh(
+                ScenePack.sphereName(SPHERE_STACKS, SPHERE_SLICES, cfg.baseRadius),
+                () -> loadSphere(pack, cfg.baseRadius));
+        ResourceManager.Handle<Shader> planetShaderRef = res.shader("shaders/basic.vert", "shaders/basic.frag");
+        ResourceManager.Handle<Shader> atmoShaderRef = (cfg.atmosphere != null && cfg.atmosphere.enabled)
+                ? res.shader("shaders/atmo.vert", "shaders/atmo.frag")
                 : null;
-        Shader gizmoShader  = new Shader(Resources.text("shaders/gizmo.vert"),
-                Resources.text("shaders/gizmo.frag"));
-
-        // Renderer orchestrates solid planet, gizmo, and atmosphere, using live cfg for lighting
+        ResourceManager.Handle<Shader> debugShaderRef = res.shader("shaders/debug_line.vert", "shaders/debug_line.frag");
+        Mesh sphere = sphereRef.get();
+        Shader planetShader = planetShaderRef.get();
+        Shader atmoShader   = atmoShaderRef != null ? atmoShaderRef.get() : null;
+        DebugDraw debug     = new DebugDraw(debugShaderRef.get());
+
+        // CPU-side per-body work (draw packets, belt geometry) is spread over these; the sim has
+        // its own thread and this one owns GL, hence two cores off by default. -Dplanet.renderWorkers=N
+        RenderWorkers workers = new RenderWorkers(Integer.getInteger("planet.renderWorkers",
+                Math.max(0, Math.min(3, Runtime.getRuntime().availableProcessors() - 2))));
+
+        // Renderer orchestrates solid planet, debug lines, and atmosphere, using live cfg for lighting
         Renderer renderer = new Renderer(
                 planetShader,
                 atmoShader,
-                gizmoShader,
+                debug,
+                workers,
                 sphere,
                 atmoSettings,
                 cfg.lighting,
@@ -55,87 +100,291 @@ public class Main {
         );
 
         // Build scene planet
+        ResourceManager.Handle<Texture> albedoRef = (cfg.albedo == null || cfg.albedo.isBlank()) ? null
+                : res.texture(cfg.albedo, () -> loadAlbedo(pack, cfg.albedo));
         Planet planet = new Planet(
                 cfg.center[0], cfg.center[1], cfg.center[2],
                 cfg.baseRadius, UNIFORM_S,
                 cfg.spinDegPerSec, cfg.spinSignFree, cfg.spinSignOrbit,
                 sphere,
-                loadAlbedo(cfg.albedo)
+                albedoRef != null ? albedoRef.get() : null
         );
+        if (pack != null) {
+            try { pack.close(); } catch (Exception ignored) {}   // everything is on the GPU now
+        }
 
         // Debug menu (edits cfg.lighting + atmoSettings live)
+        // Frame profiler: CPU sections everywhere, GPU timers around the renderers and per
+        // render graph pass
+        Profiler prof = new Profiler(true);
+        int secInput  = prof.section("input");
+        int secSim    = prof.section("sim-sync");
+        int secMenuIn = prof.section("menu-input");
+        int secSwap   = prof.section("swap");
+        int secReload = prof.section("hot-reload");
+        renderer.setProfiler(prof);
+
         DebugMenu menu = new DebugMenu(cfg.lighting, atmoSettings);
+        menu.setCullStats(renderer.cullStats());
+        menu.setProfiler(prof);
+        menu.setResources(res);
         DebugMenuController menuCtrl = new DebugMenuController();
 
-        // Aim camera at planet to start
-        aimFreeCameraAt(cam, planet.cx, planet.cy, planet.cz);
+        // Simulation (spin, cloud time, camera) runs at a fixed rate on its own thread with its
+        // own input queue; this thread only renders interpolated snapshots and runs the menu.
+        float minDist = planet.worldRadius() * (1f + cfg.minMarginPct);
+        float maxDist = Math.max(minDist * 1.1f, planet.worldRadius() * cfg.maxDistanceMult);
+        // Orbital mechanics: the planet is the root body (fixed at cfg.center); -Dplanet.belt=N
+        // adds an N-asteroid belt integrated around it
+        int beltCount = Integer.getInteger("planet.belt", 0);
+        OrbitalSystem orbits = new OrbitalSystem(1.0 / (SIM_HZ * ORBIT_SUBSTEPS), beltCount);
+        float R = planet.worldRadius();
+        double beltMid = 3.0 * R;
+        double mu = 4 * Math.PI * Math.PI * beltMid * beltMid * beltMid / (BELT_PERIOD_SEC * BELT_PERIOD_SEC);
+        int planetBody = orbits.addFixed(-1, planet.x, planet.y, planet.z, mu);
+        if (beltCount > 0) orbits.addBelt(planetBody, beltCount, 2.5 * R, 3.5 * R, 3.0, 1L);
+        double[] bodyPos = new double[3];
+        double[] beltPos = new double[beltCount * 3];
+        SimWorld world = new SimWorld(win.openInputQueue(), planet, orbits, planetBody, minDist, maxDist);
+        aimFreeCameraAt(world.cam, planet.x, planet.y, planet.z);
+
+        Simulation sim = new Simulation(SIM_HZ, world.snapshot(0, System.nanoTime(), 0.0), world);
+        SimStats simStats = new SimStats();
+        SnapshotInterpolator interp = new SnapshotInterpolator(sim, simStats);
+        menu.setSimStats(simStats);
+        menu.setFramePacer(win.pacer());
+
+        // Dynamic resolution: scene renders offscreen at a controller-chosen scale
+        SceneTarget scene = new SceneTarget();
+        ResolutionController resCtrl = new ResolutionController();
+        menu.setResolution(resCtrl, scene);
+        renderer.setSceneTarget(scene);
+        menu.setRenderer(renderer);
+
+        // The frame is a render graph (scene, HDR post chain, upscale, overlay); its transient
+        // targets come from the pool and share storage where their lifetimes allow
+        TargetPool targets = new TargetPool();
+        GlGraphBackend graphBackend = new GlGraphBackend(targets, prof);
+        RenderGraph graph = new RenderGraph(graphBackend);
+        PostProcess post = new PostProcess();
+        menu.setPost(post, graph, targets);
+        sim.start();
+
+        // Hot reload: planet.json, shaders and textures under the dev root
+        HotReload reload = null;
+        if (Resources.devRoot() != null) {
+            try {
+                reload = new HotReload(Resources.devRoot(), Resources.text(HotReload.CONFIG_PATH));
+                menu.setHotReload(reload);
+            } catch (Exception e) {
+                System.err.println("Hot reload disabled: " + e);
+            }
+        }
+        HotReload.ConfigSink configSink = (next, sections) -> {
+            applyConfig(cfg, next, sections, atmoSettings);
+            if (sections.contains("lighting")) menu.renormalizeLightDir();
+        };
 
-        // Loop state
-        float angle = 0f;
-        long last = System.nanoTime();
+        int[] sceneAttachments = new int[2];
+        RenderGraph.TextureDesc[] sceneDescs = new RenderGraph.TextureDesc[2];
 
         // Main loop
         while (win.isOpen()) {
-            long now = System.nanoTime();
-            float dt = (now - last) / 1_000_000_000f;
-            last = now;
-
-            renderer.advanceTime(dt);
+            win.beginFrame();   // just-in-time input waits here, before anything is sampled
+            prof.beginFrame();
+
+            // Events queued by the GLFW callbacks, drained right before anything uses them
+            try (var t = prof.cpu(secInput)) {
+                win.poll();
+                input.update();
+            }
+            if (reload != null) {
+                try (var t = prof.cpu(secReload)) {
+                    reload.apply(configSink);
+                }
+            }
+            if (input.pressed(Action.PACING_CYCLE)) win.cyclePacing();
+            if (input.pressed(Action.PACING_JIT_INPUT)) win.pacer().setJitInput(!win.pacer().jitInput());
+
+            // Latest sim state, blended for this frame
+            float angle;
+            try (var t = prof.cpu(secSim)) {
+                interp.update(System.nanoTime());
+                interp.applyCamera(cam);
+                angle = interp.spinAngleDeg();
+                interp.bodyPosition(planetBody, bodyPos);
+                planet.setCenter(bodyPos[0], bodyPos[1], bodyPos[2]);
+                if (beltCount > 0) interp.freePositions(beltPos);
+                // everything below renders relative to the eye (see Camera)
+                planet.relativeTo(cam.x, cam.y, cam.z);
+                debug.setEye(cam.x, cam.y, cam.z);
+                renderer.setTime((float)interp.simTime());
+            }
+
+            // Debug menu input (actions + typed text)
+            try (var t = prof.cpu(secMenuIn)) {
+                menuCtrl.update(input, menu);
+            }
+
+            if (input.pressed(Action.DYNAMIC_RES)) resCtrl.enabled = !resCtrl.enabled;
+            if (input.pressed(Action.SHELL_RES_CYCLE)) renderer.shellDownsample = renderer.shellDownsample >= 4 ? 1 : renderer.shellDownsample * 2;
+            if (input.pressed(Action.CLOUD_UPDATE_CYCLE)) renderer.cloudUpdate = renderer.cloudUpdate.next();
+            if (input.pressed(Action.TONEMAP_CYCLE)) post.toneMap = post.toneMap.next();
+            if (input.pressed(Action.SHADOWS_CYCLE)) {
+                // all -> eclipses only -> none
+                if (renderer.cloudShadows) renderer.cloudShadows = false;
+                else if (renderer.shadows) renderer.shadows = false;
+                else renderer.shadows = renderer.cloudShadows = true;
+            }
+            boolean freezeFrustum = false;
+            if (input.pressed(Action.DEBUG_VOLUMES)) {
+                renderer.debugVolumes = !renderer.debugVolumes;
+                freezeFrustum = renderer.debugVolumes;
+            }
+
+            // Scene at the dynamic resolution; budget follows the pacing target
+            long period = win.pacer().periodNanos();
+            resCtrl.budgetMs = (period > 0 ? period / 1_000_000f : 1000f / 60f) * 0.85f;
+            scene.prepare(win.width(), win.height(), resCtrl.scale());
+            int sw = scene.width(), sh = scene.height();
+
+            float[] proj = cam.projMatrix(sw, sh);
+            float[] view = cam.viewMatrix();
+            // the culling volume as it was when volumes were switched on; fly out to see it
+            if (freezeFrustum) debug.frustum(proj, view, DebugDraw.CYAN, true, 20f);
+
+            // ---- frame graph ----
+            graph.reset();
+            var sceneColor = graph.importTexture("scene color", scene.colorTexture(), scene.allocWidth(), scene.allocHeight(), GL_RGBA16F);
+            var sceneDepth = graph.importTexture("scene depth", scene.depthTexture(), scene.allocWidth(), scene.allocHeight(), Depth.internalFormat());
+            sceneAttachments[0] = scene.colorTexture(); sceneAttachments[1] = scene.depthTexture();
+            sceneDescs[0] = sceneColor.desc; sceneDescs[1] = sceneDepth.desc;
+            graphBackend.adopt(scene.fbo(), sceneAttachments, sceneDescs);
+            var backbuffer = graph.backbuffer(win.width(), win.height());
+
+            // bodies, shells and debug lines; the renderer draws every surface, then every
+            // shell back to front over them. Timed by SceneTarget and the renderer's own
+            // sections, not as a whole.
+            graph.pass("scene", ctx -> {
+                scene.startTiming();
+                glClearColor(0.06f, 0.07f, 0.09f, 1f);
+                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+                // Lighting comes from cfg.lighting (held by renderer)
+                renderer.beginFrame(proj, view, sw, sh, cam);
+                renderer.addShadowCaster(planet);
+                renderer.drawPlanet(planet, proj, view, angle, sw, sh, cam, cfg.lighting.direction);
+                renderer.drawBodies(proj, view);
+                if (beltCount > 0) drawBelt(workers, debug, beltPos, beltCount, cam, R * 0.004f);
+                renderer.drawDebug(proj, view);
+                scene.stopTiming();
+            }).write(sceneColor).write(sceneDepth).viewport(sw, sh).untimed();
+
+            // Exposure, bloom and tone mapping, then upscale to the window and the overlay at
+            // native resolution
+            var ldr = post.addPasses(graph, sceneColor, sw, sh);
+            graph.pass("upscale", ctx -> scene.present(ctx.texture(ldr), resCtrl.sharpness))
+                    .read(ldr).write(backbuffer);
+            graph.pass("menu", ctx -> menu.render(win.width(), win.height()))
+                    .modify(backbuffer);
+            graph.output(backbuffer);
+
+            graph.compile();
+            graph.execute();
+            graphBackend.endFrame();
+            targets.endFrame();
+            if (scene.takeGpuSample()) resCtrl.update(scene.gpuMs());
+            StreamBuffer.shared().endFrame();   // fences this frame's debug-draw vertices
+
+            try (var t = prof.cpu(secSwap)) {
+                win.swap();
+            }
+            res.endFrame();
+            prof.endFrame();
+        }
 
-            float minDist = planet.worldRadius() * (1f + cfg.minMarginPct);
-            float maxDist = Math.max(minDist * 1.1f, planet.worldRadius() * cfg.maxDistanceMult);
+        // Cleanup
+        sim.stop();
+        workers.shutdown();
+        if (reload != null) reload.close();
+        prof.dump(Path.of("perf"));
+        prof.delete();
+        post.delete();
+        graphBackend.delete();
+        targets.delete();
+        scene.delete();
+        renderer.delete();
+        menu.delete();
+        StreamBuffer.deleteShared();
+        planetShaderRef.release();
+        if (atmoShaderRef != null) atmoShaderRef.release();
+        debug.delete();
+        debugShaderRef.release();
+        sphereRef.release();
+        if (albedoRef != null) albedoRef.release();
+        res.endFrame();   // deletes the released ones
+        res.delete();     // anything left is a leak and gets reported
+        win.destroy();
+    }
 
-            // Input + camera
-            ctrl.update(win, cam, dt, minDist, maxDist, planet.cx, planet.cy, planet.cz);
+    private static final float SIM_HZ = 120f;
+    private static final int ORBIT_SUBSTEPS = 2;          // orbit integration steps per sim tick
+    private static final double BELT_PERIOD_SEC = 120.0;  // at the middle of the belt
+
+    // planet sphere tessellation; PackTool bakes the same mesh
+    static final int SPHERE_STACKS = 64, SPHERE_SLICES = 128;
+
+    /** Everything the simulation thread owns; nothing here is touched by the render thread. */
+    private static final class SimWorld implements Simulation.Step {
+        final Camera cam = new Camera();
+        final CameraController ctrl = new CameraController();
+        final Input input;
+        final Planet planet;
+        final OrbitalSystem orbits;
+        final int planetBody;
+        final float minDist, maxDist;
+        final double[] center = new double[3];
+        float angle = 0f;
 
-            // Debug menu input (use current key states on win.keys)
-            boolean shiftHeld = win.keys[GLFW_KEY_LEFT_SHIFT] || win.keys[GLFW_KEY_RIGHT_SHIFT];
-            menuCtrl.update(win, menu, shiftHeld, dt);
+        SimWorld(InputQueue queue, Planet planet, OrbitalSystem orbits, int planetBody, float minDist, float maxDist) {
+            this.input = new Input(queue);
+            this.planet = planet;
+            this.orbits = orbits;
+            this.planetBody = planetBody;
+            this.minDist = minDist;
+            this.maxDist = maxDist;
+        }
 
-            enforceDistanceFromSphere(cam, planet, minDist, maxDist);
+        @Override
+        public SimSnapshot step(long tick, long sampledNanos, double simTime, float dt) {
+            input.update();
+            orbits.advance(dt);
+            // the render thread moves planet itself; this side reads the system directly
+            orbits.position(planetBody, center, 0);
+            ctrl.update(input, cam, minDist, maxDist, center[0], center[1], center[2]);
+            enforceDistanceFromSphere(cam, center[0], center[1], center[2], minDist, maxDist);
 
             int spinSign = cam.followTarget ? planet.spinSignOrbit : planet.spinSignFree;
             angle += planet.spinDegPerSec * dt * spinSign;
-
-            // Frame
-            glViewport(0, 0, win.width(), win.height());
-            glClearColor(0.06f, 0.07f, 0.09f, 1f);
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-            float[] proj = cam.projMatrix(win.width(), win.height());
-            float[] view = cam.viewMatrix();
-
-            // Lighting comes from cfg.lighting (held by renderer)
-            renderer.drawPlanet(planet, proj, view, angle, win.width(), win.height(), cam, cfg.lighting.direction);
-
-            // Overlay last
-            menu.render(win.width(), win.height());
-
-            win.swap();
-            win.poll();
+            return snapshot(tick, sampledNanos, simTime + dt);
         }
 
-        // Cleanup
-        renderer.delete();
-        planetShader.delete();
-        if (atmoShader != null) atmoShader.delete();
-        gizmoShader.delete();
-        sphere.delete();
-        if (planet.albedo != null) planet.albedo.delete();
-        win.destroy();
+        SimSnapshot snapshot(long tick, long sampledNanos, double simTime) {
+            return new SimSnapshot(tick, sampledNanos, System.nanoTime() - sampledNanos, simTime, angle,
+                    orbits.copyBodies(), orbits.copyFree(), cam);
+        }
     }
 
     // ---------------- helpers kept local (tiny & generic) ----------------
 
     private PlanetConfig loadPlanetConfig() {
-        try {
-            String json = Resources.text("data/planet.json");
-            PlanetConfig cfg = new com.google.gson.Gson().fromJson(json, PlanetConfig.class);
-            if (cfg == null) throw new RuntimeException("Empty planet config");
-            cfg.applyDefaultsIfNeeded();
+        List<String> warnings = new ArrayList<>();
+        try (Reader r = Resources.reader(HotReload.CONFIG_PATH)) {
+            PlanetConfig cfg = PlanetConfigReader.read(r, warnings);
+            for (String w : warnings) System.err.println("planet.json: " + w);
             return cfg;
         } catch (Exception e) {
-            System.err.println("planet.json not found/invalid; using defaults. " + e);
+            System.err.println("planet.json not found/invalid; using defaults. " + e.getMessage());
             PlanetConfig cfg = new PlanetConfig();
             cfg.center = new float[]{0,0,0};
             cfg.baseRadius = 1f;
@@ -153,17 +402,82 @@ public class Main {
 
     private static AtmosphereRenderer.Settings toAtmoSettings(PlanetConfig.Atmosphere a){
         AtmosphereRenderer.Settings s = new AtmosphereRenderer.Settings();
+        copyAtmoSettings(a, s);
+        return s;
+    }
+
+    private static void copyAtmoSettings(PlanetConfig.Atmosphere a, AtmosphereRenderer.Settings s){
         s.enabled = (a != null) && a.enabled;
         if (a != null) {
             s.thicknessPct = a.thicknessPct;
             s.intensity    = a.intensity;
             s.color        = new float[]{ a.color[0], a.color[1], a.color[2] };
         }
-        return s;
     }
 
-    private Texture loadAlbedo(String path) {
+    /**
+     * Copies the changed sections of a reloaded config into the live objects, which the
+     * renderer and menu hold by reference. Runs between frames, so nothing sees it half done.
+     * Sections baked into meshes or the simulation at startup only get a warning.
+     */
+    private static void applyConfig(PlanetConfig cfg, PlanetConfig next, Set<String> sections,
+                                    AtmosphereRenderer.Settings atmoSettings) {
+        for (String section : sections) {
+            switch (section) {
+                case "lighting" -> {
+                    normalizeDir(next.lighting.direction);
+                    System.arraycopy(next.lighting.direction, 0, cfg.lighting.direction, 0, 3);
+                    System.arraycopy(next.lighting.color, 0, cfg.lighting.color, 0, 3);
+                    cfg.lighting.intensity = next.lighting.intensity;
+                }
+                case "atmosphere" -> {
+                    cfg.atmosphere = next.atmosphere;
+                    copyAtmoSettings(next.atmosphere, atmoSettings);
+                }
+                case "clouds" -> {
+                    cfg.clouds.enabled = next.clouds.enabled;
+                    cfg.clouds.layers  = next.clouds.layers;
+                }
+                default -> System.err.println("planet.json: '" + section + "' changed; restart to apply");
+            }
+        }
+    }
+
+    private static ScenePack openPack(String file) {
+        if (file == null || file.isBlank()) return null;
+        try { return ScenePack.open(Path.of(file)); }
+        catch (Exception e) {
+            System.err.println("Could not open scene pack, loading resources instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private PlanetConfig packConfig(ScenePack pack) {
+        List<String> warnings = new ArrayList<>();
+        try {
+            PlanetConfig cfg = pack.config(warnings);
+            for (String w : warnings) System.err.println("planet.json (pack): " + w);
+            return cfg;
+        } catch (Exception e) {
+            System.err.println("Scene pack config invalid: " + e.getMessage());
+            return loadPlanetConfig();
+        }
+    }
+
+    private static Mesh loadSphere(ScenePack pack, float radius) {
+        ScenePack.Entry e = pack != null
+                ? pack.find(ScenePack.TYPE_MESH, ScenePack.sphereName(SPHERE_STACKS, SPHERE_SLICES, radius)) : null;
+        Mesh m = (e != null) ? new Mesh(pack.meshVertices(e), pack.meshIndices(e), e.p[2], e.p[0])
+                : Mesh.uvSphere(SPHERE_STACKS, SPHERE_SLICES, radius);
+        // the pack is closed after startup, so eviction rebuilds from scratch either way
+        m.setSource(() -> Mesh.uvSphereData(SPHERE_STACKS, SPHERE_SLICES, radius));
+        return m;
+    }
+
+    private Texture loadAlbedo(ScenePack pack, String path) {
         if (path == null || path.isBlank()) return null;
+        ScenePack.Entry packed = pack != null ? pack.find(ScenePack.TYPE_TEXTURE, path) : null;
+        if (packed != null) return Texture.fromPixels(path, packed.p[0], packed.p[1], packed.p[2], pack.blob(packed));
         try { return Texture.load(path); }
         catch (Exception e) {
             System.err.println("Could not load albedo: " + e.getMessage());
@@ -171,8 +485,8 @@ public class Main {
         }
     }
 
-    private void aimFreeCameraAt(Camera c, float tx, float ty, float tz) {
-        float vx = tx - c.x, vy = ty - c.y, vz = tz - c.z;
+    private static void aimFreeCameraAt(Camera c, double tx, double ty, double tz) {
+        float vx = (float)(tx - c.x), vy = (float)(ty - c.y), vz = (float)(tz - c.z);
         float len = (float)Math.sqrt(vx*vx + vy*vy + vz*vz);
         if (len < 1e-6f) { c.pitchDeg = 0f; return; }
         vx /= len; vy /= len; vz /= len;
@@ -183,23 +497,38 @@ public class Main {
     }
 
     // Keep the camera outside the planet shell
-    private void enforceDistanceFromSphere(Camera c, Planet p, float minDist, float maxDist) {
-        float dx = c.x - p.cx, dy = c.y - p.cy, dz = c.z - p.cz;
-        float dist = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
-        if (dist <= 1e-6f) { c.x = p.cx; c.y = p.cy; c.z = p.cz + minDist; return; }
-        float inv = 1f / dist;
-        float dirX = dx * inv, dirY = dy * inv, dirZ = dz * inv;
+    private static void enforceDistanceFromSphere(Camera c, double cx, double cy, double cz, float minDist, float maxDist) {
+        double dx = c.x - cx, dy = c.y - cy, dz = c.z - cz;
+        double dist = Math.sqrt(dx*dx + dy*dy + dz*dz);
+        if (dist <= 1e-6) { c.x = cx; c.y = cy; c.z = cz + minDist; return; }
+        double inv = 1.0 / dist;
+        double dirX = dx * inv, dirY = dy * inv, dirZ = dz * inv;
         if (dist < minDist) {
-            c.x = p.cx + dirX * minDist;
-            c.y = p.cy + dirY * minDist;
-            c.z = p.cz + dirZ * minDist;
+            c.x = cx + dirX * minDist;
+            c.y = cy + dirY * minDist;
+            c.z = cz + dirZ * minDist;
         } else if (dist > maxDist) {
-            c.x = p.cx + dirX * maxDist;
-            c.y = p.cy + dirY * maxDist;
-            c.z = p.cz + dirZ * maxDist;
+            c.x = cx + dirX * maxDist;
+            c.y = cy + dirY * maxDist;
+            c.z = cz + dirZ * maxDist;
         }
     }
 
+    // asteroids as small depth-tested crosses; fine for debugging-scale belts
+    // three crossed ticks per body, written straight into reserved debug lines by the workers
+    private static void drawBelt(RenderWorkers workers, DebugDraw debug, double[] pos, int n, Camera eye, float s) {
+        int first = debug.reserveLines(3 * n, true);
+        if (first < 0) return;
+        double ex = eye.x, ey = eye.y, ez = eye.z;
+        workers.forEach(n, (w, i) -> {
+            float x = (float)(pos[i*3] - ex), y = (float)(pos[i*3+1] - ey), z = (float)(pos[i*3+2] - ez);
+            int line = first + 3 * i;
+            debug.putLine(line,     true, x - s, y, z, x + s, y, z, DebugDraw.GREY);
+            debug.putLine(line + 1, true, x, y - s, z, x, y + s, z, DebugDraw.GREY);
+            debug.putLine(line + 2, true, x, y, z - s, x, y, z + s, DebugDraw.GREY);
+        });
+    }
+
     private static void normalizeDir(float[] d){
         float L = (float)Math.sqrt(d[0]*d[0]+d[1]*d[1]+d[2]*d[2]);
         if (L < 1e-6f){ d[0]=1; d[1]=0; d[2]=0; return; }
@@ -0,0 +1,80 @@
+package app;
+
+import engine.config.PlanetConfig;
+import engine.config.PlanetConfigReader;
+import engine.gl.Texture;
+import engine.scene.Mesh;
+import engine.scene.ScenePack;
+import engine.util.HotReload;
+import engine.util.Resources;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Builds a {@link ScenePack} from planet.json and what it references: the planet sphere as
+ * Main tessellates it, and the albedo / cloud layer textures decoded to raw pixels. No GL.
+ *
+ *   gradle pack                          -> build/scene.pack from src/main/resources
+ *   PackTool <out.pack> [resources dir]
+ *
+ * Run the app on it with -Dplanet.pack=<out.pack>.
+ */
+public final class PackTool {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: PackTool <out.pack> [resources dir]");
+            System.exit(2);
+        }
+        Path out = Path.of(args[0]);
+        Path res = Path.of(args.length > 1 ? args[1] : "src/main/resources");
+        if (Files.isDirectory(res)) Resources.setDevRoot(res);
+
+        long t0 = System.nanoTime();
+        String json = Resources.text(HotReload.CONFIG_PATH);
+        List<String> warnings = new ArrayList<>();
+        PlanetConfig cfg = PlanetConfigReader.read(new StringReader(json), warnings);
+        for (String w : warnings) System.err.println("planet.json: " + w);
+
+        ScenePack.Writer w = new ScenePack.Writer().config(json);
+        w.mesh(ScenePack.sphereName(Main.SPHERE_STACKS, Main.SPHERE_SLICES, cfg.baseRadius),
+                Mesh.uvSphereData(Main.SPHERE_STACKS, Main.SPHERE_SLICES, cfg.baseRadius),
+                Main.SPHERE_STACKS, Main.SPHERE_SLICES);
+
+        Set<String> textures = new LinkedHashSet<>();
+        if (cfg.albedo != null && !cfg.albedo.isBlank()) textures.add(cfg.albedo);
+        for (var L : cfg.clouds.layers) if (L.texture != null && !L.texture.isBlank()) textures.add(L.texture);
+
+        // decoded images stay alive until the pack is written
+        List<Texture.Image> images = new ArrayList<>();
+        List<ByteBuffer> encoded = new ArrayList<>();
+        try {
+            for (String path : textures) {
+                byte[] bytes = Resources.bytes(path);
+                if (bytes == null) { System.err.println("missing texture, skipped: " + path); continue; }
+                ByteBuffer enc = memAlloc(bytes.length);
+                encoded.add(enc);
+                enc.put(bytes).flip();
+                Texture.Image img = Texture.decode(enc, path);
+                images.add(img);
+                w.texture(path, img.width, img.height, img.channels, img.pixels);
+            }
+            w.write(out);
+        } finally {
+            for (Texture.Image img : images) img.close();
+            for (ByteBuffer b : encoded) memFree(b);
+        }
+
+        System.out.printf("Wrote %s: %d bytes, 1 mesh, %d texture(s) in %.1f ms%n",
+                out, Files.size(out), images.size(), (System.nanoTime() - t0) / 1e6);
+    }
+}
@@ -0,0 +1,268 @@
+package engine.config;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming reader for planet.json: one pass over the input with a {@link JsonReader}, no
+ * reflection and no intermediate tree. Unknown keys and out-of-range values are reported
+ * as warnings (values are clamped the same way {@link PlanetConfig#applyDefaultsIfNeeded}
+ * does); wrong types and malformed JSON throw a {@link ConfigException} with the JSON path
+ * and line/column of the offending value.
+ */
+public final class PlanetConfigReader {
+    private final JsonReader in;
+    private final List<String> warnings;   // nullable
+
+    private PlanetConfigReader(Reader reader, List<String> warnings) {
+        this.in = new JsonReader(reader);
+        in.setStrictness(Strictness.LENIENT);   // comments etc., as Gson.fromJson accepted
+        this.warnings = warnings;
+    }
+
+    /** Parses a whole config; {@code warnings} (may be null) collects non-fatal problems. */
+    public static PlanetConfig read(Reader reader, List<String> warnings) {
+        PlanetConfigReader r = new PlanetConfigReader(reader, warnings);
+        try {
+            PlanetConfig cfg = r.planet();
+            if (r.in.peek() != JsonToken.END_DOCUMENT) throw r.error("trailing content after the config object");
+            cfg.applyDefaultsIfNeeded();   // fills whatever was absent
+            return cfg;
+        } catch (ConfigException e) {
+            throw e;
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new ConfigException(e.getMessage(), e);   // already carries line/column/path
+        } catch (IOException | NumberFormatException e) {
+            throw r.error(e.getMessage());
+        }
+    }
+
+    /** Bad planet.json; the message carries the JSON path and line/column. */
+    public static class ConfigException extends RuntimeException {
+        public ConfigException(String message) { super(message); }
+        public ConfigException(String message, Throwable cause) { super(message, cause); }
+    }
+
+    // ---- objects ----
+    private PlanetConfig planet() throws IOException {
+        PlanetConfig c = new PlanetConfig();
+        expect(JsonToken.BEGIN_OBJECT, "an object");
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "center"          -> c.center = vec(3);
+                case "baseRadius"      -> c.baseRadius = positive(num(), 1f);
+                case "size"            -> c.size = vec(3);
+                case "minMarginPct"    -> c.minMarginPct = positive(num(), 0.15f);
+                case "maxDistanceMult" -> c.maxDistanceMult = num();
+                case "spinDegPerSec"   -> c.spinDegPerSec = num();
+                case "spinSignFree"    -> c.spinSignFree = sign();
+                case "spinSignOrbit"   -> c.spinSignOrbit = sign();
+                case "albedo"          -> c.albedo = str();
+                case "atmosphere"      -> c.atmosphere = atmosphere();
+                case "clouds"          -> c.clouds = clouds();
+                case "lighting"        -> c.lighting = lighting();
+                default                -> unknown(name);
+            }
+        }
+        in.endObject();
+        return c;
+    }
+
+    private PlanetConfig.Atmosphere atmosphere() throws IOException {
+        if (skipNull()) return null;
+        PlanetConfig.Atmosphere a = new PlanetConfig.Atmosphere();
+        expect(JsonToken.BEGIN_OBJECT, "an object");
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "enabled"      -> a.enabled = bool();
+                case "thicknessPct" -> a.thicknessPct = range(num(), 0f, 1f);
+                case "intensity"    -> a.intensity = range(num(), 0f, Float.MAX_VALUE);
+                case "power"        -> a.power = positive(num(), 3f);
+                case "color"        -> a.color = color();
+                default             -> unknown(name);
+            }
+        }
+        in.endObject();
+        return a;
+    }
+
+    private PlanetConfig.Clouds clouds() throws IOException {
+        if (skipNull()) return null;
+        PlanetConfig.Clouds c = new PlanetConfig.Clouds();
+        expect(JsonToken.BEGIN_OBJECT, "an object");
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "enabled" -> c.enabled = bool();
+                case "layers"  -> c.layers = layers();
+                default        -> unknown(name);
+            }
+        }
+        in.endObject();
+        return c;
+    }
+
+    private PlanetConfig.Clouds.Layer[] layers() throws IOException {
+        PlanetConfig.Clouds.Layer[] out = new PlanetConfig.Clouds.Layer[4];
+        int n = 0;
+        expect(JsonToken.BEGIN_ARRAY, "an array of layers");
+        in.beginArray();
+        while (in.hasNext()) {
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = layer();
+        }
+        in.endArray();
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private PlanetConfig.Clouds.Layer layer() throws IOException {
+        PlanetConfig.Clouds.Layer L = new PlanetConfig.Clouds.Layer();
+        expect(JsonToken.BEGIN_OBJECT, "an object");
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "altitudePct"   -> L.altitudePct = range(num(), 0.001f, Float.MAX_VALUE);
+                case "thicknessPct"  -> L.thicknessPct = range(num(), 0f, Float.MAX_VALUE);
+                case "color"         -> L.color = color();
+                case "opacity"       -> L.opacity = range(num(), 0f, 1f);
+                case "scrollUV"      -> L.scrollUV = vec(2);
+                case "rotationDegPS" -> L.rotationDegPS = num();
+                case "coverage"      -> L.coverage = range(num(), 0f, 1f);
+                case "noiseScale"    -> L.noiseScale = range(num(), 0.1f, Float.MAX_VALUE);
+                case "texture"       -> L.texture = str();
+                case "storminess"    -> L.storminess = range(num(), 0f, 1f);
+                default              -> unknown(name);
+            }
+        }
+        in.endObject();
+        return L;
+    }
+
+    private PlanetConfig.Lighting lighting() throws IOException {
+        if (skipNull()) return new PlanetConfig.Lighting();   // nothing downstream copes with null lighting
+        PlanetConfig.Lighting L = new PlanetConfig.Lighting();
+        expect(JsonToken.BEGIN_OBJECT, "an object");
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "direction" -> L.direction = requiredVec(3);
+                case "color"     -> L.color = requiredVec(3);
+                case "intensity" -> L.intensity = range(num(), 0f, Float.MAX_VALUE);
+                default          -> unknown(name);
+            }
+        }
+        in.endObject();
+        return L;
+    }
+
+    // ---- values ----
+    private float num() throws IOException {
+        expect(JsonToken.NUMBER, "a number");
+        double d = in.nextDouble();
+        if (Double.isNaN(d) || Double.isInfinite(d)) throw error("number out of range");
+        return (float) d;
+    }
+
+    private boolean bool() throws IOException {
+        expect(JsonToken.BOOLEAN, "true or false");
+        return in.nextBoolean();
+    }
+
+    private String str() throws IOException {
+        if (skipNull()) return null;
+        expect(JsonToken.STRING, "a string");
+        return in.nextString();
+    }
+
+    private int sign() throws IOException {
+        float v = num();
+        if (v != -1f && v != 0f && v != 1f) throw error("expected -1, 0 or +1 but was " + v);
+        return (int) v;
+    }
+
+    private float[] vec(int len) throws IOException {
+        if (skipNull()) return null;
+        expect(JsonToken.BEGIN_ARRAY, "an array of " + len + " numbers");
+        float[] v = new float[len];
+        int n = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            float x = num();
+            if (n < len) v[n] = x;
+            n++;
+        }
+        in.endArray();
+        if (n != len) throw error("expected " + len + " numbers but got " + n);
+        return v;
+    }
+
+    // null would pass as "absent" but nothing fills it in later
+    private float[] requiredVec(int len) throws IOException {
+        expect(JsonToken.BEGIN_ARRAY, "an array of " + len + " numbers");
+        return vec(len);
+    }
+
+    private float[] color() throws IOException {
+        float[] c = vec(3);
+        if (c != null) for (int i = 0; i < 3; i++)
+            if (!(c[i] >= 0f && c[i] <= 1f)) c[i] = clampWarn(c[i], 0f, 1f, in.getPath() + "[" + i + "]");
+        return c;
+    }
+
+    // ---- validation ----
+    // the path string is only built when something is wrong
+    private float range(float v, float lo, float hi) {
+        return (v >= lo && v <= hi) ? v : clampWarn(v, lo, hi, in.getPath());
+    }
+
+    private float clampWarn(float v, float lo, float hi, String path) {
+        float c = v < lo ? lo : hi;
+        warn(path + ": " + v + " clamped to " + c);
+        return c;
+    }
+
+    private float positive(float v, float fallback) {
+        if (v > 0) return v;
+        warn(in.getPath() + ": " + v + " must be > 0, using " + fallback);
+        return fallback;
+    }
+
+    private void unknown(String name) throws IOException {
+        warn(in.getPath() + ": unknown key '" + name + "' ignored");
+        in.skipValue();
+    }
+
+    private boolean skipNull() throws IOException {
+        if (in.peek() != JsonToken.NULL) return false;
+        in.nextNull();
+        return true;
+    }
+
+    private void expect(JsonToken token, String what) throws IOException {
+        JsonToken t = in.peek();
+        if (t != token) throw error("expected " + what + " but was " + t);
+    }
+
+    private void warn(String msg) { if (warnings != null) warnings.add(msg); }
+
+    // JsonReader.toString() is "JsonReader at line L column C path P"
+    private ConfigException error(String msg) {
+        String loc = in.toString();
+        int at = loc.indexOf(" at line ");
+        return new ConfigException(msg + (at >= 0 ? loc.substring(at) : " at " + in.getPath()));
+    }
+}
@@ -0,0 +1,407 @@
+package engine.debug;
+
+import engine.gl.Depth;
+import engine.gl.Shader;
+import engine.gl.StreamBuffer;
+import engine.perf.GlCounters;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Immediate-mode debug lines: anything can add lines, spheres, orbits, frusta or grids during
+ * the frame, and {@link #flush} draws the lot through the shared {@link StreamBuffer}, one
+ * draw for the depth-tested lines and one for the always-on-top ones (more only if a frame
+ * outgrows a stream region).
+ *
+ * Every primitive takes {@code depth} (test against the scene, or draw over it) and
+ * {@code seconds}: 0 lives for the current frame, anything else keeps it that long, which is
+ * handy for freezing something (a culling frustum, a trajectory) and flying around it.
+ *
+ * Coordinates are in the renderer's camera-relative space (world minus the eye). Call
+ * {@link #setEye} each frame before adding anything so timed primitives stay put in the
+ * world while the eye moves.
+ *
+ * Vertices are 16 bytes: xyz floats + rgba8 from {@link #rgba}. GL thread only, apart from
+ * {@link #putLine} into lines reserved with {@link #reserveLines}.
+ */
+public final class DebugDraw {
+    private static final int VERTEX_BYTES = 16;
+    private static final int LINE_BYTES = 2 * VERTEX_BYTES;
+    private static final int DEFAULT_SEGMENTS = 48;
+
+    // packed colors for the common cases
+    public static final int RED = rgba(1f, 0.25f, 0.2f, 1f), GREEN = rgba(0.3f, 1f, 0.35f, 1f),
+            BLUE = rgba(0.3f, 0.5f, 1f, 1f), YELLOW = rgba(1f, 0.9f, 0.2f, 1f),
+            CYAN = rgba(0.3f, 0.95f, 1f, 1f), WHITE = rgba(1f, 1f, 1f, 1f), GREY = rgba(0.6f, 0.6f, 0.6f, 0.6f);
+
+    /** Growable off-heap vertex list; timed ones also remember where each primitive ends. */
+    private static final class Lines {
+        ByteBuffer buf = memAlloc(64 * 1024);
+        int size;                          // bytes
+        long[] expiry = new long[16];      // timed lists only: System.nanoTime() deadline per range
+        int[] ends = new int[16];
+        int ranges;
+
+        void vertex(float x, float y, float z, int rgba) {
+            if (size + VERTEX_BYTES > buf.capacity()) buf = memRealloc(buf, buf.capacity() * 2);
+            buf.putFloat(size, x).putFloat(size + 4, y).putFloat(size + 8, z).putInt(size + 12, rgba);
+            size += VERTEX_BYTES;
+        }
+
+        void endRange(long deadline) {
+            if (ranges == ends.length) {
+                ends = Arrays.copyOf(ends, ranges * 2);
+                expiry = Arrays.copyOf(expiry, ranges * 2);
+            }
+            ends[ranges] = size;
+            expiry[ranges++] = deadline;
+        }
+
+        // drop ranges past their deadline, sliding the survivors down
+        void expire(long now) {
+            int read = 0, write = 0, kept = 0;
+            for (int i = 0; i < ranges; i++) {
+                int end = ends[i], len = end - read;
+                if (expiry[i] > now) {
+                    if (write != read) memCopy(memAddress(buf) + read, memAddress(buf) + write, len);
+                    write += len;
+                    ends[kept] = write;
+                    expiry[kept++] = expiry[i];
+                }
+                read = end;
+            }
+            ranges = kept;
+            size = write;
+        }
+
+        void shift(float dx, float dy, float dz) {
+            for (int at = 0; at < size; at += VERTEX_BYTES) {
+                buf.putFloat(at, buf.getFloat(at) + dx)
+                   .putFloat(at + 4, buf.getFloat(at + 4) + dy)
+                   .putFloat(at + 8, buf.getFloat(at + 8) + dz);
+            }
+        }
+
+        void reserve(int bytes) {
+            if (size + bytes > buf.capacity()) buf = memRealloc(buf, Math.max(buf.capacity() * 2, size + bytes));
+        }
+
+        void append(Lines other) {
+            while (size + other.size > buf.capacity()) buf = memRealloc(buf, buf.capacity() * 2);
+            memCopy(memAddress(other.buf), memAddress(buf) + size, other.size);
+            size += other.size;
+        }
+
+        void free() { memFree(buf); }
+    }
+
+    private final Shader shader;
+    private final StreamBuffer stream = StreamBuffer.shared();
+    private final int vao;
+    // [0] depth-tested, [1] on top; frame = this frame only, timed = until their deadline
+    private final Lines[] frame = { new Lines(), new Lines() };
+    private final Lines[] timed = { new Lines(), new Lines() };
+    private int linesLastFlush;
+    private double eyeX, eyeY, eyeZ;
+
+    public boolean enabled = true;
+
+    public DebugDraw(Shader shader) {
+        this.shader = shader;
+        vao = glGenVertexArrays();
+        glBindVertexArray(vao);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glBindVertexArray(0);
+    }
+
+    /** Packs a color for the primitives; components 0..1. */
+    public static int rgba(float r, float g, float b, float a) {
+        int packed = (int)(clamp01(r) * 255f + 0.5f)
+                | (int)(clamp01(g) * 255f + 0.5f) << 8
+                | (int)(clamp01(b) * 255f + 0.5f) << 16
+                | (int)(clamp01(a) * 255f + 0.5f) << 24;
+        return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? packed : Integer.reverseBytes(packed);
+    }
+
+    public int linesLastFlush() { return linesLastFlush; }
+
+    /** World eye for this frame; moves the timed primitives into the new camera-relative space. */
+    public void setEye(double x, double y, double z) {
+        float dx = (float)(eyeX - x), dy = (float)(eyeY - y), dz = (float)(eyeZ - z);
+        eyeX = x; eyeY = y; eyeZ = z;
+        if (dx == 0f && dy == 0f && dz == 0f) return;
+        for (Lines L : timed) L.shift(dx, dy, dz);
+    }
+
+    // ---- primitives ----
+    public void line(float ax, float ay, float az, float bx, float by, float bz, int rgba) {
+        line(ax, ay, az, bx, by, bz, rgba, true, 0f);
+    }
+
+    public void line(float ax, float ay, float az, float bx, float by, float bz, int rgba,
+                     boolean depth, float seconds) {
+        Lines L = target(depth, seconds);
+        L.vertex(ax, ay, az, rgba);
+        L.vertex(bx, by, bz, rgba);
+        done(L, seconds);
+    }
+
+    /**
+     * Room for n lines that last this frame; returns the first one's index, or -1 when drawing
+     * is off. Fill them with {@link #putLine}, from any threads as long as no line is written
+     * twice; nothing else may be added with the same {@code depth} until they're all written.
+     */
+    public int reserveLines(int n, boolean depth) {
+        if (!enabled) return -1;
+        Lines L = frame[depth ? 0 : 1];
+        L.reserve(n * LINE_BYTES);
+        int first = L.size / LINE_BYTES;
+        L.size += n * LINE_BYTES;
+        return first;
+    }
+
+    public void putLine(int line, boolean depth, float ax, float ay, float az, float bx, float by, float bz, int rgba) {
+        ByteBuffer b = frame[depth ? 0 : 1].buf;
+        int at = line * LINE_BYTES;
+        b.putFloat(at, ax).putFloat(at + 4, ay).putFloat(at + 8, az).putInt(at + 12, rgba)
+         .putFloat(at + 16, bx).putFloat(at + 20, by).putFloat(at + 24, bz).putInt(at + 28, rgba);
+    }
+
+    /** X/Y/Z axes in red/green/blue. */
+    public void axes(float x, float y, float z, float size, boolean depth, float seconds) {
+        Lines L = target(depth, seconds);
+        L.vertex(x, y, z, RED);   L.vertex(x + size, y, z, RED);
+        L.vertex(x, y, z, GREEN); L.vertex(x, y + size, z, GREEN);
+        L.vertex(x, y, z, BLUE);  L.vertex(x, y, z + size, BLUE);
+        done(L, seconds);
+    }
+
+    /** Three great circles (XY, YZ, ZX planes). */
+    public void sphere(float cx, float cy, float cz, float r, int rgba, boolean depth, float seconds) {
+        Lines L = target(depth, seconds);
+        circle(L, cx, cy, cz, r, 0, 0, 0, r, 0, DEFAULT_SEGMENTS, rgba);
+        circle(L, cx, cy, cz, 0, r, 0, 0, 0, r, DEFAULT_SEGMENTS, rgba);
+        circle(L, cx, cy, cz, 0, 0, r, r, 0, 0, DEFAULT_SEGMENTS, rgba);
+        done(L, seconds);
+    }
+
+    /** Closed curve c + u·cos t + v·sin t; u and v are the semi-axes (any lengths, any angle). */
+    public void ellipse(float cx, float cy, float cz, float ux, float uy, float uz,
+                        float vx, float vy, float vz, int segments, int rgba, boolean depth, float seconds) {
+        Lines L = target(depth, seconds);
+        circle(L, cx, cy, cz, ux, uy, uz, vx, vy, vz, segments, rgba);
+        done(L, seconds);
+    }
+
+    /**
+     * Kepler orbit around a focus at (fx, fy, fz): semi-major axis {@code a}, eccentricity
+     * {@code e} (< 1), and inclination / longitude of the ascending node / argument of
+     * periapsis in degrees. The reference plane is XZ with +Y as its north, like the planets.
+     */
+    public void orbit(float fx, float fy, float fz, float a, float e,
+                      float incDeg, float nodeDeg, float periDeg, int rgba, boolean depth, float seconds) {
+        if (!(e >= 0f && e < 1f) || a <= 0f) return;
+        double i = Math.toRadians(incDeg), O = Math.toRadians(nodeDeg), w = Math.toRadians(periDeg);
+        double cO = Math.cos(O), sO = Math.sin(O), ci = Math.cos(i), si = Math.sin(i), cw = Math.cos(w), sw = Math.sin(w);
+        // perifocal P (towards periapsis) and Q (90° ahead) in the usual z-up frame; z-up
+        // (x, y, z) is y-up (x, z, -y), a proper rotation, so prograde stays prograde
+        double px = cO*cw - sO*sw*ci, py = sO*cw + cO*sw*ci, pz = sw*si;
+        double qx = -cO*sw - sO*cw*ci, qy = -sO*sw + cO*cw*ci, qz = cw*si;
+        float b = a * (float)Math.sqrt(1.0 - e * e);
+        // the ellipse centre sits a·e from the focus, away from periapsis
+        float cx = fx - a * e * (float)px, cy = fy - a * e * (float)pz, cz = fz + a * e * (float)py;
+        Lines L = target(depth, seconds);
+        circle(L, cx, cy, cz, a * (float)px, a * (float)pz, -a * (float)py,
+                b * (float)qx, b * (float)qz, -b * (float)qy, Math.max(DEFAULT_SEGMENTS, (int)(96 * (1 + e * 4))), rgba);
+        done(L, seconds);
+    }
+
+    /**
+     * The 12 edges of the volume proj × view sees (e.g. a frozen culling frustum). With an
+     * infinite reversed-Z projection the far face is drawn at 1000× the near distance.
+     */
+    public void frustum(float[] proj, float[] view, int rgba, boolean depth, float seconds) {
+        float[] inv = invert(mul(proj, view));
+        float zNear = Depth.reversed() ? 1f : -1f, zFar = Depth.reversed() ? 1e-3f : 1f;
+        float[] c = new float[24];
+        for (int k = 0; k < 8; k++) {
+            float x = (k & 1) != 0 ? 1 : -1, y = (k & 2) != 0 ? 1 : -1, z = (k & 4) != 0 ? zFar : zNear;
+            float wx = inv[0]*x + inv[4]*y + inv[8]*z  + inv[12];
+            float wy = inv[1]*x + inv[5]*y + inv[9]*z  + inv[13];
+            float wz = inv[2]*x + inv[6]*y + inv[10]*z + inv[14];
+            float ww = inv[3]*x + inv[7]*y + inv[11]*z + inv[15];
+            float s = Math.abs(ww) > 1e-12f ? 1f / ww : 0f;
+            c[k*3] = wx * s; c[k*3+1] = wy * s; c[k*3+2] = wz * s;
+        }
+        Lines L = target(depth, seconds);
+        for (int k = 0; k < 8; k++) {
+            for (int bit = 1; bit < 8; bit <<= 1) {
+                int j = k | bit;
+                if (j == k) continue;   // each edge once, from its lower corner
+                L.vertex(c[k*3], c[k*3+1], c[k*3+2], rgba);
+                L.vertex(c[j*3], c[j*3+1], c[j*3+2], rgba);
+            }
+        }
+        done(L, seconds);
+    }
+
+    /**
+     * Latitude circles and meridians on a sphere spun {@code spinDeg} about +Y (the same
+     * spin the planet model uses), so the grid sticks to the surface.
+     */
+    public void latLongGrid(float cx, float cy, float cz, float r, float spinDeg,
+                            int latitudes, int meridians, int rgba, boolean depth, float seconds) {
+        Lines L = target(depth, seconds);
+        for (int i = 1; i <= latitudes; i++) {
+            double lat = Math.PI * ((double)i / (latitudes + 1) - 0.5);
+            float rr = r * (float)Math.cos(lat);
+            circle(L, cx, cy + r * (float)Math.sin(lat), cz, rr, 0, 0, 0, 0, rr, DEFAULT_SEGMENTS, rgba);
+        }
+        double spin = Math.toRadians(spinDeg);
+        int half = DEFAULT_SEGMENTS / 2;
+        for (int m = 0; m < meridians; m++) {
+            double lon = spin + 2 * Math.PI * m / meridians;
+            // matRotateY convention: (1, 0, 0) turns to (cos, 0, -sin)
+            float dx = (float)Math.cos(lon), dz = -(float)Math.sin(lon);
+            float px = cx, py = cy - r, pz = cz;   // south pole up to the north pole
+            for (int s = 1; s <= half; s++) {
+                double t = Math.PI * s / half - Math.PI / 2;
+                float ct = (float)Math.cos(t);
+                float qx = cx + dx * r * ct, qy = cy + r * (float)Math.sin(t), qz = cz + dz * r * ct;
+                L.vertex(px, py, pz, rgba);
+                L.vertex(qx, qy, qz, rgba);
+                px = qx; py = qy; pz = qz;
+            }
+        }
+        done(L, seconds);
+    }
+
+    /** Drops every timed primitive. */
+    public void clear() {
+        for (Lines L : timed) { L.size = 0; L.ranges = 0; }
+    }
+
+    // ---- drawing ----
+    /**
+     * Draws everything queued this frame plus the live timed primitives, then empties the
+     * frame lists. Call once, with the scene's depth buffer bound.
+     */
+    public void flush(float[] proj, float[] view) {
+        long now = System.nanoTime();
+        linesLastFlush = 0;
+        for (int d = 0; d < 2; d++) {
+            timed[d].expire(now);
+            if (enabled) frame[d].append(timed[d]);
+        }
+        if (!enabled || (frame[0].size == 0 && frame[1].size == 0)) {
+            frame[0].size = frame[1].size = 0;
+            return;
+        }
+
+        shader.use();
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(), "uProj"), false, proj);
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(), "uView"), false, view);
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, stream.vbo());
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glDepthMask(false);
+
+        for (int d = 0; d < 2; d++) {
+            Lines L = frame[d];
+            if (L.size == 0) continue;
+            if (d == 0) glEnable(GL_DEPTH_TEST); else glDisable(GL_DEPTH_TEST);
+            int chunkMax = (int)Math.min(Integer.MAX_VALUE, stream.regionBytes()) / LINE_BYTES * LINE_BYTES;
+            for (int at = 0; at < L.size; at += chunkMax) {
+                int bytes = Math.min(chunkMax, L.size - at);
+                ByteBuffer dst = stream.begin(bytes);
+                memCopy(memAddress(L.buf) + at, memAddress(dst) + stream.base(), bytes);
+                long offset = stream.commit(bytes);
+                glBindBuffer(GL_ARRAY_BUFFER, stream.vbo());
+                glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_BYTES, offset);
+                glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, VERTEX_BYTES, offset + 12);
+                glDrawArrays(GL_LINES, 0, bytes / VERTEX_BYTES);
+                GlCounters.draw();
+            }
+            linesLastFlush += L.size / LINE_BYTES;
+            L.size = 0;
+        }
+
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glUseProgram(0);
+        glDepthMask(true);
+        glDisable(GL_BLEND);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    public void delete() {
+        glDeleteVertexArrays(vao);
+        for (Lines L : frame) L.free();
+        for (Lines L : timed) L.free();
+    }
+
+    // ---- helpers ----
+    private Lines target(boolean depth, float seconds) {
+        return (seconds > 0f ? timed : frame)[depth ? 0 : 1];
+    }
+
+    private static void done(Lines L, float seconds) {
+        if (seconds > 0f) L.endRange(System.nanoTime() + (long)(seconds * 1e9));
+    }
+
+    private static void circle(Lines L, float cx, float cy, float cz, float ux, float uy, float uz,
+                               float vx, float vy, float vz, int segments, int rgba) {
+        float px = cx + ux, py = cy + uy, pz = cz + uz;
+        for (int s = 1; s <= segments; s++) {
+            double t = 2 * Math.PI * s / segments;
+            float c = (float)Math.cos(t), sn = (float)Math.sin(t);
+            float qx = cx + ux * c + vx * sn, qy = cy + uy * c + vy * sn, qz = cz + uz * c + vz * sn;
+            L.vertex(px, py, pz, rgba);
+            L.vertex(qx, qy, qz, rgba);
+            px = qx; py = qy; pz = qz;
+        }
+    }
+
+    private static float clamp01(float v) { return v < 0f ? 0f : Math.min(1f, v); }
+
+    private static float[] mul(float[] a, float[] b) { float[] r = new float[16];
+        for (int c = 0; c < 4; c++) for (int r0 = 0; r0 < 4; r0++)
+            r[c*4+r0] = a[0*4+r0]*b[c*4+0] + a[1*4+r0]*b[c*4+1] + a[2*4+r0]*b[c*4+2] + a[3*4+r0]*b[c*4+3];
+        return r;
+    }
+
+    private static float[] invert(float[] m) {
+        float[] inv = new float[16];
+        inv[0]  =  m[5]*m[10]*m[15] - m[5]*m[11]*m[14] - m[9]*m[6]*m[15] + m[9]*m[7]*m[14] + m[13]*m[6]*m[11] - m[13]*m[7]*m[10];
+        inv[4]  = -m[4]*m[10]*m[15] + m[4]*m[11]*m[14] + m[8]*m[6]*m[15] - m[8]*m[7]*m[14] - m[12]*m[6]*m[11] + m[12]*m[7]*m[10];
+        inv[8]  =  m[4]*m[9]*m[15]  - m[4]*m[11]*m[13] - m[8]*m[5]*m[15] + m[8]*m[7]*m[13] + m[12]*m[5]*m[11] - m[12]*m[7]*m[9];
+        inv[12] = -m[4]*m[9]*m[14]  + m[4]*m[10]*m[13] + m[8]*m[5]*m[14] - m[8]*m[6]*m[13] - m[12]*m[5]*m[10] + m[12]*m[6]*m[9];
+        inv[1]  = -m[1]*m[10]*m[15] + m[1]*m[11]*m[14] + m[9]*m[2]*m[15] - m[9]*m[3]*m[14] - m[13]*m[2]*m[11] + m[13]*m[3]*m[10];
+        inv[5]  =  m[0]*m[10]*m[15] - m[0]*m[11]*m[14] - m[8]*m[2]*m[15] + m[8]*m[3]*m[14] + m[12]*m[2]*m[11] - m[12]*m[3]*m[10];
+        inv[9]  = -m[0]*m[9]*m[15]  + m[0]*m[11]*m[13] + m[8]*m[1]*m[15] - m[8]*m[3]*m[13] - m[12]*m[1]*m[11] + m[12]*m[3]*m[9];
+        inv[13] =  m[0]*m[9]*m[14]  - m[0]*m[10]*m[13] - m[8]*m[1]*m[14] + m[8]*m[2]*m[13] + m[12]*m[1]*m[10] - m[12]*m[2]*m[9];
+        inv[2]  =  m[1]*m[6]*m[15]  - m[1]*m[7]*m[14]  - m[5]*m[2]*m[15] + m[5]*m[3]*m[14] + m[13]*m[2]*m[7]  - m[13]*m[3]*m[6];
+        inv[6]  = -m[0]*m[6]*m[15]  + m[0]*m[7]*m[14]  + m[4]*m[2]*m[15] - m[4]*m[3]*m[14] - m[12]*m[2]*m[7]  + m[12]*m[3]*m[6];
+        inv[10] =  m[0]*m[5]*m[15]  - m[0]*m[7]*m[13]  - m[4]*m[1]*m[15] + m[4]*m[3]*m[13] + m[12]*m[1]*m[7]  - m[12]*m[3]*m[5];
+        inv[14] = -m[0]*m[5]*m[14]  + m[0]*m[6]*m[13]  + m[4]*m[1]*m[14] - m[4]*m[2]*m[13] - m[12]*m[1]*m[6]  + m[12]*m[2]*m[5];
+        inv[3]  = -m[1]*m[6]*m[11]  + m[1]*m[7]*m[10]  + m[5]*m[2]*m[11] - m[5]*m[3]*m[10] - m[9]*m[2]*m[7]   + m[9]*m[3]*m[6];
+        inv[7]  =  m[0]*m[6]*m[11]  - m[0]*m[7]*m[10]  - m[4]*m[2]*m[11] + m[4]*m[3]*m[10] + m[8]*m[2]*m[7]   - m[8]*m[3]*m[6];
+        inv[11] = -m[0]*m[5]*m[11]  + m[0]*m[7]*m[9]   + m[4]*m[1]*m[11] - m[4]*m[3]*m[9]  - m[8]*m[1]*m[7]   + m[8]*m[3]*m[5];
+        inv[15] =  m[0]*m[5]*m[10]  - m[0]*m[6]*m[9]   - m[4]*m[1]*m[10] + m[4]*m[2]*m[9]  + m[8]*m[1]*m[6]   - m[8]*m[2]*m[5];
+        float det = m[0]*inv[0] + m[1]*inv[4] + m[2]*inv[8] + m[3]*inv[12];
+        if (Math.abs(det) < 1e-20f) return inv;
+        float id = 1f / det;
+        for (int i = 0; i < 16; i++) inv[i] *= id;
+        return inv;
+    }
+}
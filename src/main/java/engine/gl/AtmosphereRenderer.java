@@ -3,13 +3,19 @@ package engine.gl;
 import engine.scene.Mesh;
 import engine.scene.Planet;
 
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL20.*;
-
 public class AtmosphereRenderer {
     private final Shader shader;
     private final Mesh sphere;
 
+    // packets go through the renderer's queue; slots index UNIFORMS
+    private final int pipeline, sphereId;
+    private static final String[] UNIFORMS = {
+            "uProj", "uView", "uModel", "uCamPos", "uLightDir", "uAtmoColor", "uAtmoIntensity",
+            "uPlanetRadius", "uShellRadius", "uCenter",
+    };
+    private static final int U_PROJ = 0, U_VIEW = 1, U_MODEL = 2, U_CAM = 3, U_LIGHT_DIR = 4, U_COLOR = 5,
+            U_INTENSITY = 6, U_PLANET_RADIUS = 7, U_SHELL_RADIUS = 8, U_CENTER = 9;
+
     public static class Settings {
         public boolean enabled;
         public float thicknessPct = 0.02f;
@@ -17,75 +23,53 @@ public class AtmosphereRenderer {
         public float[] color = {0.45f,0.7f,1.0f};
     }
 
-    public AtmosphereRenderer(Shader shader, Mesh sphere) {
+    public AtmosphereRenderer(Shader shader, Mesh sphere, CommandQueue queue) {
         this.shader = shader;
         this.sphere = sphere;
+        this.pipeline = queue.pipeline(shader, UNIFORMS);
+        this.sphereId = queue.mesh(sphere);
     }
 
-    public void draw(Planet p, float[] proj, float[] view, float[] modelBase,
-                     float camX, float camY, float camZ,
-                     float lightX, float lightY, float lightZ,
-                     Settings s) {
+    /**
+     * Records the shell's packet into {@code b}; no GL calls, so any thread. {@code order}
+     * places it among the other blended packets of {@code layer} (back to front), {@code query}
+     * is the occlusion query it is conditional on (0 = none).
+     */
+    public void record(CommandBuffer b, int layer, int order, int query,
+                       Planet p, float[] proj, float[] view, float[] modelBase,
+                       float camX, float camY, float camZ,
+                       float lightX, float lightY, float lightZ,
+                       Settings s) {
         if (!s.enabled) return;
 
-        // --- build shell transform ---
         float shellScale = 1.0f + Math.max(0f, s.thicknessPct);
-        float[] modelAtmo = mul(modelBase, matUniformScale(shellScale));
-
-        // --- set shader + matrices ---
-        shader.use();
-        setMat4(shader.id(), "uProj",  proj);
-        setMat4(shader.id(), "uView",  view);
-        setMat4(shader.id(), "uModel", modelAtmo);
-
-        // uniforms
-        glUniform3f(glGetUniformLocation(shader.id(),"uCamPos"),   camX, camY, camZ);
-        glUniform3f(glGetUniformLocation(shader.id(),"uLightDir"), lightX, lightY, lightZ);
-        glUniform3f(glGetUniformLocation(shader.id(),"uAtmoColor"),
-                s.color[0], s.color[1], s.color[2]);
-        glUniform1f(glGetUniformLocation(shader.id(),"uAtmoIntensity"), s.intensity);
-
         float planetR_W = p.worldRadius();
         float shellR_W  = planetR_W * shellScale;
-        glUniform1f(glGetUniformLocation(shader.id(),"uPlanetRadius"), planetR_W);
-        glUniform1f(glGetUniformLocation(shader.id(),"uShellRadius"),  shellR_W);
-        glUniform3f(glGetUniformLocation(shader.id(),"uCenter"), p.cx, p.cy, p.cz);
 
         // --- inside/outside test in world space ---
         float dx = camX - p.cx, dy = camY - p.cy, dz = camZ - p.cz;
         float camDist = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
         boolean inside = camDist < shellR_W - 1e-4f;
 
-        // --- blend & depth state for the atmo shell ---
-        glEnable(GL_BLEND);
-        // Use STRAIGHT alpha blending to match shader output:
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-
-        glDepthMask(false);
-        glEnable(GL_CULL_FACE);
-        glCullFace(inside ? GL_FRONT : GL_BACK);
-
-        // Optional: be a bit more lenient around the limb
-        glDepthFunc(GL_LEQUAL);
-
-        // draw
-        sphere.draw();
-
-        // restore state
-        glDepthFunc(GL_LESS);
-        glDepthMask(true);
-        glDisable(GL_BLEND);
-    }
-
-
-    // ---- tiny matrix helpers (copy from your Main) ----
-    private static float[] matUniformScale(float s){ return new float[]{s,0,0,0, 0,s,0,0, 0,0,s,0, 0,0,0,1}; }
-    private static float[] mul(float[] a,float[] b){ float[] r=new float[16];
-        for (int c=0;c<4;c++) for (int r0=0;r0<4;r0++)
-            r[c*4+r0]=a[0*4+r0]*b[c*4+0]+a[1*4+r0]*b[c*4+1]+a[2*4+r0]*b[c*4+2]+a[3*4+r0]*b[c*4+3];
-        return r;
-    }
-    private static void setMat4(int prog,String name,float[] m){
-        glUniformMatrix4fv(glGetUniformLocation(prog,name), false, m);
+        // Straight alpha blending to match the shader output; alpha accumulates as coverage so
+        // offscreen targets (impostor atlas) come out premultiplied. Conventional depth needs a
+        // bit of leniency around the limb; reversed-Z doesn't.
+        int state = CommandQueue.DEPTH_TEST | CommandQueue.BLEND_OVER
+                | (inside ? CommandQueue.CULL_FRONT : CommandQueue.CULL_BACK)
+                | (Depth.reversed() ? 0 : CommandQueue.DEPTH_LEQUAL);
+
+        b.begin(CommandQueue.key(layer, 0, 0, 0, order), pipeline, sphereId, state);
+        b.condition(query);
+        b.uniformMatrix4(U_PROJ, proj);
+        b.uniformMatrix4(U_VIEW, view);
+        b.uniformMatrix4Scaled(U_MODEL, modelBase, shellScale);
+        b.uniform3f(U_CAM, camX, camY, camZ);
+        b.uniform3f(U_LIGHT_DIR, lightX, lightY, lightZ);
+        b.uniform3f(U_COLOR, s.color[0], s.color[1], s.color[2]);
+        b.uniform1f(U_INTENSITY, s.intensity);
+        b.uniform1f(U_PLANET_RADIUS, planetR_W);
+        b.uniform1f(U_SHELL_RADIUS, shellR_W);
+        b.uniform3f(U_CENTER, p.cx, p.cy, p.cz);
+        b.end();
     }
 }
@@ -3,112 +3,167 @@ package engine.gl;
 import engine.config.PlanetConfig;
 import engine.scene.Mesh;
 import engine.scene.Planet;
+import engine.scene.ShadowCasters;
 
-import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL20.*;
 
 public class CloudRenderer {
     private final Shader shader;
     private final Mesh sphere;
-    private final int MAX_LAYERS = 4;
-
-    public CloudRenderer(Shader shader, Mesh sphere) {
+    public static final int MAX_LAYERS = 4;
+
+    // packets go through the renderer's queue; slots index UNIFORMS
+    private final int pipeline, sphereId;
+    private static final String[] UNIFORMS = {
+            "uProj", "uView", "uModel", "uCamPos", "uCenter", "uPlanetRadius", "uTime",
+            "uLightDir", "uLightColor", "uLightIntensity", "uPhaseGrid", "uChecker", "uPhase",
+            "uLayerCount", "uLayerScale", "uLayerOpacity", "uLayerRotDegPS", "uLayerScrollUV",
+            "uLayerColor", "uLayerCoverage", "uLayerNoiseScale",
+            "uOccluderCount", "uOccluders", "uSunAngle",
+    };
+    private static final int U_PROJ = 0, U_VIEW = 1, U_MODEL = 2, U_CAM = 3, U_CENTER = 4, U_RADIUS = 5,
+            U_TIME = 6, U_LIGHT_DIR = 7, U_LIGHT_COLOR = 8, U_LIGHT_INTENSITY = 9, U_GRID = 10,
+            U_CHECKER = 11, U_PHASE = 12, U_LAYER_COUNT = 13, U_LAYER_SCALE = 14, U_LAYER_OPACITY = 15,
+            U_LAYER_ROT = 16, U_LAYER_SCROLL = 17, U_LAYER_COLOR = 18, U_LAYER_COVER = 19,
+            U_LAYER_NOISE = 20, U_OCC_COUNT = 21, U_OCC = 22, U_SUN_ANGLE = 23;
+    private final LayerArrays layers = new LayerArrays();
+    private int layerCount;   // as packed by prepare(); read-only while recording
+
+    // interleaved update: shade only pixels where gl_FragCoord % grid == phase (grid 1 = all),
+    // or a checkerboard where (x + y) % 2 == phaseX
+    private int grid = 1, phaseX = 0, phaseY = 0;
+    private boolean checker = false;
+
+    public CloudRenderer(Shader shader, Mesh sphere, CommandQueue queue) {
         this.shader = shader;
         this.sphere = sphere;
+        this.pipeline = queue.pipeline(shader, UNIFORMS);
+        this.sphereId = queue.mesh(sphere);
     }
 
-    public void draw(Planet p, float[] proj, float[] view, float[] modelBase,
-                     float camX, float camY, float camZ,
-                     PlanetConfig.Clouds cfgClouds, float timeSec,
-                     float lx, float ly, float lz,
-                     float lcr, float lcg, float lcb,
-                     float lintensity) {
-        if (cfgClouds == null || !cfgClouds.enabled) return;
-        int layerCount = Math.min(cfgClouds.layers.length, MAX_LAYERS);
-        if (layerCount <= 0) return;
-
-        // Common uniforms
-        shader.use();
-        setMat4(shader.id(),"uProj", proj);
-        setMat4(shader.id(),"uView", view);
-
-        glUniform3f(glGetUniformLocation(shader.id(),"uCamPos"), camX, camY, camZ);
-        glUniform3f(glGetUniformLocation(shader.id(),"uCenter"), p.cx, p.cy, p.cz);
-        glUniform1f(glGetUniformLocation(shader.id(),"uPlanetRadius"), p.worldRadius());
-        glUniform1f(glGetUniformLocation(shader.id(),"uTime"), timeSec);
-        glUniform3f(glGetUniformLocation(shader.id(), "uLightDir"), lx, ly, lz);
-        glUniform3f(glGetUniformLocation(shader.id(), "uLightColor"), lcr, lcg, lcb);
-        glUniform1f(glGetUniformLocation(shader.id(), "uLightIntensity"), lintensity);
-
-        // Fill arrays
-        float[] scales   = new float[MAX_LAYERS];
-        float[] opacity  = new float[MAX_LAYERS];
-        float[] rotDegPS = new float[MAX_LAYERS];
-        float[] scrollUV = new float[MAX_LAYERS*2];
-        float[] color    = new float[MAX_LAYERS*3];
-        float[] cover    = new float[MAX_LAYERS];
-        float[] nscale   = new float[MAX_LAYERS];
+    /** Restricts the next records to one pixel of every grid x grid block (or one checkerboard colour); grid 1 shades everything. */
+    public void setInterleave(int grid, boolean checker, int phaseX, int phaseY) {
+        this.grid = Math.max(1, grid);
+        this.checker = checker;
+        this.phaseX = phaseX;
+        this.phaseY = phaseY;
+    }
 
-        for (int i = 0; i < layerCount; i++) {
-            var L = cfgClouds.layers[i];
-            float shellScale = 1.0f + Math.max(0f, L.altitudePct);
-            scales[i]   = shellScale;
-            opacity[i]  = Math.max(0f, Math.min(1f, L.opacity));
-            rotDegPS[i] = L.rotationDegPS;
-            scrollUV[i*2+0] = L.scrollUV[0];
-            scrollUV[i*2+1] = L.scrollUV[1];
-            color[i*3+0] = L.color[0];
-            color[i*3+1] = L.color[1];
-            color[i*3+2] = L.color[2];
-            cover[i]  = L.coverage;
-            nscale[i] = L.noiseScale;
+    /**
+     * Packs the layer arrays the next records share; GL thread, before any recording. Returns
+     * the number of layers to draw (0 = clouds off).
+     */
+    public int prepare(PlanetConfig.Clouds cfgClouds) {
+        layerCount = (cfgClouds == null || !cfgClouds.enabled) ? 0 : Math.min(cfgClouds.layers.length, MAX_LAYERS);
+        if (layerCount > 0) layers.pack(cfgClouds, layerCount);
+        return layerCount;
+    }
 
-            // Optional: bind texture i to unit i (if you add texture support)
-            // if (!L.texture.isBlank()) { /* load/bind Texture to unit i, set uHasTex[i]=1 */ }
+    /**
+     * Records one packet per layer in {@code layerMask} into {@code b}, in layer order; no GL
+     * calls and no shared writes, so workers can record bodies side by side. Blended packets
+     * sort by order alone: layer i takes {@code order + i}, which places it among the other
+     * packets of {@code layer} (back to front). {@code query} is the occlusion query the packets are conditional on (0 = none), and
+     * {@code occluders} the spheres that can shadow it, the body's own planet included.
+     */
+    public void record(CommandBuffer b, int layer, int order, int query,
+                       Planet p, float[] proj, float[] view, float[] modelBase,
+                       float camX, float camY, float camZ, float timeSec,
+                       float lx, float ly, float lz,
+                       float lcr, float lcg, float lcb,
+                       float lintensity,
+                       int layerMask, float[] occluders, int occluderCount, float sunAngleRad) {
+        int n = layerCount;
+        if (n <= 0) return;
+
+        // Each packet carries the full uniform set; the key leaves pipeline and state out, so
+        // nothing but the order decides what blends over what.
+        float dx = camX - p.cx, dy = camY - p.cy, dz = camZ - p.cz;
+        float camDist = (float)Math.sqrt(dx*dx+dy*dy+dz*dz);
+        occluderCount = Math.min(occluderCount, ShadowCasters.MAX_PER_RECEIVER);
+        for (int i = 0; i < n; i++) {
+            if ((layerMask & (1 << i)) == 0) continue;
+            float shellScale = layers.scales[i];
+            // a shell the eye is inside is drawn from its far side
+            boolean inside = camDist < p.worldRadius() * shellScale - 1e-4f;
+            int state = CommandQueue.DEPTH_TEST | CommandQueue.BLEND_OVER
+                    | (inside ? CommandQueue.CULL_FRONT : CommandQueue.CULL_BACK);
+
+            b.begin(CommandQueue.key(layer, 0, 0, 0, order + i), pipeline, sphereId, state);
+            b.condition(query);
+            b.uniformMatrix4(U_PROJ, proj);
+            b.uniformMatrix4(U_VIEW, view);
+            b.uniformMatrix4Scaled(U_MODEL, modelBase, shellScale);
+            b.uniform3f(U_CAM, camX, camY, camZ);
+            b.uniform3f(U_CENTER, p.cx, p.cy, p.cz);
+            b.uniform1f(U_RADIUS, p.worldRadius());
+            b.uniform1f(U_TIME, timeSec);
+            b.uniform3f(U_LIGHT_DIR, lx, ly, lz);
+            b.uniform3f(U_LIGHT_COLOR, lcr, lcg, lcb);
+            b.uniform1f(U_LIGHT_INTENSITY, lintensity);
+            b.uniform1i(U_GRID, grid);
+            b.uniform1i(U_CHECKER, checker ? 1 : 0);
+            b.uniform2i(U_PHASE, phaseX, phaseY);
+            b.uniform1i(U_LAYER_COUNT, n);
+            b.uniform1fv(U_LAYER_SCALE, layers.scales, MAX_LAYERS);
+            b.uniform1fv(U_LAYER_OPACITY, layers.opacity, MAX_LAYERS);
+            b.uniform1fv(U_LAYER_ROT, layers.rotDegPS, MAX_LAYERS);
+            b.uniform2fv(U_LAYER_SCROLL, layers.scrollUV, MAX_LAYERS);
+            b.uniform3fv(U_LAYER_COLOR, layers.color, MAX_LAYERS);
+            b.uniform1fv(U_LAYER_COVER, layers.cover, MAX_LAYERS);
+            b.uniform1fv(U_LAYER_NOISE, layers.nscale, MAX_LAYERS);
+            b.uniform1i(U_OCC_COUNT, occluderCount);
+            b.uniform4fv(U_OCC, occluders, occluderCount);
+            b.uniform1f(U_SUN_ANGLE, sunAngleRad);
+            b.end();
         }
+    }
 
-        // push arrays
-        glUniform1i(glGetUniformLocation(shader.id(),"uLayerCount"), layerCount);
-        glUniform1fv(glGetUniformLocation(shader.id(),"uLayerScale"), scales);
-        glUniform1fv(glGetUniformLocation(shader.id(),"uLayerOpacity"), opacity);
-        glUniform1fv(glGetUniformLocation(shader.id(),"uLayerRotDegPS"), rotDegPS);
-        glUniform2fv(glGetUniformLocation(shader.id(),"uLayerScrollUV"), scrollUV);
-        glUniform3fv(glGetUniformLocation(shader.id(),"uLayerColor"), color);
-        glUniform1fv(glGetUniformLocation(shader.id(),"uLayerCoverage"), cover);
-        glUniform1fv(glGetUniformLocation(shader.id(),"uLayerNoiseScale"), nscale);
-
-        // Blending for straight alpha
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        glDepthMask(false);
-        glEnable(GL_CULL_FACE);
-
-        // Draw each layer as its own scaled shell (handles inside/outside)
-        for (int i = 0; i < layerCount; i++) {
-            float shellScale = scales[i];
-            float[] model = mul(modelBase, matUniformScale(shellScale));
-
-            // inside/outside
-            float dx = camX - p.cx, dy = camY - p.cy, dz = camZ - p.cz;
-            float camDist = (float)Math.sqrt(dx*dx+dy*dy+dz*dz);
-            float shellR_W = p.worldRadius() * shellScale;
-            boolean inside = camDist < shellR_W - 1e-4f;
-
-            setMat4(shader.id(),"uModel", model);
-            glCullFace(inside ? GL_FRONT : GL_BACK);
-            sphere.draw();
+    /** The per-layer uniform arrays (uLayer*), packed into arrays reused from frame to frame. */
+    static final class LayerArrays {
+        final float[] scales   = new float[MAX_LAYERS];
+        final float[] opacity  = new float[MAX_LAYERS];
+        final float[] rotDegPS = new float[MAX_LAYERS];
+        final float[] scrollUV = new float[MAX_LAYERS*2];
+        final float[] color    = new float[MAX_LAYERS*3];
+        final float[] cover    = new float[MAX_LAYERS];
+        final float[] nscale   = new float[MAX_LAYERS];
+
+        void pack(PlanetConfig.Clouds cfgClouds, int layerCount) {
+            for (int i = 0; i < MAX_LAYERS; i++) {
+                if (i >= layerCount) {
+                    scales[i] = opacity[i] = rotDegPS[i] = cover[i] = nscale[i] = 0f;
+                    scrollUV[i*2] = scrollUV[i*2+1] = 0f;
+                    color[i*3] = color[i*3+1] = color[i*3+2] = 0f;
+                    continue;
+                }
+                var L = cfgClouds.layers[i];
+                scales[i]   = 1.0f + Math.max(0f, L.altitudePct);
+                opacity[i]  = Math.max(0f, Math.min(1f, L.opacity));
+                rotDegPS[i] = L.rotationDegPS;
+                scrollUV[i*2+0] = L.scrollUV[0];
+                scrollUV[i*2+1] = L.scrollUV[1];
+                color[i*3+0] = L.color[0];
+                color[i*3+1] = L.color[1];
+                color[i*3+2] = L.color[2];
+                cover[i]  = L.coverage;
+                nscale[i] = L.noiseScale;
+
+                // Optional: bind texture i to unit i (if you add texture support)
+                // if (!L.texture.isBlank()) { /* load/bind Texture to unit i, set uHasTex[i]=1 */ }
+            }
         }
-
-        glDepthMask(true);
-        glDisable(GL_BLEND);
     }
 
-    // small helpers
-    private static float[] matUniformScale(float s){ return new float[]{s,0,0,0, 0,s,0,0, 0,0,s,0, 0,0,0,1}; }
-    private static float[] mul(float[] a,float[] b){ float[] r=new float[16];
-        for (int c=0;c<4;c++) for(int r0=0;r0<4;r0++)
-            r[c*4+r0]=a[0*4+r0]*b[c*4+0]+a[1*4+r0]*b[c*4+1]+a[2*4+r0]*b[c*4+2]+a[3*4+r0]*b[c*4+3];
-        return r;
+    /** Per-layer uniform arrays (uLayer*) set directly; used by the cloud shadow map shader. */
+    static void uploadLayers(int program, LayerArrays a, int layerCount) {
+        glUniform1i(glGetUniformLocation(program,"uLayerCount"), layerCount);
+        glUniform1fv(glGetUniformLocation(program,"uLayerScale"), a.scales);
+        glUniform1fv(glGetUniformLocation(program,"uLayerOpacity"), a.opacity);
+        glUniform1fv(glGetUniformLocation(program,"uLayerRotDegPS"), a.rotDegPS);
+        glUniform2fv(glGetUniformLocation(program,"uLayerScrollUV"), a.scrollUV);
+        glUniform3fv(glGetUniformLocation(program,"uLayerColor"), a.color);   // not in the shadow shader: -1, ignored
+        glUniform1fv(glGetUniformLocation(program,"uLayerCoverage"), a.cover);
+        glUniform1fv(glGetUniformLocation(program,"uLayerNoiseScale"), a.nscale);
     }
-    private static void setMat4(int p,String n,float[] m){ glUniformMatrix4fv(glGetUniformLocation(p,n), false, m); }
 }
@@ -0,0 +1,172 @@
+package engine.gl;
+
+import engine.config.PlanetConfig;
+import engine.perf.GlCounters;
+import engine.scene.Planet;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Cloud transmittance projected along the light onto each body's day side. One small R8 map
+ * per body, orthographic from the light: texel (u, v) in [-1, 1] planet radii is the surface
+ * point {@code u·right + v·up + sqrt(1 - u² - v²)·L}, and holds how much light gets through
+ * every cloud layer above it toward the light.
+ *
+ * Clouds drift slowly, so a map is re-rendered only every {@link #refreshSec} of animation
+ * time or when the light turns by more than {@link #lightTolDeg}, and at most
+ * {@link #maxRefreshesPerFrame} maps are refreshed per frame; the rest reuse what they have.
+ * The surface shader pays one texture fetch either way.
+ */
+public class CloudShadowMap {
+    public float refreshSec  = 0.5f;
+    public float lightTolDeg = 0.5f;
+    public int   maxRefreshesPerFrame = 1;
+    /** How dark fully covered sky makes the ground: 0 = no shadow, 1 = black. */
+    public float strength = 0.6f;
+
+    private static final class Entry {
+        int tex, fbo;
+        boolean valid;
+        float capturedAt;
+        float lx, ly, lz;
+        float rx, ry, rz, ux, uy, uz;   // light-space basis at capture
+    }
+
+    private final Shader shader;
+    private final int size, vao;
+    private final CloudRenderer.LayerArrays layers = new CloudRenderer.LayerArrays();
+    private final Map<Planet, Entry> maps = new IdentityHashMap<>();
+    private int refreshesThisFrame = 0;
+    private int refreshesLastFrame = 0;
+
+    public CloudShadowMap(int size) {
+        this.size = size;
+        this.shader = Shader.load("shaders/fullscreen.vert", "shaders/cloud_shadow.frag");
+        this.vao = glGenVertexArrays();
+    }
+
+    public void beginFrame() {
+        refreshesLastFrame = refreshesThisFrame;
+        refreshesThisFrame = 0;
+    }
+
+    public int refreshesLastFrame() { return refreshesLastFrame; }
+
+    /**
+     * Re-renders p's map if it is due and the per-frame cap allows. L points toward the light,
+     * normalized. Leaves the previous framebuffer bound and the viewport at the given size.
+     */
+    public void update(Planet p, PlanetConfig.Clouds clouds, float[] L, float timeSec,
+                       int viewportWidth, int viewportHeight) {
+        int layerCount = (clouds == null || !clouds.enabled) ? 0 : Math.min(clouds.layers.length, CloudRenderer.MAX_LAYERS);
+        if (layerCount <= 0) return;
+
+        Entry e = maps.get(p);
+        if (e == null) { e = allocate(); maps.put(p, e); }
+        if (!needsRefresh(e, timeSec, L) || refreshesThisFrame >= maxRefreshesPerFrame) return;
+
+        // right = L x (Y, or X when L is near Y); a fixed axis so the map doesn't spin
+        boolean nearY = Math.abs(L[1]) >= 0.99f;
+        float rx = nearY ? 0f : -L[2], ry = nearY ? L[2] : 0f, rz = nearY ? -L[1] : L[0];
+        float rl = (float)Math.sqrt(rx*rx + ry*ry + rz*rz);
+        rx /= rl; ry /= rl; rz /= rl;
+        float ux = ry*L[2] - rz*L[1], uy = rz*L[0] - rx*L[2], uz = rx*L[1] - ry*L[0];
+
+        int prevFbo = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        glBindFramebuffer(GL_FRAMEBUFFER, e.fbo);
+        GlCounters.state();
+        glViewport(0, 0, size, size);
+        glDisable(GL_BLEND);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_CULL_FACE);
+
+        shader.use();
+        int id = shader.id();
+        glUniform3f(glGetUniformLocation(id, "uLightDir"), L[0], L[1], L[2]);
+        glUniform3f(glGetUniformLocation(id, "uRight"), rx, ry, rz);
+        glUniform3f(glGetUniformLocation(id, "uUp"), ux, uy, uz);
+        glUniform1f(glGetUniformLocation(id, "uTime"), timeSec);
+        layers.pack(clouds, layerCount);
+        CloudRenderer.uploadLayers(id, layers, layerCount);
+
+        glBindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+        GlCounters.draw();
+        glBindVertexArray(0);
+
+        glEnable(GL_DEPTH_TEST);
+        glBindFramebuffer(GL_FRAMEBUFFER, prevFbo);
+        glViewport(0, 0, viewportWidth, viewportHeight);
+
+        e.valid = true;
+        e.capturedAt = timeSec;
+        e.lx = L[0]; e.ly = L[1]; e.lz = L[2];
+        e.rx = rx; e.ry = ry; e.rz = rz;
+        e.ux = ux; e.uy = uy; e.uz = uz;
+        refreshesThisFrame++;
+    }
+
+    /**
+     * p's map for the surface shader: its texture, with the light-space right and up vectors
+     * in basisOut[0..5]; 0 when p has no map yet (or shadows are off), and basisOut is left alone.
+     */
+    public int lookup(Planet p, float[] basisOut) {
+        Entry e = maps.get(p);
+        if (e == null || !e.valid || strength <= 0f) return 0;
+        basisOut[0] = e.rx; basisOut[1] = e.ry; basisOut[2] = e.rz;
+        basisOut[3] = e.ux; basisOut[4] = e.uy; basisOut[5] = e.uz;
+        return e.tex;
+    }
+
+    /** Forget a body (e.g. removed from the scene). */
+    public void release(Planet p) {
+        Entry e = maps.remove(p);
+        if (e != null) free(e);
+    }
+
+    public void delete() {
+        for (Entry e : maps.values()) free(e);
+        maps.clear();
+        glDeleteVertexArrays(vao);
+        shader.delete();
+    }
+
+    // ---- internals ----
+    private boolean needsRefresh(Entry e, float now, float[] L) {
+        if (!e.valid) return true;
+        if (Math.abs(now - e.capturedAt) >= refreshSec) return true;
+        float cosTol = (float)Math.cos(Math.toRadians(lightTolDeg));
+        return L[0]*e.lx + L[1]*e.ly + L[2]*e.lz < cosTol;
+    }
+
+    private Entry allocate() {
+        Entry e = new Entry();
+        e.tex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, e.tex);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, size, size, 0, GL_RED, GL_UNSIGNED_BYTE, (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        int prev = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        e.fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, e.fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, e.tex, 0);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Cloud shadow FBO incomplete");
+        glBindFramebuffer(GL_FRAMEBUFFER, prev);
+        return e;
+    }
+
+    private static void free(Entry e) {
+        glDeleteFramebuffers(e.fbo);
+        glDeleteTextures(e.tex);
+    }
+}
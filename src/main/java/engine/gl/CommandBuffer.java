@@ -0,0 +1,139 @@
+package engine.gl;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Draw packets recorded without touching GL, so any thread can fill one. A packet is a sort
+ * key, a pipeline and mesh registered with the {@link CommandQueue}, a few render state bits,
+ * up to {@link #MAX_TEXTURES} texture bindings, its uniform values and optionally an occlusion
+ * query it is conditional on, packed into an off-heap buffer that grows on demand and is reused
+ * every frame.
+ *
+ * Usage: {@link #begin} → textures / uniforms → {@link #end}. Uniforms are addressed by slot,
+ * the index of the name in the pipeline's uniform list. One thread per buffer at a time; the
+ * queue reads it on the GL thread after recording is done.
+ */
+public final class CommandBuffer {
+    public static final int MAX_TEXTURES = 4;
+
+    // packet header: key, pipeline, mesh, state, uniform bytes, texture count, query, (unit, ref) pairs
+    static final int KEY = 0, PIPELINE = 8, MESH = 12, STATE = 16, UNIFORM_BYTES = 20, TEX_COUNT = 24, QUERY = 28, TEX = 32;
+    static final int HEADER_BYTES = TEX + MAX_TEXTURES * 8;
+
+    // uniform record: (slot << 16 | kind << 8 | count), then count * components values
+    static final int INT1 = 0, INT2 = 1, FLOAT1 = 2, VEC2 = 3, VEC3 = 4, VEC4 = 5, MAT4 = 6;
+    static final int[] COMPONENTS = { 1, 2, 1, 2, 3, 4, 16 };
+
+    private ByteBuffer buf = memAlloc(16 * 1024);
+    private int size;                 // bytes
+    private int[] offsets = new int[64];
+    private int count;
+    private int open = -1;            // offset of the packet being recorded
+
+    public void begin(long key, int pipeline, int mesh, int state) {
+        if (open >= 0) throw new IllegalStateException("Packet already open");
+        reserve(HEADER_BYTES);
+        open = size;
+        buf.putLong(open + KEY, key)
+           .putInt(open + PIPELINE, pipeline)
+           .putInt(open + MESH, mesh)
+           .putInt(open + STATE, state)
+           .putInt(open + UNIFORM_BYTES, 0)
+           .putInt(open + TEX_COUNT, 0)
+           .putInt(open + QUERY, 0);
+        size += HEADER_BYTES;
+    }
+
+    /** Draw only if any sample of this (already issued) query passed; 0 = unconditional. */
+    public void condition(int query) {
+        if (open < 0) throw new IllegalStateException("No packet open");
+        buf.putInt(open + QUERY, query);
+    }
+
+    /** Binds a raw GL texture name to {@code unit}. */
+    public void texture(int unit, int glTexture) { textureRef(unit, glTexture); }
+
+    /** Binds a texture registered with {@link CommandQueue#texture}; it's restored if evicted. */
+    public void registeredTexture(int unit, int ref) { textureRef(unit, -1 - ref); }
+
+    public void uniform1i(int slot, int v)             { header(slot, INT1, 1); putInt(v); }
+    public void uniform2i(int slot, int x, int y)      { header(slot, INT2, 1); putInt(x); putInt(y); }
+    public void uniform1f(int slot, float v)           { header(slot, FLOAT1, 1); putFloat(v); }
+    public void uniform3f(int slot, float x, float y, float z) {
+        header(slot, VEC3, 1); putFloat(x); putFloat(y); putFloat(z);
+    }
+
+    public void uniform1fv(int slot, float[] v, int n) { array(slot, FLOAT1, v, n); }
+    public void uniform2fv(int slot, float[] v, int n) { array(slot, VEC2, v, n); }
+    public void uniform3fv(int slot, float[] v, int n) { array(slot, VEC3, v, n); }
+    public void uniform4fv(int slot, float[] v, int n) { array(slot, VEC4, v, n); }
+    public void uniformMatrix4(int slot, float[] m)    { array(slot, MAT4, m, 1); }
+
+    /** m · scale(s): the first three columns scaled, written straight into the packet. */
+    public void uniformMatrix4Scaled(int slot, float[] m, float s) {
+        header(slot, MAT4, 1);
+        for (int i = 0; i < 12; i++) putFloat(m[i] * s);
+        for (int i = 12; i < 16; i++) putFloat(m[i]);
+    }
+
+    public void end() {
+        if (open < 0) throw new IllegalStateException("No packet open");
+        buf.putInt(open + UNIFORM_BYTES, size - open - HEADER_BYTES);
+        if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+        offsets[count++] = open;
+        open = -1;
+    }
+
+    public int packets() { return count; }
+    public int bytes() { return size; }
+
+    // ---- read side (CommandQueue) ----
+    ByteBuffer data() { return buf; }
+    int offset(int packet) { return offsets[packet]; }
+
+    void reset() {
+        size = count = 0;
+        open = -1;
+    }
+
+    void free() {
+        memFree(buf);
+        buf = null;
+    }
+
+    // ---- internals ----
+    private void textureRef(int unit, int ref) {
+        int n = buf.getInt(open + TEX_COUNT);
+        if (n == MAX_TEXTURES) throw new IllegalStateException("More than " + MAX_TEXTURES + " textures in a packet");
+        buf.putInt(open + TEX + n * 8, unit).putInt(open + TEX + n * 8 + 4, ref);
+        buf.putInt(open + TEX_COUNT, n + 1);
+    }
+
+    private void array(int slot, int kind, float[] v, int n) {
+        if (n <= 0) return;
+        header(slot, kind, n);
+        int floats = n * COMPONENTS[kind];
+        reserve(floats * 4);
+        for (int i = 0; i < floats; i++) buf.putFloat(size + i * 4, v[i]);
+        size += floats * 4;
+    }
+
+    private void header(int slot, int kind, int n) {
+        if (open < 0) throw new IllegalStateException("No packet open");
+        if (n > 255) throw new IllegalArgumentException("Uniform array too long: " + n);
+        reserve(4 + n * COMPONENTS[kind] * 4);
+        buf.putInt(size, slot << 16 | kind << 8 | n);
+        size += 4;
+    }
+
+    private void putInt(int v)     { buf.putInt(size, v); size += 4; }
+    private void putFloat(float v) { buf.putFloat(size, v); size += 4; }
+
+    private void reserve(int bytes) {
+        if (size + bytes <= buf.capacity()) return;
+        buf = memRealloc(buf, Math.max(buf.capacity() * 2, size + bytes));
+    }
+}
@@ -0,0 +1,277 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+import engine.scene.Mesh;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+
+/**
+ * The GL side of {@link CommandBuffer}s: registers what packets refer to (pipelines, meshes,
+ * textures), then {@link #submit} takes every packet of one layer recorded into its buffers,
+ * sorts them by key and issues them, switching program and render state only where they
+ * change from one packet to the next.
+ *
+ * Buffer i belongs to one recording thread (see {@link RenderWorkers}); registration and
+ * submit are GL thread only, and registration has to happen before the packets that use it
+ * are recorded. A frame records all its layers, then submits each once, with whatever has to
+ * happen between them (e.g. occlusion queries against the opaque layer); the buffers are
+ * emptied when every packet in them has been submitted. Sort key layout (see {@link #key}):
+ * layer, pipeline, state, mesh, order; within equal keys, packets keep the order they were
+ * recorded in.
+ */
+public final class CommandQueue {
+    // ---- render state bits ----
+    public static final int DEPTH_TEST = 1, DEPTH_WRITE = 2, CULL_BACK = 4, CULL_FRONT = 8;
+    /** Straight alpha over the target, with alpha accumulating coverage (see CloudRenderer). */
+    public static final int BLEND_OVER = 16;
+    /** Depth test also passes on equal depth ({@link Depth#lequal}). */
+    public static final int DEPTH_LEQUAL = 32;
+
+    private static final int ENTRY_BITS = 20;   // packets per submit: 1M
+    private static final int LAYER_SHIFT = 40;
+
+    /** A shader plus the uniform names packets address by slot; locations follow hot reloads. */
+    private static final class Pipeline {
+        final Shader shader;
+        final String[] uniforms;
+        final int[] locations;
+        int program = -1;   // program the locations were looked up in
+
+        Pipeline(Shader shader, String[] uniforms) {
+            this.shader = shader;
+            this.uniforms = uniforms;
+            this.locations = new int[uniforms.length];
+        }
+
+        void resolve() {
+            if (program == shader.id()) return;
+            program = shader.id();
+            for (int i = 0; i < uniforms.length; i++) locations[i] = glGetUniformLocation(program, uniforms[i]);
+        }
+    }
+
+    private final CommandBuffer[] buffers;
+    private final List<Pipeline> pipelines = new ArrayList<>();
+    private final List<Mesh> meshes = new ArrayList<>();
+    private final Map<Mesh, Integer> meshIds = new IdentityHashMap<>();
+    private final List<Texture> textures = new ArrayList<>();
+    private final Map<Texture, Integer> textureIds = new IdentityHashMap<>();
+
+    private long[] sort = new long[256];     // key << ENTRY_BITS | entry; keys fit 43 bits, so never negative
+    private int[] entryBuffer = new int[256];
+    private int[] entryPacket = new int[256];
+
+    private int submitted;                   // packets of the current recording already issued
+    private int packetsLastSubmit, packetsThisFrame, packetsLastFrame;
+    private int switchesThisFrame, switchesLastFrame;
+
+    public CommandQueue(int buffers) {
+        this.buffers = new CommandBuffer[Math.max(1, buffers)];
+        for (int i = 0; i < this.buffers.length; i++) this.buffers[i] = new CommandBuffer();
+    }
+
+    /**
+     * Packs a sort key: layer (0..7) first, then pipeline (0..255), state (0..255), mesh
+     * (0..255, wraps) and order (0..65535) last, e.g. back-to-front or a layer index.
+     */
+    public static long key(int layer, int pipeline, int state, int mesh, int order) {
+        return (long)(layer & 0x7) << LAYER_SHIFT | (long)(pipeline & 0xFF) << 32 | (long)(state & 0xFF) << 24
+                | (long)(mesh & 0xFF) << 16 | (order & 0xFFFF);
+    }
+
+    public int pipeline(Shader shader, String... uniforms) {
+        pipelines.add(new Pipeline(shader, uniforms));
+        return pipelines.size() - 1;
+    }
+
+    public int mesh(Mesh m) {
+        Integer id = meshIds.get(m);
+        if (id != null) return id;
+        meshes.add(m);
+        meshIds.put(m, meshes.size() - 1);
+        return meshes.size() - 1;
+    }
+
+    /** Registers a texture for {@link CommandBuffer#registeredTexture}. */
+    public int texture(Texture t) {
+        Integer id = textureIds.get(t);
+        if (id != null) return id;
+        textures.add(t);
+        textureIds.put(t, textures.size() - 1);
+        return textures.size() - 1;
+    }
+
+    public int bufferCount() { return buffers.length; }
+    public CommandBuffer buffer(int i) { return buffers[i]; }
+
+    public int packetsLastSubmit() { return packetsLastSubmit; }
+    public int packetsLastFrame() { return packetsLastFrame; }
+    /** Program + state changes issued last frame; at most one each per packet. */
+    public int switchesLastFrame() { return switchesLastFrame; }
+
+    /** Closes the frame's counters; packets still unsubmitted are dropped. */
+    public void endFrame() {
+        reset();
+        packetsLastFrame = packetsThisFrame;
+        switchesLastFrame = switchesThisFrame;
+        packetsThisFrame = switchesThisFrame = 0;
+    }
+
+    /** Sorts and draws the packets of {@code layer} recorded since the buffers were last emptied. */
+    public void submit(int layer) {
+        int total = 0;
+        for (CommandBuffer b : buffers) total += b.packets();
+        if (total >= 1 << ENTRY_BITS) throw new IllegalStateException("Too many packets recorded: " + total);
+        if (sort.length < total) {
+            int cap = Math.max(total, sort.length * 2);
+            sort = new long[cap];
+            entryBuffer = new int[cap];
+            entryPacket = new int[cap];
+        }
+
+        int n = 0;
+        for (int bi = 0; bi < buffers.length; bi++) {
+            CommandBuffer b = buffers[bi];
+            for (int pi = 0; pi < b.packets(); pi++) {
+                long key = b.data().getLong(b.offset(pi) + CommandBuffer.KEY);
+                if ((int)(key >>> LAYER_SHIFT) != layer) continue;
+                sort[n] = key << ENTRY_BITS | n;
+                entryBuffer[n] = bi;
+                entryPacket[n] = pi;
+                n++;
+            }
+        }
+        packetsLastSubmit = n;
+        if (n > 0) issue(n);
+        submitted += n;
+        if (submitted >= total) reset();
+    }
+
+    public void delete() {
+        for (CommandBuffer b : buffers) b.free();
+    }
+
+    // ---- internals ----
+    private void issue(int n) {
+        Arrays.sort(sort, 0, n);
+
+        int program = -1, state = -1, query = 0;
+        for (int i = 0; i < n; i++) {
+            int entry = (int)(sort[i] & ((1 << ENTRY_BITS) - 1));
+            CommandBuffer b = buffers[entryBuffer[entry]];
+            ByteBuffer d = b.data();
+            int at = b.offset(entryPacket[entry]);
+
+            Pipeline p = pipelines.get(d.getInt(at + CommandBuffer.PIPELINE));
+            if (p.shader.id() != program) {
+                p.shader.use();
+                p.resolve();
+                program = p.shader.id();
+                switchesThisFrame++;
+            }
+            int q = d.getInt(at + CommandBuffer.QUERY);
+            if (q != query) {
+                if (query != 0) glEndConditionalRender();
+                if (q != 0) glBeginConditionalRender(q, GL_QUERY_NO_WAIT);
+                query = q;
+            }
+            int s = d.getInt(at + CommandBuffer.STATE);
+            if (s != state) {
+                applyState(s, state);
+                state = s;
+                switchesThisFrame++;
+            }
+
+            int texCount = d.getInt(at + CommandBuffer.TEX_COUNT);
+            for (int t = 0; t < texCount; t++) {
+                int unit = d.getInt(at + CommandBuffer.TEX + t * 8);
+                int ref  = d.getInt(at + CommandBuffer.TEX + t * 8 + 4);
+                if (ref < 0) textures.get(-1 - ref).bind(unit);
+                else {
+                    glActiveTexture(GL_TEXTURE0 + unit);
+                    glBindTexture(GL_TEXTURE_2D, ref);
+                    GlCounters.state();
+                }
+            }
+            if (texCount > 0) glActiveTexture(GL_TEXTURE0);
+
+            uniforms(p, d, at + CommandBuffer.HEADER_BYTES, d.getInt(at + CommandBuffer.UNIFORM_BYTES));
+            meshes.get(d.getInt(at + CommandBuffer.MESH)).draw();
+        }
+        if (query != 0) glEndConditionalRender();
+        packetsThisFrame += n;
+
+        // leave what the immediate-mode draws around us expect
+        glDisable(GL_BLEND);
+        glDepthMask(true);
+        glDepthFunc(Depth.less());
+        glEnable(GL_DEPTH_TEST);
+        glEnable(GL_CULL_FACE);
+        glCullFace(GL_BACK);
+    }
+
+    private void reset() {
+        for (CommandBuffer b : buffers) b.reset();
+        submitted = 0;
+    }
+
+    // prev -1 = unknown, so everything is set
+    private static void applyState(int s, int prev) {
+        int changed = prev < 0 ? ~0 : s ^ prev;
+        if ((changed & DEPTH_TEST) != 0) { if ((s & DEPTH_TEST) != 0) glEnable(GL_DEPTH_TEST); else glDisable(GL_DEPTH_TEST); }
+        if ((changed & DEPTH_WRITE) != 0) glDepthMask((s & DEPTH_WRITE) != 0);
+        if ((changed & DEPTH_LEQUAL) != 0) glDepthFunc((s & DEPTH_LEQUAL) != 0 ? Depth.lequal() : Depth.less());
+        if ((changed & (CULL_BACK | CULL_FRONT)) != 0) {
+            if ((s & (CULL_BACK | CULL_FRONT)) == 0) glDisable(GL_CULL_FACE);
+            else {
+                glEnable(GL_CULL_FACE);
+                glCullFace((s & CULL_FRONT) != 0 ? GL_FRONT : GL_BACK);
+            }
+        }
+        if ((changed & BLEND_OVER) != 0) {
+            if ((s & BLEND_OVER) != 0) {
+                glEnable(GL_BLEND);
+                glBlendFuncSeparate(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+            } else glDisable(GL_BLEND);
+        }
+        GlCounters.state();
+    }
+
+    // values go to GL straight from the packet memory
+    private static void uniforms(Pipeline p, ByteBuffer d, int at, int bytes) {
+        long base = memAddress(d);
+        int end = at + bytes;
+        while (at < end) {
+            int head = d.getInt(at);
+            int slot = head >>> 16, kind = (head >>> 8) & 0xFF, count = head & 0xFF;
+            int loc = p.locations[slot];
+            at += 4;
+            if (loc >= 0) {
+                long v = base + at;
+                switch (kind) {
+                    case CommandBuffer.INT1   -> glUniform1i(loc, d.getInt(at));
+                    case CommandBuffer.INT2   -> glUniform2i(loc, d.getInt(at), d.getInt(at + 4));
+                    case CommandBuffer.FLOAT1 -> nglUniform1fv(loc, count, v);
+                    case CommandBuffer.VEC2   -> nglUniform2fv(loc, count, v);
+                    case CommandBuffer.VEC3   -> nglUniform3fv(loc, count, v);
+                    case CommandBuffer.VEC4   -> nglUniform4fv(loc, count, v);
+                    case CommandBuffer.MAT4   -> nglUniformMatrix4fv(loc, count, false, v);
+                    default -> throw new IllegalStateException("Bad uniform kind " + kind);
+                }
+            }
+            at += count * CommandBuffer.COMPONENTS[kind] * 4;
+        }
+    }
+}
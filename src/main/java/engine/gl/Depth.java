@@ -0,0 +1,69 @@
+package engine.gl;
+
+import org.lwjgl.opengl.ARBClipControl;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT24;
+import static org.lwjgl.opengl.GL20.GL_LOWER_LEFT;
+import static org.lwjgl.opengl.GL30.GL_DEPTH_COMPONENT32F;
+import static org.lwjgl.opengl.GL45.*;
+
+/**
+ * The depth convention everything renders with. Conventional: [-1, 1] clip depth, 24-bit
+ * depth, clear to 1, GL_LESS. Reversed-Z: glClipControl(ZERO_TO_ONE) with a 32-bit float
+ * depth target, clear to 0, GL_GREATER, paired with the infinite projection from
+ * {@link engine.scene.Camera#reversedZ}. Float depth is densest near 0, which reversed-Z puts
+ * at infinity, so precision comes out roughly even over distance instead of being spent
+ * within a few near-plane distances of the eye.
+ *
+ * Needs GL 4.5 or ARB_clip_control; 3.3 contexts stay conventional. Pick the mode before any
+ * depth target is allocated. GL thread only.
+ */
+public final class Depth {
+    private static boolean reversed = false;
+
+    private Depth() {}
+
+    public static boolean supported() {
+        GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL45 || caps.GL_ARB_clip_control;
+    }
+
+    /** Switches convention; returns the one in effect (reversed only if supported). */
+    public static boolean setReversed(boolean on) {
+        GLCapabilities caps = GL.getCapabilities();
+        reversed = on && supported();
+        int mode = reversed ? GL_ZERO_TO_ONE : GL_NEGATIVE_ONE_TO_ONE;
+        if (caps.OpenGL45) glClipControl(GL_LOWER_LEFT, mode);
+        else if (caps.GL_ARB_clip_control) ARBClipControl.glClipControl(GL_LOWER_LEFT, mode);
+        apply();
+        return reversed;
+    }
+
+    public static boolean reversed() { return reversed; }
+
+    /** Sets the default depth test and clear value; call after anything changed them. */
+    public static void apply() {
+        glDepthFunc(less());
+        glClearDepth(far());
+    }
+
+    /** "Nearer than": the normal depth test. */
+    public static int less()   { return reversed ? GL_GREATER : GL_LESS; }
+    public static int lequal() { return reversed ? GL_GEQUAL : GL_LEQUAL; }
+
+    /** Depth value of the far end; what depth targets are cleared to. */
+    public static float far() { return reversed ? 0f : 1f; }
+
+    public static int internalFormat() { return reversed ? GL_DEPTH_COMPONENT32F : GL_DEPTH_COMPONENT24; }
+    public static int pixelType()      { return reversed ? GL_FLOAT : GL_UNSIGNED_INT; }
+
+    /**
+     * Maps a stored depth value to NDC z as {@code d * x + y}, for shaders that linearize
+     * depth: (2, -1) conventionally, (1, 0) with ZERO_TO_ONE clip depth.
+     */
+    public static float ndcScale()  { return reversed ? 1f : 2f; }
+    public static float ndcOffset() { return reversed ? 0f : -1f; }
+}
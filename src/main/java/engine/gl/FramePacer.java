@@ -0,0 +1,156 @@
+package engine.gl;
+
+import engine.perf.Profiler;
+import engine.perf.RollingStats;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Frame pacing for {@link GLWindow}: which swap interval to use, optional FPS cap, and the
+ * optional "just-in-time input" wait.
+ *
+ * Caps use a hybrid wait: park the thread until ~{@link #SPIN_NS} before the deadline, then
+ * spin. Sleeping alone overshoots by the scheduler quantum; spinning alone burns a core.
+ *
+ * Just-in-time input moves the idle part of the frame to its start: we wait until
+ * "next present - predicted work - margin", then poll input and render, so the sampled input
+ * is as fresh as possible when the frame reaches the screen.
+ */
+public class FramePacer {
+    public enum Mode { VSYNC, ADAPTIVE, UNCAPPED, CAPPED }
+
+    private static final long SPIN_NS = 1_500_000L;
+    private static final long JIT_MARGIN_NS = 1_000_000L;
+    private static final int PREDICT_EVERY = 30;   // frames between work-time percentile updates
+    /** Fixed caps {@link #nextCap} steps through; the display rate comes after them. */
+    public static final float[] CAPS = {30f, 60f, 120f};
+
+    /** Present-to-present interval. */
+    public final RollingStats intervalMs = new RollingStats(Profiler.WINDOW);
+    /** |interval - target period| (or vs the previous interval when uncapped). */
+    public final RollingStats jitterMs = new RollingStats(Profiler.WINDOW);
+    /** CPU work between the end of the start-of-frame wait and the swap. */
+    public final RollingStats workMs = new RollingStats(Profiler.WINDOW);
+    /** Time spent deliberately waiting (cap + JIT) per frame. */
+    public final RollingStats waitMs = new RollingStats(Profiler.WINDOW);
+
+    private final float refreshHz;
+    private final boolean tearSupported;
+    private Mode mode = Mode.VSYNC;
+    private float capFps = 60f;
+    private boolean jitInput = false;
+
+    private long lastSwapNs = 0, deadlineNs = 0, workStartNs = 0, waitedNs = 0;
+    private float lastIntervalMs = 0f;
+    private long predictedWorkNs = 4_000_000L;
+    private int framesSincePredict = 0;
+    private final float[] pct = new float[Profiler.PCTS.length];
+
+    public FramePacer(float refreshHz, boolean tearSupported) {
+        this.refreshHz = refreshHz > 0 ? refreshHz : 60f;
+        this.tearSupported = tearSupported;
+    }
+
+    /** Swap interval to hand to glfwSwapInterval for the current mode. */
+    int swapInterval() {
+        return switch (mode) {
+            case VSYNC -> 1;
+            case ADAPTIVE -> tearSupported ? -1 : 1;   // late frames tear instead of waiting a whole vblank
+            case UNCAPPED, CAPPED -> 0;
+        };
+    }
+
+    void setMode(Mode mode, float capFps) {
+        this.mode = mode;
+        if (capFps > 0) this.capFps = capFps;
+        deadlineNs = 0;
+    }
+
+    public Mode mode() { return mode; }
+    public float capFps() { return capFps; }
+    public float refreshHz() { return refreshHz; }
+
+    /**
+     * The smallest of {@link #CAPS} and the display rate above {@code capFps}, or 0 past the
+     * last one; for cycling through the caps.
+     */
+    public float nextCap(float capFps) {
+        float next = refreshHz > capFps ? refreshHz : Float.MAX_VALUE;
+        for (float c : CAPS) if (c > capFps && c < next) next = c;
+        return next == Float.MAX_VALUE ? 0f : next;
+    }
+    public boolean tearSupported() { return tearSupported; }
+    public boolean jitInput() { return jitInput; }
+    public void setJitInput(boolean on) { jitInput = on; }
+
+    /** Target present period, 0 if uncapped. */
+    public long periodNanos() {
+        return switch (mode) {
+            case VSYNC, ADAPTIVE -> (long)(1e9 / refreshHz);
+            case CAPPED -> (long)(1e9 / capFps);
+            case UNCAPPED -> 0L;
+        };
+    }
+
+    // ---- called by GLWindow ----
+    void frameStart() {
+        waitedNs = 0;
+        long period = periodNanos();
+        if (jitInput && period > 0 && lastSwapNs != 0) {
+            long nextPresent = (mode == Mode.CAPPED) ? nextDeadline(period) : lastSwapNs + period;
+            waitedNs += waitUntil(nextPresent - predictedWorkNs - JIT_MARGIN_NS);
+        }
+        workStartNs = System.nanoTime();
+    }
+
+    void beforeSwap() {
+        long now = System.nanoTime();
+        workMs.add((now - workStartNs) / 1_000_000f);
+        if (++framesSincePredict >= PREDICT_EVERY) {
+            framesSincePredict = 0;
+            workMs.percentiles(Profiler.PCTS, pct);
+            predictedWorkNs = (long)(pct[1] * 1_000_000f);   // p95
+        }
+        if (mode == Mode.CAPPED) {
+            long period = periodNanos();
+            long target = nextDeadline(period);
+            waitedNs += waitUntil(target);
+            deadlineNs = target;
+        }
+    }
+
+    void afterSwap() {
+        long now = System.nanoTime();
+        waitMs.add(waitedNs / 1_000_000f);
+        if (lastSwapNs != 0) {
+            float interval = (now - lastSwapNs) / 1_000_000f;
+            intervalMs.add(interval);
+            long period = periodNanos();
+            float ref = period > 0 ? period / 1_000_000f : lastIntervalMs;
+            jitterMs.add(Math.abs(interval - ref));
+            lastIntervalMs = interval;
+        }
+        lastSwapNs = now;
+    }
+
+    // ---- internals ----
+    private long nextDeadline(long period) {
+        long now = System.nanoTime();
+        long next = (deadlineNs == 0) ? now + period : deadlineNs + period;
+        if (now - next > period) next = now;   // far behind: re-anchor instead of bursting
+        return next;
+    }
+
+    /** Hybrid wait until the given nanoTime; returns how long we waited. */
+    static long waitUntil(long deadline) {
+        long start = System.nanoTime();
+        long remaining = deadline - start;
+        if (remaining <= 0) return 0;
+        while (remaining > SPIN_NS) {
+            LockSupport.parkNanos(remaining - SPIN_NS);
+            remaining = deadline - System.nanoTime();
+        }
+        while (System.nanoTime() < deadline) Thread.onSpinWait();
+        return System.nanoTime() - start;
+    }
+}
@@ -1,9 +1,12 @@
 package engine.gl;
 
+import engine.input.InputQueue;
 import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
 
+import java.util.Arrays;
+
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
@@ -12,63 +15,136 @@ public class GLWindow {
     private long handle;
     private int width, height;
     private boolean mouseCaptured = false;
+    private boolean firstMove = true;
     private double lastMX, lastMY;
-    public double deltaX, deltaY;  // mouse deltas per frame
-    public boolean[] keys = new boolean[512];
+    // callbacks only enqueue; each consumer (render thread, sim thread) drains its own queue
+    private InputQueue[] inputQueues = new InputQueue[0];
+    private FramePacer pacer;
+
+    private static final int[][] CONTEXT_VERSIONS = {{4, 5}, {3, 3}};
 
     public GLWindow(int w, int h, String title) {
         width = w; height = h;
         if (!glfwInit()) throw new IllegalStateException("GLFW init failed");
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
-        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         // macOS forward-compat
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GLFW_TRUE);
 
-        handle = glfwCreateWindow(width, height, title, NULL, NULL);
+        // 4.5 for glClipControl (reversed-Z, see Depth); anything that can't do it gets 3.3
+        for (int[] v : CONTEXT_VERSIONS) {
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, v[0]);
+            glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, v[1]);
+            handle = glfwCreateWindow(width, height, title, NULL, NULL);
+            if (handle != NULL) break;
+        }
         if (handle == NULL) throw new RuntimeException("Failed to create window");
         glfwMakeContextCurrent(handle);
-        glfwSwapInterval(1); // vsync
         GL.createCapabilities();
 
+        // Pacing: vsync by default; adaptive needs the swap_control_tear extension
+        GLFWVidMode vm = glfwGetVideoMode(glfwGetPrimaryMonitor());
+        boolean tear = glfwExtensionSupported("WGL_EXT_swap_control_tear")
+                || glfwExtensionSupported("GLX_EXT_swap_control_tear");
+        pacer = new FramePacer(vm != null ? vm.refreshRate() : 60f, tear);
+        setPacing(FramePacer.Mode.VSYNC, 0f);
+
         glfwSetFramebufferSizeCallback(handle, (win, w2, h2) -> {
             width = w2; height = h2;
             glViewport(0, 0, width, height);
         });
 
         glfwSetKeyCallback(handle, (win, key, sc, action, mods) -> {
-            if (key >= 0 && key < keys.length) {
-                keys[key] = action != GLFW_RELEASE;
-            }
+            push(InputQueue.KEY, key, action, mods, 0, 0, glfwGetTime());
             // toggle mouse capture with ESC
             if (key == GLFW_KEY_ESCAPE && action == GLFW_PRESS) setMouseCaptured(!mouseCaptured);
         });
 
+        glfwSetCharCallback(handle, (win, codepoint) ->
+                push(InputQueue.CHAR, codepoint, GLFW_PRESS, 0, 0, 0, glfwGetTime()));
+
+        glfwSetMouseButtonCallback(handle, (win, button, action, mods) ->
+                push(InputQueue.MOUSE_BUTTON, button, action, mods, lastMX, lastMY, glfwGetTime()));
+
+        // only relative motion matters (camera look), and only while the cursor is captured
         glfwSetCursorPosCallback(handle, (win, mx, my) -> {
-            if (mouseCaptured) {
-                deltaX += mx - lastMX;
-                deltaY += my - lastMY;
+            if (mouseCaptured && !firstMove) {
+                push(InputQueue.MOUSE_MOVE, 0, 0, 0, mx - lastMX, my - lastMY, glfwGetTime());
             }
+            firstMove = false;
             lastMX = mx; lastMY = my;
         });
 
+        glfwSetScrollCallback(handle, (win, sx, sy) ->
+                push(InputQueue.SCROLL, 0, 0, 0, sx, sy, glfwGetTime()));
+
         setMouseCaptured(true);
         glEnable(GL_DEPTH_TEST);
+        Depth.apply();
     }
 
+    /**
+     * Reversed-Z with a float depth buffer when the context supports it; returns whether it
+     * is on. Choose before creating anything with a depth target.
+     */
+    public boolean setReversedZ(boolean on) { return Depth.setReversed(on); }
+
     public void setMouseCaptured(boolean capture) {
         mouseCaptured = capture;
         glfwSetInputMode(handle, GLFW_CURSOR, capture ? GLFW_CURSOR_DISABLED : GLFW_CURSOR_NORMAL);
-        deltaX = deltaY = 0.0;
+        firstMove = true;   // the cursor warps on capture changes; don't turn that into a look delta
     }
 
     public boolean isOpen() { return !glfwWindowShouldClose(handle); }
+    /** Start of a frame: in just-in-time input mode this is where the frame's idle time goes. */
+    public void beginFrame() { pacer.frameStart(); }
     public void poll() { glfwPollEvents(); }
-    public void swap() { glfwSwapBuffers(handle); }
+    public void swap() {
+        pacer.beforeSwap();
+        glfwSwapBuffers(handle);
+        pacer.afterSwap();
+    }
+
+    public FramePacer pacer() { return pacer; }
+
+    public void setPacing(FramePacer.Mode mode, float capFps) {
+        pacer.setMode(mode, capFps);
+        glfwSwapInterval(pacer.swapInterval());
+    }
+
+    /**
+     * VSYNC -> ADAPTIVE (if supported) -> UNCAPPED -> CAPPED at each of
+     * {@link FramePacer#CAPS} and the display rate -> VSYNC.
+     */
+    public void cyclePacing() {
+        float cap = 0f;
+        FramePacer.Mode next = switch (pacer.mode()) {
+            case VSYNC -> pacer.tearSupported() ? FramePacer.Mode.ADAPTIVE : FramePacer.Mode.UNCAPPED;
+            case ADAPTIVE -> FramePacer.Mode.UNCAPPED;
+            case UNCAPPED -> { cap = pacer.nextCap(0f); yield FramePacer.Mode.CAPPED; }
+            case CAPPED -> {
+                cap = pacer.nextCap(pacer.capFps());
+                yield cap > 0 ? FramePacer.Mode.CAPPED : FramePacer.Mode.VSYNC;
+            }
+        };
+        setPacing(next, cap);
+    }
     public void close() { glfwSetWindowShouldClose(handle, true); }
     public void destroy() { glfwDestroyWindow(handle); glfwTerminate(); }
 
     public int width() { return width; }
     public int height() { return height; }
     public long handle() { return handle; }
+
+    /** A new event queue that receives every input event from now on (one per consuming thread). */
+    public InputQueue openInputQueue() {
+        InputQueue q = new InputQueue(1024);
+        InputQueue[] next = Arrays.copyOf(inputQueues, inputQueues.length + 1);
+        next[inputQueues.length] = q;
+        inputQueues = next;
+        return q;
+    }
+
+    private void push(int type, int code, int action, int mods, double x, double y, double time) {
+        for (InputQueue q : inputQueues) q.push(type, code, action, mods, x, y, time);
+    }
 }
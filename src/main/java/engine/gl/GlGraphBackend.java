@@ -0,0 +1,154 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+import engine.perf.Profiler;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT24;
+import static org.lwjgl.opengl.GL20.glDrawBuffers;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * {@link RenderGraph} on GL. Physical slots come from a {@link TargetPool}, so a slot keeps
+ * getting the same texture (and FBO) frame after frame. Targets made of anything else
+ * (imported textures, several attachments) get an FBO cached by attachment set, dropped after
+ * {@link #maxIdleFrames} unused; {@link #adopt} registers an FBO that already exists, like the
+ * scene target's. Per-pass GPU times go to the profiler, one section per pass name.
+ */
+public final class GlGraphBackend implements RenderGraph.Backend {
+    public int maxIdleFrames = 30;
+
+    private static final class Fbo { int id; boolean owned; long lastUsed; }
+
+    private final TargetPool pool;
+    private final Profiler prof;   // nullable
+    private final Map<Integer, TargetPool.Target> acquired = new HashMap<>();
+    private final Map<String, Fbo> fbos = new HashMap<>();
+    private final Map<String, Integer> sections = new HashMap<>();
+    private Profiler.Scope open;   // the running pass's section; passes don't nest
+    private final StringBuilder key = new StringBuilder();
+    private long frame = 0;
+
+    public GlGraphBackend(TargetPool pool, Profiler prof) {
+        this.pool = pool;
+        this.prof = prof;
+    }
+
+    /** Uses an existing FBO for this exact attachment set instead of creating one. */
+    public void adopt(int fbo, int[] textures, RenderGraph.TextureDesc[] descs) {
+        Fbo f = fbos.get(key(textures, descs, textures.length));
+        if (f != null && f.id == fbo) { f.lastUsed = frame; return; }
+        if (f != null && f.owned) glDeleteFramebuffers(f.id);
+        f = new Fbo();
+        f.id = fbo;
+        f.owned = false;
+        f.lastUsed = frame;
+        fbos.put(key.toString(), f);
+    }
+
+    @Override public int acquire(RenderGraph.TextureDesc d) {
+        TargetPool.Target t = pool.acquire(d.width(), d.height(), d.format());
+        acquired.put(t.tex, t);
+        return t.tex;
+    }
+
+    @Override public void release(int texture) {
+        pool.release(acquired.remove(texture));
+    }
+
+    @Override public void bindTarget(int[] textures, RenderGraph.TextureDesc[] descs, int count, int width, int height) {
+        int fbo;
+        TargetPool.Target pooled = count == 1 ? acquired.get(textures[0]) : null;
+        if (count == 1 && textures[0] == RenderGraph.BACKBUFFER) fbo = 0;
+        else if (pooled != null) fbo = pooled.fbo;
+        else fbo = cached(textures, descs, count);
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        GlCounters.state();
+        glViewport(0, 0, width, height);
+    }
+
+    @Override public void beginPass(String name, boolean timed) {
+        if (prof == null) return;
+        int id = sections.computeIfAbsent(name, prof::section);
+        open = timed ? prof.gpu(id) : prof.cpu(id);
+    }
+
+    @Override public void endPass(String name, boolean timed) {
+        if (open != null) open.close();
+        open = null;
+    }
+
+    /** Drops FBOs nobody has bound for a while; call once per frame. */
+    public void endFrame() {
+        for (Iterator<Fbo> it = fbos.values().iterator(); it.hasNext(); ) {
+            Fbo f = it.next();
+            if (frame - f.lastUsed > maxIdleFrames) {
+                if (f.owned) glDeleteFramebuffers(f.id);
+                it.remove();
+            }
+        }
+        frame++;
+    }
+
+    public int cachedFramebuffers() { return fbos.size(); }
+
+    public void delete() {
+        for (Fbo f : fbos.values()) if (f.owned) glDeleteFramebuffers(f.id);
+        fbos.clear();
+    }
+
+    // ---- internals ----
+    private int cached(int[] textures, RenderGraph.TextureDesc[] descs, int count) {
+        Fbo f = fbos.get(key(textures, descs, count));
+        if (f == null) {
+            f = new Fbo();
+            f.id = create(textures, descs, count);
+            f.owned = true;
+            fbos.put(key.toString(), f);
+        }
+        f.lastUsed = frame;
+        return f.id;
+    }
+
+    // size and format are part of the key: a re-created texture may get an old name back
+    private String key(int[] textures, RenderGraph.TextureDesc[] descs, int count) {
+        key.setLength(0);
+        for (int i = 0; i < count; i++) {
+            key.append(textures[i]).append(':').append(descs[i].width()).append('x').append(descs[i].height())
+               .append(':').append(descs[i].format()).append(';');
+        }
+        return key.toString();
+    }
+
+    private static int create(int[] textures, RenderGraph.TextureDesc[] descs, int count) {
+        int prev = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        int f = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, f);
+        int colors = 0;
+        int[] drawBuffers = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (isDepth(descs[i].format())) {
+                glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, textures[i], 0);
+            } else {
+                glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0 + colors, GL_TEXTURE_2D, textures[i], 0);
+                drawBuffers[colors] = GL_COLOR_ATTACHMENT0 + colors;
+                colors++;
+            }
+        }
+        if (colors == 0) { glDrawBuffer(GL_NONE); glReadBuffer(GL_NONE); }
+        else if (colors > 1) glDrawBuffers(java.util.Arrays.copyOf(drawBuffers, colors));
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Render graph FBO incomplete");
+        glBindFramebuffer(GL_FRAMEBUFFER, prev);
+        return f;
+    }
+
+    private static boolean isDepth(int format) {
+        return format == GL_DEPTH_COMPONENT24 || format == GL_DEPTH_COMPONENT32F
+                || format == GL_DEPTH24_STENCIL8 || format == GL_DEPTH_COMPONENT;
+    }
+}
@@ -0,0 +1,310 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+import engine.scene.Planet;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Billboard LOD for distant bodies. A body whose silhouette drops below {@link #enterRadiusPx}
+ * is rendered once into a tile of a shared sprite atlas and then drawn as a camera-facing quad.
+ * It switches back to full shading above {@link #exitRadiusPx} (hysteresis, no popping at the
+ * threshold). Tiles are re-rendered at a capped rate, and only when the spin angle, lighting or
+ * view direction has drifted past a tolerance (or the sprite got too old).
+ */
+public class ImpostorRenderer {
+    /** Full shading into whatever viewport/FBO is bound; the renderer supplies this per body. */
+    public interface Painter { void paint(float[] proj, float[] view); }
+
+    public float enterRadiusPx = 40f;
+    public float exitRadiusPx  = 56f;
+    public float minRefreshSec = 1f / 15f;   // rate cap per sprite
+    public float maxAgeSec     = 2f;         // refresh even if nothing drifted
+    public float angleTolDeg   = 1.5f;       // spin, light and view direction tolerance
+    public int   maxRefreshesPerFrame = 2;
+
+    private static final class Slot {
+        int tile = -1;
+        int seenFrame;                       // last frame wants() was asked about the body
+        boolean active;
+        boolean valid;
+        float capturedAt = -1e9f;
+        float angleDeg;
+        float lx, ly, lz, lightIntensity;
+        float vx, vy, vz;                    // unit view direction (eye -> body) at capture
+        float rx, ry, rz, ux, uy, uz;        // billboard basis at capture
+        float halfSize;
+    }
+
+    private final Shader shader;
+    private final int atlasSize, tileSize, tilesPerRow;
+    private final int fbo, colorTex, depthRb, vao;
+    private final Map<Planet, Slot> slots = new IdentityHashMap<>();
+    private final ArrayDeque<Integer> freeTiles = new ArrayDeque<>();
+    private int refreshesThisFrame = 0;
+    private int refreshesLastFrame = 0;
+    private int frame = 0;
+
+    public ImpostorRenderer(Shader shader, int atlasSize, int tileSize) {
+        this.shader = shader;
+        this.atlasSize = atlasSize;
+        this.tileSize = tileSize;
+        this.tilesPerRow = atlasSize / tileSize;
+        for (int i = 0; i < tilesPerRow * tilesPerRow; i++) freeTiles.add(i);
+
+        colorTex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, colorTex);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA16F, atlasSize, atlasSize, 0, GL_RGBA, GL_HALF_FLOAT, (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        depthRb = glGenRenderbuffers();
+        glBindRenderbuffer(GL_RENDERBUFFER, depthRb);
+        glRenderbufferStorage(GL_RENDERBUFFER, Depth.internalFormat(), atlasSize, atlasSize);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        int prev = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, colorTex, 0);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, depthRb);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Impostor atlas FBO incomplete");
+        glBindFramebuffer(GL_FRAMEBUFFER, prev);
+
+        vao = glGenVertexArrays();
+    }
+
+    /**
+     * Bodies {@link #wants} wasn't asked about last frame (culled, too small, removed) give
+     * their tile back; one that comes back later starts over with a fresh tile.
+     */
+    public void beginFrame() {
+        refreshesLastFrame = refreshesThisFrame;
+        refreshesThisFrame = 0;
+        for (var it = slots.values().iterator(); it.hasNext(); ) {
+            Slot s = it.next();
+            if (s.seenFrame == frame) continue;
+            if (s.tile >= 0) freeTiles.add(s.tile);
+            it.remove();
+        }
+        frame++;
+    }
+
+    public int refreshesLastFrame() { return refreshesLastFrame; }
+
+    /**
+     * Hysteresis switch. Returns true when the body should be drawn as a sprite this frame;
+     * grabs an atlas tile on entry and frees it on exit. Falls back to full shading if the
+     * atlas is full. Ask every frame for each body that may keep its tile.
+     */
+    public boolean wants(Planet p, float radiusPx) {
+        Slot s = slots.get(p);
+        if (s != null) s.seenFrame = frame;
+        boolean active = (s != null) && s.active;
+        boolean next = active ? radiusPx < exitRadiusPx : radiusPx < enterRadiusPx;
+        if (next == active) return active;
+
+        if (next) {
+            if (freeTiles.isEmpty()) return false;
+            if (s == null) { s = new Slot(); s.seenFrame = frame; slots.put(p, s); }
+            s.tile = freeTiles.poll();
+            s.active = true;
+            s.valid = false;
+        } else {
+            freeTiles.add(s.tile);
+            s.tile = -1;
+            s.active = false;
+            s.valid = false;
+        }
+        return next;
+    }
+
+    /** Forget a body (e.g. removed from the scene). */
+    public void release(Planet p) {
+        Slot s = slots.remove(p);
+        if (s != null && s.tile >= 0) freeTiles.add(s.tile);
+    }
+
+    /**
+     * Repaints p's tile if it has drifted (within the per-frame cap). Call before
+     * {@link #draw} and outside any conditional render, which would discard the repaint.
+     */
+    public void refresh(Planet p, float[] view,
+                        float eyeX, float eyeY, float eyeZ,
+                        float boundR, float angleDeg,
+                        float[] lightDir, float lightIntensity,
+                        float timeSec, int viewportWidth, int viewportHeight,
+                        Painter painter) {
+        Slot s = slots.get(p);
+        if (s == null || !s.active) return;
+
+        float dx = p.cx - eyeX, dy = p.cy - eyeY, dz = p.cz - eyeZ;
+        float d = (float)Math.sqrt(dx*dx + dy*dy + dz*dz);
+        if (d <= boundR * 1.001f) return;     // can't sprite what we're inside of
+        float vx = dx / d, vy = dy / d, vz = dz / d;
+
+        if (needsRefresh(s, timeSec, angleDeg, lightDir, lightIntensity, vx, vy, vz)
+                && refreshesThisFrame < maxRefreshesPerFrame) {
+            capture(s, p, view, eyeX, eyeY, eyeZ, d, vx, vy, vz, boundR,
+                    angleDeg, lightDir, lightIntensity, timeSec, viewportWidth, viewportHeight, painter);
+            refreshesThisFrame++;
+        }
+    }
+
+    /** The billboard quad with p's current tile; nothing until the tile has been painted. */
+    public void draw(Planet p, float[] proj, float[] view,
+                     float eyeX, float eyeY, float eyeZ, float boundR) {
+        Slot s = slots.get(p);
+        if (s == null || !s.active || !s.valid) return;
+
+        float dx = p.cx - eyeX, dy = p.cy - eyeY, dz = p.cz - eyeZ;
+        if (dx*dx + dy*dy + dz*dz <= boundR * boundR * 1.002f) return;   // inside: see refresh
+
+        int col = s.tile % tilesPerRow, row = s.tile / tilesPerRow;
+        float inset = 0.5f / atlasSize;
+        float u0 = (float)(col * tileSize) / atlasSize + inset, v0 = (float)(row * tileSize) / atlasSize + inset;
+        float u1 = (float)((col + 1) * tileSize) / atlasSize - inset, v1 = (float)((row + 1) * tileSize) / atlasSize - inset;
+
+        shader.use();
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(),"uProj"), false, proj);
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(),"uView"), false, view);
+        glUniform3f(glGetUniformLocation(shader.id(),"uCenter"), p.cx, p.cy, p.cz);
+        glUniform3f(glGetUniformLocation(shader.id(),"uRight"), s.rx, s.ry, s.rz);
+        glUniform3f(glGetUniformLocation(shader.id(),"uUp"), s.ux, s.uy, s.uz);
+        glUniform1f(glGetUniformLocation(shader.id(),"uHalfSize"), s.halfSize);
+        glUniform4f(glGetUniformLocation(shader.id(),"uUVRect"), u0, v0, u1, v1);
+        glUniform1i(glGetUniformLocation(shader.id(),"uAtlas"), 0);
+
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, colorTex);
+        GlCounters.state();
+
+        // premultiplied sprite; depth-tested but not written (soft halo edges)
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+        glEnable(GL_DEPTH_TEST);
+        glDepthMask(false);
+        glDisable(GL_CULL_FACE);
+
+        glBindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLE_STRIP, 0, 4);
+        GlCounters.draw();
+        glBindVertexArray(0);
+
+        glDepthMask(true);
+        glDisable(GL_BLEND);
+        glEnable(GL_CULL_FACE);
+    }
+
+    public void delete() {
+        glDeleteFramebuffers(fbo);
+        glDeleteRenderbuffers(depthRb);
+        glDeleteTextures(colorTex);
+        glDeleteVertexArrays(vao);
+        slots.clear();
+    }
+
+    // ---- internals ----
+    private boolean needsRefresh(Slot s, float now, float angleDeg, float[] L, float intensity,
+                                 float vx, float vy, float vz) {
+        if (!s.valid) return true;
+        float age = now - s.capturedAt;
+        if (age < minRefreshSec) return false;
+        if (age > maxAgeSec) return true;
+
+        float cosTol = (float)Math.cos(Math.toRadians(angleTolDeg));
+        float da = Math.abs(angleDeg - s.angleDeg) % 360f;
+        if (Math.min(da, 360f - da) > angleTolDeg) return true;
+        if (L[0]*s.lx + L[1]*s.ly + L[2]*s.lz < cosTol) return true;
+        if (Math.abs(intensity - s.lightIntensity) > 0.01f * Math.max(1f, s.lightIntensity)) return true;
+        return vx*s.vx + vy*s.vy + vz*s.vz < cosTol;
+    }
+
+    private void capture(Slot s, Planet p, float[] mainView,
+                         float eyeX, float eyeY, float eyeZ, float d,
+                         float vx, float vy, float vz, float boundR,
+                         float angleDeg, float[] L, float intensity, float now,
+                         int viewportWidth, int viewportHeight, Painter painter) {
+        // Same eye as the main camera, frustum tight around the bounding sphere, so the
+        // sprite carries the right perspective and lighting for this view direction.
+        float sinA = boundR / d;
+        float tanA = sinA / (float)Math.sqrt(1f - sinA * sinA);
+        float near = Math.max(1e-3f, d - boundR * 1.05f);
+        float far  = d + boundR * 1.05f;
+        float[] proj = perspective(tanA, near, far);
+        float[] view = lookAt(eyeX, eyeY, eyeZ, p.cx, p.cy, p.cz, mainView[1], mainView[5], mainView[9]);
+
+        int prevFbo = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        int col = s.tile % tilesPerRow, row = s.tile / tilesPerRow;
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        GlCounters.state();
+        glViewport(col * tileSize, row * tileSize, tileSize, tileSize);
+        glEnable(GL_SCISSOR_TEST);
+        glScissor(col * tileSize, row * tileSize, tileSize, tileSize);
+        glClearColor(0f, 0f, 0f, 0f);
+        glDepthMask(true);
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+        painter.paint(proj, view);
+
+        glDisable(GL_SCISSOR_TEST);
+        glBindFramebuffer(GL_FRAMEBUFFER, prevFbo);
+        glViewport(0, 0, viewportWidth, viewportHeight);
+
+        s.valid = true;
+        s.capturedAt = now;
+        s.angleDeg = angleDeg;
+        s.lx = L[0]; s.ly = L[1]; s.lz = L[2];
+        s.lightIntensity = intensity;
+        s.vx = vx; s.vy = vy; s.vz = vz;
+        s.rx = view[0]; s.ry = view[4]; s.rz = view[8];
+        s.ux = view[1]; s.uy = view[5]; s.uz = view[9];
+        s.halfSize = d * tanA;
+    }
+
+    private static float[] perspective(float tanHalfFov, float near, float far) {
+        float f = 1f / tanHalfFov;
+        float nf = 1f / (near - far);
+        float[] m = new float[16];
+        m[0] = f; m[5] = f; m[11] = -1f;
+        if (Depth.reversed()) {
+            // finite reversed-Z in [0,1] clip depth: near -> 1, far -> 0
+            m[10] = -near * nf;
+            m[14] = -far * near * nf;
+        } else {
+            m[10] = (far + near) * nf;
+            m[14] = (2f * far * near) * nf;
+        }
+        return m;
+    }
+
+    private static float[] lookAt(float ex,float ey,float ez, float cx,float cy,float cz, float upX,float upY,float upZ) {
+        float fx = cx-ex, fy = cy-ey, fz = cz-ez;
+        float fl = (float)Math.sqrt(fx*fx+fy*fy+fz*fz); if (fl < 1e-6f) fl = 1e-6f;
+        fx/=fl; fy/=fl; fz/=fl;
+        float rX = fy*upZ - fz*upY, rY = fz*upX - fx*upZ, rZ = fx*upY - fy*upX;
+        float rl = (float)Math.sqrt(rX*rX+rY*rY+rZ*rZ);
+        if (rl < 1e-4f) { rX = -fz; rY = 0f; rZ = fx; rl = (float)Math.sqrt(rX*rX+rZ*rZ); if (rl < 1e-6f) { rX = 1f; rl = 1f; } }
+        rX/=rl; rY/=rl; rZ/=rl;
+        float uX = rY*fz - rZ*fy, uY = rZ*fx - rX*fz, uZ = rX*fy - rY*fx;
+        float[] m = new float[16];
+        m[0]= rX; m[4]= uX; m[8] = -fx;
+        m[1]= rY; m[5]= uY; m[9] = -fy;
+        m[2]= rZ; m[6]= uZ; m[10]= -fz;
+        m[15]=1;
+        m[12]= -(rX*ex + rY*ey + rZ*ez);
+        m[13]= -(uX*ex + uY*ey + uZ*ez);
+        m[14]=  (fx*ex + fy*ey + fz*ez);
+        return m;
+    }
+}
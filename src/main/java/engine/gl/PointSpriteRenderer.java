@@ -0,0 +1,54 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.GL_PROGRAM_POINT_SIZE;
+
+/** Draws a body that projects to (sub-)pixel size as one round, coverage-weighted point. */
+public class PointSpriteRenderer {
+    private final Shader shader;
+    private final int vao;   // core profile wants a VAO bound even with no attributes
+
+    public PointSpriteRenderer(Shader shader) {
+        this.shader = shader;
+        this.vao = glGenVertexArrays();
+    }
+
+    public void draw(float[] proj, float[] view,
+                     float x, float y, float z,
+                     float radiusPx,
+                     float r, float g, float b) {
+
+        // a disk of radius rPx covers pi*r^2 pixels; fade instead of popping below one pixel
+        float sizePx = Math.max(1f, 2f * radiusPx);
+        float alpha  = Math.min(1f, (float)Math.PI * radiusPx * radiusPx);
+
+        shader.use();
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(),"uProj"), false, proj);
+        glUniformMatrix4fv(glGetUniformLocation(shader.id(),"uView"), false, view);
+        glUniform3f(glGetUniformLocation(shader.id(),"uPos"), x, y, z);
+        glUniform1f(glGetUniformLocation(shader.id(),"uSizePx"), sizePx);
+        glUniform3f(glGetUniformLocation(shader.id(),"uColor"), r, g, b);
+        glUniform1f(glGetUniformLocation(shader.id(),"uAlpha"), alpha);
+
+        glEnable(GL_PROGRAM_POINT_SIZE);
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        glEnable(GL_DEPTH_TEST);
+        glDepthMask(false);
+
+        glBindVertexArray(vao);
+        glDrawArrays(GL_POINTS, 0, 1);
+        GlCounters.draw();
+        glBindVertexArray(0);
+
+        glDepthMask(true);
+        glDisable(GL_BLEND);
+        glDisable(GL_PROGRAM_POINT_SIZE);
+    }
+
+    public void delete(){ glDeleteVertexArrays(vao); }
+}
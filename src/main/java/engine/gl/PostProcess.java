@@ -0,0 +1,285 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL14.GL_FUNC_ADD;
+import static org.lwjgl.opengl.GL14.glBlendEquation;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * HDR resolve of the scene target into a displayable image, as {@link RenderGraph} passes:
+ *
+ *   luminance   weighted log luminance of the scene into a small fixed-size target, then
+ *               glGenerateMipmap reduces it to one texel (the average) on the GPU
+ *   exposure    1x1: moves the exposure toward key / average, with eye-adaptation speed;
+ *               never read back, the tonemap pass samples it
+ *   bloom down  prefiltered (soft threshold) 13-tap downsamples, half size per level
+ *   bloom up    tent upsamples, each added onto the next larger level
+ *   tonemap     scene * exposure + bloom, then ACES or filmic, into an 8-bit target
+ *
+ * All of them are declared every frame; what the tonemap pass doesn't read (exposure with
+ * auto exposure off, bloom when it's off) is culled by the graph. The bloom levels and the
+ * output are transient graph resources, sized from the scene's allocated size and drawn only
+ * over the part the scene rendered, so dynamic resolution doesn't reallocate them.
+ */
+public class PostProcess {
+    public enum ToneMap {
+        ACES, FILMIC, OFF;
+        public ToneMap next() { return values()[(ordinal() + 1) % values().length]; }
+    }
+
+    public ToneMap toneMap = ToneMap.ACES;
+
+    // ---- exposure ----
+    public boolean autoExposure = true;
+    /** Manual exposure, or the starting point of auto exposure. */
+    public float exposure = 1f;
+    /**
+     * Average lit luminance is mapped to this. Higher than photographic middle grey (0.18)
+     * because the shaders' colours were tuned for direct display, where a lit surface sits
+     * around 0.5.
+     */
+    public float key = 0.5f;
+    public float minExposure = 0.25f, maxExposure = 4f;
+    /** Adaptation rate (1/s) toward brighter and darker scenes. */
+    public float adaptUp = 3f, adaptDown = 1f;
+    /** Pixels darker than this don't count toward the average (empty space would dominate it). */
+    public float lumFloor = 0.08f;
+
+    // ---- bloom ----
+    public boolean bloom = true;
+    public float bloomThreshold = 1.0f;
+    public float bloomKnee = 0.5f;
+    public float bloomStrength = 0.06f;
+    public int bloomLevels = 6;
+
+    private static final int LUM_SIZE = 128, LUM_MIPS = 8;   // 128 -> 1
+    private static final int MAX_LEVELS = 8;
+    // graph state keys: the downsamples, and the upsamples, share a shader and blend state
+    private static final int STATE_DOWN = 1, STATE_UP = 2;
+
+    private final Shader lumShader, exposureShader, downShader, upShader, toneShader;
+    private final int vao;
+    private final int lumTex;
+    private final int[] expTex = new int[2];
+    private int expRead = 0;
+    private boolean expValid = false;
+    private long lastNanos = 0;
+    private float dt;
+
+    private final RenderGraph.Resource[] levels = new RenderGraph.Resource[MAX_LEVELS];
+    private final int[] levelW = new int[MAX_LEVELS], levelH = new int[MAX_LEVELS];
+
+    public PostProcess() { this(true); }
+
+    /**
+     * Without any GL objects: {@link #addPasses} declares the same chain, but executing it
+     * would fail. For checking the declarations (tests).
+     */
+    static PostProcess withoutGl() { return new PostProcess(false); }
+
+    private PostProcess(boolean gl) {
+        if (!gl) {
+            lumShader = exposureShader = downShader = upShader = toneShader = null;
+            vao = lumTex = 0;
+            return;
+        }
+        lumShader      = Shader.load("shaders/fullscreen.vert", "shaders/post_luminance.frag");
+        exposureShader = Shader.load("shaders/fullscreen.vert", "shaders/post_exposure.frag");
+        downShader     = Shader.load("shaders/fullscreen.vert", "shaders/bloom_down.frag");
+        upShader       = Shader.load("shaders/fullscreen.vert", "shaders/bloom_up.frag");
+        toneShader     = Shader.load("shaders/fullscreen.vert", "shaders/tonemap.frag");
+        vao = glGenVertexArrays();
+
+        lumTex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, lumTex);
+        for (int m = 0, s = LUM_SIZE; m < LUM_MIPS; m++, s = Math.max(1, s / 2))
+            glTexImage2D(GL_TEXTURE_2D, m, GL_RG16F, s, s, 0, GL_RG, GL_HALF_FLOAT, (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAX_LEVEL, LUM_MIPS - 1);
+        texParams(GL_LINEAR_MIPMAP_NEAREST);
+
+        for (int i = 0; i < 2; i++) {
+            expTex[i] = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, expTex[i]);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_R32F, 1, 1, 0, GL_RED, GL_FLOAT, (java.nio.ByteBuffer) null);
+            texParams(GL_NEAREST);
+        }
+    }
+
+    /**
+     * Declares the chain on {@code sceneColor} (the scene target's colour, fully drawn by the
+     * passes before, over its lower-left usedW x usedH) and returns the tonemapped resource,
+     * laid out like the scene's (same allocated size and used rectangle), ready for
+     * {@link SceneTarget#present(int, float)}.
+     */
+    public RenderGraph.Resource addPasses(RenderGraph g, RenderGraph.Resource sceneColor, int usedW, int usedH) {
+        long now = System.nanoTime();
+        dt = lastNanos == 0 ? 0f : Math.min(0.25f, (now - lastNanos) / 1e9f);
+        lastNanos = now;
+
+        int allocW = sceneColor.desc.width(), allocH = sceneColor.desc.height();
+        float uvX = usedW / (float)allocW, uvY = usedH / (float)allocH;
+        boolean hdr = toneMap != ToneMap.OFF;
+
+        // ---- exposure ----
+        var lum = g.importTexture("luminance", lumTex, LUM_SIZE, LUM_SIZE, GL_RG16F);
+        var expPrev = g.importTexture("exposure prev", expTex[expRead], 1, 1, GL_R32F);
+        var expNext = g.importTexture("exposure", expTex[1 - expRead], 1, 1, GL_R32F);
+        g.pass("luminance", ctx -> {
+            begin(lumShader);
+            int id = lumShader.id();
+            glUniform1i(glGetUniformLocation(id, "uScene"), 0);
+            glUniform2f(glGetUniformLocation(id, "uUvScale"), uvX, uvY);
+            glUniform1f(glGetUniformLocation(id, "uLumFloor"), lumFloor);
+            bindTex(0, ctx.texture(sceneColor));
+            fullscreen();
+
+            // the parallel reduction: each mip level averages 2x2 of the one above
+            glBindTexture(GL_TEXTURE_2D, ctx.texture(lum));
+            glGenerateMipmap(GL_TEXTURE_2D);
+        }).read(sceneColor).write(lum);
+
+        g.pass("exposure", ctx -> {
+            begin(exposureShader);
+            int id = exposureShader.id();
+            glUniform1i(glGetUniformLocation(id, "uLum"), 0);
+            glUniform1i(glGetUniformLocation(id, "uPrev"), 1);
+            glUniform1f(glGetUniformLocation(id, "uLumLod"), LUM_MIPS - 1);
+            glUniform1i(glGetUniformLocation(id, "uPrevValid"), expValid ? 1 : 0);
+            glUniform1f(glGetUniformLocation(id, "uStart"), exposure);
+            glUniform1f(glGetUniformLocation(id, "uKey"), key);
+            glUniform2f(glGetUniformLocation(id, "uRange"), minExposure, maxExposure);
+            glUniform2f(glGetUniformLocation(id, "uRate"), 1f - (float)Math.exp(-dt * adaptUp), 1f - (float)Math.exp(-dt * adaptDown));
+            bindTex(0, ctx.texture(lum));
+            bindTex(1, ctx.texture(expPrev));
+            fullscreen();
+            expRead = 1 - expRead;
+            expValid = true;
+        }).read(lum).read(expPrev).write(expNext);
+        boolean useExposure = hdr && autoExposure;
+        if (!useExposure) expValid = false;   // start over from the manual value next time
+
+        // ---- bloom ----
+        int count = 0;
+        if (hdr && bloom && bloomStrength > 0f) {
+            int n = Math.max(1, Math.min(MAX_LEVELS, bloomLevels));
+            var src = sceneColor;
+            int srcAllocW = allocW, srcAllocH = allocH, srcW = usedW, srcH = usedH;
+            for (int i = 0; i < n; i++) {
+                int w = srcAllocW / 2, h = srcAllocH / 2;
+                if (w < 2 || h < 2) break;
+                levels[i] = g.create("bloom " + i, w, h, GL_RGBA16F);
+                levelW[i] = Math.max(1, (srcW + 1) / 2);
+                levelH[i] = Math.max(1, (srcH + 1) / 2);
+                var from = src;
+                float su = srcW / (float)srcAllocW, sv = srcH / (float)srcAllocH;
+                float tx = 1f / srcAllocW, ty = 1f / srcAllocH;
+                boolean first = i == 0;
+                g.pass("bloom down " + i, ctx -> {
+                    begin(downShader);
+                    int id = downShader.id();
+                    glUniform1i(glGetUniformLocation(id, "uSrc"), 0);
+                    glUniform2f(glGetUniformLocation(id, "uSrcUvScale"), su, sv);
+                    glUniform2f(glGetUniformLocation(id, "uSrcTexel"), tx, ty);
+                    // first level only: soft threshold, so only what's over it blooms
+                    glUniform1i(glGetUniformLocation(id, "uPrefilter"), first ? 1 : 0);
+                    glUniform2f(glGetUniformLocation(id, "uThreshold"), bloomThreshold, Math.max(1e-4f, bloomKnee));
+                    bindTex(0, ctx.texture(from));
+                    fullscreen();
+                }).read(from).write(levels[i]).viewport(levelW[i], levelH[i]).state(STATE_DOWN);
+                count++;
+                src = levels[i]; srcAllocW = w; srcAllocH = h; srcW = levelW[i]; srcH = levelH[i];
+            }
+            for (int i = count - 1; i > 0; i--) {
+                var from = levels[i];
+                float su = levelW[i] / (float)from.desc.width(), sv = levelH[i] / (float)from.desc.height();
+                float tx = 1f / from.desc.width(), ty = 1f / from.desc.height();
+                g.pass("bloom up " + i, ctx -> {
+                    begin(upShader);
+                    int id = upShader.id();
+                    glUniform1i(glGetUniformLocation(id, "uSrc"), 0);
+                    glUniform2f(glGetUniformLocation(id, "uSrcUvScale"), su, sv);
+                    glUniform2f(glGetUniformLocation(id, "uSrcTexel"), tx, ty);
+                    bindTex(0, ctx.texture(from));
+                    glEnable(GL_BLEND);
+                    glBlendEquation(GL_FUNC_ADD);
+                    glBlendFunc(GL_ONE, GL_ONE);
+                    fullscreen();
+                    glDisable(GL_BLEND);
+                }).read(from).modify(levels[i - 1]).viewport(levelW[i - 1], levelH[i - 1]).state(STATE_UP);
+            }
+        }
+
+        // ---- tonemap ----
+        var out = g.create("tonemapped", allocW, allocH, GL_RGBA8);
+        var bloom0 = count > 0 ? levels[0] : null;
+        float bu = count > 0 ? levelW[0] / (float)bloom0.desc.width() : 0f;
+        float bv = count > 0 ? levelH[0] / (float)bloom0.desc.height() : 0f;
+        var tone = g.pass("tonemap", ctx -> {
+            begin(toneShader);
+            int id = toneShader.id();
+            glUniform1i(glGetUniformLocation(id, "uScene"), 0);
+            glUniform1i(glGetUniformLocation(id, "uBloom"), 1);
+            glUniform1i(glGetUniformLocation(id, "uExposureTex"), 2);
+            glUniform2f(glGetUniformLocation(id, "uUvScale"), uvX, uvY);
+            glUniform1i(glGetUniformLocation(id, "uMode"), toneMap.ordinal());
+            glUniform1i(glGetUniformLocation(id, "uAutoExposure"), useExposure ? 1 : 0);
+            glUniform1f(glGetUniformLocation(id, "uExposure"), hdr ? exposure : 1f);
+            glUniform1f(glGetUniformLocation(id, "uBloomStrength"), bloom0 != null ? bloomStrength : 0f);
+            glUniform2f(glGetUniformLocation(id, "uBloomUvScale"), bu, bv);
+            bindTex(0, ctx.texture(sceneColor));
+            bindTex(1, bloom0 != null ? ctx.texture(bloom0) : 0);
+            bindTex(2, useExposure ? ctx.texture(expNext) : 0);
+            fullscreen();
+            glActiveTexture(GL_TEXTURE0);
+            glEnable(GL_DEPTH_TEST);
+        }).read(sceneColor).write(out).viewport(usedW, usedH);
+        if (useExposure) tone.read(expNext);
+        if (bloom0 != null) tone.read(bloom0);
+        return out;
+    }
+
+    public void delete() {
+        if (lumShader == null) return;   // withoutGl
+        glDeleteTextures(lumTex);
+        for (int i = 0; i < 2; i++) glDeleteTextures(expTex[i]);
+        glDeleteVertexArrays(vao);
+        lumShader.delete();
+        exposureShader.delete();
+        downShader.delete();
+        upShader.delete();
+        toneShader.delete();
+    }
+
+    // ---- internals ----
+    private static void begin(Shader shader) {
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_BLEND);
+        glDisable(GL_CULL_FACE);
+        shader.use();
+    }
+
+    private void fullscreen() {
+        glBindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+        GlCounters.draw();
+        glBindVertexArray(0);
+    }
+
+    private static void bindTex(int unit, int tex) {
+        glActiveTexture(GL_TEXTURE0 + unit);
+        glBindTexture(GL_TEXTURE_2D, tex);
+        GlCounters.state();
+    }
+
+    private static void texParams(int minFilter) {
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, minFilter);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+}
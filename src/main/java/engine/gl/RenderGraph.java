@@ -0,0 +1,342 @@
+package engine.gl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A frame as passes that declare what they read and write, instead of a hard-coded call order.
+ * Per frame: {@link #reset}, declare resources and passes, mark what must be produced
+ * ({@link #output}), {@link #compile}, {@link #execute}.
+ *
+ *   compile   passes that nothing produced-for-output depends on are culled; the rest are put
+ *             in an order that respects every read/write hazard, preferring, among passes that
+ *             are ready, one with the same target as the last (no FBO switch) and then the
+ *             same state key
+ *   aliasing  transient resources get physical slots by lifetime in that order: a slot whose
+ *             last user has run is handed to the next resource of the same size and format
+ *   execute   binds each pass's target only when it differs from the bound one, brackets the
+ *             pass with the backend's timing, and runs it
+ *
+ * Nothing here touches GL; that's the {@link Backend} ({@link GlGraphBackend} for the real
+ * thing). A backend that only records calls is enough to check the schedule and the aliasing.
+ * Declaration order is a valid order too, so the graph never has to reject a cycle.
+ */
+public final class RenderGraph {
+    /** Size and internal format of a texture resource. */
+    public record TextureDesc(int width, int height, int format) {}
+
+    /** Handle of the window's framebuffer, as an attachment. */
+    public static final int BACKBUFFER = -1;
+
+    /** What the graph needs from the graphics API. */
+    public interface Backend {
+        /** A texture for one physical slot, for this frame. */
+        int acquire(TextureDesc desc);
+        void release(int texture);
+        /** Binds a render target made of these attachments, viewport at (w, h). */
+        void bindTarget(int[] textures, TextureDesc[] descs, int count, int width, int height);
+        void beginPass(String name, boolean timed);
+        void endPass(String name, boolean timed);
+    }
+
+    public interface PassBody { void execute(Context ctx); }
+
+    /** What a pass body sees at execution time. */
+    public interface Context {
+        /** Texture behind r this frame (imported, or the physical slot it was aliased to). */
+        int texture(Resource r);
+    }
+
+    public static final class Resource {
+        public final String name;
+        public final TextureDesc desc;
+        final int index;
+        final boolean imported;
+        final int importedHandle;
+        boolean output;
+        // compile results
+        int firstUse, lastUse, physical;
+
+        Resource(String name, TextureDesc desc, int index, boolean imported, int handle) {
+            this.name = name; this.desc = desc; this.index = index;
+            this.imported = imported; this.importedHandle = handle;
+        }
+
+        /** Physical slot after compile (-1 for imported or unused). */
+        public int physical() { return physical; }
+        @Override public String toString() { return name; }
+    }
+
+    public static final class Pass {
+        public final String name;
+        final int index;
+        final PassBody body;
+        final List<Resource> reads = new ArrayList<>(), writes = new ArrayList<>();
+        int viewportW = -1, viewportH = -1;
+        int stateKey = 0;
+        boolean sideEffect, timed = true;
+        // compile results
+        boolean alive;
+        final List<Pass> before = new ArrayList<>();   // must run before this one
+        final List<Pass> after = new ArrayList<>();    // must run after this one
+        final List<Pass> data = new ArrayList<>();     // whose writes this one reads
+        int pending;
+
+        Pass(String name, int index, PassBody body) { this.name = name; this.index = index; this.body = body; }
+
+        public Pass read(Resource r)  { reads.add(r); return this; }
+        /** Writes are the pass's render target, in attachment order. */
+        public Pass write(Resource r) { writes.add(r); return this; }
+        /** Blends onto or otherwise keeps what's there: read and write. */
+        public Pass modify(Resource r) { reads.add(r); writes.add(r); return this; }
+        /** Viewport when it's only part of the target; default is the first write's size. */
+        public Pass viewport(int w, int h) { viewportW = w; viewportH = h; return this; }
+        /** Passes with equal keys (e.g. same shader) are kept together where the order allows. */
+        public Pass state(int key) { stateKey = key; return this; }
+        /** Never culled, even if nothing reads what it writes. */
+        public Pass sideEffect() { sideEffect = true; return this; }
+        /** Leave out of per-pass GPU timing (e.g. a pass that times its own sections). */
+        public Pass untimed() { timed = false; return this; }
+
+        public boolean alive() { return alive; }
+        @Override public String toString() { return name; }
+    }
+
+    private final Backend backend;
+    private final List<Resource> resources = new ArrayList<>();
+    private final List<Pass> passes = new ArrayList<>();
+    private final List<Pass> schedule = new ArrayList<>();
+    private final List<TextureDesc> physicals = new ArrayList<>();
+    private int[] physicalTex = new int[0];
+    private boolean compiled;
+    private Pass[] lastWriters = new Pass[0];
+
+    // last frame's numbers
+    private int culled, targetSwitches;
+
+    private final Context ctx = r -> r.imported ? r.importedHandle : physicalTex[r.physical];
+    private int[] boundTex = new int[0];
+    private int boundCount = -1, boundW, boundH;
+    private int[] bindTex = new int[4];
+    private TextureDesc[] bindDesc = new TextureDesc[4];
+
+    public RenderGraph(Backend backend) { this.backend = backend; }
+
+    public void reset() {
+        resources.clear();
+        passes.clear();
+        schedule.clear();
+        physicals.clear();
+        compiled = false;
+    }
+
+    // ---- declaration ----
+    /** A texture the graph owns for this frame only; may share storage with others. */
+    public Resource create(String name, int width, int height, int format) {
+        Resource r = new Resource(name, new TextureDesc(Math.max(1, width), Math.max(1, height), format), resources.size(), false, 0);
+        resources.add(r);
+        return r;
+    }
+
+    /** A texture owned elsewhere (persistent targets, the scene target). */
+    public Resource importTexture(String name, int texture, int width, int height, int format) {
+        Resource r = new Resource(name, new TextureDesc(width, height, format), resources.size(), true, texture);
+        resources.add(r);
+        return r;
+    }
+
+    /** The window's framebuffer. */
+    public Resource backbuffer(int width, int height) {
+        return importTexture("backbuffer", BACKBUFFER, width, height, 0);
+    }
+
+    /** Must be produced this frame: the passes writing it (and what they need) survive culling. */
+    public void output(Resource r) { r.output = true; }
+
+    public Pass pass(String name, PassBody body) {
+        Pass p = new Pass(name, passes.size(), body);
+        passes.add(p);
+        return p;
+    }
+
+    // ---- compile ----
+    public void compile() {
+        buildEdges();
+        cull();
+        order();
+        alias();
+        compiled = true;
+    }
+
+    private void buildEdges() {
+        int n = resources.size();
+        Pass[] lastWriter = new Pass[n];
+        List<List<Pass>> readers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) readers.add(new ArrayList<>());
+
+        for (Pass p : passes) {
+            p.before.clear(); p.after.clear(); p.data.clear(); p.alive = false;
+            for (Resource r : p.reads) {
+                Pass w = lastWriter[r.index];
+                if (w != null) { edge(w, p); addOnce(p.data, w); }   // read after write
+                readers.get(r.index).add(p);
+            }
+            for (Resource r : p.writes) {
+                Pass w = lastWriter[r.index];
+                if (w != null && w != p) edge(w, p);                 // write after write
+                for (Pass rd : readers.get(r.index)) if (rd != p) edge(rd, p);   // write after read
+                readers.get(r.index).clear();
+                lastWriter[r.index] = p;
+            }
+        }
+        lastWriters = lastWriter;
+    }
+
+    // roots are side-effect passes and the final writer of each output; everything they read
+    // from (transitively) survives
+    private void cull() {
+        ArrayList<Pass> stack = new ArrayList<>();
+        for (Pass p : passes) if (p.sideEffect) stack.add(p);
+        for (Resource r : resources) if (r.output && lastWriters[r.index] != null) stack.add(lastWriters[r.index]);
+        while (!stack.isEmpty()) {
+            Pass p = stack.remove(stack.size() - 1);
+            if (p.alive) continue;
+            p.alive = true;
+            stack.addAll(p.data);
+        }
+        culled = 0;
+        for (Pass p : passes) if (!p.alive) culled++;
+    }
+
+    private void order() {
+        schedule.clear();
+        List<Pass> ready = new ArrayList<>();
+        for (Pass p : passes) {
+            if (!p.alive) continue;
+            p.pending = 0;
+            for (Pass b : p.before) if (b.alive) p.pending++;
+        }
+        for (Pass p : passes) if (p.alive && p.pending == 0) ready.add(p);
+
+        Pass last = null;
+        while (!ready.isEmpty()) {
+            int pick = 0;
+            for (int i = 1; i < ready.size(); i++) if (better(ready.get(i), ready.get(pick), last)) pick = i;
+            Pass p = ready.remove(pick);
+            schedule.add(p);
+            last = p;
+            for (Pass q : p.after) {
+                if (q.alive && --q.pending == 0) ready.add(q);
+            }
+        }
+    }
+
+    // same target as the last pass, then same state, then declaration order
+    private static boolean better(Pass a, Pass b, Pass last) {
+        if (last != null) {
+            boolean at = sameTarget(a, last), bt = sameTarget(b, last);
+            if (at != bt) return at;
+            boolean as = a.stateKey == last.stateKey, bs = b.stateKey == last.stateKey;
+            if (as != bs) return as;
+        }
+        return a.index < b.index;
+    }
+
+    private static boolean sameTarget(Pass a, Pass b) {
+        return !a.writes.isEmpty() && a.writes.equals(b.writes);
+    }
+
+    private void alias() {
+        for (Resource r : resources) { r.firstUse = -1; r.lastUse = -1; r.physical = -1; }
+        for (int i = 0; i < schedule.size(); i++) {
+            Pass p = schedule.get(i);
+            for (Resource r : p.reads) use(r, i);
+            for (Resource r : p.writes) use(r, i);
+        }
+
+        physicals.clear();
+        List<Integer> free = new ArrayList<>();
+        for (int i = 0; i < schedule.size(); i++) {
+            for (Resource r : resources) {
+                if (r.imported || r.firstUse != i) continue;
+                int slot = -1;
+                for (int k = 0; k < free.size(); k++) {
+                    if (physicals.get(free.get(k)).equals(r.desc)) { slot = free.remove(k); break; }
+                }
+                if (slot < 0) { slot = physicals.size(); physicals.add(r.desc); }
+                r.physical = slot;
+            }
+            // released after the pass, so nothing it reads or writes shares storage within it
+            for (Resource r : resources) if (!r.imported && r.lastUse == i) free.add(r.physical);
+        }
+    }
+
+    private static void use(Resource r, int i) {
+        if (r.firstUse < 0) r.firstUse = i;
+        r.lastUse = i;
+    }
+
+    private static void edge(Pass first, Pass then) {
+        if (then.before.contains(first)) return;
+        then.before.add(first);
+        first.after.add(then);
+    }
+
+    private static void addOnce(List<Pass> list, Pass p) { if (!list.contains(p)) list.add(p); }
+
+    // ---- execute ----
+    public void execute() {
+        if (!compiled) compile();
+        physicalTex = physicalTex.length >= physicals.size() ? physicalTex : new int[physicals.size()];
+        for (int i = 0; i < physicals.size(); i++) physicalTex[i] = backend.acquire(physicals.get(i));
+
+        boundCount = -1;
+        targetSwitches = 0;
+        for (Pass p : schedule) {
+            bind(p);
+            backend.beginPass(p.name, p.timed);
+            p.body.execute(ctx);
+            backend.endPass(p.name, p.timed);
+        }
+
+        for (int i = 0; i < physicals.size(); i++) backend.release(physicalTex[i]);
+    }
+
+    private void bind(Pass p) {
+        int n = p.writes.size();
+        if (n == 0) return;   // e.g. a pass that only generates mipmaps
+        if (bindTex.length < n) { bindTex = new int[n]; bindDesc = new TextureDesc[n]; }
+        for (int i = 0; i < n; i++) {
+            Resource r = p.writes.get(i);
+            bindTex[i] = ctx.texture(r);
+            bindDesc[i] = r.desc;
+        }
+        int w = p.viewportW >= 0 ? p.viewportW : p.writes.get(0).desc.width();
+        int h = p.viewportH >= 0 ? p.viewportH : p.writes.get(0).desc.height();
+        if (n == boundCount && w == boundW && h == boundH
+                && Arrays.equals(bindTex, 0, n, boundTex, 0, n)) return;
+
+        backend.bindTarget(bindTex, bindDesc, n, w, h);
+        targetSwitches++;
+        if (boundTex.length < n) boundTex = new int[n];
+        System.arraycopy(bindTex, 0, boundTex, 0, n);
+        boundCount = n; boundW = w; boundH = h;
+    }
+
+    // ---- results ----
+    /** Passes in execution order (after compile). */
+    public List<Pass> schedule() { return schedule; }
+    public List<Pass> passes() { return passes; }
+    public int culledCount() { return culled; }
+    /** Physical textures behind the transient resources. */
+    public int physicalCount() { return physicals.size(); }
+    public TextureDesc physicalDesc(int slot) { return physicals.get(slot); }
+    public int transientCount() {
+        int n = 0;
+        for (Resource r : resources) if (!r.imported && r.physical >= 0) n++;
+        return n;
+    }
+    /** Target binds the last execute needed (viewport-only changes included). */
+    public int targetSwitches() { return targetSwitches; }
+}
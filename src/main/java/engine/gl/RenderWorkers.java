@@ -0,0 +1,100 @@
+package engine.gl;
+
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A few daemon threads for the CPU side of a frame: {@link #forEach} splits n items over them
+ * and the calling thread, and returns when all are done. Worker indices run 0..{@link #count}
+ * - 1 with the caller as 0, so each can record into its own {@link CommandBuffer} or scratch.
+ *
+ * Jobs must not make GL calls. Small batches run on the caller alone; threads = 0 makes the
+ * whole thing inline.
+ */
+public final class RenderWorkers {
+    public interface Job { void run(int worker, int item); }
+
+    /** Below this many items per thread a batch isn't worth waking anyone for. */
+    public int minItemsPerWorker = 64;
+
+    private final Thread[] threads;
+    private final Phaser phaser;               // one phase to start a batch, one to finish it
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean stopping;
+    private Job job;
+    private int items, chunk;
+
+    public RenderWorkers(int threads) {
+        this.threads = new Thread[Math.max(0, threads)];
+        this.phaser = new Phaser(this.threads.length + 1);
+        for (int i = 0; i < this.threads.length; i++) {
+            int worker = i + 1;
+            Thread t = new Thread(() -> loop(worker), "render-worker-" + worker);
+            t.setDaemon(true);
+            this.threads[i] = t;
+            t.start();
+        }
+    }
+
+    /** Threads that take part in a batch, the caller included. */
+    public int count() { return threads.length + 1; }
+
+    public void forEach(int n, Job job) { forEach(n, minItemsPerWorker, job); }
+
+    /** Same, for items heavier or lighter than the default: fewer than minPerWorker * 2 run inline. */
+    public void forEach(int n, int minPerWorker, Job job) {
+        if (n <= 0) return;
+        if (threads.length == 0 || n < minPerWorker * 2) {
+            for (int i = 0; i < n; i++) job.run(0, i);
+            return;
+        }
+        this.job = job;
+        this.items = n;
+        this.chunk = Math.max(1, n / (count() * 4));
+        next.set(0);
+        phaser.arriveAndAwaitAdvance();   // go
+        drain(0);
+        phaser.arriveAndAwaitAdvance();   // everyone done
+        this.job = null;
+
+        Throwable t = failure.getAndSet(null);
+        if (t instanceof RuntimeException e) throw e;
+        if (t instanceof Error e) throw e;
+        if (t != null) throw new RuntimeException(t);
+    }
+
+    public void shutdown() {
+        if (stopping) return;
+        stopping = true;
+        if (threads.length == 0) return;
+        phaser.arriveAndDeregister();
+        for (Thread t : threads) {
+            try { t.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    // ---- internals ----
+    private void loop(int worker) {
+        while (true) {
+            phaser.arriveAndAwaitAdvance();
+            if (stopping) { phaser.arriveAndDeregister(); return; }
+            drain(worker);
+            phaser.arriveAndAwaitAdvance();
+        }
+    }
+
+    private void drain(int worker) {
+        Job j = job;
+        int n = items, c = chunk;
+        for (int from = next.getAndAdd(c); from < n; from = next.getAndAdd(c)) {
+            int to = Math.min(n, from + c);
+            try {
+                for (int i = from; i < to; i++) j.run(worker, i);
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+}
@@ -1,18 +1,29 @@
 package engine.gl;
 
 import engine.config.PlanetConfig;
+import engine.debug.DebugDraw;
+import engine.perf.Profiler;
 import engine.scene.Camera;
+import engine.scene.Frustum;
 import engine.scene.Mesh;
 import engine.scene.Planet;
-import engine.util.Resources;
+import engine.scene.ShadowCasters;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.GL_ANY_SAMPLES_PASSED;
 
 public class Renderer {
     private final Shader planetShader;
     private final Shader atmoShader;
-    private final GizmoRenderer gizmo;
+    private final DebugDraw debug;
     private final AtmosphereRenderer atmoRenderer;
     private final AtmosphereRenderer.Settings atmoSettings;
     private final float[] lightDir;
@@ -20,20 +31,166 @@ public class Renderer {
     private final float   lightIntensity;
     private final PlanetConfig.Lighting lightingCfg;
 
+    private final Shader cloudShader;   // nullable, owned here like the sprite/bounds/impostor shaders
     private final CloudRenderer cloudRenderer;
     private final PlanetConfig.Clouds cloudsCfg;
     private float timeSec = 0f;
 
-    public Renderer(Shader planetShader, Shader atmoShader, Shader gizmoShader,
-                    Mesh sphere,
+    // ---- culling ----
+    /** Bodies whose silhouette is smaller than this (px radius) are drawn as a point sprite. */
+    public float subPixelRadiusPx = 1.0f;
+    public boolean frustumCulling   = true;
+    public boolean occlusionQueries = true;
+    /**
+     * The nearest this many bodies are drawn first and unconditionally; every other body is
+     * tested against their depth and skipped, surface included, when they hide it.
+     */
+    public int occluderBodies = 2;
+    /** Bounding spheres (green drawn, red culled) and a lat/long grid per body, via DebugDraw. */
+    public boolean debugVolumes = false;
+
+    // ---- shell resolution ----
+    /** Clouds and atmosphere render at 1/n of the scene resolution (1, 2 or 4) and are upsampled. */
+    public int shellDownsample = 1;
+    /** Share of the cloud pixels shaded per frame; the rest is reprojected from the last frames. */
+    public ShellCompositor.CloudUpdate cloudUpdate = ShellCompositor.CloudUpdate.FULL;
+
+    // ---- shadows ----
+    /** Eclipses between bodies and the planet's shadow on its own clouds (analytic spheres). */
+    public boolean shadows = true;
+    /** Cloud shadows on the surface, from a cached light-space map per body. */
+    public boolean cloudShadows = true;
+    /** Angular radius of the light as seen from the bodies; sets how soft shadow edges are. */
+    public float sunAngularRadiusDeg = 0.27f;
+
+    // ---- recording ----
+    /** Bodies per worker thread before a frame's packets are recorded in parallel. */
+    public int minBodiesPerWorker = 4;
+
+    public static class CullStats {
+        public int bodiesDrawn, bodiesCulled, horizonCulled, sprites, impostors;
+        public int shellsDrawn, shellsCulled;
+        public int occlusionQueries;
+        public int impostorRefreshes;   // atlas tiles re-rendered last frame
+        public int shadowCasters;       // spheres registered this frame
+        public int cloudShadowRefreshes; // cloud shadow maps re-rendered last frame
+
+        void reset() {
+            bodiesDrawn = bodiesCulled = horizonCulled = sprites = impostors = 0;
+            shellsDrawn = shellsCulled = 0;
+            occlusionQueries = 0;
+            shadowCasters = 0;
+        }
+    }
+
+    private final CullStats stats = new CullStats();
+    private final Frustum frustum = new Frustum();
+    private final Shader spriteShader;
+    private final PointSpriteRenderer sprites;
+    private final Shader boundsShader;
+    private final Map<Planet, Integer> queries = new IdentityHashMap<>();
+    private final Shader impostorShader;
+    private final ImpostorRenderer impostors;
+
+    // optional profiling (null = off)
+    private Profiler prof;
+    private int secPlanet, secDebug, secClouds, secAtmo, secImpostors, secShellComposite, secCloudShadow;
+    private int secShells, secRecord;
+
+    // low-res shells need the scene's depth texture; null = always full resolution
+    private SceneTarget scene;
+    private ShellCompositor compositor;
+
+    // world eye this frame; render space is world minus this, so the eye itself is the origin
+    private double eyeX, eyeY, eyeZ;
+
+    // bodies already drawn this frame, as (x,y,z,r) spheres, for horizon tests
+    private float[] occluders = new float[4 * 8];
+    private int occluderCount = 0;
+
+    // bodies that can cast shadows this frame; the few picked per body go into its Visible
+    private final ShadowCasters casters = new ShadowCasters();
+    private final float[] lightUnit = new float[3];
+    private float sunAngleRad;               // from sunAngularRadiusDeg, per frame
+    private CloudShadowMap cloudShadowMap;   // created on first use
+
+    // ---- packets ----
+    // Surfaces, clouds and atmospheres are recorded as packets by the workers (one buffer
+    // each) and submitted a layer at a time: the occluders' surfaces, then the other surfaces
+    // front to back (each conditional on its query against the occluders), then the blended
+    // shells of every body back to front (atmospheres in a layer of their own when the shells
+    // go through the low-res compositor).
+    private static final int LAYER_OCCLUDERS = 0, LAYER_SURFACE = 1, LAYER_SHELLS = 2, LAYER_ATMOSPHERE = 3;
+    // a body's shells take this many consecutive order values: its cloud layers, then the atmosphere
+    private static final int SHELL_SLOTS = CloudRenderer.MAX_LAYERS + 1;
+    private static final int MAX_SHELL_RANK = 0xFFFF / SHELL_SLOTS - 1;
+    // the occlusion test sphere sits this far outside the bounds, clear of the body's own surface
+    private static final float QUERY_MARGIN = 1.02f;
+
+    private final RenderWorkers workers;
+    private final CommandQueue queue;
+    private final int surfacePipeline;
+    private static final String[] SURFACE_UNIFORMS = {
+            "uProj", "uView", "uModel", "uCamPos", "uLightDir", "uLightColor", "uLightIntensity",
+            "uCenter", "uRadius", "uOccluderCount", "uOccluders", "uSunAngle",
+            "uCloudShadowOn", "uCloudShadow", "uShadowRight", "uShadowUp", "uCloudShadowStrength",
+            "uUseTexture", "uAlbedo",
+    };
+    private static final int S_PROJ = 0, S_VIEW = 1, S_MODEL = 2, S_CAM = 3, S_LIGHT_DIR = 4, S_LIGHT_COLOR = 5,
+            S_LIGHT_INTENSITY = 6, S_CENTER = 7, S_RADIUS = 8, S_OCC_COUNT = 9, S_OCC = 10, S_SUN_ANGLE = 11,
+            S_CLOUD_SHADOW_ON = 12, S_CLOUD_SHADOW = 13, S_SHADOW_RIGHT = 14, S_SHADOW_UP = 15,
+            S_CLOUD_SHADOW_STRENGTH = 16, S_USE_TEXTURE = 17, S_ALBEDO = 18;
+    private static final int SURFACE_STATE = CommandQueue.DEPTH_TEST | CommandQueue.DEPTH_WRITE | CommandQueue.CULL_BACK;
+
+    // ---- bodies kept for drawBodies ----
+    private static final int BODY = 0, IMPOSTOR = 1, SPRITE = 2;
+
+    /**
+     * What drawPlanet decided for one body, with everything its packets need copied in, so
+     * the workers read nothing that changes while they record.
+     */
+    private static final class Visible {
+        int kind;
+        Planet p;
+        float dist2, boundR, radiusPx;
+        final float[] model = new float[16];
+        int mesh, albedo;                // queue registrations; albedo -1 = none
+        int cloudMask;
+        boolean atmo;
+        int surfaceLayer;                // LAYER_OCCLUDERS or LAYER_SURFACE
+        int query;                       // gates the shells, and the surface outside LAYER_OCCLUDERS; 0 = none
+        final float[] shadowOcc = new float[4 * ShadowCasters.MAX_PER_RECEIVER];
+        final float[] cloudOcc  = new float[4 * ShadowCasters.MAX_PER_RECEIVER];
+        int shadowOccCount, cloudOccCount;
+        int shadowTex;                   // cloud shadow map, 0 = none
+        final float[] shadowBasis = new float[6];
+        float shadowStrength;
+    }
+
+    private static final Comparator<Visible> NEAR_FIRST = (a, b) -> Float.compare(a.dist2, b.dist2);
+    private Visible[] bodies = new Visible[8];
+    private int bodyCount;
+
+    // what the record job reads, set before each batch
+    private float[] recProj, recView;
+    private int recAtmoLayer;
+    private final RenderWorkers.Job recordJob = (w, i) -> {
+        Visible v = bodies[i];
+        if (v.kind == BODY) record(queue.buffer(w), v, i, bodyCount - 1 - i, recProj, recView, recAtmoLayer);
+    };
+
+    public Renderer(Shader planetShader, Shader atmoShader, DebugDraw debug,
+                    RenderWorkers workers, Mesh sphere,
                     AtmosphereRenderer.Settings atmoSettings,
                     PlanetConfig.Lighting lightingCfg,
                     PlanetConfig.Clouds cloudsCfg) {
 
         this.planetShader = planetShader;
         this.atmoShader   = atmoShader;
-        this.gizmo        = new GizmoRenderer(gizmoShader);
-        this.atmoRenderer = (atmoShader != null) ? new AtmosphereRenderer(atmoShader, sphere) : null;
+        this.debug        = debug;
+        this.workers      = workers;
+        this.queue        = new CommandQueue(workers.count());
+        this.atmoRenderer = (atmoShader != null) ? new AtmosphereRenderer(atmoShader, sphere, queue) : null;
         this.atmoSettings = atmoSettings;
 
         this.lightDir       = lightingCfg.direction.clone();
@@ -42,84 +199,512 @@ public class Renderer {
         this.lightingCfg    = lightingCfg;
 
         this.cloudsCfg = cloudsCfg;
-        this.cloudRenderer = (cloudsCfg != null)
-                ? new CloudRenderer(
-                new Shader(Resources.text("shaders/clouds.vert"),
-                        Resources.text("shaders/clouds.frag")),
-                sphere)
-                : null;
+        this.cloudShader = (cloudsCfg != null) ? Shader.load("shaders/clouds.vert", "shaders/clouds.frag") : null;
+        this.cloudRenderer = (cloudShader != null) ? new CloudRenderer(cloudShader, sphere, queue) : null;
+        this.surfacePipeline = queue.pipeline(planetShader, SURFACE_UNIFORMS);
+
+        this.spriteShader = Shader.load("shaders/sprite.vert", "shaders/sprite.frag");
+        this.sprites      = new PointSpriteRenderer(spriteShader);
+        this.boundsShader = Shader.load("shaders/bounds.vert", "shaders/bounds.frag");
+        this.impostorShader = Shader.load("shaders/impostor.vert", "shaders/impostor.frag");
+        this.impostors      = new ImpostorRenderer(impostorShader, 1024, 128);
+    }
+
+    /** Animation time in seconds (cloud drift); comes from the simulation, not the frame clock. */
+    public void setTime(float seconds){ timeSec = seconds; }
+
+    public CullStats cullStats(){ return stats; }
+
+    /**
+     * Rebuilds the frustum and resets per-frame culling state; call once before any drawPlanet.
+     * The view is camera-relative ({@link Camera#viewMatrix}) and bodies must already be
+     * {@link Planet#relativeTo} this camera. A frame is beginFrame, addShadowCaster for every
+     * body, drawPlanet for every body, then {@link #drawBodies}.
+     */
+    public void beginFrame(float[] proj, float[] view, int width, int height, Camera cam) {
+        eyeX = cam.x; eyeY = cam.y; eyeZ = cam.z;
+        frustum.update(proj, view, 0f, 0f, 0f, height);
+        stats.reset();
+        impostors.beginFrame();
+        stats.impostorRefreshes = impostors.refreshesLastFrame();
+        occluderCount = 0;
+        bodyCount = 0;
+        casters.clear();
+        queue.endFrame();
+        sunAngleRad = (float)Math.toRadians(sunAngularRadiusDeg);
+        if (cloudRenderer != null) cloudRenderer.prepare(cloudsCfg);
+        if (cloudShadowMap != null) {
+            cloudShadowMap.beginFrame();
+            stats.cloudShadowRefreshes = cloudShadowMap.refreshesLastFrame();
+        }
+        if (compositor != null) compositor.beginFrame();
+    }
+
+    /**
+     * Registers a body that can shadow the others this frame (eclipses); call after
+     * {@link #beginFrame} and before drawing any body, for every body, drawn or not.
+     */
+    public void addShadowCaster(Planet p) {
+        casters.add(p.cx, p.cy, p.cz, p.worldRadius());
+        stats.shadowCasters = casters.size();
     }
 
-    public void advanceTime(float dt){ timeSec += Math.max(0f, dt); }
+    public ImpostorRenderer impostors(){ return impostors; }
+    public CommandQueue commandQueue(){ return queue; }
 
+    /** Scene target the bodies are drawn into; enables {@link #shellDownsample}. */
+    public void setSceneTarget(SceneTarget scene) { this.scene = scene; }
+
+    public void setProfiler(Profiler prof) {
+        this.prof = prof;
+        if (prof == null) return;
+        secPlanet    = prof.section("planet");
+        secDebug     = prof.section("debug draw");
+        secClouds    = prof.section("clouds");
+        secAtmo      = prof.section("atmosphere");
+        secImpostors = prof.section("impostors");
+        secShellComposite = prof.section("shell upsample");
+        secCloudShadow = prof.section("cloud shadow");
+        secShells    = prof.section("shells");
+        secRecord    = prof.section("record packets");
+    }
+
+    // try-with-resources skips close() on null, so this is a no-op without a profiler
+    private Profiler.Scope timed(int section) { return prof != null ? prof.gpu(section) : null; }
+
+    /**
+     * Culls one body and decides how it is drawn: GL-thread work (cloud shadow map, impostor
+     * tile repaint, registering what its packets use) happens here, the drawing itself in
+     * {@link #drawBodies}.
+     */
     public void drawPlanet(Planet p, float[] proj, float[] view,
                            float angleDeg, int width, int height,
                            Camera cam, float[] lightDir) {
 
-        float[] model = mul(mul(matTranslate(p.cx,p.cy,p.cz), matRotateY(angleDeg)),
-                matUniformScale(p.uniformScale));
-
-        planetShader.use();
-        setMat4(planetShader.id(),"uProj", proj);
-        setMat4(planetShader.id(),"uView", view);
-        setMat4(planetShader.id(),"uModel",model);
-        glUniform3f(glGetUniformLocation(planetShader.id(),"uCamPos"), cam.x,cam.y,cam.z);
-        glUniform3f(glGetUniformLocation(planetShader.id(),"uLightDir"),
-                lightingCfg.direction[0], lightingCfg.direction[1], lightingCfg.direction[2]);
-        glUniform3f(glGetUniformLocation(planetShader.id(),"uLightColor"),
-                lightingCfg.color[0], lightingCfg.color[1], lightingCfg.color[2]);
-        glUniform1f(glGetUniformLocation(planetShader.id(),"uLightIntensity"),
-                lightingCfg.intensity);
-
-        int locUseTex = glGetUniformLocation(planetShader.id(), "uUseTexture");
-        int locSampler = glGetUniformLocation(planetShader.id(), "uAlbedo");
-        if (p.albedo != null && locUseTex >= 0 && locSampler >= 0) {
-            glUniform1i(locUseTex, 1);
-            glUniform1i(locSampler, 0);   // sampler uses texture unit 0
-            p.albedo.bind(0);             // glActiveTexture(GL_TEXTURE0); glBindTexture(...)
-        } else if (locUseTex >= 0) {
-            glUniform1i(locUseTex, 0);
-        }
-
-        glDisable(GL_BLEND);
-        glEnable(GL_DEPTH_TEST);
-        glDepthMask(true);
-        glEnable(GL_CULL_FACE);
-        glFrontFace(GL_CCW);
-        glCullFace(GL_BACK);
-        p.mesh.draw();
+        // ---- culling stage ----
+        float radius = p.worldRadius();
+        float boundR = radius * outerShellScale();
+
+        if (frustumCulling && !frustum.sphereVisible(p.cx, p.cy, p.cz, boundR)) {
+            stats.bodiesCulled++;
+            if (debugVolumes) debug.sphere(p.cx, p.cy, p.cz, boundR, DebugDraw.RED, false, 0f);
+            return;
+        }
+        if (frustumCulling && hiddenBehindOccluder(p.cx, p.cy, p.cz, boundR)) {
+            stats.bodiesCulled++;
+            stats.horizonCulled++;
+            if (debugVolumes) debug.sphere(p.cx, p.cy, p.cz, boundR, DebugDraw.RED, false, 0f);
+            return;
+        }
+        if (debugVolumes) {
+            debug.sphere(p.cx, p.cy, p.cz, boundR, DebugDraw.GREEN, true, 0f);
+            debug.latLongGrid(p.cx, p.cy, p.cz, radius * 1.002f, angleDeg, 11, 24, DebugDraw.GREY, true, 0f);
+        }
+
+        float radiusPx = frustum.projectedRadiusPx(p.cx, p.cy, p.cz, radius);
+        if (radiusPx < subPixelRadiusPx) {
+            keep(p, SPRITE).radiusPx = radiusPx;
+            stats.sprites++;
+            return;
+        }
 
-        float lineLen = p.worldRadius() * 1.3f;
-        gizmo.draw(proj, view, p.cx,p.cy,p.cz, lightDir[0],lightDir[1],lightDir[2], lineLen);
+        Visible v = keep(p, BODY);
+        v.boundR = boundR;
+        prepareShadows(v, boundR, width, height);
+        modelMatrix(v.model, p.cx, p.cy, p.cz, angleDeg, p.uniformScale);
+        v.mesh = queue.mesh(p.mesh);
+        v.albedo = p.albedo != null ? queue.texture(p.albedo) : -1;
+        lightLine(p, lightDir, p.worldRadius() * 1.3f);
+        stats.bodiesDrawn++;
+        pushOccluder(p.cx, p.cy, p.cz, radius);
 
+        // Far enough away: a cached sprite instead of shading the body again. The tile is
+        // repainted now, while nothing else is recorded; the quad goes out with the others.
+        if (p.allowImpostor && impostors.wants(p, radiusPx)) {
+            v.kind = IMPOSTOR;
+            try (var t = timed(secImpostors)) {
+                impostors.refresh(p, view, 0f, 0f, 0f, boundR, angleDeg,
+                        lightingCfg.direction, lightingCfg.intensity, timeSec, width, height,
+                        (ip, iv) -> paintTile(v, ip, iv));
+            }
+            stats.impostors++;
+            return;
+        }
+
+        // A shell the eye sits inside is drawn from its far side; when the planet also fills
+        // the whole view, every one of those fragments lands behind the surface.
+        boolean planetFillsView = frustum.sphereCoversView(p.cx, p.cy, p.cz, radius);
+
+        v.cloudMask = 0;
         if (cloudRenderer != null && cloudsCfg != null && cloudsCfg.enabled) {
-            cloudRenderer.draw(
-                    p, proj, view, model,
-                    cam.x, cam.y, cam.z,
-                    cloudsCfg, timeSec,
-                    lightingCfg.direction[0], lightingCfg.direction[1], lightingCfg.direction[2],
-                    lightingCfg.color[0],     lightingCfg.color[1],     lightingCfg.color[2],
-                    lightingCfg.intensity
-            );
+            int layers = Math.min(cloudsCfg.layers.length, CloudRenderer.MAX_LAYERS);
+            for (int i = 0; i < layers; i++) {
+                float shellR = radius * (1f + Math.max(0f, cloudsCfg.layers[i].altitudePct));
+                if (shellVisible(p, shellR, planetFillsView)) { v.cloudMask |= 1 << i; stats.shellsDrawn++; }
+                else stats.shellsCulled++;
+            }
         }
 
+        v.atmo = false;
         if (atmoRenderer != null && atmoSettings != null && atmoSettings.enabled) {
-            atmoRenderer.draw(p, proj, view, model, cam.x, cam.y, cam.z,
-                    lightingCfg.direction[0], lightingCfg.direction[1], lightingCfg.direction[2],
-                    atmoSettings);
+            float shellR = radius * (1f + Math.max(0f, atmoSettings.thicknessPct));
+            v.atmo = shellVisible(p, shellR, planetFillsView);
+            if (v.atmo) stats.shellsDrawn++; else stats.shellsCulled++;
+        }
+    }
+
+    /**
+     * Draws the bodies kept by this frame's drawPlanet calls. The workers record every body's
+     * surface and shell packets; then the nearest {@link #occluderBodies} surfaces go out, every
+     * other body's bounds are tested against their depth and its surface and shells are drawn
+     * only if that passed. The remaining surfaces follow in one submit, the far sprites and
+     * impostors over them; the occluders' own bounds are tested against all of that, and the
+     * shells follow in one more submit (two through the low-res compositor). Call once, after
+     * the last drawPlanet and before drawDebug.
+     */
+    public void drawBodies(float[] proj, float[] view) {
+        int n = bodyCount;
+        if (n == 0) return;
+        Arrays.sort(bodies, 0, n, NEAR_FIRST);
+
+        // ---- GL thread: queries and the shell path, fixed before anything is recorded ----
+        Visible nearestCloudy = null;
+        int cloudy = 0, rank = 0;
+        boolean atmo = false;
+        for (int i = 0; i < n; i++) {
+            Visible v = bodies[i];
+            if (v.kind != BODY) continue;
+            if (v.cloudMask != 0 && cloudy++ == 0) nearestCloudy = v;
+            atmo |= v.atmo;
+            // with the eye inside the bounds the test sphere is culled away, so nothing to test
+            boolean inside = frustum.eyeInside(v.p.cx, v.p.cy, v.p.cz, v.boundR * QUERY_MARGIN);
+            boolean occluder = rank++ < occluderBodies || inside;
+            v.surfaceLayer = occluder ? LAYER_OCCLUDERS : LAYER_SURFACE;
+            // nearer bodies may hide this one, or for an occluder another body its shells
+            boolean test = occlusionQueries && stats.bodiesDrawn > 1 && !inside
+                    && (!occluder || v.cloudMask != 0 || v.atmo);
+            v.query = test ? queries.computeIfAbsent(v.p, k -> glGenQueries()) : 0;
+        }
+        boolean clouds = cloudy > 0;
+        boolean lowRes = scene != null && (clouds || atmo)
+                && (shellDownsample > 1 || (clouds && cloudUpdate != ShellCompositor.CloudUpdate.FULL));
+        if (lowRes && compositor == null) compositor = new ShellCompositor();
+        if (lowRes && clouds) {
+            // the history follows one body's spin and drift, so with more cloudy bodies every pixel is shaded
+            var mode = compositor.cloudMode(cloudy == 1 ? cloudUpdate : ShellCompositor.CloudUpdate.FULL);
+            cloudRenderer.setInterleave(mode.grid, mode.checker, compositor.phaseX, compositor.phaseY);
+        }
+
+        // ---- workers: every body's packets, one buffer each ----
+        recProj = proj; recView = view;
+        recAtmoLayer = lowRes ? LAYER_ATMOSPHERE : LAYER_SHELLS;
+        try (var t = prof != null ? prof.cpu(secRecord) : null) {
+            workers.forEach(n, minBodiesPerWorker, recordJob);
+        }
+        if (clouds) cloudRenderer.setInterleave(1, false, 0, 0);
+
+        // ---- GL thread: a submit per layer ----
+        // The test sphere is drawn before the body's own surface, so only the occluders can
+        // hide it; the GPU then skips the body's packets without a stall (NO_WAIT).
+        try (var t = timed(secPlanet)) {
+            queue.submit(LAYER_OCCLUDERS);
+            for (int i = 0; i < n; i++) {
+                Visible v = bodies[i];
+                if (v.kind == BODY && v.surfaceLayer == LAYER_SURFACE && v.query != 0)
+                    issueOcclusionQuery(v.p, v.query, proj, view, v.boundR * QUERY_MARGIN);
+            }
+            queue.submit(LAYER_SURFACE);
+        }
+        // blended and not depth-writing, so after the surfaces; far to near
+        try (var t = stats.impostors > 0 ? timed(secImpostors) : null) {
+            for (int i = n - 1; i >= 0; i--) {
+                Visible v = bodies[i];
+                if (v.kind == SPRITE) drawSprite(v.p, proj, view, v.radiusPx);
+                else if (v.kind == IMPOSTOR) impostors.draw(v.p, proj, view, 0f, 0f, 0f, v.boundR);
+            }
+        }
+        // An occluder's shells: a sphere just outside the bounds passes against the body's own
+        // surface, so only the other bodies can hide it.
+        for (int i = 0; i < n; i++) {
+            Visible v = bodies[i];
+            if (v.kind == BODY && v.surfaceLayer == LAYER_OCCLUDERS && v.query != 0)
+                issueOcclusionQuery(v.p, v.query, proj, view, v.boundR * QUERY_MARGIN);
+        }
+
+        if (lowRes) drawShellsLowRes(proj, view, nearestCloudy, atmo);
+        else if (clouds || atmo) {
+            try (var t = timed(secShells)) {
+                queue.submit(LAYER_SHELLS);
+            }
+        }
+        bodyCount = 0;
+    }
+
+    private Visible keep(Planet p, int kind) {
+        if (bodyCount == bodies.length) bodies = Arrays.copyOf(bodies, bodyCount * 2);
+        Visible v = bodies[bodyCount];
+        if (v == null) bodies[bodyCount] = v = new Visible();
+        bodyCount++;
+        v.kind = kind;
+        v.p = p;
+        v.dist2 = p.cx * p.cx + p.cy * p.cy + p.cz * p.cz;   // eye at the origin
+        v.cloudMask = 0;
+        v.atmo = false;
+        v.surfaceLayer = LAYER_SURFACE;
+        v.query = 0;
+        return v;
+    }
+
+    // Picks this body's occluders and brings its cloud shadow map up to date. The cost per body
+    // is capped (MAX_PER_RECEIVER spheres in the shaders, a bounded number of map refreshes per
+    // frame), so it doesn't grow with the number of bodies in the scene.
+    private void prepareShadows(Visible v, float boundR, int width, int height) {
+        Planet p = v.p;
+        v.shadowOccCount = v.cloudOccCount = 0;
+        float[] d = lightingCfg.direction;
+        float l = (float)Math.sqrt(d[0]*d[0] + d[1]*d[1] + d[2]*d[2]);
+        if (l >= 1e-6f) {
+            lightUnit[0] = d[0] / l; lightUnit[1] = d[1] / l; lightUnit[2] = d[2] / l;
+            v.shadowOccCount = shadows ? casters.select(p.cx, p.cy, p.cz, boundR, lightUnit, sunAngleRad, v.shadowOcc) : 0;
+
+            // clouds also sit in their own planet's shadow, which always comes first
+            if (shadows) {
+                v.cloudOcc[0] = p.cx; v.cloudOcc[1] = p.cy; v.cloudOcc[2] = p.cz; v.cloudOcc[3] = p.worldRadius();
+                v.cloudOccCount = Math.min(ShadowCasters.MAX_PER_RECEIVER, v.shadowOccCount + 1);
+                System.arraycopy(v.shadowOcc, 0, v.cloudOcc, 4, (v.cloudOccCount - 1) * 4);
+            }
+
+            if (cloudShadows && cloudsCfg != null && cloudsCfg.enabled) {
+                if (cloudShadowMap == null) cloudShadowMap = new CloudShadowMap(512);
+                try (var t = timed(secCloudShadow)) {
+                    cloudShadowMap.update(p, cloudsCfg, lightUnit, timeSec, width, height);
+                }
+            }
+        }
+        v.shadowTex = (cloudShadows && cloudShadowMap != null) ? cloudShadowMap.lookup(p, v.shadowBasis) : 0;
+        v.shadowStrength = cloudShadowMap != null ? cloudShadowMap.strength : 0f;
+    }
+
+    // The light direction from the body's centre (was GizmoRenderer's one line)
+    private void lightLine(Planet p, float[] dir, float len) {
+        float l = (float)Math.sqrt(dir[0]*dir[0] + dir[1]*dir[1] + dir[2]*dir[2]);
+        if (l < 1e-6f) return;
+        float s = len / l;
+        debug.line(p.cx, p.cy, p.cz, p.cx + dir[0]*s, p.cy + dir[1]*s, p.cz + dir[2]*s, DebugDraw.YELLOW);
+    }
+
+    /** Draws everything queued on the DebugDraw this frame; call last, with the scene target bound. */
+    public void drawDebug(float[] proj, float[] view) {
+        try (var t = timed(secDebug)) {
+            debug.flush(proj, view);
+        }
+    }
+
+    public DebugDraw debugDraw() { return debug; }
+
+    // Full shading of one body, no culling, into the bound impostor tile: recorded and
+    // submitted on the spot, since the tile's target is only bound for the paint.
+    private void paintTile(Visible v, float[] proj, float[] view) {
+        v.surfaceLayer = LAYER_SURFACE;
+        v.query = 0;
+        v.cloudMask = cloudRenderer != null ? -1 : 0;
+        v.atmo = atmoRenderer != null && atmoSettings != null && atmoSettings.enabled;
+        record(queue.buffer(0), v, 0, 0, proj, view, LAYER_SHELLS);
+        queue.submit(LAYER_SURFACE);
+        queue.submit(LAYER_SHELLS);
+    }
+
+    // ---- recording (any thread: reads v and what stays fixed for the frame) ----
+    // near / far rank the body front to back / back to front among this frame's bodies
+    private void record(CommandBuffer b, Visible v, int near, int far, float[] proj, float[] view, int atmoLayer) {
+        recordSurface(b, v, proj, view, Math.min(near, 0xFFFF));
+        int shellOrder = Math.min(far, MAX_SHELL_RANK) * SHELL_SLOTS;
+        float[] L = lightingCfg.direction, C = lightingCfg.color;
+        if (v.cloudMask != 0) {
+            cloudRenderer.record(b, LAYER_SHELLS, shellOrder, v.query, v.p, proj, view, v.model,
+                    0f, 0f, 0f, timeSec,
+                    L[0], L[1], L[2],
+                    C[0], C[1], C[2],
+                    lightingCfg.intensity,
+                    v.cloudMask, v.cloudOcc, v.cloudOccCount, sunAngleRad);
+        }
+        if (v.atmo) {
+            atmoRenderer.record(b, atmoLayer, shellOrder + CloudRenderer.MAX_LAYERS, v.query, v.p, proj, view, v.model,
+                    0f, 0f, 0f, L[0], L[1], L[2], atmoSettings);
+        }
+    }
+
+    private void recordSurface(CommandBuffer b, Visible v, float[] proj, float[] view, int order) {
+        Planet p = v.p;
+        b.begin(CommandQueue.key(v.surfaceLayer, surfacePipeline, SURFACE_STATE, v.mesh, order), surfacePipeline, v.mesh, SURFACE_STATE);
+        if (v.surfaceLayer == LAYER_SURFACE) b.condition(v.query);
+        b.uniformMatrix4(S_PROJ, proj);
+        b.uniformMatrix4(S_VIEW, view);
+        b.uniformMatrix4(S_MODEL, v.model);
+        b.uniform3f(S_CAM, 0f, 0f, 0f);   // render space
+        b.uniform3f(S_LIGHT_DIR, lightingCfg.direction[0], lightingCfg.direction[1], lightingCfg.direction[2]);
+        b.uniform3f(S_LIGHT_COLOR, lightingCfg.color[0], lightingCfg.color[1], lightingCfg.color[2]);
+        b.uniform1f(S_LIGHT_INTENSITY, lightingCfg.intensity);
+
+        b.uniform3f(S_CENTER, p.cx, p.cy, p.cz);
+        b.uniform1f(S_RADIUS, p.worldRadius());
+        b.uniform1i(S_OCC_COUNT, v.shadowOccCount);
+        b.uniform4fv(S_OCC, v.shadowOcc, v.shadowOccCount);
+        b.uniform1f(S_SUN_ANGLE, sunAngleRad);
+        b.uniform1i(S_CLOUD_SHADOW_ON, v.shadowTex != 0 ? 1 : 0);
+        if (v.shadowTex != 0) {
+            b.uniform1i(S_CLOUD_SHADOW, 1);
+            b.uniform3f(S_SHADOW_RIGHT, v.shadowBasis[0], v.shadowBasis[1], v.shadowBasis[2]);
+            b.uniform3f(S_SHADOW_UP, v.shadowBasis[3], v.shadowBasis[4], v.shadowBasis[5]);
+            b.uniform1f(S_CLOUD_SHADOW_STRENGTH, v.shadowStrength);
+            b.texture(1, v.shadowTex);
+        }
+
+        b.uniform1i(S_USE_TEXTURE, v.albedo >= 0 ? 1 : 0);
+        if (v.albedo >= 0) {
+            b.uniform1i(S_ALBEDO, 0);   // sampler uses texture unit 0
+            b.registeredTexture(0, v.albedo);
+        }
+        b.end();
+    }
+
+    // All bodies' shells through the compositor at once, against the full frame's depth
+    private void drawShellsLowRes(float[] proj, float[] view, Visible nearestCloudy, boolean atmo) {
+        compositor.prepare(scene, shellDownsample);
+
+        if (nearestCloudy != null) {
+            try (var t = timed(secClouds)) {
+                compositor.beginClouds();
+                queue.submit(LAYER_SHELLS);
+                Planet p = nearestCloudy.p;
+                var L = cloudsCfg.layers[outerCloudLayer()];
+                compositor.resolveClouds(proj, view, eyeX, eyeY, eyeZ, p.cx, p.cy, p.cz,
+                        p.worldRadius() * (1f + Math.max(0f, L.altitudePct)),
+                        L.rotationDegPS, L.scrollUV[0], L.scrollUV[1], timeSec);
+            }
         }
+        if (atmo) {
+            try (var t = timed(secAtmo)) {
+                compositor.beginShells();
+                queue.submit(LAYER_ATMOSPHERE);
+            }
+        }
+        try (var t = timed(secShellComposite)) {
+            compositor.composite(proj);
+        }
+    }
+
+    /** Deletes what the renderer created; the shaders and mesh passed in belong to the caller. */
+    public void delete(){
+        if (cloudShader != null) cloudShader.delete();
+        sprites.delete();
+        spriteShader.delete();
+        boundsShader.delete();
+        impostors.delete();
+        impostorShader.delete();
+        for (int q : queries.values()) glDeleteQueries(q);
+        queries.clear();
+        if (compositor != null) compositor.delete();
+        if (cloudShadowMap != null) cloudShadowMap.delete();
+        queue.delete();
+    }
+
+    // ---- culling helpers ----
+    private float outerShellScale() {
+        float s = 1f;
+        if (atmoSettings != null && atmoSettings.enabled) s = Math.max(s, 1f + Math.max(0f, atmoSettings.thicknessPct));
+        if (cloudsCfg != null && cloudsCfg.enabled) {
+            int layers = Math.min(cloudsCfg.layers.length, CloudRenderer.MAX_LAYERS);
+            for (int i = 0; i < layers; i++) s = Math.max(s, 1f + Math.max(0f, cloudsCfg.layers[i].altitudePct));
+        }
+        return s;
+    }
+
+    // cloud history is reprojected through (and moves with) the outermost layer
+    private int outerCloudLayer() {
+        int best = 0;
+        int layers = Math.min(cloudsCfg.layers.length, CloudRenderer.MAX_LAYERS);
+        for (int i = 1; i < layers; i++) if (cloudsCfg.layers[i].altitudePct > cloudsCfg.layers[best].altitudePct) best = i;
+        return best;
+    }
+
+    private boolean shellVisible(Planet p, float shellR, boolean planetFillsView) {
+        if (!frustumCulling) return true;
+        if (!frustum.sphereVisible(p.cx, p.cy, p.cz, shellR)) return false;
+        return !(planetFillsView && frustum.eyeInside(p.cx, p.cy, p.cz, shellR));
+    }
+
+    private boolean hiddenBehindOccluder(float x, float y, float z, float r) {
+        for (int i = 0; i < occluderCount; i++) {
+            int o = i * 4;
+            if (frustum.sphereOccludedBy(x, y, z, r, occluders[o], occluders[o+1], occluders[o+2], occluders[o+3]))
+                return true;
+        }
+        return false;
+    }
+
+    private void pushOccluder(float x, float y, float z, float r) {
+        if ((occluderCount + 1) * 4 > occluders.length) occluders = java.util.Arrays.copyOf(occluders, occluders.length * 2);
+        int o = occluderCount++ * 4;
+        occluders[o] = x; occluders[o+1] = y; occluders[o+2] = z; occluders[o+3] = r;
     }
 
+    private void issueOcclusionQuery(Planet p, int q, float[] proj, float[] view, float boundR) {
+        float s = boundR / Math.max(1e-6f, p.baseRadius);
+        float[] model = mul(matTranslate(p.cx, p.cy, p.cz), matUniformScale(s));
+
+        boundsShader.use();
+        setMat4(boundsShader.id(), "uProj", proj);
+        setMat4(boundsShader.id(), "uView", view);
+        setMat4(boundsShader.id(), "uModel", model);
+
+        glColorMask(false, false, false, false);
+        glDepthMask(false);
+        glEnable(GL_DEPTH_TEST);
+        glEnable(GL_CULL_FACE);
+        glCullFace(GL_BACK);
 
+        glBeginQuery(GL_ANY_SAMPLES_PASSED, q);
+        p.mesh.draw();
+        glEndQuery(GL_ANY_SAMPLES_PASSED);
 
-    public void delete(){ gizmo.delete(); }
+        glColorMask(true, true, true, true);
+        glDepthMask(true);
+        stats.occlusionQueries++;
+    }
+
+    private void drawSprite(Planet p, float[] proj, float[] view, float radiusPx) {
+        float[] base = (p.albedo != null) ? p.albedo.averageColor() : new float[]{0.7f, 0.75f, 0.8f};
+
+        // fraction of the visible disk that is lit: (1 + cos(phase)) / 2
+        float vx = -p.cx, vy = -p.cy, vz = -p.cz;   // eye is the render-space origin
+        float vl = (float)Math.sqrt(vx*vx + vy*vy + vz*vz);
+        float[] L = lightingCfg.direction;
+        float lit = (vl > 1e-6f) ? 0.5f * (1f + (vx*L[0] + vy*L[1] + vz*L[2]) / vl) : 1f;
+
+        float k = lightingCfg.intensity * lit;
+        float r = Math.min(1f, base[0] * (0.2f + lightingCfg.color[0] * k));
+        float g = Math.min(1f, base[1] * (0.2f + lightingCfg.color[1] * k));
+        float b = Math.min(1f, base[2] * (0.2f + lightingCfg.color[2] * k));
+        sprites.draw(proj, view, p.cx, p.cy, p.cz, radiusPx, r, g, b);
+    }
+
+    // translate(x, y, z) · rotateY(deg) · scale(s) into out, without the temporaries
+    static void modelMatrix(float[] out, float x, float y, float z, float deg, float s) {
+        double r = Math.toRadians(deg);
+        float c = (float)Math.cos(r) * s, sn = (float)Math.sin(r) * s;
+        out[0] = c;  out[1] = 0; out[2]  = -sn; out[3]  = 0;
+        out[4] = 0;  out[5] = s; out[6]  = 0;   out[7]  = 0;
+        out[8] = sn; out[9] = 0; out[10] = c;   out[11] = 0;
+        out[12] = x; out[13] = y; out[14] = z;  out[15] = 1;
+    }
 
-    // helpers copied from your Main
-    private static float[] matTranslate(float x,float y,float z){ return new float[]{1,0,0,0, 0,1,0,0, 0,0,1,0, x,y,z,1}; }
-    private static float[] matRotateY(float deg){ double r=Math.toRadians(deg); float c=(float)Math.cos(r), s=(float)Math.sin(r);
+    // helpers copied from your Main (package-private for the jmh benchmarks)
+    static float[] matTranslate(float x,float y,float z){ return new float[]{1,0,0,0, 0,1,0,0, 0,0,1,0, x,y,z,1}; }
+    static float[] matRotateY(float deg){ double r=Math.toRadians(deg); float c=(float)Math.cos(r), s=(float)Math.sin(r);
         return new float[]{c,0,-s,0, 0,1,0,0, s,0,c,0, 0,0,0,1}; }
-    private static float[] matUniformScale(float s){ return new float[]{s,0,0,0, 0,s,0,0, 0,0,s,0, 0,0,0,1}; }
-    private static float[] mul(float[] a,float[] b){ float[] r=new float[16];
+    static float[] matUniformScale(float s){ return new float[]{s,0,0,0, 0,s,0,0, 0,0,s,0, 0,0,0,1}; }
+    static float[] mul(float[] a,float[] b){ float[] r=new float[16];
         for(int c=0;c<4;c++) for(int r0=0;r0<4;r0++)
             r[c*4+r0]=a[0*4+r0]*b[c*4+0]+a[1*4+r0]*b[c*4+1]+a[2*4+r0]*b[c*4+2]+a[3*4+r0]*b[c*4+3];
         return r;
@@ -0,0 +1,48 @@
+package engine.gl;
+
+/**
+ * Picks the scene render scale from the measured GPU time of the scene pass, aiming for
+ * {@link #budgetMs}. A PID controller in velocity form: each frame the scale moves by
+ *
+ *   ki * e + kp * (e - e1) + kd * (e - 2 e1 + e2)
+ *
+ * where e is the budget error normalized by the budget (positive = headroom). The velocity
+ * form has no integral term to wind up when the scale sits at a clamp. While the error is
+ * inside {@link #deadband} the scale doesn't move at all (no P or D kick either), so it
+ * doesn't hunt around the target; the error history keeps updating, so leaving the band
+ * doesn't bring a stale difference with it.
+ */
+public class ResolutionController {
+    public boolean enabled = true;
+    public float budgetMs = 14f;
+    public float minScale = 0.5f, maxScale = 1.0f;
+    public float kp = 0.10f, ki = 0.05f, kd = 0.02f;
+    public float deadband = 0.05f;
+    public float sharpness = 0.35f;   // upscale filter strength
+
+    // state (read by the overlay)
+    private float scale = 1f;
+    private float error = 0f, error1 = 0f, error2 = 0f;
+    private float lastGpuMs = 0f;
+    private float lastStep = 0f;
+
+    /** Feed the scene pass GPU time of a completed frame. */
+    public void update(float gpuMs) {
+        lastGpuMs = gpuMs;
+        if (!enabled) { scale = maxScale; lastStep = 0f; return; }
+        if (budgetMs <= 0f || gpuMs <= 0f) return;
+
+        error2 = error1;
+        error1 = error;
+        error = (budgetMs - gpuMs) / budgetMs;
+        if (Math.abs(error) < deadband) { lastStep = 0f; return; }
+
+        lastStep = ki * error + kp * (error - error1) + kd * (error - 2f * error1 + error2);
+        scale = Math.max(minScale, Math.min(maxScale, scale + lastStep));
+    }
+
+    public float scale()     { return enabled ? scale : maxScale; }
+    public float error()     { return error; }
+    public float lastGpuMs() { return lastGpuMs; }
+    public float lastStep()  { return lastStep; }
+}
@@ -0,0 +1,160 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Offscreen scene buffer for dynamic resolution. Storage is allocated at the window size and
+ * the scene is rendered into the lower-left (scale * size) part of it, so changing the scale
+ * never reallocates. {@link #present} upsamples that rectangle to the default framebuffer with
+ * a sharpening filter.
+ *
+ * Colour is RGBA16F, so lighting brighter than 1 survives until {@link PostProcess} exposes
+ * and tone maps it.
+ *
+ * The GPU cost of the scene pass is measured with GL_TIMESTAMP queries (which, unlike
+ * TIME_ELAPSED, can overlap the profiler's queries), read back {@link #RING} frames later.
+ */
+public class SceneTarget {
+    private static final int RING = 4;
+
+    private final Shader upscale;
+    private final int vao;
+    private int fbo, colorTex, depthTex;
+    private int allocW = 0, allocH = 0;
+    private int width = 1, height = 1;   // rendered size this frame
+
+    private final int[] tsBegin = new int[RING], tsEnd = new int[RING];
+    private final boolean[] pending = new boolean[RING];
+    private int frame = 0;
+    private float gpuMs = 0f;
+    private boolean gpuFresh = false;
+
+    public SceneTarget() {
+        upscale = Shader.load("shaders/fullscreen.vert", "shaders/upscale.frag");
+        vao = glGenVertexArrays();
+        for (int i = 0; i < RING; i++) { tsBegin[i] = glGenQueries(); tsEnd[i] = glGenQueries(); }
+    }
+
+    /**
+     * Sizes this frame's rendering at scale * (windowW, windowH), reallocating only when the
+     * window size changed. The target is bound by the render graph's scene pass.
+     */
+    public void prepare(int windowW, int windowH, float scale) {
+        if (windowW != allocW || windowH != allocH) allocate(Math.max(1, windowW), Math.max(1, windowH));
+        width  = Math.max(1, Math.round(allocW * scale));
+        height = Math.max(1, Math.round(allocH * scale));
+    }
+
+    /** Brackets the scene pass for {@link #gpuMs}. */
+    public void startTiming() {
+        harvest();
+        glQueryCounter(tsBegin[frame % RING], GL_TIMESTAMP);
+    }
+
+    public void stopTiming() {
+        int slot = frame % RING;
+        glQueryCounter(tsEnd[slot], GL_TIMESTAMP);
+        pending[slot] = true;
+        frame++;
+    }
+
+    /**
+     * Upscales the rendered rectangle of {@code tex} onto the current framebuffer; tex is laid
+     * out like this target (e.g. the {@link PostProcess} output).
+     */
+    public void present(int tex, float sharpness) {
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_BLEND);
+        upscale.use();
+        int id = upscale.id();
+        glUniform1i(glGetUniformLocation(id, "uScene"), 0);
+        glUniform2f(glGetUniformLocation(id, "uUvScale"), width / (float)allocW, height / (float)allocH);
+        glUniform2f(glGetUniformLocation(id, "uTexel"), 1f / allocW, 1f / allocH);
+        glUniform1f(glGetUniformLocation(id, "uSharpness"), (width == allocW && height == allocH) ? 0f : sharpness);
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, tex);
+        glBindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+        GlCounters.draw();
+        glBindVertexArray(0);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    public int fbo()          { return fbo; }
+    public int colorTexture() { return colorTex; }
+    public int depthTexture() { return depthTex; }
+    public int allocWidth()   { return allocW; }
+    public int allocHeight()  { return allocH; }
+    public int width()  { return width; }
+    public int height() { return height; }
+    /** GPU time of the last completed scene pass, in ms. */
+    public float gpuMs() { return gpuMs; }
+    /** True once per new GPU sample, so a controller doesn't react to the same frame twice. */
+    public boolean takeGpuSample() { boolean f = gpuFresh; gpuFresh = false; return f; }
+
+    public void delete() {
+        freeStorage();
+        for (int i = 0; i < RING; i++) { glDeleteQueries(tsBegin[i]); glDeleteQueries(tsEnd[i]); }
+        glDeleteVertexArrays(vao);
+        upscale.delete();
+    }
+
+    // ---- internals ----
+    private void harvest() {
+        int slot = frame % RING;
+        if (!pending[slot]) return;
+        if (glGetQueryObjecti(tsEnd[slot], GL_QUERY_RESULT_AVAILABLE) != 0) {
+            long t0 = glGetQueryObjecti64(tsBegin[slot], GL_QUERY_RESULT);
+            long t1 = glGetQueryObjecti64(tsEnd[slot], GL_QUERY_RESULT);
+            gpuMs = (t1 - t0) / 1_000_000f;
+            gpuFresh = true;
+        }
+        pending[slot] = false;   // not ready yet? drop it rather than wait
+    }
+
+    private void allocate(int w, int h) {
+        freeStorage();
+        allocW = w; allocH = h;
+
+        colorTex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, colorTex);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA16F, w, h, 0, GL_RGBA, GL_HALF_FLOAT, (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        // depth is a texture so later passes (shell upsampling) can read it
+        depthTex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, depthTex);
+        glTexImage2D(GL_TEXTURE_2D, 0, Depth.internalFormat(), w, h, 0, GL_DEPTH_COMPONENT, Depth.pixelType(), (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, colorTex, 0);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, depthTex, 0);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Scene FBO incomplete");
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    private void freeStorage() {
+        if (fbo != 0) glDeleteFramebuffers(fbo);
+        if (colorTex != 0) glDeleteTextures(colorTex);
+        if (depthTex != 0) glDeleteTextures(depthTex);
+        fbo = colorTex = depthTex = 0;
+    }
+}
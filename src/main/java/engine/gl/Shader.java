@@ -1,24 +1,77 @@
 package engine.gl;
 
+import engine.perf.GlCounters;
+import engine.util.Resources;
 import org.lwjgl.opengl.GL20;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class Shader {
-    private final int program;
+    // shaders built from resource files, for hot reload (GL thread only)
+    private static final List<Shader> LOADED = new ArrayList<>();
+
+    private int program;
+    private final String vertPath, fragPath;   // null when built from plain source
 
     public Shader(String vertexSource, String fragmentSource) {
+        this(vertexSource, fragmentSource, null, null);
+    }
+
+    private Shader(String vertexSource, String fragmentSource, String vertPath, String fragPath) {
+        this.program = link(vertexSource, fragmentSource);
+        this.vertPath = vertPath;
+        this.fragPath = fragPath;
+    }
+
+    /** Builds from two resource files and keeps the paths so {@link #reload} can rebuild it. */
+    public static Shader load(String vertPath, String fragPath) {
+        Shader s = new Shader(Resources.text(vertPath), Resources.text(fragPath), vertPath, fragPath);
+        LOADED.add(s);
+        return s;
+    }
+
+    /**
+     * Rebuilds every loaded shader that uses {@code resourcePath}. A shader that fails to
+     * compile or link keeps its previous program; the error goes to {@code errors}.
+     * Returns how many programs were replaced.
+     */
+    public static int reload(String resourcePath, StringBuilder errors) {
+        int swapped = 0;
+        for (Shader s : LOADED) {
+            if (!resourcePath.equals(s.vertPath) && !resourcePath.equals(s.fragPath)) continue;
+            try {
+                int next = link(Resources.text(s.vertPath), Resources.text(s.fragPath));
+                glDeleteProgram(s.program);
+                s.program = next;
+                swapped++;
+            } catch (RuntimeException e) {
+                errors.append(s.vertPath).append(" + ").append(s.fragPath).append(": ").append(e.getMessage()).append('\n');
+            }
+        }
+        return swapped;
+    }
+
+    private static int link(String vertexSource, String fragmentSource) {
         int vs = compile(GL_VERTEX_SHADER, vertexSource);
-        int fs = compile(GL_FRAGMENT_SHADER, fragmentSource);
-        program = glCreateProgram();
+        int fs;
+        try { fs = compile(GL_FRAGMENT_SHADER, fragmentSource); }
+        catch (RuntimeException e) { glDeleteShader(vs); throw e; }
+        int program = glCreateProgram();
         glAttachShader(program, vs);
         glAttachShader(program, fs);
         glLinkProgram(program);
-        if (glGetProgrami(program, GL_LINK_STATUS) == GL20.GL_FALSE) {
-            throw new RuntimeException("Program link error: " + glGetProgramInfoLog(program));
-        }
         glDeleteShader(vs);
         glDeleteShader(fs);
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL20.GL_FALSE) {
+            String log = glGetProgramInfoLog(program);
+            glDeleteProgram(program);
+            throw new RuntimeException("Program link error: " + log);
+        }
+        return program;
     }
 
     private static int compile(int type, String src) {
@@ -26,13 +79,18 @@ public class Shader {
         glShaderSource(id, src);
         glCompileShader(id);
         if (glGetShaderi(id, GL_COMPILE_STATUS) == GL20.GL_FALSE) {
-            throw new RuntimeException("Shader compile error: " + glGetShaderInfoLog(id));
+            String log = glGetShaderInfoLog(id);
+            glDeleteShader(id);
+            throw new RuntimeException("Shader compile error: " + log);
         }
         return id;
     }
 
-    public void use() { glUseProgram(program); }
+    public void use() { glUseProgram(program); GlCounters.state(); }
     public int id() { return program; }
 
-    public void delete() { glDeleteProgram(program); }
+    public void delete() {
+        glDeleteProgram(program);
+        LOADED.remove(this);
+    }
 }
@@ -0,0 +1,380 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Offscreen path for the translucent shells (clouds, atmosphere), at full or reduced
+ * resolution. Per frame, after the opaque surfaces:
+ *
+ *   cloudMode()      picks the update mode (and its phase) the cloud packets are recorded with
+ *   prepare()        farthest-depth downsample of the scene depth into the low-res depth
+ *   beginClouds()    clouds into their own buffer; with a {@link CloudUpdate} other than FULL
+ *                    only a fraction of the pixels is shaded this frame...
+ *   resolveClouds()  ...and the rest are reprojected from the history buffer (camera motion
+ *                    plus the clouds' spin and drift), clamped to their fresh neighbours
+ *   beginShells()    remaining shells (atmosphere) blend into the shell buffer
+ *   composite()      joint-bilateral upsample onto the scene, premultiplied-alpha blend
+ *
+ * Like {@link SceneTarget}, storage is allocated for the scene's allocated size / factor and
+ * only the part matching the current render size is used, so dynamic resolution doesn't
+ * reallocate. Every body's shells go through the same buffers; the history is reprojected with
+ * one body's motion, so the caller asks for the interleaved update only when one body has
+ * clouds, and it is used at most once a frame.
+ */
+public class ShellCompositor {
+    /** Share of the cloud pixels shaded per frame; the rest come from the history. */
+    public enum CloudUpdate {
+        FULL(1, false), CHECKERBOARD(2, true), QUARTER(2, false), SIXTEENTH(4, false);
+
+        public final int grid;
+        public final boolean checker;
+
+        CloudUpdate(int grid, boolean checker) { this.grid = grid; this.checker = checker; }
+
+        /** Frames until every pixel has been shaded once. */
+        public int frames() { return checker ? 2 : grid * grid; }
+
+        public CloudUpdate next() { return values()[(ordinal() + 1) % values().length]; }
+    }
+
+    /** Widens the clamp box around the fresh neighbours, as a fraction of its size (0 = strict). */
+    public float clampSlack = 0.1f;
+
+    private static final int[][] BAYER2 = {{0,0},{1,1},{1,0},{0,1}};
+    private static final int[][] BAYER4 = {
+            {0,0},{2,2},{2,0},{0,2},{1,1},{3,3},{3,1},{1,3},
+            {1,0},{3,2},{3,0},{1,2},{0,1},{2,3},{2,1},{0,3}};
+
+    private final Shader depthShader, compositeShader, resolveShader;
+    private final int vao;
+
+    // low-res targets
+    private int factor = 0, allocW = 0, allocH = 0;
+    private int depthTex, shellTex, cloudTex;
+    private final int[] historyTex = new int[2];
+    private int depthFbo, shellFbo, cloudFbo;
+    private final int[] historyFbo = new int[2];
+
+    // per frame
+    private SceneTarget scene;
+    private int lowW = 1, lowH = 1;
+    private boolean shellCleared;
+    private boolean historyUsedThisFrame;
+    private long frame = 0;
+    private CloudUpdate active = CloudUpdate.FULL;
+    public int phaseX = 0, phaseY = 0;
+
+    // temporal state
+    private int historyRead = 0;
+    private boolean historyValid = false;
+    private int prevLowW = 1, prevLowH = 1;
+    private float[] prevViewProj;
+    private double prevEyeX, prevEyeY, prevEyeZ;   // world eye of prevViewProj's render space
+    private float prevTime;
+
+    public ShellCompositor() {
+        depthShader     = Shader.load("shaders/fullscreen.vert", "shaders/shell_depth.frag");
+        compositeShader = Shader.load("shaders/fullscreen.vert", "shaders/shell_composite.frag");
+        resolveShader   = Shader.load("shaders/fullscreen.vert", "shaders/cloud_resolve.frag");
+        vao = glGenVertexArrays();
+    }
+
+    /** Call once per frame before any body is drawn. */
+    public void beginFrame() {
+        historyUsedThisFrame = false;
+        frame++;
+    }
+
+    /** Sets up low-res targets for this frame and downsamples the scene depth into them. */
+    public void prepare(SceneTarget scene, int factor) {
+        this.scene = scene;
+        if (factor != this.factor || scene.allocWidth() / factor != allocW || scene.allocHeight() / factor != allocH)
+            allocate(factor, Math.max(1, scene.allocWidth() / factor), Math.max(1, scene.allocHeight() / factor));
+        lowW = Math.max(1, Math.min(allocW, (scene.width()  + factor - 1) / factor));
+        lowH = Math.max(1, Math.min(allocH, (scene.height() + factor - 1) / factor));
+        shellCleared = false;
+
+        glBindFramebuffer(GL_FRAMEBUFFER, depthFbo);
+        GlCounters.state();
+        glViewport(0, 0, lowW, lowH);
+        glEnable(GL_DEPTH_TEST);
+        glDepthFunc(GL_ALWAYS);
+        glDepthMask(true);
+        glColorMask(false, false, false, false);
+        depthShader.use();
+        glUniform1i(glGetUniformLocation(depthShader.id(), "uSceneDepth"), 0);
+        glUniform1i(glGetUniformLocation(depthShader.id(), "uFactor"), factor);
+        glUniform2i(glGetUniformLocation(depthShader.id(), "uSceneSize"), scene.width(), scene.height());
+        glUniform1i(glGetUniformLocation(depthShader.id(), "uReversed"), Depth.reversed() ? 1 : 0);
+        bindTex(0, scene.depthTexture());
+        fullscreen();
+        glColorMask(true, true, true, true);
+        glDepthFunc(Depth.less());
+    }
+
+    /**
+     * Returns the update mode actually used this frame (FULL when there is no usable history);
+     * the caller records the clouds with it and {@link #phaseX}/{@link #phaseY}. No GL calls.
+     */
+    public CloudUpdate cloudMode(CloudUpdate mode) {
+        active = (mode != CloudUpdate.FULL && !historyUsedThisFrame && historyValid) ? mode : CloudUpdate.FULL;
+        phase(active);
+        return active;
+    }
+
+    /** Binds and clears the cloud buffer, after {@link #prepare} and {@link #cloudMode}. */
+    public void beginClouds() {
+        glBindFramebuffer(GL_FRAMEBUFFER, cloudFbo);
+        GlCounters.state();
+        glViewport(0, 0, lowW, lowH);
+        glClearColor(0f, 0f, 0f, 0f);
+        glClear(GL_COLOR_BUFFER_BIT);
+    }
+
+    /**
+     * Merges this frame's cloud pixels with reprojected history into the next history
+     * buffer, and copies the result into the shell buffer as its base layer. The shell
+     * radius and motion (spin in deg/s, drift per second) are those of the layer the history
+     * is reprojected through, normally the outermost.
+     *
+     * Positions are camera-relative (eye at the origin); {@code eyeX..Z} is the world eye,
+     * which moves last frame's render space onto this one's.
+     */
+    public void resolveClouds(float[] proj, float[] view, double eyeX, double eyeY, double eyeZ,
+                              float cx, float cy, float cz, float shellRadius,
+                              float rotDegPS, float driftX, float driftZ, float timeSec) {
+        float[] viewProj = mul(proj, view);
+        if (prevViewProj == null) {
+            prevViewProj = viewProj; prevTime = timeSec;
+            prevEyeX = eyeX; prevEyeY = eyeY; prevEyeZ = eyeZ;
+        }
+        float dt = timeSec - prevTime;
+        float[] inv = invert(viewProj);
+        // a point p here was at p + (eye - prevEye) in last frame's render space
+        float[] prevFromNow = mul(prevViewProj, translate((float)(eyeX - prevEyeX),
+                (float)(eyeY - prevEyeY), (float)(eyeZ - prevEyeZ)));
+
+        int write = 1 - historyRead;
+        glBindFramebuffer(GL_FRAMEBUFFER, historyFbo[write]);
+        GlCounters.state();
+        glViewport(0, 0, lowW, lowH);
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_BLEND);
+
+        int id = resolveShader.id();
+        resolveShader.use();
+        glUniform1i(glGetUniformLocation(id, "uCurrent"), 0);
+        glUniform1i(glGetUniformLocation(id, "uHistory"), 1);
+        glUniform1i(glGetUniformLocation(id, "uGrid"), active.grid);
+        glUniform1i(glGetUniformLocation(id, "uChecker"), active.checker ? 1 : 0);
+        glUniform2i(glGetUniformLocation(id, "uPhase"), phaseX, phaseY);
+        glUniform2i(glGetUniformLocation(id, "uLowSize"), lowW, lowH);
+        glUniform2f(glGetUniformLocation(id, "uPrevLowSize"), prevLowW, prevLowH);
+        glUniform2f(glGetUniformLocation(id, "uTexSize"), allocW, allocH);
+        glUniformMatrix4fv(glGetUniformLocation(id, "uInvViewProj"), false, inv);
+        glUniformMatrix4fv(glGetUniformLocation(id, "uPrevViewProj"), false, prevFromNow);
+        glUniform3f(glGetUniformLocation(id, "uCamPos"), 0f, 0f, 0f);
+        glUniform3f(glGetUniformLocation(id, "uCenter"), cx, cy, cz);
+        glUniform1f(glGetUniformLocation(id, "uShellRadius"), shellRadius);
+        glUniform1f(glGetUniformLocation(id, "uRotNow"),  (float)Math.toRadians(rotDegPS * timeSec));
+        glUniform1f(glGetUniformLocation(id, "uRotPrev"), (float)Math.toRadians(rotDegPS * prevTime));
+        glUniform2f(glGetUniformLocation(id, "uDriftStep"), driftX * dt, driftZ * dt);
+        glUniform1f(glGetUniformLocation(id, "uClampSlack"), clampSlack);
+        bindTex(0, cloudTex);
+        bindTex(1, historyTex[historyRead]);
+        fullscreen();
+        glEnable(GL_DEPTH_TEST);
+
+        // resolved clouds become the bottom layer of the shell buffer
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, historyFbo[write]);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, shellFbo);
+        glBlitFramebuffer(0, 0, lowW, lowH, 0, 0, lowW, lowH, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+        shellCleared = true;
+
+        historyRead = write;
+        historyValid = true;
+        historyUsedThisFrame = true;
+        prevViewProj = viewProj;
+        prevEyeX = eyeX; prevEyeY = eyeY; prevEyeZ = eyeZ;
+        prevTime = timeSec;
+        prevLowW = lowW; prevLowH = lowH;
+    }
+
+    /** Binds the shell buffer (cleared on first use this frame). */
+    public void beginShells() {
+        glBindFramebuffer(GL_FRAMEBUFFER, shellFbo);
+        GlCounters.state();
+        glViewport(0, 0, lowW, lowH);
+        if (!shellCleared) {
+            glClearColor(0f, 0f, 0f, 0f);
+            glClear(GL_COLOR_BUFFER_BIT);
+            shellCleared = true;
+        }
+    }
+
+    /** Upsamples the shell buffer onto the scene and restores the scene framebuffer. */
+    public void composite(float[] proj) {
+        glBindFramebuffer(GL_FRAMEBUFFER, scene.fbo());
+        GlCounters.state();
+        glViewport(0, 0, scene.width(), scene.height());
+        if (!shellCleared) return;   // nothing was drawn
+
+        glDisable(GL_DEPTH_TEST);
+        glDepthMask(false);
+        glEnable(GL_BLEND);
+        glBlendFuncSeparate(GL_ONE, GL_ONE_MINUS_SRC_ALPHA, GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+
+        int id = compositeShader.id();
+        compositeShader.use();
+        glUniform1i(glGetUniformLocation(id, "uShell"), 0);
+        glUniform1i(glGetUniformLocation(id, "uLowDepth"), 1);
+        glUniform1i(glGetUniformLocation(id, "uSceneDepth"), 2);
+        glUniform1i(glGetUniformLocation(id, "uFactor"), factor);
+        glUniform2i(glGetUniformLocation(id, "uLowSize"), lowW, lowH);
+        glUniform2f(glGetUniformLocation(id, "uProjAB"), proj[10], proj[14]);
+        glUniform2f(glGetUniformLocation(id, "uDepthToNdc"), Depth.ndcScale(), Depth.ndcOffset());
+        bindTex(0, shellTex);
+        bindTex(1, depthTex);
+        bindTex(2, scene.depthTexture());
+        fullscreen();
+
+        glDisable(GL_BLEND);
+        glDepthMask(true);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    /** Forget the cloud history (camera cut, settings change). */
+    public void invalidateHistory() { historyValid = false; prevViewProj = null; }
+
+    public void delete() {
+        freeStorage();
+        glDeleteVertexArrays(vao);
+        depthShader.delete();
+        compositeShader.delete();
+        resolveShader.delete();
+    }
+
+    // ---- internals ----
+    private void phase(CloudUpdate mode) {
+        phaseX = phaseY = 0;
+        if (mode == CloudUpdate.FULL) return;
+        if (mode.checker) { phaseX = (int)(frame & 1); return; }
+        int[][] seq = mode.grid == 4 ? BAYER4 : BAYER2;
+        int[] p = seq[(int)(frame % seq.length)];
+        phaseX = p[0]; phaseY = p[1];
+    }
+
+    private void fullscreen() {
+        glBindVertexArray(vao);
+        glDrawArrays(GL_TRIANGLES, 0, 3);
+        GlCounters.draw();
+        glBindVertexArray(0);
+    }
+
+    private static void bindTex(int unit, int tex) {
+        glActiveTexture(GL_TEXTURE0 + unit);
+        glBindTexture(GL_TEXTURE_2D, tex);
+        GlCounters.state();
+    }
+
+    private void allocate(int factor, int w, int h) {
+        freeStorage();
+        this.factor = factor;
+        allocW = w; allocH = h;
+        historyValid = false;
+
+        depthTex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, depthTex);
+        glTexImage2D(GL_TEXTURE_2D, 0, Depth.internalFormat(), w, h, 0, GL_DEPTH_COMPONENT, Depth.pixelType(), (java.nio.ByteBuffer) null);
+        texParams(GL_NEAREST);
+
+        shellTex = colorTex(w, h);
+        cloudTex = colorTex(w, h);
+        historyTex[0] = colorTex(w, h);
+        historyTex[1] = colorTex(w, h);
+
+        depthFbo = fbo(0, depthTex);
+        shellFbo = fbo(shellTex, depthTex);
+        cloudFbo = fbo(cloudTex, depthTex);
+        historyFbo[0] = fbo(historyTex[0], 0);
+        historyFbo[1] = fbo(historyTex[1], 0);
+        glBindFramebuffer(GL_FRAMEBUFFER, 0);
+    }
+
+    private static int colorTex(int w, int h) {
+        int t = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, t);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA16F, w, h, 0, GL_RGBA, GL_HALF_FLOAT, (java.nio.ByteBuffer) null);   // HDR like the scene
+        texParams(GL_LINEAR);
+        return t;
+    }
+
+    private static void texParams(int filter) {
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, filter);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, filter);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    private static int fbo(int color, int depth) {
+        int f = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, f);
+        if (color != 0) glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, color, 0);
+        else { glDrawBuffer(GL_NONE); glReadBuffer(GL_NONE); }
+        if (depth != 0) glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_TEXTURE_2D, depth, 0);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Shell FBO incomplete");
+        return f;
+    }
+
+    private void freeStorage() {
+        for (int f : new int[]{depthFbo, shellFbo, cloudFbo, historyFbo[0], historyFbo[1]}) if (f != 0) glDeleteFramebuffers(f);
+        for (int t : new int[]{depthTex, shellTex, cloudTex, historyTex[0], historyTex[1]}) if (t != 0) glDeleteTextures(t);
+        depthFbo = shellFbo = cloudFbo = historyFbo[0] = historyFbo[1] = 0;
+        depthTex = shellTex = cloudTex = historyTex[0] = historyTex[1] = 0;
+        factor = 0;
+    }
+
+    private static float[] translate(float x, float y, float z) {
+        return new float[]{1,0,0,0, 0,1,0,0, 0,0,1,0, x,y,z,1};
+    }
+
+    private static float[] mul(float[] a, float[] b) { float[] r = new float[16];
+        for (int c = 0; c < 4; c++) for (int r0 = 0; r0 < 4; r0++)
+            r[c*4+r0] = a[0*4+r0]*b[c*4+0] + a[1*4+r0]*b[c*4+1] + a[2*4+r0]*b[c*4+2] + a[3*4+r0]*b[c*4+3];
+        return r;
+    }
+
+    // general 4x4 inverse (cofactors), column-major in and out
+    static float[] invert(float[] m) {
+        float[] inv = new float[16];
+        inv[0]  =  m[5]*m[10]*m[15] - m[5]*m[11]*m[14] - m[9]*m[6]*m[15] + m[9]*m[7]*m[14] + m[13]*m[6]*m[11] - m[13]*m[7]*m[10];
+        inv[4]  = -m[4]*m[10]*m[15] + m[4]*m[11]*m[14] + m[8]*m[6]*m[15] - m[8]*m[7]*m[14] - m[12]*m[6]*m[11] + m[12]*m[7]*m[10];
+        inv[8]  =  m[4]*m[9]*m[15]  - m[4]*m[11]*m[13] - m[8]*m[5]*m[15] + m[8]*m[7]*m[13] + m[12]*m[5]*m[11] - m[12]*m[7]*m[9];
+        inv[12] = -m[4]*m[9]*m[14]  + m[4]*m[10]*m[13] + m[8]*m[5]*m[14] - m[8]*m[6]*m[13] - m[12]*m[5]*m[10] + m[12]*m[6]*m[9];
+        inv[1]  = -m[1]*m[10]*m[15] + m[1]*m[11]*m[14] + m[9]*m[2]*m[15] - m[9]*m[3]*m[14] - m[13]*m[2]*m[11] + m[13]*m[3]*m[10];
+        inv[5]  =  m[0]*m[10]*m[15] - m[0]*m[11]*m[14] - m[8]*m[2]*m[15] + m[8]*m[3]*m[14] + m[12]*m[2]*m[11] - m[12]*m[3]*m[10];
+        inv[9]  = -m[0]*m[9]*m[15]  + m[0]*m[11]*m[13] + m[8]*m[1]*m[15] - m[8]*m[3]*m[13] - m[12]*m[1]*m[11] + m[12]*m[3]*m[9];
+        inv[13] =  m[0]*m[9]*m[14]  - m[0]*m[10]*m[13] - m[8]*m[1]*m[14] + m[8]*m[2]*m[13] + m[12]*m[1]*m[10] - m[12]*m[2]*m[9];
+        inv[2]  =  m[1]*m[6]*m[15]  - m[1]*m[7]*m[14]  - m[5]*m[2]*m[15] + m[5]*m[3]*m[14] + m[13]*m[2]*m[7]  - m[13]*m[3]*m[6];
+        inv[6]  = -m[0]*m[6]*m[15]  + m[0]*m[7]*m[14]  + m[4]*m[2]*m[15] - m[4]*m[3]*m[14] - m[12]*m[2]*m[7]  + m[12]*m[3]*m[6];
+        inv[10] =  m[0]*m[5]*m[15]  - m[0]*m[7]*m[13]  - m[4]*m[1]*m[15] + m[4]*m[3]*m[13] + m[12]*m[1]*m[7]  - m[12]*m[3]*m[5];
+        inv[14] = -m[0]*m[5]*m[14]  + m[0]*m[6]*m[13]  + m[4]*m[1]*m[14] - m[4]*m[2]*m[13] - m[12]*m[1]*m[6]  + m[12]*m[2]*m[5];
+        inv[3]  = -m[1]*m[6]*m[11]  + m[1]*m[7]*m[10]  + m[5]*m[2]*m[11] - m[5]*m[3]*m[10] - m[9]*m[2]*m[7]   + m[9]*m[3]*m[6];
+        inv[7]  =  m[0]*m[6]*m[11]  - m[0]*m[7]*m[10]  - m[4]*m[2]*m[11] + m[4]*m[3]*m[10] + m[8]*m[2]*m[7]   - m[8]*m[3]*m[6];
+        inv[11] = -m[0]*m[5]*m[11]  + m[0]*m[7]*m[9]   + m[4]*m[1]*m[11] - m[4]*m[3]*m[9]  - m[8]*m[1]*m[7]   + m[8]*m[3]*m[5];
+        inv[15] =  m[0]*m[5]*m[10]  - m[0]*m[6]*m[9]   - m[4]*m[1]*m[10] + m[4]*m[2]*m[9]  + m[8]*m[1]*m[6]   - m[8]*m[2]*m[5];
+        float det = m[0]*inv[0] + m[1]*inv[4] + m[2]*inv[8] + m[3]*inv[12];
+        if (Math.abs(det) < 1e-20f) return inv;
+        float id = 1f / det;
+        for (int i = 0; i < 16; i++) inv[i] *= id;
+        return inv;
+    }
+}
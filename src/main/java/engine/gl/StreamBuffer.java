@@ -0,0 +1,154 @@
+package engine.gl;
+
+import org.lwjgl.opengl.GL;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+
+/**
+ * One GL_ARRAY_BUFFER for all per-frame vertex data (gizmos, overlay panels, text instances,
+ * debug lines), written by the CPU and read once by the GPU.
+ *
+ * With GL 4.4 / ARB_buffer_storage it's persistently mapped and split into {@link #REGIONS}
+ * regions used round-robin; each region gets a fence when it's left behind, and writing into
+ * it again waits for that fence, so the CPU is never more than REGIONS - 1 regions ahead.
+ * On plain 3.3 each write maps just its range with GL_MAP_UNSYNCHRONIZED_BIT and the buffer
+ * is orphaned when the write position wraps, which leaves the syncing to the driver.
+ *
+ * Usage: {@link #begin} → write at [{@link #base}, base + bytes) of the returned buffer →
+ * {@link #commit} (gives the offset in {@link #vbo} to point attributes at) → draw. One
+ * write open at a time. {@link #endFrame} once per frame after the last draw that reads it.
+ * GL thread only.
+ */
+public final class StreamBuffer {
+    public static final int REGIONS = 3;
+    private static final int ALIGN = 16;
+    private static final long DEFAULT_REGION_BYTES = 1L << 20;
+
+    private static StreamBuffer shared;
+
+    private final int vbo;
+    private final long regionBytes;
+    private final boolean persistent;
+    private final ByteBuffer mapped;          // persistent: the whole buffer; fallback: null
+    private final long[] fences = new long[REGIONS];
+    private int region = 0;
+    private long head = 0;                    // persistent: within the region; fallback: within the buffer
+
+    private ByteBuffer open;                  // non-null between begin and commit
+    private long openOffset;
+    private int openBytes;
+
+    public StreamBuffer(long regionBytes) {
+        this.regionBytes = regionBytes;
+        var caps = GL.getCapabilities();
+        persistent = caps.OpenGL44 || caps.GL_ARB_buffer_storage;
+
+        vbo = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (persistent) {
+            int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            glBufferStorage(GL_ARRAY_BUFFER, regionBytes * REGIONS, flags);
+            mapped = glMapBufferRange(GL_ARRAY_BUFFER, 0, regionBytes * REGIONS, flags);
+            if (mapped == null) throw new RuntimeException("Could not map stream buffer");
+        } else {
+            glBufferData(GL_ARRAY_BUFFER, regionBytes * REGIONS, GL_STREAM_DRAW);
+            mapped = null;
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /** The buffer every overlay/debug renderer streams through; created on first use. */
+    public static StreamBuffer shared() {
+        if (shared == null) shared = new StreamBuffer(DEFAULT_REGION_BYTES);
+        return shared;
+    }
+
+    /** Deletes the shared buffer if it was ever created. */
+    public static void deleteShared() {
+        if (shared != null) { shared.delete(); shared = null; }
+    }
+
+    public int vbo() { return vbo; }
+    public boolean persistent() { return persistent; }
+    public long regionBytes() { return regionBytes; }
+
+    /**
+     * Reserves up to {@code bytes} (at most {@link #regionBytes}) and returns the buffer to
+     * write them into, starting at {@link #base}. Leaves GL_ARRAY_BUFFER bound to {@link #vbo}
+     * on the fallback path.
+     */
+    public ByteBuffer begin(int bytes) {
+        if (open != null) throw new IllegalStateException("StreamBuffer write already open");
+        if (bytes > regionBytes) throw new IllegalArgumentException("Stream write of " + bytes + " bytes exceeds region of " + regionBytes);
+
+        if (persistent) {
+            if (head + bytes > regionBytes) nextRegion();
+            openOffset = region * regionBytes + head;
+            open = mapped;
+        } else {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            if (head + bytes > regionBytes * REGIONS) {
+                glBufferData(GL_ARRAY_BUFFER, regionBytes * REGIONS, GL_STREAM_DRAW);   // orphan
+                head = 0;
+            }
+            openOffset = head;
+            open = glMapBufferRange(GL_ARRAY_BUFFER, openOffset, bytes,
+                    GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT);
+            if (open == null) throw new RuntimeException("Could not map stream buffer range");
+        }
+        openBytes = bytes;
+        return open;
+    }
+
+    /** Where the write returned by {@link #begin} starts in that buffer. */
+    public int base() { return persistent ? (int) openOffset : 0; }
+
+    /**
+     * Ends the open write; {@code written} bytes (≤ the reserved size) are kept, the rest of
+     * the reservation is handed back. Returns the byte offset of the data in {@link #vbo}.
+     */
+    public long commit(int written) {
+        if (open == null) throw new IllegalStateException("StreamBuffer commit without begin");
+        if (written > openBytes) throw new IllegalArgumentException("Wrote " + written + " of " + openBytes + " reserved bytes");
+        if (!persistent) {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+        }
+        open = null;
+        head += (written + ALIGN - 1) & -ALIGN;
+        return openOffset;
+    }
+
+    /** Fences what this frame wrote and moves on; call after the frame's last draw from it. */
+    public void endFrame() {
+        if (persistent && head > 0) nextRegion();
+    }
+
+    public void delete() {
+        for (int i = 0; i < REGIONS; i++) if (fences[i] != 0) { glDeleteSync(fences[i]); fences[i] = 0; }
+        if (persistent) {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            glUnmapBuffer(GL_ARRAY_BUFFER);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+        glDeleteBuffers(vbo);
+    }
+
+    // The GPU may still be reading the next region from REGIONS - 1 regions ago; wait for its fence.
+    private void nextRegion() {
+        fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        region = (region + 1) % REGIONS;
+        head = 0;
+        long f = fences[region];
+        if (f == 0) return;
+        int r = glClientWaitSync(f, 0, 0L);
+        if (r == GL_TIMEOUT_EXPIRED) glClientWaitSync(f, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000_000L);
+        glDeleteSync(f);
+        fences[region] = 0;
+    }
+}
@@ -0,0 +1,144 @@
+package engine.gl;
+
+import engine.perf.GlCounters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Transient colour targets (texture + FBO) shared between passes. A pass acquires what it
+ * needs for as long as it needs it and releases it afterwards; a later acquire of the same
+ * size and format gets the same storage back instead of a new allocation. Targets nobody has
+ * used for {@link #maxIdleFrames} frames are freed, so a size change doesn't leave the old
+ * set behind.
+ *
+ * Contents are undefined after acquire. GL thread only.
+ */
+public final class TargetPool {
+    public static final class Target {
+        public final int tex, fbo, width, height, format;
+        boolean inUse;
+        long lastUsed;
+
+        Target(int tex, int fbo, int width, int height, int format) {
+            this.tex = tex; this.fbo = fbo; this.width = width; this.height = height; this.format = format;
+        }
+
+        /** Binds the FBO with the viewport at (w, h), the part of the target actually used. */
+        public void bind(int w, int h) {
+            glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+            GlCounters.state();
+            glViewport(0, 0, w, h);
+        }
+    }
+
+    public int maxIdleFrames = 30;
+
+    private final List<Target> targets = new ArrayList<>();
+    private long frame = 0;
+    private int created = 0;
+
+    public Target acquire(int width, int height, int internalFormat) {
+        width = Math.max(1, width); height = Math.max(1, height);
+        for (Target t : targets) {
+            if (!t.inUse && t.width == width && t.height == height && t.format == internalFormat) {
+                t.inUse = true;
+                t.lastUsed = frame;
+                return t;
+            }
+        }
+        Target t = allocate(width, height, internalFormat);
+        t.inUse = true;
+        t.lastUsed = frame;
+        targets.add(t);
+        created++;
+        return t;
+    }
+
+    public void release(Target t) {
+        if (t != null) t.inUse = false;
+    }
+
+    /** Call once per frame after every pass has released its targets; frees idle ones. */
+    public void endFrame() {
+        for (int i = targets.size() - 1; i >= 0; i--) {
+            Target t = targets.get(i);
+            if (!t.inUse && frame - t.lastUsed > maxIdleFrames) {
+                free(t);
+                targets.remove(i);
+            }
+        }
+        frame++;
+    }
+
+    public int size() { return targets.size(); }
+    /** Allocations since start; flat once the pool has warmed up. */
+    public int created() { return created; }
+
+    public long bytes() {
+        long b = 0;
+        for (Target t : targets) b += (long) t.width * t.height * bytesPerPixel(t.format);
+        return b;
+    }
+
+    public void delete() {
+        for (Target t : targets) free(t);
+        targets.clear();
+    }
+
+    // ---- internals ----
+    private static Target allocate(int w, int h, int internalFormat) {
+        int tex = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, tex);
+        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, w, h, 0, pixelFormat(internalFormat), pixelType(internalFormat), (java.nio.ByteBuffer) null);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        int prev = glGetInteger(GL_FRAMEBUFFER_BINDING);
+        int fbo = glGenFramebuffers();
+        glBindFramebuffer(GL_FRAMEBUFFER, fbo);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, tex, 0);
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new RuntimeException("Pooled target FBO incomplete");
+        glBindFramebuffer(GL_FRAMEBUFFER, prev);
+        return new Target(tex, fbo, w, h, internalFormat);
+    }
+
+    private static void free(Target t) {
+        glDeleteFramebuffers(t.fbo);
+        glDeleteTextures(t.tex);
+    }
+
+    static int pixelFormat(int internalFormat) {
+        return switch (internalFormat) {
+            case GL_R8, GL_R16F, GL_R32F -> GL_RED;
+            case GL_RG16F, GL_RG32F -> GL_RG;
+            default -> GL_RGBA;
+        };
+    }
+
+    static int pixelType(int internalFormat) {
+        return switch (internalFormat) {
+            case GL_R16F, GL_RG16F, GL_RGBA16F -> GL_HALF_FLOAT;
+            case GL_R32F, GL_RG32F, GL_RGBA32F -> GL_FLOAT;
+            default -> GL_UNSIGNED_BYTE;
+        };
+    }
+
+    static int bytesPerPixel(int internalFormat) {
+        return switch (internalFormat) {
+            case GL_R8 -> 1;
+            case GL_R16F -> 2;
+            case GL_R32F, GL_RG16F -> 4;
+            case GL_RG32F, GL_RGBA16F -> 8;
+            case GL_RGBA32F -> 16;
+            default -> 4;
+        };
+    }
+}
@@ -1,13 +1,17 @@
 // engine/gl/Texture.java
 package engine.gl;
 
+import engine.perf.GlCounters;
+import engine.util.Resources;
 import org.lwjgl.stb.STBImage;
 import org.lwjgl.system.MemoryStack;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL13.*;       // GL_TEXTURE0, glActiveTexture
@@ -16,88 +20,197 @@ import static org.lwjgl.system.MemoryStack.stackPush;
 import static org.lwjgl.system.MemoryUtil.*; // memAlloc/memFree
 
 public class Texture {
-    private final int id;
+    // live textures by resource path, for hot reload (GL thread only)
+    private static final Map<String, List<Texture>> LOADED = new HashMap<>();
+
+    private int id;
+    private final String path;
+    private float[] avgColor;   // linear-ish mean RGB, used for far-away sprites
+    private long gpuBytes;      // estimate: RGBA8 + mip chain; 0 while evicted
+    private long lastUse;       // GlCounters.frame() of the last bind
+    private boolean evictable;  // only resource-loaded textures can be re-read later
     public int id() { return id; }
-    private Texture(int id) { this.id = id; }
+    public float[] averageColor() { return avgColor; }
+    public long gpuBytes() { return gpuBytes; }
+    public long lastUse() { return lastUse; }
+    public boolean resident() { return id != 0; }
+    public boolean evictable() { return evictable; }
+    public String path() { return path; }
+    private Texture(int id, String path) { this.id = id; this.path = path; }
 
     public static Texture load(String resourcePath) {
         // Read the file into a byte[]
-        byte[] bytes = readResourceBytes(resourcePath);
+        byte[] bytes = Resources.bytes(resourcePath);
         if (bytes == null || bytes.length == 0) {
             throw new RuntimeException("Texture resource not found or empty: " + resourcePath);
         }
 
         // Create GL texture + defaults
+        Texture t = new Texture(newTexture(), resourcePath);
+        try {
+            t.decodeAndUpload(bytes);
+        } catch (RuntimeException e) {
+            glDeleteTextures(t.id);
+            throw e;
+        }
+
+        t.evictable = true;
+        LOADED.computeIfAbsent(resourcePath, k -> new ArrayList<>()).add(t);
+        return t;
+    }
+
+    private static int newTexture() {
         int tex = glGenTextures();
         glBindTexture(GL_TEXTURE_2D, tex);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR_MIPMAP_LINEAR);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        return tex;
+    }
 
+    private void decodeAndUpload(byte[] bytes) {
+        ByteBuffer data = memAlloc(bytes.length);
+        try {
+            data.put(bytes).flip();
+            try (Image image = decode(data, path)) {
+                upload(image);
+            }
+        } finally {
+            memFree(data);
+        }
+    }
+
+    /**
+     * Builds a texture from already decoded pixels (e.g. a slice of a memory-mapped scene
+     * pack); rows bottom-up, tightly packed. {@code name} is what hot reload matches on.
+     */
+    public static Texture fromPixels(String name, int width, int height, int channels, ByteBuffer pixels) {
+        Texture t = new Texture(newTexture(), name);
+        t.upload(width, height, channels, pixels);
+        LOADED.computeIfAbsent(name, k -> new ArrayList<>()).add(t);
+        return t;
+    }
+
+    /**
+     * Replaces the pixels of every live texture loaded from {@code resourcePath} (same GL
+     * name, so holders don't notice). Returns how many were updated.
+     */
+    public static int reload(String resourcePath, Image image) {
+        List<Texture> list = LOADED.get(resourcePath);
+        if (list == null) return 0;
+        int n = 0;
+        for (Texture t : list) {
+            if (!t.resident()) continue;   // picks the new file up when it's restored
+            t.upload(image);
+            n++;
+        }
+        return n;
+    }
+
+    private void upload(Image image) { upload(image.width, image.height, image.channels, image.pixels); }
+
+    private void upload(int width, int height, int channels, ByteBuffer pixels) {
+        int format = (channels == 4) ? GL_RGBA : GL_RGB;
+        glBindTexture(GL_TEXTURE_2D, id);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, 0, format, width, height, 0, format, GL_UNSIGNED_BYTE, pixels);
+        glGenerateMipmap(GL_TEXTURE_2D);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        avgColor = averageRGB(pixels, width, height, channels);
+        gpuBytes = (long) width * height * 4 * 4 / 3;   // drivers pad RGB to 4 bytes
+    }
+
+    /** Decoded pixels owned by STB; close() hands them back. */
+    public static final class Image implements AutoCloseable {
+        public final int width, height, channels;
+        public final ByteBuffer pixels;
+        private Image(int width, int height, int channels, ByteBuffer pixels) {
+            this.width = width; this.height = height; this.channels = channels; this.pixels = pixels;
+        }
+        @Override public void close() { STBImage.stbi_image_free(pixels); }
+    }
+
+    /**
+     * Decodes an encoded image (jpg/png/...) from memory with STB, flipped for GL and keeping
+     * the source channel count. No GL calls, so it can run off the GL thread.
+     */
+    public static Image decode(ByteBuffer encoded, String nameForErrors) {
         STBImage.stbi_set_flip_vertically_on_load(true);
 
-        // Use stack ONLY for small ints; allocate the big byte buffer off-heap.
+        // Use stack ONLY for small ints; STB allocates the big pixel buffer off-heap.
         try (MemoryStack stack = stackPush()) {
             IntBuffer w = stack.mallocInt(1);
             IntBuffer h = stack.mallocInt(1);
             IntBuffer comp = stack.mallocInt(1);
 
-            ByteBuffer data = null;
-            ByteBuffer image = null;
-            try {
-                data = memAlloc(bytes.length);
-                data.put(bytes).flip();
-
-                // Let STBI decode; ask it to keep the source channels (0) or force RGBA (4)
-                image = STBImage.stbi_load_from_memory(data, w, h, comp, 0);
-                if (image == null) {
-                    throw new RuntimeException("Failed to load texture " + resourcePath + " : " +
-                            STBImage.stbi_failure_reason());
-                }
-
-                int width = w.get(0);
-                int height = h.get(0);
-                int channels = comp.get(0);
-                int format = (channels == 4) ? GL_RGBA : GL_RGB;
-
-                glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
-                glTexImage2D(GL_TEXTURE_2D, 0, format, width, height, 0, format,
-                        GL_UNSIGNED_BYTE, image);
-                glGenerateMipmap(GL_TEXTURE_2D);
-            } finally {
-                if (image != null) STBImage.stbi_image_free(image);
-                if (data != null)  memFree(data);
+            // Let STBI decode; ask it to keep the source channels (0) or force RGBA (4)
+            ByteBuffer image = STBImage.stbi_load_from_memory(encoded, w, h, comp, 0);
+            if (image == null) {
+                throw new RuntimeException("Failed to load texture " + nameForErrors + " : " +
+                        STBImage.stbi_failure_reason());
             }
+            return new Image(w.get(0), h.get(0), comp.get(0), image);
         }
-
-        glBindTexture(GL_TEXTURE_2D, 0);
-        return new Texture(tex);
     }
 
     public void bind(int unit) {
+        if (id == 0) restore();
+        lastUse = GlCounters.frame();
         glActiveTexture(GL_TEXTURE0 + unit);
         glBindTexture(GL_TEXTURE_2D, id);
+        GlCounters.state();
     }
 
-    public void delete() { glDeleteTextures(id); }
+    /**
+     * Frees the GPU storage of a resource-loaded texture; the next {@link #bind} reads and
+     * decodes the file again (synchronously, so it's a hitch). Returns the bytes freed.
+     */
+    public long evict() {
+        if (!evictable || id == 0) return 0;
+        long freed = gpuBytes;
+        glDeleteTextures(id);
+        id = 0;
+        gpuBytes = 0;
+        return freed;
+    }
 
-    // ---- helpers ----
-    private static byte[] readResourceBytes(String resourcePath) {
-        try (InputStream is = Texture.class.getClassLoader().getResourceAsStream(resourcePath)) {
-            if (is != null) return readAll(is);
-        } catch (Exception ignored) {}
-        try (InputStream is = Texture.class.getResourceAsStream("/" + resourcePath)) {
-            if (is != null) return readAll(is);
-        } catch (Exception ignored) {}
-        return null;
+    private void restore() {
+        id = newTexture();
+        byte[] bytes = Resources.bytes(path);
+        try {
+            if (bytes == null || bytes.length == 0) throw new RuntimeException("Texture resource not found or empty: " + path);
+            decodeAndUpload(bytes);
+        } catch (RuntimeException e) {
+            // keep the (empty) name so we don't retry every bind; it samples as black
+            System.err.println("Could not restore evicted texture: " + e.getMessage());
+        }
+    }
+
+    public void delete() {
+        if (id != 0) glDeleteTextures(id);
+        id = 0;
+        gpuBytes = 0;
+        List<Texture> list = LOADED.get(path);
+        if (list != null && list.remove(this) && list.isEmpty()) LOADED.remove(path);
     }
 
-    private static byte[] readAll(InputStream is) throws Exception {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(16 * 1024);
-        byte[] buf = new byte[8 * 1024];
-        int r;
-        while ((r = is.read(buf)) != -1) baos.write(buf, 0, r);
-        return baos.toByteArray();
+    // ---- helpers ----
+    // Strided mean over ~64k texels; cheap enough to do once at load time.
+    private static float[] averageRGB(ByteBuffer img, int w, int h, int channels) {
+        int step = Math.max(1, (int)Math.sqrt((double)w * h / 65536.0));
+        double r = 0, g = 0, b = 0; long n = 0;
+        for (int y = 0; y < h; y += step) {
+            for (int x = 0; x < w; x += step) {
+                int o = (y * w + x) * channels;
+                r += img.get(o) & 0xFF;
+                g += img.get(o + Math.min(1, channels - 1)) & 0xFF;
+                b += img.get(o + Math.min(2, channels - 1)) & 0xFF;
+                n++;
+            }
+        }
+        if (n == 0) return new float[]{0.7f, 0.75f, 0.8f};
+        return new float[]{ (float)(r / (n * 255.0)), (float)(g / (n * 255.0)), (float)(b / (n * 255.0)) };
     }
 }
@@ -0,0 +1,45 @@
+package engine.input;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+/** Logical inputs; controllers ask {@link Input} about these instead of raw keys. */
+public enum Action {
+    // camera
+    MOVE_FORWARD(GLFW_KEY_W),
+    MOVE_BACK(GLFW_KEY_S),
+    MOVE_LEFT(GLFW_KEY_A),
+    MOVE_RIGHT(GLFW_KEY_D),
+    MOVE_UP(GLFW_KEY_SPACE),
+    MOVE_DOWN(GLFW_KEY_LEFT_CONTROL, GLFW_KEY_C),
+    TOGGLE_FOLLOW(GLFW_KEY_O),
+
+    // debug menu
+    MENU_TOGGLE(GLFW_KEY_F1),
+    MENU_UP(GLFW_KEY_UP),
+    MENU_DOWN(GLFW_KEY_DOWN),
+    MENU_DECREASE(GLFW_KEY_LEFT),
+    MENU_INCREASE(GLFW_KEY_RIGHT),
+    MENU_TOGGLE_ATMO(GLFW_KEY_H),
+    MENU_SYNC_ANGLES(GLFW_KEY_R),
+    MENU_CONFIRM(GLFW_KEY_ENTER, GLFW_KEY_KP_ENTER),
+    MENU_CANCEL(GLFW_KEY_ESCAPE),
+    MENU_BACKSPACE(GLFW_KEY_BACKSPACE),
+
+    // frame pacing / resolution
+    PACING_CYCLE(GLFW_KEY_F2),
+    PACING_JIT_INPUT(GLFW_KEY_F3),
+    DYNAMIC_RES(GLFW_KEY_F4),
+    SHELL_RES_CYCLE(GLFW_KEY_F5),
+    CLOUD_UPDATE_CYCLE(GLFW_KEY_F6),
+    DEBUG_VOLUMES(GLFW_KEY_F7),
+    SHADOWS_CYCLE(GLFW_KEY_F8),
+    TONEMAP_CYCLE(GLFW_KEY_F9),
+
+    // modifiers
+    MOD_COARSE(GLFW_KEY_LEFT_SHIFT, GLFW_KEY_RIGHT_SHIFT),
+    MOD_FINE(GLFW_KEY_LEFT_CONTROL, GLFW_KEY_RIGHT_CONTROL);
+
+    final int[] defaultKeys;
+
+    Action(int... defaultKeys) { this.defaultKeys = defaultKeys; }
+}
@@ -0,0 +1,137 @@
+package engine.input;
+
+import java.util.Arrays;
+
+import static org.lwjgl.glfw.GLFW.*;
+
+/**
+ * Per-frame view of the input: drains the {@link InputQueue} once in {@link #update} and
+ * folds the events into action states, typed text and mouse/scroll deltas.
+ *
+ * Held time is integrated from the event timestamps, so a key pressed halfway through a
+ * frame counts for half that frame instead of a whole one (or none).
+ */
+public class Input {
+    private static final int MAX_KEY = GLFW_KEY_LAST + 1;
+    private static final Action[] ACTIONS = Action.values();
+
+    private final InputQueue queue;
+    private final InputQueue.Event ev = new InputQueue.Event();
+
+    // key -> bound actions (usually 0 or 1)
+    private final Action[][] bindings = new Action[MAX_KEY][];
+    private final boolean[] keyDown = new boolean[MAX_KEY];
+
+    // per action
+    private final int[] downKeys = new int[ACTIONS.length];      // how many bound keys are held
+    private final double[] downSince = new double[ACTIONS.length];
+    private final float[] held = new float[ACTIONS.length];      // seconds held during the last interval
+    private final int[] presses = new int[ACTIONS.length];
+    private final int[] repeats = new int[ACTIONS.length];
+
+    private final StringBuilder typed = new StringBuilder();
+    private double mouseDX, mouseDY, scrollX, scrollY;
+    private double lastUpdate = -1;
+
+    public Input(InputQueue queue) {
+        this.queue = queue;
+        for (Action a : ACTIONS) for (int key : a.defaultKeys) bind(key, a);
+    }
+
+    public void bind(int key, Action a) {
+        Action[] cur = bindings[key];
+        if (cur == null) { bindings[key] = new Action[]{a}; return; }
+        for (Action c : cur) if (c == a) return;
+        Action[] next = Arrays.copyOf(cur, cur.length + 1);
+        next[cur.length] = a;
+        bindings[key] = next;
+    }
+
+    public void unbindAll(Action a) {
+        for (int k = 0; k < MAX_KEY; k++) {
+            Action[] cur = bindings[k];
+            if (cur == null) continue;
+            int n = 0;
+            for (Action c : cur) if (c != a) cur[n++] = c;
+            bindings[k] = n == 0 ? null : Arrays.copyOf(cur, n);
+        }
+    }
+
+    /** Drains all queued events; call once per frame after polling the window. */
+    public void update() {
+        double now = glfwGetTime();
+        if (lastUpdate < 0) lastUpdate = now;
+
+        Arrays.fill(held, 0f);
+        Arrays.fill(presses, 0);
+        Arrays.fill(repeats, 0);
+        typed.setLength(0);
+        mouseDX = mouseDY = scrollX = scrollY = 0;
+
+        while (queue.poll(ev)) {
+            switch (ev.type) {
+                case InputQueue.KEY -> onKey(ev.code, ev.action, clampTime(ev.time, now));
+                case InputQueue.CHAR -> typed.appendCodePoint(ev.code);
+                case InputQueue.MOUSE_MOVE -> { mouseDX += ev.x; mouseDY += ev.y; }
+                case InputQueue.SCROLL -> { scrollX += ev.x; scrollY += ev.y; }
+                default -> { }
+            }
+        }
+
+        // whatever is still held counts up to now
+        for (int i = 0; i < ACTIONS.length; i++) {
+            if (downKeys[i] > 0) {
+                held[i] += (float)(now - downSince[i]);
+                downSince[i] = now;
+            }
+        }
+        lastUpdate = now;
+    }
+
+    // ---- queries ----
+    public boolean down(Action a)    { return downKeys[a.ordinal()] > 0; }
+    /** Went down at least once since the last update (however short the press was). */
+    public boolean pressed(Action a) { return presses[a.ordinal()] > 0; }
+    public int presses(Action a)     { return presses[a.ordinal()]; }
+    /** Presses plus OS key repeats, for list navigation and text editing. */
+    public int hits(Action a)        { return presses[a.ordinal()] + repeats[a.ordinal()]; }
+    /** Seconds the action was held during the last update interval. */
+    public float heldTime(Action a)  { return held[a.ordinal()]; }
+
+    /** Text typed since the last update (from the char callback: layout- and repeat-aware). */
+    public CharSequence typed() { return typed; }
+    public double mouseDX() { return mouseDX; }
+    public double mouseDY() { return mouseDY; }
+    public double scrollX() { return scrollX; }
+    public double scrollY() { return scrollY; }
+    public long droppedEvents() { return queue.dropped(); }
+
+    // ---- internals ----
+    private double clampTime(double t, double now) {
+        return t < lastUpdate ? lastUpdate : Math.min(t, now);
+    }
+
+    private void onKey(int key, int action, double t) {
+        if (key < 0 || key >= MAX_KEY) return;
+        Action[] bound = bindings[key];
+
+        if (action == GLFW_REPEAT) {
+            if (bound != null) for (Action a : bound) repeats[a.ordinal()]++;
+            return;
+        }
+        boolean isDown = action == GLFW_PRESS;
+        if (keyDown[key] == isDown) return;   // focus changes can replay states
+        keyDown[key] = isDown;
+        if (bound == null) return;
+
+        for (Action a : bound) {
+            int i = a.ordinal();
+            if (isDown) {
+                if (downKeys[i]++ == 0) downSince[i] = t;
+                presses[i]++;
+            } else {
+                if (--downKeys[i] == 0) held[i] += (float)(t - downSince[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package engine.input;
+
+/**
+ * Lock-free single-producer / single-consumer ring of input events, filled by the GLFW
+ * callbacks and drained once per frame by {@link Input}. Events are stored in parallel
+ * primitive arrays and read back into a caller-owned {@link Event}, so nothing allocates.
+ *
+ * The producer only writes {@code tail}, the consumer only writes {@code head}; both are
+ * volatile, which is all the ordering a single producer and single consumer need. When the
+ * ring is full new events are dropped (and counted) rather than overwriting unread ones.
+ */
+public class InputQueue {
+    public static final int KEY = 1, CHAR = 2, MOUSE_BUTTON = 3, MOUSE_MOVE = 4, SCROLL = 5;
+
+    /** Mutable event record; reuse one instance when draining. */
+    public static final class Event {
+        public int type;
+        public int code;        // GLFW key / mouse button, or the code point for CHAR
+        public int action;      // GLFW_PRESS / GLFW_RELEASE / GLFW_REPEAT
+        public int mods;
+        public double x, y;     // mouse delta or scroll offset
+        public double time;     // glfwGetTime() seconds when the callback fired
+    }
+
+    private final int mask;
+    private final int[] type, code, action, mods;
+    private final double[] x, y, time;
+
+    private volatile long head = 0;   // next slot to read (consumer)
+    private volatile long tail = 0;   // next slot to write (producer)
+    private long dropped = 0;
+
+    public InputQueue(int capacityPow2) {
+        if (Integer.bitCount(capacityPow2) != 1) throw new IllegalArgumentException("capacity must be a power of two");
+        mask = capacityPow2 - 1;
+        type = new int[capacityPow2];
+        code = new int[capacityPow2];
+        action = new int[capacityPow2];
+        mods = new int[capacityPow2];
+        x = new double[capacityPow2];
+        y = new double[capacityPow2];
+        time = new double[capacityPow2];
+    }
+
+    // ---- producer side (GLFW callbacks) ----
+    public boolean push(int type, int code, int action, int mods, double x, double y, double time) {
+        long t = tail;
+        if (t - head > mask) { dropped++; return false; }
+        int i = (int)(t & mask);
+        this.type[i] = type;
+        this.code[i] = code;
+        this.action[i] = action;
+        this.mods[i] = mods;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.time[i] = time;
+        tail = t + 1;   // publish
+        return true;
+    }
+
+    // ---- consumer side ----
+    public boolean poll(Event out) {
+        long h = head;
+        if (h == tail) return false;
+        int i = (int)(h & mask);
+        out.type = type[i];
+        out.code = code[i];
+        out.action = action[i];
+        out.mods = mods[i];
+        out.x = x[i];
+        out.y = y[i];
+        out.time = time[i];
+        head = h + 1;   // release the slot
+        return true;
+    }
+
+    public int size() { return (int)(tail - head); }
+    public long dropped() { return dropped; }
+}
@@ -0,0 +1,20 @@
+package engine.perf;
+
+/**
+ * Per-frame draw-call and state-change tallies, bumped from the few places that issue them
+ * (Mesh.draw, Shader.use, Texture.bind, the renderers' own glDraw* calls), plus the frame
+ * number textures and meshes stamp on use for LRU eviction. GL thread only.
+ */
+public final class GlCounters {
+    private GlCounters() {}
+
+    static int drawCalls, stateChanges;
+    private static long frame;
+
+    public static void draw()  { drawCalls++; }
+    public static void state() { stateChanges++; }
+
+    public static long frame() { return frame; }
+    /** Once per frame, by whoever owns the frame loop (ResourceManager.endFrame). */
+    public static void nextFrame() { frame++; }
+}
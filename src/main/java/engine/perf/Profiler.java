@@ -0,0 +1,204 @@
+package engine.perf;
+
+import com.google.gson.GsonBuilder;
+import org.lwjgl.opengl.GL;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Frame profiler: named CPU sections timed with nanoTime, optional GPU sections timed with
+ * GL_TIME_ELAPSED queries, and per-frame draw/state counters. Every series keeps a rolling
+ * window so the overlay can show p50/p95/p99.
+ *
+ * GPU queries live in a ring of {@link #RING} frames; a slot is only read back when it comes
+ * around again, and only if the driver says the result is available, so we never stall.
+ * TIME_ELAPSED queries cannot nest: a GPU section opened inside another one is CPU-timed only.
+ */
+public class Profiler {
+    public static final int WINDOW = 240;   // ~4 s at 60 Hz
+    public static final int RING   = 4;     // frames in flight for GPU queries
+    public static final float[] PCTS = {50f, 95f, 99f};
+
+    /** Reusable scope object (one per section), so try-with-resources doesn't allocate. */
+    public final class Scope implements AutoCloseable {
+        private final int id;
+        private final boolean gpu;
+        private Scope(int id, boolean gpu) { this.id = id; this.gpu = gpu; }
+        @Override public void close() { end(id, gpu); }
+    }
+
+    private static final class Section {
+        final String name;
+        final RollingStats cpuMs = new RollingStats(WINDOW);
+        final RollingStats gpuMs = new RollingStats(WINDOW);
+        final Scope cpuScope, gpuScope;
+        final int[] queries = new int[RING];          // 0 = not created yet
+        final boolean[] pending = new boolean[RING];
+        long startNs;
+        boolean gpuOpen;
+        Section(Profiler owner, String name, int id) {
+            this.name = name;
+            this.cpuScope = owner.new Scope(id, false);
+            this.gpuScope = owner.new Scope(id, true);
+        }
+    }
+
+    private final List<Section> sections = new ArrayList<>();
+    private final Map<String, Integer> ids = new LinkedHashMap<>();
+    private final boolean gpuTimers;
+
+    private final RollingStats frameMs = new RollingStats(WINDOW);
+    private final RollingStats drawStats = new RollingStats(WINDOW);
+    private final RollingStats stateStats = new RollingStats(WINDOW);
+    private long frameStartNs = 0;
+    private long frameIndex = 0;
+    private int gpuActive = -1;
+    private int lastDrawCalls, lastStateChanges;
+
+    public Profiler(boolean gpuTimers) {
+        var caps = GL.getCapabilities();
+        this.gpuTimers = gpuTimers && (caps.OpenGL33 || caps.GL_ARB_timer_query);
+    }
+
+    /** Registers (or looks up) a section by name. Cheap enough to call once at setup. */
+    public int section(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        int nid = sections.size();
+        sections.add(new Section(this, name, nid));
+        ids.put(name, nid);
+        return nid;
+    }
+
+    public Scope cpu(int id) { begin(id, false); return sections.get(id).cpuScope; }
+    public Scope gpu(int id) { begin(id, true);  return sections.get(id).gpuScope; }
+
+    public void beginFrame() {
+        long now = System.nanoTime();
+        if (frameStartNs != 0) frameMs.add((now - frameStartNs) / 1_000_000f);
+        frameStartNs = now;
+
+        // Harvest the ring slot we're about to reuse (issued RING frames ago)
+        int slot = (int)(frameIndex % RING);
+        if (gpuTimers) {
+            for (Section s : sections) {
+                if (!s.pending[slot]) continue;
+                int q = s.queries[slot];
+                if (glGetQueryObjecti(q, GL_QUERY_RESULT_AVAILABLE) != 0) {
+                    s.gpuMs.add(glGetQueryObjecti64(q, GL_QUERY_RESULT) / 1_000_000f);
+                }
+                s.pending[slot] = false;   // not ready yet? drop it rather than wait
+            }
+        }
+        GlCounters.drawCalls = 0;
+        GlCounters.stateChanges = 0;
+    }
+
+    public void endFrame() {
+        lastDrawCalls = GlCounters.drawCalls;
+        lastStateChanges = GlCounters.stateChanges;
+        drawStats.add(lastDrawCalls);
+        stateStats.add(lastStateChanges);
+        frameIndex++;
+    }
+
+    // ---- readouts ----
+    public RollingStats frameTimes()      { return frameMs; }
+    public RollingStats drawCallStats()   { return drawStats; }
+    public RollingStats stateChangeStats(){ return stateStats; }
+    public int drawCalls()    { return lastDrawCalls; }
+    public int stateChanges() { return lastStateChanges; }
+    public boolean gpuTimers(){ return gpuTimers; }
+    public int sectionCount() { return sections.size(); }
+    public String sectionName(int id)   { return sections.get(id).name; }
+    public RollingStats cpuStats(int id){ return sections.get(id).cpuMs; }
+    public RollingStats gpuStats(int id){ return sections.get(id).gpuMs; }
+
+    /** Writes frame-&lt;timestamp&gt;.csv and .json with percentiles for every series into dir. */
+    public void dump(Path dir) {
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        float[] p = new float[PCTS.length];
+
+        StringBuilder csv = new StringBuilder("series,kind,samples,mean,p50,p95,p99,max\n");
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("timestamp", stamp);
+        json.put("frames", frameIndex);
+        json.put("gpuTimers", gpuTimers);
+        List<Map<String, Object>> series = new ArrayList<>();
+        json.put("series", series);
+
+        addSeries(csv, series, "frame", "ms", frameMs, p);
+        addSeries(csv, series, "drawCalls", "count", drawStats, p);
+        addSeries(csv, series, "stateChanges", "count", stateStats, p);
+        for (Section s : sections) {
+            addSeries(csv, series, s.name, "cpu_ms", s.cpuMs, p);
+            if (s.gpuMs.count() > 0) addSeries(csv, series, s.name, "gpu_ms", s.gpuMs, p);
+        }
+
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve("frame-" + stamp + ".csv"), csv, StandardCharsets.UTF_8);
+            Files.writeString(dir.resolve("frame-" + stamp + ".json"),
+                    new GsonBuilder().setPrettyPrinting().create().toJson(json), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Could not write profile dump: " + e);
+        }
+    }
+
+    public void delete() {
+        for (Section s : sections)
+            for (int q : s.queries) if (q != 0) glDeleteQueries(q);
+    }
+
+    // ---- internals ----
+    private void begin(int id, boolean gpu) {
+        Section s = sections.get(id);
+        s.startNs = System.nanoTime();
+        s.gpuOpen = false;
+        if (gpu && gpuTimers && gpuActive < 0) {
+            int slot = (int)(frameIndex % RING);
+            if (s.queries[slot] == 0) s.queries[slot] = glGenQueries();
+            if (!s.pending[slot]) {            // one sample per section per frame
+                glBeginQuery(GL_TIME_ELAPSED, s.queries[slot]);
+                s.gpuOpen = true;
+                gpuActive = id;
+            }
+        }
+    }
+
+    private void end(int id, boolean gpu) {
+        Section s = sections.get(id);
+        s.cpuMs.add((System.nanoTime() - s.startNs) / 1_000_000f);
+        if (gpu && s.gpuOpen) {
+            glEndQuery(GL_TIME_ELAPSED);
+            s.pending[(int)(frameIndex % RING)] = true;
+            s.gpuOpen = false;
+            gpuActive = -1;
+        }
+    }
+
+    private static void addSeries(StringBuilder csv, List<Map<String, Object>> out,
+                                  String name, String kind, RollingStats st, float[] p) {
+        st.percentiles(PCTS, p);
+        csv.append(name).append(',').append(kind).append(',').append(st.count()).append(',')
+           .append(st.mean()).append(',').append(p[0]).append(',').append(p[1]).append(',')
+           .append(p[2]).append(',').append(st.max()).append('\n');
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name); m.put("kind", kind); m.put("samples", st.count());
+        m.put("mean", st.mean()); m.put("p50", p[0]); m.put("p95", p[1]); m.put("p99", p[2]);
+        m.put("max", st.max());
+        out.add(m);
+    }
+}
@@ -0,0 +1,56 @@
+package engine.perf;
+
+import java.util.Arrays;
+
+/** Fixed window of float samples with mean/max and percentiles; allocation-free after construction. */
+public class RollingStats {
+    private final float[] samples;
+    private final float[] scratch;
+    private int next = 0, count = 0;
+
+    public RollingStats(int window) {
+        samples = new float[window];
+        scratch = new float[window];
+    }
+
+    public void add(float v) {
+        samples[next] = v;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    public int count() { return count; }
+    public int capacity() { return samples.length; }
+
+    public float last() { return count == 0 ? 0f : samples[(next - 1 + samples.length) % samples.length]; }
+
+    /** i-th oldest sample still in the window (0 = oldest). */
+    public float get(int i) {
+        int start = (count < samples.length) ? 0 : next;
+        return samples[(start + i) % samples.length];
+    }
+
+    public float mean() {
+        if (count == 0) return 0f;
+        double s = 0; for (int i = 0; i < count; i++) s += samples[i];
+        return (float)(s / count);
+    }
+
+    public float max() {
+        float m = 0f; for (int i = 0; i < count; i++) m = Math.max(m, samples[i]);
+        return m;
+    }
+
+    /** Nearest-rank percentiles, written to out[i] for each p in ps (0..100). One sort. */
+    public void percentiles(float[] ps, float[] out) {
+        if (count == 0) { Arrays.fill(out, 0f); return; }
+        System.arraycopy(samples, 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+        for (int i = 0; i < ps.length; i++) {
+            int rank = (int)Math.ceil(ps[i] / 100.0 * count) - 1;
+            out[i] = scratch[Math.max(0, Math.min(count - 1, rank))];
+        }
+    }
+
+    public void clear() { next = count = 0; }
+}
@@ -0,0 +1,234 @@
+package engine.res;
+
+import engine.gl.Shader;
+import engine.gl.Texture;
+import engine.perf.GlCounters;
+import engine.scene.Mesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Owns the GL resources that are loaded by name: textures, meshes and shaders. Asking for a
+ * name that's already loaded hands out another reference to the same object instead of
+ * decoding/uploading it again. Each {@link Handle} is one reference; when the last one is
+ * released (from any thread) the resource is queued and deleted by {@link #endFrame} on the
+ * GL thread.
+ *
+ * Textures and meshes also count against {@link #budgetBytes}. Over budget, endFrame evicts
+ * the least recently used ones that weren't drawn this frame: their GPU storage is freed
+ * and they rebuild themselves on the next bind/draw (see {@link Texture#evict},
+ * {@link Mesh#evict}), so holders keep plain references. Byte counts are estimates from
+ * sizes and formats; drivers add their own padding.
+ *
+ * Loading, endFrame and delete are GL thread only.
+ */
+public final class ResourceManager {
+    public enum Kind { TEXTURE, MESH, SHADER }
+
+    /** One reference to a managed resource; release it once (close() does the same). */
+    public final class Handle<T> implements AutoCloseable {
+        private final Entry entry;
+        private boolean released;
+
+        private Handle(Entry entry) { this.entry = entry; }
+
+        @SuppressWarnings("unchecked")
+        public T get() {
+            if (released) throw new IllegalStateException("Resource handle used after release: " + entry.key);
+            return (T) entry.res;
+        }
+
+        public void release() {
+            synchronized (ResourceManager.this) {
+                if (released) return;
+                released = true;
+                if (--entry.refs == 0) dead.add(entry);
+            }
+        }
+
+        @Override public void close() { release(); }
+    }
+
+    private static final class Entry {
+        final Kind kind;
+        final String key;
+        final Object res;
+        int refs;
+        Entry(Kind kind, String key, Object res) { this.kind = kind; this.key = key; this.res = res; }
+    }
+
+    /** Textures + meshes resident beyond this get evicted, least recently used first. */
+    public long budgetBytes;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ConcurrentLinkedQueue<Entry> dead = new ConcurrentLinkedQueue<>();
+    private final List<Entry> lru = new ArrayList<>();   // scratch for eviction
+
+    // per-Kind readouts, refreshed by endFrame
+    private final int[] count = new int[Kind.values().length];
+    private final int[] evicted = new int[Kind.values().length];
+    private final long[] residentBytes = new long[Kind.values().length];
+    private long evictions;
+
+    public ResourceManager(long budgetBytes) { this.budgetBytes = budgetBytes; }
+
+    // ---- acquiring ----
+    /** Texture decoded from a resource file, shared by path. */
+    public Handle<Texture> texture(String path) {
+        return acquire(Kind.TEXTURE, path, () -> Texture.load(path));
+    }
+
+    /**
+     * Texture under {@code key}, built by {@code create} if it isn't loaded yet. A null
+     * result (e.g. a missing optional texture) is returned as a null handle.
+     */
+    public Handle<Texture> texture(String key, Supplier<Texture> create) {
+        return acquire(Kind.TEXTURE, key, create);
+    }
+
+    /** Mesh under {@code key}; give it a {@link Mesh#setSource} to make it evictable. */
+    public Handle<Mesh> mesh(String key, Supplier<Mesh> create) {
+        return acquire(Kind.MESH, key, create);
+    }
+
+    /** Shader program from two resource files, shared by the pair (hot reload still applies). */
+    public Handle<Shader> shader(String vertPath, String fragPath) {
+        return acquire(Kind.SHADER, vertPath + "|" + fragPath, () -> Shader.load(vertPath, fragPath));
+    }
+
+    private synchronized <T> Handle<T> acquire(Kind kind, String key, Supplier<? extends T> create) {
+        String k = kind.name() + ':' + key;
+        Entry e = entries.get(k);
+        if (e == null) {
+            T res = create.get();   // throws through; nothing is registered
+            if (res == null) return null;
+            e = new Entry(kind, key, res);
+            entries.put(k, e);
+        }
+        e.refs++;   // may revive an entry that's queued in dead; endFrame checks refs again
+        return new Handle<>(e);
+    }
+
+    // ---- per frame ----
+    /**
+     * Deletes resources whose last handle went away, evicts down to the budget and advances
+     * the frame counter resources stamp on use. Call once per frame, after the last draw.
+     */
+    public synchronized void endFrame() {
+        Entry e;
+        while ((e = dead.poll()) != null) {
+            if (e.refs > 0 || entries.get(e.kind.name() + ':' + e.key) != e) continue;
+            entries.remove(e.kind.name() + ':' + e.key);
+            destroy(e);
+        }
+
+        long resident = tally();
+        if (resident > budgetBytes) evict(resident - budgetBytes);
+        GlCounters.nextFrame();
+    }
+
+    private long tally() {
+        Arrays.fill(count, 0);
+        Arrays.fill(evicted, 0);
+        Arrays.fill(residentBytes, 0);
+        for (Entry e : entries.values()) {
+            int k = e.kind.ordinal();
+            count[k]++;
+            long bytes = bytes(e);
+            residentBytes[k] += bytes;
+            if (bytes == 0 && e.kind != Kind.SHADER) evicted[k]++;
+        }
+        return residentBytes[Kind.TEXTURE.ordinal()] + residentBytes[Kind.MESH.ordinal()];
+    }
+
+    private void evict(long excess) {
+        long now = GlCounters.frame();
+        lru.clear();
+        for (Entry e : entries.values()) {
+            // anything drawn this frame would come straight back next frame
+            if (evictable(e) && lastUse(e) < now) lru.add(e);
+        }
+        lru.sort((a, b) -> Long.compare(lastUse(a), lastUse(b)));
+        for (int i = 0; i < lru.size() && excess > 0; i++) {
+            Entry e = lru.get(i);
+            long freed = e.res instanceof Texture t ? t.evict() : ((Mesh) e.res).evict();
+            if (freed == 0) continue;
+            excess -= freed;
+            residentBytes[e.kind.ordinal()] -= freed;
+            evicted[e.kind.ordinal()]++;
+            evictions++;
+        }
+        lru.clear();
+    }
+
+    // ---- readouts ----
+    public int count(Kind kind)          { return count[kind.ordinal()]; }
+    public int evicted(Kind kind)        { return evicted[kind.ordinal()]; }
+    public long residentBytes(Kind kind) { return residentBytes[kind.ordinal()]; }
+    public long residentBytes()          { return residentBytes[Kind.TEXTURE.ordinal()] + residentBytes[Kind.MESH.ordinal()]; }
+    public long evictions()              { return evictions; }
+
+    /** One line per resource (kind, refs, resident bytes, last use), then the totals. */
+    public synchronized String dump() {
+        StringBuilder sb = new StringBuilder();
+        long[] total = new long[Kind.values().length];
+        for (Entry e : entries.values()) {
+            long bytes = bytes(e);
+            total[e.kind.ordinal()] += bytes;
+            sb.append(e.kind).append(' ').append(e.key).append("  refs ").append(e.refs)
+              .append("  ").append(bytes).append(" B");
+            if (e.kind != Kind.SHADER) sb.append("  used frame ").append(lastUse(e));
+            sb.append('\n');
+        }
+        for (Kind k : Kind.values()) sb.append(k).append(" total ").append(total[k.ordinal()]).append(" B\n");
+        return sb.toString();
+    }
+
+    /**
+     * Deletes everything that's left. Entries still holding references at this point are
+     * leaks; they're reported on stderr (then deleted anyway).
+     */
+    public synchronized void delete() {
+        dead.clear();
+        for (Entry e : entries.values()) {
+            if (e.refs > 0) System.err.println("Resource leak: " + e.kind + " " + e.key + " (" + e.refs + " refs)");
+            destroy(e);
+        }
+        entries.clear();
+    }
+
+    // ---- helpers ----
+    private static void destroy(Entry e) {
+        switch (e.kind) {
+            case TEXTURE -> ((Texture) e.res).delete();
+            case MESH    -> ((Mesh) e.res).delete();
+            case SHADER  -> ((Shader) e.res).delete();
+        }
+    }
+
+    private static long bytes(Entry e) {
+        return switch (e.kind) {
+            case TEXTURE -> ((Texture) e.res).gpuBytes();
+            case MESH    -> ((Mesh) e.res).gpuBytes();
+            case SHADER  -> 0;
+        };
+    }
+
+    private static boolean evictable(Entry e) {
+        return switch (e.kind) {
+            case TEXTURE -> ((Texture) e.res).evictable() && ((Texture) e.res).resident();
+            case MESH    -> ((Mesh) e.res).evictable() && ((Mesh) e.res).resident();
+            case SHADER  -> false;
+        };
+    }
+
+    private static long lastUse(Entry e) {
+        return e.res instanceof Texture t ? t.lastUse() : e.res instanceof Mesh m ? m.lastUse() : 0;
+    }
+}
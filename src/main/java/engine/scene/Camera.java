@@ -2,27 +2,34 @@ package engine.scene;
 
 import static java.lang.Math.*;
 
+/**
+ * World position is double so planet-scale scenes don't jitter. Rendering is camera-relative:
+ * {@link #viewMatrix} has no translation, and everything drawn is positioned at its world
+ * position minus the eye, taken in double before narrowing to float (see Planet#relativeTo).
+ */
 public class Camera {
     public float orbitUpY = 1f;
     public float fovDeg = 60f, near = 0.1f, far = 1000f;
-    public float x = 0, y = 0, z = 3;
+    /** Reversed-Z infinite projection (engine.gl.Depth must be reversed too); far is unused. */
+    public boolean reversedZ = false;
+    public double x = 0, y = 0, z = 3;
     public float yawDeg = -90f, pitchDeg = 0f;   // we won't change pitch via mouse anymore
     public float moveSpeed = 5f;
     public float mouseSensitivity = 0.1f;
 
     // follow/lock-on mode: if true, view always looks at (targetX,Y,Z)
     public boolean followTarget = false;
-    public float targetX = 0f, targetY = 0f, targetZ = 0f;
+    public double targetX = 0, targetY = 0, targetZ = 0;
 
-    public void setTarget(float cx, float cy, float cz) {
+    public void setTarget(double cx, double cy, double cz) {
         this.targetX = cx; this.targetY = cy; this.targetZ = cz;
     }
 
-    // returns column-major 4x4 as float[16]
+    // returns column-major 4x4 as float[16]; camera-relative, so the eye is the origin
     public float[] viewMatrix() {
         if (followTarget) {
-            float upY = (y >= targetY) ? 1f : -1f;
-            return lookAtStable(x, y, z, targetX, targetY, targetZ, 0f, orbitUpY, 0f);
+            return lookAtStable(0f, 0f, 0f, (float)(targetX - x), (float)(targetY - y), (float)(targetZ - z),
+                    0f, orbitUpY, 0f);
         }
 
         // compute forward from yaw/pitch (pitch is static unless you change it elsewhere)
@@ -49,19 +56,13 @@ public class Camera {
         float ul = (float) sqrt(uX * uX + uY * uY + uZ * uZ);
         uX /= ul; uY /= ul; uZ /= ul;
 
-        // view matrix (lookAt) columns
+        // view matrix (lookAt) columns; no translation, positions arrive eye-relative
         float[] m = new float[16];
         m[0] = rX;  m[4] = uX;  m[8]  = -fx; m[12] = 0;
         m[1] = rY;  m[5] = uY;  m[9]  = -fy; m[13] = 0;
         m[2] = rZ;  m[6] = uZ;  m[10] = -fz; m[14] = 0;
         m[3] = 0;   m[7] = 0;   m[11] = 0;   m[15] = 1;
 
-        // translate by -pos
-        float tx = -(rX * x + rY * y + rZ * z);
-        float ty = -(uX * x + uY * y + uZ * z);
-        float tz = -(-fx * x + -fy * y + -fz * z);
-        m[12] = tx; m[13] = ty; m[14] = tz;
-
         return m;
     }
 
@@ -73,15 +74,21 @@ public class Camera {
         float[] m = new float[16];
         m[0] = f / aspect;
         m[5] = f;
-        m[10] = (far + near) * nf;
         m[11] = -1f;
-        m[14] = (2f * far * near) * nf;
         m[15] = 0f;
+        if (reversedZ) {
+            // [0,1] clip depth: near maps to 1, infinity to 0
+            m[10] = 0f;
+            m[14] = near;
+        } else {
+            m[10] = (far + near) * nf;
+            m[14] = (2f * far * near) * nf;
+        }
 
         return m;
     }
 
-    private static float[] lookAtStable(float eyeX,float eyeY,float eyeZ,
+    static float[] lookAtStable(float eyeX,float eyeY,float eyeZ,
                                         float cx,float cy,float cz,
                                         float upX,float upY,float upZ) {
         // f = (center - eye)
@@ -0,0 +1,122 @@
+package engine.scene;
+
+/**
+ * View frustum built from proj * view, with the bounding-sphere tests the renderer
+ * needs for culling: plane rejection, projected size in pixels, "sphere fills the
+ * whole view" and sphere-behind-sphere (horizon) occlusion.
+ */
+public class Frustum {
+    // 6 planes (a,b,c,d), normalized; a point is inside when a*x+b*y+c*z+d >= 0
+    private final float[] planes = new float[24];
+    private final boolean[] planeValid = new boolean[6];
+
+    // eye + basis, used for corner rays
+    private float ex, ey, ez;
+    private float rx, ry, rz, ux, uy, uz, fx, fy, fz;
+    private float tanX = 1f, tanY = 1f;
+    private float pixelsPerUnit = 1f;   // (height/2) * proj[5]: screen px per unit at distance 1
+
+    public void update(float[] proj, float[] view, float camX, float camY, float camZ, int viewportHeight) {
+        float[] m = mul(proj, view);
+
+        // Gribb/Hartmann: row i of column-major m is (m[i], m[4+i], m[8+i], m[12+i])
+        setPlane(0, m[3] + m[0], m[7] + m[4], m[11] + m[8],  m[15] + m[12]); // left
+        setPlane(1, m[3] - m[0], m[7] - m[4], m[11] - m[8],  m[15] - m[12]); // right
+        setPlane(2, m[3] + m[1], m[7] + m[5], m[11] + m[9],  m[15] + m[13]); // bottom
+        setPlane(3, m[3] - m[1], m[7] - m[5], m[11] - m[9],  m[15] - m[13]); // top
+        setPlane(4, m[3] + m[2], m[7] + m[6], m[11] + m[10], m[15] + m[14]); // near
+        setPlane(5, m[3] - m[2], m[7] - m[6], m[11] - m[10], m[15] - m[14]); // far (degenerate when infinite)
+
+        ex = camX; ey = camY; ez = camZ;
+        rx = view[0]; ry = view[4]; rz = view[8];
+        ux = view[1]; uy = view[5]; uz = view[9];
+        fx = -view[2]; fy = -view[6]; fz = -view[10];
+
+        tanX = 1f / proj[0];
+        tanY = 1f / proj[5];
+        pixelsPerUnit = 0.5f * Math.max(1, viewportHeight) * proj[5];
+    }
+
+    /** False only when the sphere is entirely outside at least one plane. */
+    public boolean sphereVisible(float x, float y, float z, float r) {
+        for (int i = 0; i < 6; i++) {
+            if (!planeValid[i]) continue;
+            int o = i * 4;
+            if (planes[o] * x + planes[o + 1] * y + planes[o + 2] * z + planes[o + 3] < -r) return false;
+        }
+        return true;
+    }
+
+    /** Screen-space radius of the sphere's silhouette; +inf when the eye is inside it. */
+    public float projectedRadiusPx(float x, float y, float z, float r) {
+        float dx = x - ex, dy = y - ey, dz = z - ez;
+        float d2 = dx*dx + dy*dy + dz*dz;
+        float t2 = d2 - r*r;                        // squared tangent length
+        if (t2 <= 1e-12f) return Float.POSITIVE_INFINITY;
+        return pixelsPerUnit * r / (float)Math.sqrt(t2);
+    }
+
+    public boolean eyeInside(float x, float y, float z, float r) {
+        float dx = ex - x, dy = ey - y, dz = ez - z;
+        return dx*dx + dy*dy + dz*dz < r*r;
+    }
+
+    /**
+     * True when every view ray hits the sphere (and the eye is outside it), i.e. the sphere
+     * covers the whole screen. Directions that hit a sphere form a convex cone, so testing
+     * the four corner rays is enough.
+     */
+    public boolean sphereCoversView(float x, float y, float z, float r) {
+        if (eyeInside(x, y, z, r)) return false;
+        return cornerHits(x, y, z, r, -1, -1) && cornerHits(x, y, z, r, 1, -1)
+            && cornerHits(x, y, z, r, 1, 1)   && cornerHits(x, y, z, r, -1, 1);
+    }
+
+    /**
+     * Horizon test: target sphere B is hidden behind occluder A when B's cone lies inside
+     * A's cone and every point of B is farther than A's silhouette (tangent) distance.
+     */
+    public boolean sphereOccludedBy(float bx, float by, float bz, float br,
+                                    float ax, float ay, float az, float ar) {
+        float adx = ax - ex, ady = ay - ey, adz = az - ez;
+        float bdx = bx - ex, bdy = by - ey, bdz = bz - ez;
+        float dA = (float)Math.sqrt(adx*adx + ady*ady + adz*adz);
+        float dB = (float)Math.sqrt(bdx*bdx + bdy*bdy + bdz*bdz);
+        if (dA <= ar || dB <= br) return false;
+
+        float tangentA = (float)Math.sqrt(dA*dA - ar*ar);
+        if (dB - br < tangentA) return false;
+
+        double alphaA = Math.asin(ar / dA);
+        double alphaB = Math.asin(br / dB);
+        double cosT = (adx*bdx + ady*bdy + adz*bdz) / (dA * dB);
+        double theta = Math.acos(Math.max(-1.0, Math.min(1.0, cosT)));
+        return theta + alphaB <= alphaA;
+    }
+
+    // ---- internals ----
+    private boolean cornerHits(float cx, float cy, float cz, float r, float sx, float sy) {
+        float dx = fx + sx*tanX*rx + sy*tanY*ux;
+        float dy = fy + sx*tanX*ry + sy*tanY*uy;
+        float dz = fz + sx*tanX*rz + sy*tanY*uz;
+        float ox = ex - cx, oy = ey - cy, oz = ez - cz;
+        float a = dx*dx + dy*dy + dz*dz;
+        float b = ox*dx + oy*dy + oz*dz;
+        float c = ox*ox + oy*oy + oz*oz - r*r;
+        return b < 0f && b*b - a*c >= 0f;
+    }
+
+    private void setPlane(int i, float a, float b, float c, float d) {
+        float len = (float)Math.sqrt(a*a + b*b + c*c);
+        int o = i * 4;
+        planeValid[i] = len > 1e-6f;
+        if (!planeValid[i]) return;
+        planes[o] = a / len; planes[o + 1] = b / len; planes[o + 2] = c / len; planes[o + 3] = d / len;
+    }
+
+    private static float[] mul(float[] a,float[] b){ float[] r=new float[16];
+        for (int c=0;c<4;c++) for (int r0=0;r0<4;r0++)
+            r[c*4+r0]=a[0*4+r0]*b[c*4+0]+a[1*4+r0]*b[c*4+1]+a[2*4+r0]*b[c*4+2]+a[3*4+r0]*b[c*4+3];
+        return r;
+    }
+}
@@ -1,9 +1,12 @@
 package engine.scene;
 
+import engine.perf.GlCounters;
 import org.lwjgl.opengl.GL30;
 
+import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.function.Supplier;
 
 import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
@@ -12,9 +15,13 @@ import static org.lwjgl.system.MemoryUtil.*;
 
 public class Mesh {
     private final int vao, vbo, ebo, vertexCount;
+    private long gpuBytes;            // vertex + index storage; 0 while evicted
+    private long lastUse;             // GlCounters.frame() of the last draw
+    private Supplier<Data> source;    // rebuilds evicted buffers; null = not evictable
 
     public Mesh(float[] interleavedPosNormal, int[] indices) {
         vertexCount = indices.length;
+        gpuBytes = (long) (interleavedPosNormal.length + indices.length) * 4;
         vao = glGenVertexArrays();
         vbo = glGenBuffers();
         ebo = glGenBuffers();
@@ -45,8 +52,11 @@ public class Mesh {
     }
 
     public void draw() {
+        if (gpuBytes == 0 && source != null) restore();
+        lastUse = GlCounters.frame();
         glBindVertexArray(vao);
         glDrawElements(GL_TRIANGLES, vertexCount, GL_UNSIGNED_INT, 0L);
+        GlCounters.draw();
         glBindVertexArray(0);
     }
 
@@ -54,6 +64,50 @@ public class Mesh {
         glDeleteBuffers(vbo);
         glDeleteBuffers(ebo);
         glDeleteVertexArrays(vao);
+        gpuBytes = 0;
+    }
+
+    public long gpuBytes() { return gpuBytes; }
+    public long lastUse() { return lastUse; }
+    public boolean resident() { return gpuBytes != 0; }
+    public boolean evictable() { return source != null; }
+
+    /**
+     * Where the geometry can be rebuilt from, which makes the mesh evictable: {@link #evict}
+     * drops the buffer storage (the VAO and buffer names stay, so holders don't notice) and
+     * the next {@link #draw} rebuilds and re-uploads it.
+     */
+    public void setSource(Supplier<Data> source) { this.source = source; }
+
+    /** Returns the bytes freed. */
+    public long evict() {
+        if (source == null || gpuBytes == 0) return 0;
+        long freed = gpuBytes;
+        glBindVertexArray(vao);   // the element binding is VAO state; ours already points at ebo
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, 0L, GL_STATIC_DRAW);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, 0L, GL_STATIC_DRAW);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        gpuBytes = 0;
+        return freed;
+    }
+
+    private void restore() {
+        Data d = source.get();
+        FloatBuffer vb = memAllocFloat(d.vertices.length);
+        IntBuffer ib = memAllocInt(d.indices.length);
+        vb.put(d.vertices).flip();
+        ib.put(d.indices).flip();
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vb, GL_STATIC_DRAW);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        memFree(vb);
+        memFree(ib);
+        gpuBytes = (long) (d.vertices.length + d.indices.length) * 4;
     }
 
     // A unit cube with normals
@@ -83,6 +137,7 @@ public class Mesh {
     }
     public Mesh(float[] interleaved, int[] indices, int strideFloats) {
         vertexCount = indices.length;
+        gpuBytes = (long) (interleaved.length + indices.length) * 4;
         vao = glGenVertexArrays();
         vbo = glGenBuffers();
         ebo = glGenBuffers();
@@ -103,6 +158,31 @@ public class Mesh {
         glBufferData(GL_ELEMENT_ARRAY_BUFFER, ib, GL_STATIC_DRAW);
         memFree(ib);
 
+        vertexAttribs(strideFloats);
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Uploads ready-made little-endian vertex/index bytes (e.g. slices of a memory-mapped
+     * {@link ScenePack}) without copying them into Java arrays first.
+     */
+    public Mesh(ByteBuffer vertices, ByteBuffer indices, int indexCount, int strideFloats) {
+        vertexCount = indexCount;
+        gpuBytes = vertices.remaining() + (long) indices.remaining();
+        vao = glGenVertexArrays();
+        vbo = glGenBuffers();
+        ebo = glGenBuffers();
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        vertexAttribs(strideFloats);
+        glBindVertexArray(0);
+    }
+
+    private static void vertexAttribs(int strideFloats) {
         int strideBytes = strideFloats * Float.BYTES;
 
         // layout(location=0) position
@@ -118,12 +198,26 @@ public class Mesh {
             glVertexAttribPointer(2, 2, GL_FLOAT, false, strideBytes, (long)(6 * Float.BYTES));
             glEnableVertexAttribArray(2);
         }
+    }
 
-        glBindVertexArray(0);
+    /** CPU-side geometry (interleaved vertices + indices), before it's uploaded. */
+    public static final class Data {
+        public final float[] vertices;
+        public final int[] indices;
+        public final int strideFloats;
+        public Data(float[] vertices, int[] indices, int strideFloats) {
+            this.vertices = vertices; this.indices = indices; this.strideFloats = strideFloats;
+        }
     }
 
     // NEW: UV sphere with interleaved P(3), N(3), UV(2)
     public static Mesh uvSphere(int stacks, int slices, float radius) {
+        Data d = uvSphereData(stacks, slices, radius);
+        return new Mesh(d.vertices, d.indices, d.strideFloats);
+    }
+
+    /** Builds the uv-sphere arrays only; no GL calls, so it can run on any thread. */
+    public static Data uvSphereData(int stacks, int slices, float radius) {
         stacks = Math.max(2, stacks);
         slices = Math.max(3, slices);
 
@@ -176,6 +270,6 @@ public class Mesh {
             }
         }
 
-        return new Mesh(v, idx, 8);
+        return new Data(v, idx, 8);
     }
 }
@@ -3,20 +3,23 @@ package engine.scene;
 import engine.gl.Texture;
 
 public class Planet {
-    public final float cx, cy, cz;
+    public double x, y, z;                // world center; moved each frame by the orbital sim
+    public float cx, cy, cz;              // center relative to the eye this frame (render space)
     public final float baseRadius;
     public final float uniformScale;      // = max(SX,SY,SZ)
     public final float spinDegPerSec;
     public final int spinSignFree, spinSignOrbit;
     public final Mesh mesh;
     public final Texture albedo; // nullable
+    public boolean allowImpostor = true; // far away -> cached billboard (see ImpostorRenderer)
 
-    public Planet(float cx,float cy,float cz,
+    public Planet(double x,double y,double z,
                   float baseRadius,float uniformScale,
                   float spinDegPerSec,int spinFree,int spinOrbit,
                   Mesh mesh, Texture albedo) {
 
-        this.cx=cx; this.cy=cy; this.cz=cz;
+        this.x=x; this.y=y; this.z=z;
+        relativeTo(0, 0, 0);
         this.baseRadius=baseRadius;
         this.uniformScale=uniformScale;
         this.spinDegPerSec=spinDegPerSec;
@@ -26,5 +29,12 @@ public class Planet {
         this.albedo=albedo;
     }
 
+    public void setCenter(double x, double y, double z){ this.x=x; this.y=y; this.z=z; }
+
+    /** Render-space center for an eye at (ex, ey, ez); subtracted in double, then narrowed. */
+    public void relativeTo(double ex, double ey, double ez){
+        cx=(float)(x-ex); cy=(float)(y-ey); cz=(float)(z-ez);
+    }
+
     public float worldRadius(){ return baseRadius * uniformScale; }
 }
@@ -0,0 +1,243 @@
+package engine.scene;
+
+import engine.config.PlanetConfig;
+import engine.config.PlanetConfigReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary scene pack: the config, prebuilt meshes and pre-decoded textures in one file,
+ * memory-mapped on load so vertex/index/pixel data go to glBufferData/glTexImage2D straight
+ * from the mapping (no parsing, no decoding, no Java-side copy).
+ *
+ * The whole file is one mapping, so a pack is limited to 2 GB.
+ *
+ * Layout (little-endian):
+ *   header   magic "PRPK", version, entry count, reserved                 16 bytes
+ *   entries  type, 4 type-specific ints, offset (long), length (long),
+ *            name (UTF-8, zero-padded)                                    ENTRY_SIZE each
+ *   blobs    each starting on a BLOB_ALIGN boundary
+ *
+ * Entry params: CONFIG none (blob is the planet.json text); MESH strideFloats, vertex floats,
+ * index count, stacks << 16 | slices (blob is the vertices, then the indices at the next
+ * aligned offset); TEXTURE width, height, channels (blob is rows bottom-up, as GL wants).
+ */
+public final class ScenePack implements AutoCloseable {
+    public static final int MAGIC = 0x4B505250;   // "PRPK"
+    public static final int VERSION = 1;
+    public static final int TYPE_CONFIG = 1, TYPE_MESH = 2, TYPE_TEXTURE = 3;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 128;
+    private static final int NAME_BYTES = ENTRY_SIZE - 4 - 16 - 8 - 8;
+    private static final int BLOB_ALIGN = 64;
+
+    /** One table entry; {@code p} holds the type-specific ints. */
+    public static final class Entry {
+        public final int type;
+        public final int[] p;
+        public final long offset, length;
+        public final String name;
+        Entry(int type, int[] p, long offset, long length, String name) {
+            this.type = type; this.p = p; this.offset = offset; this.length = length; this.name = name;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final List<Entry> entries = new ArrayList<>();
+
+    private ScenePack(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+    }
+
+    /** Maps a pack file read-only and reads its table; the blobs are only touched on use. */
+    public static ScenePack open(Path file) throws IOException {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN)
+            throw new IOException("Scene packs hold little-endian data for GL; this platform is big-endian");
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            ScenePack pack = new ScenePack(ch, map);
+            pack.readTable(file);
+            return pack;
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    private void readTable(Path file) {
+        if (map.capacity() < HEADER_SIZE || map.getInt(0) != MAGIC)
+            throw new RuntimeException("Not a scene pack: " + file);
+        if (map.getInt(4) != VERSION)
+            throw new RuntimeException("Scene pack version " + map.getInt(4) + " not supported (want " + VERSION + "): " + file);
+        int count = map.getInt(8);
+        if (count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > map.capacity())
+            throw new RuntimeException("Scene pack table truncated: " + file);
+
+        byte[] nameBytes = new byte[NAME_BYTES];
+        for (int i = 0; i < count; i++) {
+            int at = HEADER_SIZE + i * ENTRY_SIZE;
+            int type = map.getInt(at);
+            int[] p = { map.getInt(at + 4), map.getInt(at + 8), map.getInt(at + 12), map.getInt(at + 16) };
+            long off = map.getLong(at + 20), len = map.getLong(at + 28);
+            if (off < 0 || len < 0 || off + len > map.capacity() || !fits(type, p, off, len))
+                throw new RuntimeException("Scene pack entry " + i + " out of bounds: " + file);
+            map.get(at + 36, nameBytes);
+            int n = 0;
+            while (n < NAME_BYTES && nameBytes[n] != 0) n++;
+            entries.add(new Entry(type, p, off, len, new String(nameBytes, 0, n, StandardCharsets.UTF_8)));
+        }
+    }
+
+    // what meshVertices / meshIndices / Texture.fromPixels will slice has to lie inside the blob
+    private static boolean fits(int type, int[] p, long off, long len) {
+        if (type == TYPE_MESH) {
+            if (p[1] < 0 || p[2] < 0) return false;
+            long indices = align(off + (long) p[1] * Float.BYTES);
+            return indices - off + (long) p[2] * Integer.BYTES <= len;
+        }
+        if (type == TYPE_TEXTURE) {
+            if (p[0] <= 0 || p[1] <= 0 || p[2] < 1 || p[2] > 4) return false;
+            return (long) p[0] * p[1] * p[2] <= len;
+        }
+        return true;
+    }
+
+    public List<Entry> entries() { return entries; }
+
+    /** First entry of that type and name, or null. */
+    public Entry find(int type, String name) {
+        for (Entry e : entries) if (e.type == type && e.name.equals(name)) return e;
+        return null;
+    }
+
+    /** Read-only view of an entry's bytes, backed by the mapping. */
+    public ByteBuffer blob(Entry e) {
+        return map.slice((int) e.offset, (int) e.length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public PlanetConfig config(List<String> warnings) {
+        Entry e = find(TYPE_CONFIG, "planet.json");
+        if (e == null) throw new RuntimeException("Scene pack has no planet.json");
+        return PlanetConfigReader.read(new StringReader(StandardCharsets.UTF_8.decode(blob(e)).toString()), warnings);
+    }
+
+    /** Vertices of a MESH entry (strideFloats in {@code e.p[0]}). */
+    public ByteBuffer meshVertices(Entry e) {
+        return map.slice((int) e.offset, e.p[1] * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Indices of a MESH entry ({@code e.p[2]} of them). */
+    public ByteBuffer meshIndices(Entry e) {
+        long at = align(e.offset + (long) e.p[1] * Float.BYTES);
+        return map.slice((int) at, e.p[2] * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** Name of the uv-sphere mesh entry for these parameters. */
+    public static String sphereName(int stacks, int slices, float radius) {
+        return "uvSphere/" + stacks + "x" + slices + "/" + Float.floatToIntBits(radius);
+    }
+
+    @Override
+    public void close() throws IOException { channel.close(); }   // the mapping lives until GC
+
+    // ---- writing ----
+    /** Collects entries in memory and writes the pack in one go. */
+    public static final class Writer {
+        private final List<int[]> params = new ArrayList<>();
+        private final List<Integer> types = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<ByteBuffer[]> blobs = new ArrayList<>();
+
+        public Writer config(String json) {
+            return add(TYPE_CONFIG, new int[4], "planet.json", ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        public Writer mesh(String name, Mesh.Data d, int stacks, int slices) {
+            ByteBuffer v = ByteBuffer.allocate(d.vertices.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            v.asFloatBuffer().put(d.vertices);
+            ByteBuffer i = ByteBuffer.allocate(d.indices.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            i.asIntBuffer().put(d.indices);
+            return add(TYPE_MESH, new int[]{d.strideFloats, d.vertices.length, d.indices.length, stacks << 16 | slices}, name, v, i);
+        }
+
+        /**
+         * Pixels as Texture.decode returns them (flipped for GL, tightly packed rows); the
+         * buffer must stay valid until {@link #write}.
+         */
+        public Writer texture(String name, int width, int height, int channels, ByteBuffer pixels) {
+            return add(TYPE_TEXTURE, new int[]{width, height, channels, 0}, name, pixels.duplicate());
+        }
+
+        private Writer add(int type, int[] p, String name, ByteBuffer... parts) {
+            if (name.getBytes(StandardCharsets.UTF_8).length >= NAME_BYTES)
+                throw new IllegalArgumentException("Pack entry name too long: " + name);
+            types.add(type); params.add(p); names.add(name); blobs.add(parts);
+            return this;
+        }
+
+        /** Writes to a temp file next to {@code file} and moves it into place. */
+        public void write(Path file) throws IOException {
+            int count = types.size();
+            long[] offsets = new long[count], lengths = new long[count];
+            long at = align(HEADER_SIZE + (long) count * ENTRY_SIZE);
+            for (int k = 0; k < count; k++) {
+                offsets[k] = at;
+                long end = at;
+                for (ByteBuffer part : blobs.get(k)) end = align(end) + part.remaining();
+                lengths[k] = end - at;
+                at = align(end);
+            }
+
+            ByteBuffer table = ByteBuffer.allocate((int) align(HEADER_SIZE + (long) count * ENTRY_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            table.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0);
+            for (int k = 0; k < count; k++) {
+                int[] p = params.get(k);
+                table.putInt(types.get(k)).putInt(p[0]).putInt(p[1]).putInt(p[2]).putInt(p[3]);
+                table.putLong(offsets[k]).putLong(lengths[k]);
+                byte[] nb = names.get(k).getBytes(StandardCharsets.UTF_8);
+                table.put(nb).put(new byte[NAME_BYTES - nb.length]);
+            }
+            table.rewind();
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(ch, table, 0);
+                for (int k = 0; k < count; k++) {
+                    long pos = offsets[k];
+                    for (ByteBuffer part : blobs.get(k)) {
+                        pos = align(pos);
+                        ByteBuffer b = part.duplicate();
+                        writeFully(ch, b, pos);
+                        pos += part.remaining();
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private static void writeFully(FileChannel ch, ByteBuffer b, long pos) throws IOException {
+            while (b.hasRemaining()) pos += ch.write(b, pos);
+        }
+    }
+
+    private static long align(long v) { return (v + BLOB_ALIGN - 1) & -BLOB_ALIGN; }
+}
@@ -0,0 +1,68 @@
+package engine.scene;
+
+/**
+ * Spheres that can eclipse other bodies under the directional light, and the per-receiver
+ * pick of the few that actually matter. Shaders test each picked sphere analytically (ray
+ * toward the light vs sphere, with a penumbra from the light's angular radius), so their
+ * cost is set by {@link #MAX_PER_RECEIVER}, not by how many bodies the scene has.
+ *
+ * Positions are render space, like everything the renderer sees. Fill once per frame with
+ * {@link #add}, then {@link #select} per body being drawn.
+ */
+public final class ShadowCasters {
+    /** Occluder slots in the shaders (uOccluders[]). */
+    public static final int MAX_PER_RECEIVER = 8;
+
+    private float[] spheres = new float[4 * 16];   // x, y, z, r
+    private int count;
+
+    private final float[] score = new float[MAX_PER_RECEIVER];
+
+    public void clear() { count = 0; }
+    public int size() { return count; }
+
+    public void add(float x, float y, float z, float r) {
+        if ((count + 1) * 4 > spheres.length) spheres = java.util.Arrays.copyOf(spheres, spheres.length * 2);
+        int o = count++ * 4;
+        spheres[o] = x; spheres[o+1] = y; spheres[o+2] = z; spheres[o+3] = r;
+    }
+
+    /**
+     * Writes into {@code out} (x, y, z, r each) the casters whose shadow cylinder, widened by
+     * the penumbra, touches the receiver sphere; the largest in angular size win when there
+     * are more than {@link #MAX_PER_RECEIVER}. The receiver itself (same centre) is skipped.
+     * {@code L} points toward the light and must be normalized. Returns how many.
+     */
+    public int select(float rx, float ry, float rz, float rr, float[] L, float sunAngleRad, float[] out) {
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int o = i * 4;
+            float dx = spheres[o] - rx, dy = spheres[o+1] - ry, dz = spheres[o+2] - rz, r = spheres[o+3];
+            float along = dx*L[0] + dy*L[1] + dz*L[2];
+            if (along <= 0f) continue;                      // on the far side of the receiver
+            float px = dx - L[0]*along, py = dy - L[1]*along, pz = dz - L[2]*along;
+            float perp = (float)Math.sqrt(px*px + py*py + pz*pz);
+            if (perp >= r + rr + along * sunAngleRad) continue;   // shadow misses
+
+            float s = r / along;
+            if (n < MAX_PER_RECEIVER) {
+                insert(out, score, n++, s, spheres, o);
+            } else if (s > score[n - 1]) {
+                insert(out, score, n - 1, s, spheres, o);
+            }
+        }
+        return n;
+    }
+
+    // places the sphere at slot `at` or earlier so out/score stay sorted by descending score
+    private static void insert(float[] out, float[] score, int at, float s, float[] src, int o) {
+        int k = at;
+        while (k > 0 && score[k - 1] < s) {
+            score[k] = score[k - 1];
+            System.arraycopy(out, (k - 1) * 4, out, k * 4, 4);
+            k--;
+        }
+        score[k] = s;
+        System.arraycopy(src, o, out, k * 4, 4);
+    }
+}
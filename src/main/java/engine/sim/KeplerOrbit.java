@@ -0,0 +1,88 @@
+package engine.sim;
+
+/**
+ * Two-body ("on rails") orbit from classical elements: position at any time comes straight
+ * from Kepler's equation, so it costs the same whether you ask for t = 1 s or t = 1e9 s and
+ * never drifts. Positions are relative to the focus (the parent body).
+ *
+ * Angles are measured like {@link engine.debug.DebugDraw#orbit}: reference plane XZ, +Y
+ * north; the textbook z-up frame maps to ours by (x, y, z) → (x, z, -y). Elliptic only
+ * (0 ≤ e < 1).
+ */
+public final class KeplerOrbit {
+    public final double a, e;                 // semi-major axis, eccentricity
+    public final double meanMotion;           // rad per second
+    public final double meanAnomalyAtEpoch;   // rad, at t = 0
+
+    // perifocal basis in world axes: P towards periapsis, Q 90° ahead in the direction of motion
+    private final double px, py, pz, qx, qy, qz;
+    private final double b;                   // semi-minor axis
+
+    /** Elements in degrees; one revolution takes {@code periodSec}. */
+    public KeplerOrbit(double a, double e, double incDeg, double nodeDeg, double periDeg,
+                       double meanAnomalyDeg, double periodSec) {
+        if (!(e >= 0 && e < 1)) throw new IllegalArgumentException("Eccentricity must be in [0, 1): " + e);
+        if (!(a > 0) || !(periodSec > 0)) throw new IllegalArgumentException("Orbit needs a > 0 and period > 0");
+        this.a = a;
+        this.e = e;
+        this.b = a * Math.sqrt(1 - e * e);
+        this.meanMotion = 2 * Math.PI / periodSec;
+        this.meanAnomalyAtEpoch = Math.toRadians(meanAnomalyDeg);
+
+        double i = Math.toRadians(incDeg), O = Math.toRadians(nodeDeg), w = Math.toRadians(periDeg);
+        double cO = Math.cos(O), sO = Math.sin(O), ci = Math.cos(i), si = Math.sin(i), cw = Math.cos(w), sw = Math.sin(w);
+        double Px = cO*cw - sO*sw*ci, Py = sO*cw + cO*sw*ci, Pz = sw*si;
+        double Qx = -cO*sw - sO*cw*ci, Qy = -sO*sw + cO*cw*ci, Qz = cw*si;
+        px = Px; py = Pz; pz = -Py;
+        qx = Qx; qy = Qz; qz = -Qy;
+    }
+
+    /** Same orbit shape, period from the parent's gravitational parameter mu = G·M. */
+    public static KeplerOrbit fromMu(double a, double e, double incDeg, double nodeDeg, double periDeg,
+                                     double meanAnomalyDeg, double mu) {
+        return new KeplerOrbit(a, e, incDeg, nodeDeg, periDeg, meanAnomalyDeg, 2 * Math.PI * Math.sqrt(a * a * a / mu));
+    }
+
+    public double period() { return 2 * Math.PI / meanMotion; }
+
+    /** Position relative to the focus at time t (seconds) into out[off..off+2]. */
+    public void position(double t, double[] out, int off) {
+        double E = eccentricAnomaly(meanAnomalyAtEpoch + meanMotion * t, e);
+        double x = a * (Math.cos(E) - e), y = b * Math.sin(E);
+        out[off]     = px * x + qx * y;
+        out[off + 1] = py * x + qy * y;
+        out[off + 2] = pz * x + qz * y;
+    }
+
+    /** Position then velocity (units per second) relative to the focus into out[off..off+5]. */
+    public void state(double t, double[] out, int off) {
+        double E = eccentricAnomaly(meanAnomalyAtEpoch + meanMotion * t, e);
+        double cE = Math.cos(E), sE = Math.sin(E);
+        double x = a * (cE - e), y = b * sE;
+        double k = meanMotion / (1 - e * cE);   // dE/dt
+        double vx = -a * sE * k, vy = b * cE * k;
+        out[off]     = px * x + qx * y;
+        out[off + 1] = py * x + qy * y;
+        out[off + 2] = pz * x + qz * y;
+        out[off + 3] = px * vx + qx * vy;
+        out[off + 4] = py * vx + qy * vy;
+        out[off + 5] = pz * vx + qz * vy;
+    }
+
+    /**
+     * Solves M = E - e·sin E for E by Newton's method, starting from M (or π for high e,
+     * which keeps it from overshooting near periapsis). Converges in a handful of steps.
+     */
+    static double eccentricAnomaly(double M, double e) {
+        M = M % (2 * Math.PI);
+        if (M > Math.PI) M -= 2 * Math.PI; else if (M < -Math.PI) M += 2 * Math.PI;
+        double E = e < 0.8 ? M : Math.copySign(Math.PI, M);
+        for (int it = 0; it < 16; it++) {
+            double f = E - e * Math.sin(E) - M;
+            double d = f / (1 - e * Math.cos(E));
+            E -= d;
+            if (Math.abs(d) < 1e-12) break;
+        }
+        return E;
+    }
+}
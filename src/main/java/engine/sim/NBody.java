@@ -0,0 +1,288 @@
+package engine.sim;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Gravitating point masses integrated with kick-drift-kick leapfrog (velocity Verlet):
+ * symplectic, so energy errors stay bounded over long runs instead of accumulating as with
+ * Euler/RK. Call {@link #step} with a fixed dt; changing dt between steps breaks that.
+ *
+ * Storage is structure-of-arrays ({@code double[]} per component) so the force loops stream
+ * through memory. Forces come from direct summation up to {@link #directMax} massive bodies
+ * and from a Barnes-Hut octree beyond that (O(N log N), opening angle {@link #theta}); either
+ * way the per-body loop is split across the common ForkJoin pool when {@link #parallel}.
+ *
+ * Bodies with zero mass are test particles: they feel gravity but don't produce it and
+ * don't go into the tree, which is what an asteroid belt around on-rails planets wants.
+ * External point masses (e.g. the on-rails bodies) can be set with {@link #setAttractors}.
+ */
+public final class NBody {
+    private static final int CHUNK = 256;        // bodies per parallel task
+    private static final int MAX_DEPTH = 40;     // octree; deeper coincident bodies are merged
+
+    public double G = 1.0;
+    public double softening = 1e-3;             // added to r² as eps², keeps close passes finite
+    public double theta = 0.6;                   // Barnes-Hut opening angle (node size / distance)
+    public int directMax = 384;                  // massive bodies up to this use direct summation
+    public boolean parallel = true;
+
+    public double[] x, y, z, vx, vy, vz, m;
+    private double[] ax, ay, az;
+    private int n;
+    private boolean accelValid;                  // ax/ay/az match the current positions
+
+    private double[] attractors = new double[0]; // x, y, z, mass per attractor
+    private int attractorCount;
+
+    // massive body indices (the tree and direct sums only walk these)
+    private int[] massive = new int[0];
+    private int massiveCount;
+
+    // ---- octree, also structure-of-arrays ----
+    private int nodes;
+    private double[] nCx = new double[0], nCy = new double[0], nCz = new double[0], nHalf = new double[0];
+    private double[] nMass = new double[0], nMx = new double[0], nMy = new double[0], nMz = new double[0];
+    private int[] nChild = new int[0];           // 8 per node, -1 = empty
+    private int[] nBody = new int[0];            // leaf: body index; internal: -1
+
+    public NBody(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new double[capacity]; y = new double[capacity]; z = new double[capacity];
+        vx = new double[capacity]; vy = new double[capacity]; vz = new double[capacity];
+        m = new double[capacity];
+        ax = new double[capacity]; ay = new double[capacity]; az = new double[capacity];
+    }
+
+    public int size() { return n; }
+
+    /** Adds a body and returns its index. */
+    public int add(double px, double py, double pz, double pvx, double pvy, double pvz, double mass) {
+        if (n == x.length) grow(n * 2);
+        x[n] = px; y[n] = py; z[n] = pz;
+        vx[n] = pvx; vy[n] = pvy; vz[n] = pvz;
+        m[n] = mass;
+        accelValid = false;
+        return n++;
+    }
+
+    /**
+     * External masses that pull on every body but aren't moved by them; {@code xyzm} holds
+     * x, y, z, mass for each of {@code count}. Copied, so the caller may reuse the array.
+     * Give their positions for the END of the next {@link #step}: its opening half-kick
+     * reuses the forces from the previous step's end, as leapfrog should.
+     */
+    public void setAttractors(double[] xyzm, int count) {
+        if (attractors.length < count * 4) attractors = new double[count * 4];
+        System.arraycopy(xyzm, 0, attractors, 0, count * 4);
+        if (count != attractorCount) accelValid = false;
+        attractorCount = count;
+    }
+
+    /** Positions or masses were edited from outside; recompute forces before the next kick. */
+    public void invalidate() { accelValid = false; }
+
+    /** One kick-drift-kick step. */
+    public void step(double dt) {
+        if (!accelValid) computeAccelerations();
+        double h = dt * 0.5;
+        for (int i = 0; i < n; i++) {
+            vx[i] += ax[i] * h; vy[i] += ay[i] * h; vz[i] += az[i] * h;
+            x[i] += vx[i] * dt; y[i] += vy[i] * dt; z[i] += vz[i] * dt;
+        }
+        computeAccelerations();
+        for (int i = 0; i < n; i++) {
+            vx[i] += ax[i] * h; vy[i] += ay[i] * h; vz[i] += az[i] * h;
+        }
+    }
+
+    /**
+     * Total kinetic + potential energy among the bodies (attractors count as fixed). Direct
+     * O(N²) with the same softening; meant for checking integrators, not per frame.
+     */
+    public double energy() {
+        double ke = 0, pe = 0, eps2 = softening * softening;
+        for (int i = 0; i < n; i++) {
+            ke += 0.5 * m[i] * (vx[i]*vx[i] + vy[i]*vy[i] + vz[i]*vz[i]);
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - x[i], dy = y[j] - y[i], dz = z[j] - z[i];
+                pe -= G * m[i] * m[j] / Math.sqrt(dx*dx + dy*dy + dz*dz + eps2);
+            }
+            for (int k = 0; k < attractorCount; k++) {
+                double dx = attractors[k*4] - x[i], dy = attractors[k*4+1] - y[i], dz = attractors[k*4+2] - z[i];
+                pe -= G * m[i] * attractors[k*4+3] / Math.sqrt(dx*dx + dy*dy + dz*dz + eps2);
+            }
+        }
+        return ke + pe;
+    }
+
+    // ---- forces ----
+    private void computeAccelerations() {
+        if (massive.length < n) massive = new int[x.length];
+        massiveCount = 0;
+        for (int i = 0; i < n; i++) if (m[i] > 0) massive[massiveCount++] = i;
+
+        boolean tree = massiveCount > directMax;
+        if (tree) buildTree();
+
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        if (parallel && chunks > 1) {
+            IntStream.range(0, chunks).parallel().forEach(c -> accelerate(c, tree));
+        } else {
+            for (int c = 0; c < chunks; c++) accelerate(c, tree);
+        }
+        accelValid = true;
+    }
+
+    private void accelerate(int chunk, boolean tree) {
+        int from = chunk * CHUNK, to = Math.min(n, from + CHUNK);
+        int[] stack = tree ? new int[8 * MAX_DEPTH + 8] : null;
+        double[] acc = new double[3];
+        for (int i = from; i < to; i++) {
+            acc[0] = acc[1] = acc[2] = 0;
+            if (tree) treeForce(i, stack, acc); else directForce(i, acc);
+            attractorForce(i, acc);
+            ax[i] = acc[0] * G; ay[i] = acc[1] * G; az[i] = acc[2] * G;
+        }
+    }
+
+    private void directForce(int i, double[] acc) {
+        double xi = x[i], yi = y[i], zi = z[i], eps2 = softening * softening;
+        double sx = 0, sy = 0, sz = 0;
+        for (int k = 0; k < massiveCount; k++) {
+            int j = massive[k];
+            if (j == i) continue;
+            double dx = x[j] - xi, dy = y[j] - yi, dz = z[j] - zi;
+            double r2 = dx*dx + dy*dy + dz*dz + eps2;
+            double inv = m[j] / (r2 * Math.sqrt(r2));
+            sx += dx * inv; sy += dy * inv; sz += dz * inv;
+        }
+        acc[0] += sx; acc[1] += sy; acc[2] += sz;
+    }
+
+    private void attractorForce(int i, double[] acc) {
+        double xi = x[i], yi = y[i], zi = z[i], eps2 = softening * softening;
+        for (int k = 0; k < attractorCount; k++) {
+            double dx = attractors[k*4] - xi, dy = attractors[k*4+1] - yi, dz = attractors[k*4+2] - zi;
+            double r2 = dx*dx + dy*dy + dz*dz + eps2;
+            double inv = attractors[k*4+3] / (r2 * Math.sqrt(r2));
+            acc[0] += dx * inv; acc[1] += dy * inv; acc[2] += dz * inv;
+        }
+    }
+
+    private void treeForce(int i, int[] stack, double[] acc) {
+        double xi = x[i], yi = y[i], zi = z[i], eps2 = softening * softening, theta2 = theta * theta;
+        double sx = 0, sy = 0, sz = 0;
+        int sp = 0;
+        stack[sp++] = 0;
+        while (sp > 0) {
+            int nd = stack[--sp];
+            if (nBody[nd] == i) continue;   // ourselves (plus anything merged at MAX_DEPTH)
+            double dx = nMx[nd] - xi, dy = nMy[nd] - yi, dz = nMz[nd] - zi;
+            double d2 = dx*dx + dy*dy + dz*dz;
+            double size = 2 * nHalf[nd];
+            if (nBody[nd] >= 0 || size * size < theta2 * d2) {
+                double r2 = d2 + eps2;
+                double inv = nMass[nd] / (r2 * Math.sqrt(r2));
+                sx += dx * inv; sy += dy * inv; sz += dz * inv;
+            } else {
+                int base = nd * 8;
+                for (int c = 0; c < 8; c++) {
+                    int ch = nChild[base + c];
+                    if (ch >= 0) stack[sp++] = ch;
+                }
+            }
+        }
+        acc[0] += sx; acc[1] += sy; acc[2] += sz;
+    }
+
+    // ---- octree build ----
+    // Inserts massive bodies one by one; mass and mass-weighted position are accumulated on
+    // the way down, and divided out at the end.
+    private void buildTree() {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int k = 0; k < massiveCount; k++) {
+            int j = massive[k];
+            minX = Math.min(minX, x[j]); maxX = Math.max(maxX, x[j]);
+            minY = Math.min(minY, y[j]); maxY = Math.max(maxY, y[j]);
+            minZ = Math.min(minZ, z[j]); maxZ = Math.max(maxZ, z[j]);
+        }
+        double half = 0.5 * Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) * 1.0001 + 1e-9;
+
+        ensureNodes(2 * massiveCount + 16);
+        nodes = 0;
+        newNode(0.5 * (minX + maxX), 0.5 * (minY + maxY), 0.5 * (minZ + maxZ), half);
+        for (int k = 0; k < massiveCount; k++) insert(massive[k]);
+        for (int nd = 0; nd < nodes; nd++) {
+            double inv = nMass[nd] > 0 ? 1.0 / nMass[nd] : 0;
+            nMx[nd] *= inv; nMy[nd] *= inv; nMz[nd] *= inv;
+        }
+    }
+
+    private void insert(int j) {
+        int nd = 0;
+        for (int depth = 0; ; depth++) {
+            accumulate(nd, j);
+            if (nBody[nd] == -2) {            // empty leaf: take it
+                nBody[nd] = j;
+                return;
+            }
+            if (nBody[nd] >= 0) {             // occupied leaf: push its body one level down
+                if (depth >= MAX_DEPTH) return;   // coincident bodies: merged into this leaf
+                int old = nBody[nd];
+                nBody[nd] = -1;
+                int c = childFor(nd, old);
+                accumulate(c, old);
+                nBody[c] = old;
+            }
+            nd = childFor(nd, j);
+        }
+    }
+
+    private void accumulate(int nd, int j) {
+        nMass[nd] += m[j];
+        nMx[nd] += m[j] * x[j]; nMy[nd] += m[j] * y[j]; nMz[nd] += m[j] * z[j];
+    }
+
+    // the child octant of nd that holds body j, created empty if needed
+    private int childFor(int nd, int j) {
+        int oct = (x[j] >= nCx[nd] ? 1 : 0) | (y[j] >= nCy[nd] ? 2 : 0) | (z[j] >= nCz[nd] ? 4 : 0);
+        int slot = nd * 8 + oct;
+        int ch = nChild[slot];
+        if (ch < 0) {
+            double h = nHalf[nd] * 0.5;
+            ch = newNode(nCx[nd] + ((oct & 1) != 0 ? h : -h), nCy[nd] + ((oct & 2) != 0 ? h : -h),
+                    nCz[nd] + ((oct & 4) != 0 ? h : -h), h);
+            nChild[slot] = ch;
+        }
+        return ch;
+    }
+
+    private int newNode(double cx, double cy, double cz, double half) {
+        if (nodes == nCx.length) ensureNodes(nodes * 2);
+        int nd = nodes++;
+        nCx[nd] = cx; nCy[nd] = cy; nCz[nd] = cz; nHalf[nd] = half;
+        nMass[nd] = 0; nMx[nd] = 0; nMy[nd] = 0; nMz[nd] = 0;
+        Arrays.fill(nChild, nd * 8, nd * 8 + 8, -1);
+        nBody[nd] = -2;
+        return nd;
+    }
+
+    private void ensureNodes(int cap) {
+        if (nCx.length >= cap) return;
+        nCx = Arrays.copyOf(nCx, cap); nCy = Arrays.copyOf(nCy, cap); nCz = Arrays.copyOf(nCz, cap);
+        nHalf = Arrays.copyOf(nHalf, cap);
+        nMass = Arrays.copyOf(nMass, cap);
+        nMx = Arrays.copyOf(nMx, cap); nMy = Arrays.copyOf(nMy, cap); nMz = Arrays.copyOf(nMz, cap);
+        nChild = Arrays.copyOf(nChild, cap * 8);
+        nBody = Arrays.copyOf(nBody, cap);
+    }
+
+    private void grow(int cap) {
+        x = Arrays.copyOf(x, cap); y = Arrays.copyOf(y, cap); z = Arrays.copyOf(z, cap);
+        vx = Arrays.copyOf(vx, cap); vy = Arrays.copyOf(vy, cap); vz = Arrays.copyOf(vz, cap);
+        m = Arrays.copyOf(m, cap);
+        ax = Arrays.copyOf(ax, cap); ay = Arrays.copyOf(ay, cap); az = Arrays.copyOf(az, cap);
+    }
+}
@@ -0,0 +1,168 @@
+package engine.sim;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A scene's orbital mechanics: a tree of on-rails bodies (fixed, or a {@link KeplerOrbit}
+ * around an earlier body) plus an {@link NBody} set of free bodies that the rails bodies pull
+ * on. Rails bodies are exact at any time; free bodies are integrated.
+ *
+ * {@link #advance} takes whatever dt the caller has and steps in fixed {@link #stepSec}
+ * increments, carrying the remainder over, so the integrator sees the same dt no matter how
+ * often it's called. Owned by the simulation thread; hand results to the renderer by copying
+ * them into a snapshot ({@link #copyBodies}, {@link #copyFree}).
+ */
+public final class OrbitalSystem {
+    public final NBody free;
+    public final double stepSec;
+
+    private int count;
+    private int[] parent = new int[4];              // -1 = root
+    private KeplerOrbit[] orbit = new KeplerOrbit[4]; // null = fixed offset from the parent
+    private double[] offset = new double[12];       // fixed bodies: xyz relative to the parent
+    private double[] mu = new double[4];            // G·M, 0 = doesn't pull on free bodies
+    private double[] pos = new double[12], vel = new double[12];   // world, at time()
+
+    private double time, carry;
+    private double[] attractors = new double[0];
+    private final double[] tmp = new double[6];
+
+    /** {@code freeCapacity} is a hint; the free set grows as needed. */
+    public OrbitalSystem(double stepSec, int freeCapacity) {
+        if (!(stepSec > 0)) throw new IllegalArgumentException("Step must be > 0: " + stepSec);
+        this.stepSec = stepSec;
+        this.free = new NBody(freeCapacity);
+    }
+
+    public int bodyCount() { return count; }
+    public double time() { return time; }
+
+    /** A body held at (x, y, z) relative to {@code parent} (-1 for world). Returns its index. */
+    public int addFixed(int parent, double x, double y, double z, double mu) {
+        int i = addBody(parent, null, mu);
+        offset[i*3] = x; offset[i*3+1] = y; offset[i*3+2] = z;
+        evaluate(i, time);
+        return i;
+    }
+
+    /** A body on {@code orbit} around {@code parent}, an earlier body. Returns its index. */
+    public int addOrbiting(int parent, KeplerOrbit orbit, double mu) {
+        if (parent < 0 || parent >= count) throw new IllegalArgumentException("No parent body " + parent);
+        int i = addBody(parent, orbit, mu);
+        evaluate(i, time);
+        return i;
+    }
+
+    /**
+     * Massless free bodies on circular orbits around rails body {@code around}, spread
+     * uniformly in radius between rMin and rMax and tilted up to {@code tiltDeg} out of the
+     * XZ plane. Deterministic for a given seed. Returns the index of the first one.
+     */
+    public int addBelt(int around, int n, double rMin, double rMax, double tiltDeg, long seed) {
+        if (around < 0 || around >= count || !(mu[around] > 0))
+            throw new IllegalArgumentException("Belt needs a massive parent body: " + around);
+        SplittableRandom rnd = new SplittableRandom(seed);
+        double gm = mu[around];
+        int first = free.size();
+        for (int k = 0; k < n; k++) {
+            double r = rMin + (rMax - rMin) * rnd.nextDouble();
+            double phase = rnd.nextDouble() * 2 * Math.PI;
+            double inc = Math.toRadians(tiltDeg) * (2 * rnd.nextDouble() - 1);
+            double ci = Math.cos(inc), si = Math.sin(inc);
+            double c = Math.cos(phase), s = Math.sin(phase), v = Math.sqrt(gm / r);
+            // in-plane circle (x, z), then tilted about X; counter-clockwise seen from +Y
+            double px = r * c, py = -r * s * si, pz = r * s * ci;
+            double vx = -v * s, vy = -v * c * si, vz = v * c * ci;
+            int o = around * 3;
+            free.add(pos[o] + px, pos[o+1] + py, pos[o+2] + pz,
+                    vel[o] + vx, vel[o+1] + vy, vel[o+2] + vz, 0);
+        }
+        return first;
+    }
+
+    /** Moves the whole system forward by dt seconds, in fixed steps. */
+    public void advance(double dt) {
+        carry += dt;
+        while (carry >= stepSec) {
+            carry -= stepSec;
+            step();
+        }
+    }
+
+    private void step() {
+        double t = time + stepSec;
+        for (int i = 0; i < count; i++) evaluate(i, t);
+        if (free.size() > 0) {
+            // leapfrog wants the attractors where they'll be at the end of the step
+            int k = 0;
+            for (int i = 0; i < count; i++) {
+                if (!(mu[i] > 0)) continue;
+                attractors[k*4] = pos[i*3]; attractors[k*4+1] = pos[i*3+1]; attractors[k*4+2] = pos[i*3+2];
+                attractors[k*4+3] = mu[i] / free.G;
+                k++;
+            }
+            free.setAttractors(attractors, k);
+            free.step(stepSec);
+        }
+        time = t;
+    }
+
+    /** World position of rails body i at {@link #time()} into out[off..off+2]. */
+    public void position(int i, double[] out, int off) {
+        out[off] = pos[i*3]; out[off+1] = pos[i*3+1]; out[off+2] = pos[i*3+2];
+    }
+
+    /** World positions of all rails bodies, xyz each. */
+    public double[] copyBodies() {
+        return Arrays.copyOf(pos, count * 3);
+    }
+
+    /** World positions of all free bodies, xyz each. */
+    public double[] copyFree() {
+        int n = free.size();
+        double[] out = new double[n * 3];
+        double[] x = free.x, y = free.y, z = free.z;
+        for (int i = 0; i < n; i++) {
+            out[i*3] = x[i]; out[i*3+1] = y[i]; out[i*3+2] = z[i];
+        }
+        return out;
+    }
+
+    // parents come before children, so evaluating in index order has the parent ready
+    private void evaluate(int i, double t) {
+        int p = parent[i], o = i * 3;
+        double bx = 0, by = 0, bz = 0, bvx = 0, bvy = 0, bvz = 0;
+        if (p >= 0) {
+            bx = pos[p*3]; by = pos[p*3+1]; bz = pos[p*3+2];
+            bvx = vel[p*3]; bvy = vel[p*3+1]; bvz = vel[p*3+2];
+        }
+        if (orbit[i] == null) {
+            pos[o] = bx + offset[o]; pos[o+1] = by + offset[o+1]; pos[o+2] = bz + offset[o+2];
+            vel[o] = bvx; vel[o+1] = bvy; vel[o+2] = bvz;
+        } else {
+            orbit[i].state(t, tmp, 0);
+            pos[o] = bx + tmp[0]; pos[o+1] = by + tmp[1]; pos[o+2] = bz + tmp[2];
+            vel[o] = bvx + tmp[3]; vel[o+1] = bvy + tmp[4]; vel[o+2] = bvz + tmp[5];
+        }
+    }
+
+    private int addBody(int parentIndex, KeplerOrbit o, double gm) {
+        if (parentIndex >= count) throw new IllegalArgumentException("No parent body " + parentIndex);
+        if (count == parent.length) {
+            int cap = count * 2;
+            parent = Arrays.copyOf(parent, cap);
+            orbit = Arrays.copyOf(orbit, cap);
+            mu = Arrays.copyOf(mu, cap);
+            offset = Arrays.copyOf(offset, cap * 3);
+            pos = Arrays.copyOf(pos, cap * 3);
+            vel = Arrays.copyOf(vel, cap * 3);
+        }
+        int i = count++;
+        parent[i] = parentIndex;
+        orbit[i] = o;
+        mu[i] = gm;
+        if (gm > 0) attractors = Arrays.copyOf(attractors, attractors.length + 4);
+        return i;
+    }
+}
@@ -0,0 +1,64 @@
+package engine.sim;
+
+import engine.scene.Camera;
+
+/**
+ * Immutable state of one simulation tick: everything the render thread needs to draw the
+ * world at that instant. Published through a {@link TripleBuffer}, never modified afterwards.
+ */
+public final class SimSnapshot {
+    public final long tick;
+    public final long sampledNanos;   // System.nanoTime() when the tick started (input sampled)
+    public final long stepNanos;      // how long the tick took to simulate
+    public final double simTime;      // seconds of simulated time (drives clouds)
+    public final float spinAngleDeg;
+
+    // OrbitalSystem world positions, xyz each: rails bodies, then free bodies (asteroids)
+    public final double[] bodies, free;
+
+    // camera pose
+    public final double camX, camY, camZ;
+    public final float yawDeg, pitchDeg;
+    public final boolean followTarget;
+    public final double targetX, targetY, targetZ;
+    public final float orbitUpY;
+
+    public SimSnapshot(long tick, long sampledNanos, long stepNanos, double simTime, float spinAngleDeg,
+                       double[] bodies, double[] free, Camera c) {
+        this.tick = tick;
+        this.sampledNanos = sampledNanos;
+        this.stepNanos = stepNanos;
+        this.simTime = simTime;
+        this.spinAngleDeg = spinAngleDeg;
+        this.bodies = bodies;
+        this.free = free;
+        this.camX = c.x; this.camY = c.y; this.camZ = c.z;
+        this.yawDeg = c.yawDeg; this.pitchDeg = c.pitchDeg;
+        this.followTarget = c.followTarget;
+        this.targetX = c.targetX; this.targetY = c.targetY; this.targetZ = c.targetZ;
+        this.orbitUpY = c.orbitUpY;
+    }
+
+    /** Writes the pose blended from a (t=0) to b (t=1) into out; mode switches snap to b. */
+    public static void lerpCamera(SimSnapshot a, SimSnapshot b, float t, Camera out) {
+        if (a.followTarget != b.followTarget) t = 1f;
+        out.x = lerp(a.camX, b.camX, t);
+        out.y = lerp(a.camY, b.camY, t);
+        out.z = lerp(a.camZ, b.camZ, t);
+        out.yawDeg = lerp(a.yawDeg, b.yawDeg, t);
+        out.pitchDeg = lerp(a.pitchDeg, b.pitchDeg, t);
+        out.followTarget = b.followTarget;
+        out.setTarget(lerp(a.targetX, b.targetX, t), lerp(a.targetY, b.targetY, t), lerp(a.targetZ, b.targetZ, t));
+        out.orbitUpY = b.orbitUpY;
+    }
+
+    /** Blends xyz triplets; entries only b has (bodies added since a) are taken from b. */
+    public static void lerpPositions(double[] a, double[] b, double t, double[] out) {
+        int common = Math.min(a.length, b.length);
+        for (int k = 0; k < common; k++) out[k] = a[k] + (b[k] - a[k]) * t;
+        System.arraycopy(b, common, out, common, b.length - common);
+    }
+
+    static float lerp(float a, float b, float t) { return a + (b - a) * t; }
+    static double lerp(double a, double b, double t) { return a + (b - a) * t; }
+}
@@ -0,0 +1,16 @@
+package engine.sim;
+
+import engine.perf.Profiler;
+import engine.perf.RollingStats;
+
+/** Timing of the sim → render hand-off, in ms. Written on the render thread only. */
+public class SimStats {
+    /** CPU time of one simulation tick. */
+    public final RollingStats stepMs = new RollingStats(Profiler.WINDOW);
+    /** Age of the newest snapshot when a frame picked it up (publish → consume). */
+    public final RollingStats snapshotAgeMs = new RollingStats(Profiler.WINDOW);
+    /** How far behind "now" the interpolated state shown on screen is. */
+    public final RollingStats displayDelayMs = new RollingStats(Profiler.WINDOW);
+    public float tickHz;
+    public long ticksSkipped;   // ticks dropped because the sim fell too far behind
+}
@@ -0,0 +1,71 @@
+package engine.sim;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link Step} at a fixed rate on its own thread and publishes each result through a
+ * {@link TripleBuffer}. Simulation speed no longer depends on the display: every tick sees
+ * the same dt, and a slow render frame only means the renderer skips some snapshots.
+ *
+ * If the thread falls behind (debugger, machine stall) it catches up with back-to-back
+ * ticks, up to {@link #MAX_CATCH_UP}; beyond that the backlog is dropped and counted.
+ */
+public final class Simulation {
+    public interface Step {
+        /** Advance the world by dt seconds and return the resulting snapshot. */
+        SimSnapshot step(long tick, long sampledNanos, double simTime, float dt);
+    }
+
+    private static final int MAX_CATCH_UP = 5;
+
+    private final Step step;
+    private final long tickNanos;
+    private final float dt;
+    private final TripleBuffer<SimSnapshot> out;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile long ticksSkipped;
+
+    public Simulation(float hz, SimSnapshot initial, Step step) {
+        this.step = step;
+        this.tickNanos = (long)(1_000_000_000L / hz);
+        this.dt = 1f / hz;
+        this.out = new TripleBuffer<>(initial);
+        this.thread = new Thread(this::run, "simulation");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() { running = true; thread.start(); }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try { thread.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    public TripleBuffer<SimSnapshot> snapshots() { return out; }
+    public long tickNanos() { return tickNanos; }
+    public float tickHz() { return 1f / dt; }
+    public long ticksSkipped() { return ticksSkipped; }
+
+    private void run() {
+        long tick = 0;
+        long next = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (now < next) {
+                LockSupport.parkNanos(next - now);
+                continue;
+            }
+            if (now - next > MAX_CATCH_UP * tickNanos) {
+                ticksSkipped += (now - next) / tickNanos;
+                next = now;
+            }
+
+            SimSnapshot s = step.step(tick, now, tick * (double)dt, dt);
+            out.publish(s);
+            tick++;
+            next += tickNanos;
+        }
+    }
+}
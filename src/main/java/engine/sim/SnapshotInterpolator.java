@@ -0,0 +1,66 @@
+package engine.sim;
+
+import engine.scene.Camera;
+
+/**
+ * Render-side view of the simulation: keeps the two newest snapshots it has seen and blends
+ * between them for the current frame. The displayed state lags real time by one tick, which
+ * is what makes the motion smooth regardless of how sim and display rates line up.
+ */
+public class SnapshotInterpolator {
+    private final Simulation sim;
+    private final TripleBuffer<SimSnapshot> in;
+    private final long delayNanos;
+    private final SimStats stats;
+
+    private SimSnapshot prev, curr;
+    private float alpha = 1f;
+
+    public SnapshotInterpolator(Simulation sim, SimStats stats) {
+        this.sim = sim;
+        this.in = sim.snapshots();
+        this.delayNanos = sim.tickNanos();
+        this.stats = stats;
+        this.curr = this.prev = in.latest();
+        stats.tickHz = sim.tickHz();
+    }
+
+    /** Picks up the newest snapshot and computes the blend factor for a frame at nowNanos. */
+    public void update(long nowNanos) {
+        SimSnapshot s = in.latest();
+        if (s != curr) {
+            prev = curr;
+            curr = s;
+            stats.stepMs.add(s.stepNanos / 1_000_000f);
+        }
+        stats.ticksSkipped = sim.ticksSkipped();
+        stats.snapshotAgeMs.add((nowNanos - curr.sampledNanos) / 1_000_000f);
+
+        long span = curr.sampledNanos - prev.sampledNanos;
+        long target = nowNanos - delayNanos;
+        if (span <= 0) {
+            alpha = 1f;
+        } else {
+            alpha = (float)Math.max(0.0, Math.min(1.0, (double)(target - prev.sampledNanos) / span));
+        }
+        long shown = prev.sampledNanos + (long)(alpha * span);
+        stats.displayDelayMs.add((nowNanos - shown) / 1_000_000f);
+    }
+
+    public void applyCamera(Camera out) { SimSnapshot.lerpCamera(prev, curr, alpha, out); }
+    public float spinAngleDeg() { return SimSnapshot.lerp(prev.spinAngleDeg, curr.spinAngleDeg, alpha); }
+    public double simTime() { return prev.simTime + (curr.simTime - prev.simTime) * alpha; }
+
+    /** Blended position of rails body i into out[0..2]. */
+    public void bodyPosition(int i, double[] out) {
+        double[] a = prev.bodies.length > i * 3 ? prev.bodies : curr.bodies, b = curr.bodies;
+        int o = i * 3;
+        for (int k = 0; k < 3; k++) out[k] = a[o + k] + (b[o + k] - a[o + k]) * alpha;
+    }
+
+    /** Blended free-body positions; out must hold {@code latest().free.length} floats. */
+    public void freePositions(double[] out) { SimSnapshot.lerpPositions(prev.free, curr.free, alpha, out); }
+
+    public SimSnapshot latest() { return curr; }
+    public float alpha() { return alpha; }
+}
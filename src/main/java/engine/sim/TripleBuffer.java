@@ -0,0 +1,37 @@
+package engine.sim;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer for one producer and one consumer. The producer always has a slot
+ * to write, the consumer always has a slot to read, and the third ("middle") slot is handed
+ * over with a single atomic swap. Neither side ever waits; a consumer that falls behind just
+ * sees the newest value.
+ */
+public final class TripleBuffer<T> {
+    private static final int INDEX = 0b011, FRESH = 0b100;
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);   // index | FRESH
+    private int back = 2;    // producer-owned
+    private int front = 0;   // consumer-owned
+
+    public TripleBuffer(T initial) {
+        slots[0] = slots[1] = slots[2] = initial;
+    }
+
+    /** Producer: publish a new value (the swap is the release fence for the slot write). */
+    public void publish(T value) {
+        slots[back] = value;
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /** Consumer: the newest published value (unchanged if nothing new arrived). */
+    @SuppressWarnings("unchecked")
+    public T latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        return (T)slots[front];
+    }
+}
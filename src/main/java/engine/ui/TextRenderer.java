@@ -0,0 +1,334 @@
+package engine.ui;
+
+import engine.gl.Shader;
+import engine.perf.GlCounters;
+import org.lwjgl.stb.STBEasyFont;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * Screen-space text from a signed-distance-field glyph atlas.
+ *
+ * The atlas is baked once from the stb_easy_font bitmap font (printable ASCII) and cached in
+ * {@code cache/}; later runs just load it. Each glyph is one instance (x, y, scale, glyph,
+ * rgba8 color) expanded to a quad in the vertex shader, so a whole overlay is a single
+ * instanced draw and the CPU only writes 20 bytes per character.
+ *
+ * Text is laid out into a {@link Block}, which keeps it in its own VBO and redraws it from
+ * there until it's laid out again. Coordinates are pixels, top-left origin; y is the top of
+ * the line. At scale 1 a line is 12 px, as with stb_easy_font.
+ */
+public class TextRenderer {
+    // ---- atlas layout (font units = stb_easy_font pixels) ----
+    private static final int FIRST = 32, GLYPHS = 95;   // ' ' .. '~'
+    private static final int COLS = 16, ROWS = 6;
+    private static final int PAD = 1;                    // units around each glyph (= SDF spread)
+    private static final int CELL_W = 8 + 2 * PAD, CELL_H = 10 + 2 * PAD;
+    private static final int TEXELS_PER_UNIT = 4;
+    private static final int SUPERSAMPLE = 2;            // hi-res raster used for the distance search
+    private static final int ATLAS_W = COLS * CELL_W * TEXELS_PER_UNIT;
+    private static final int ATLAS_H = ROWS * CELL_H * TEXELS_PER_UNIT;
+    private static final int CACHE_MAGIC = 0x53444631;   // "SDF1"
+
+    public static final float LINE_UNITS = 12f;
+
+    private static final int INSTANCE_BYTES = 20;        // 3 floats + glyph float + rgba8
+
+    private static final Path CACHE_FILE = Path.of("cache", "easyfont-sdf.bin");
+
+    private final Shader shader;
+    private final int atlas;
+    private final byte[] advance = new byte[GLYPHS];
+
+    public TextRenderer() {
+        this.shader = Shader.load("shaders/text.vert", "shaders/text.frag");
+        this.atlas = createAtlas(loadOrBake(advance));
+    }
+
+    /** Packs a color for {@link Block#text} and {@link Block#rect}; components 0..1. */
+    public static int rgba(float r, float g, float b, float a) {
+        int packed = (int)(clamp01(r) * 255f + 0.5f)
+                | (int)(clamp01(g) * 255f + 0.5f) << 8
+                | (int)(clamp01(b) * 255f + 0.5f) << 16
+                | (int)(clamp01(a) * 255f + 0.5f) << 24;
+        return ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? packed : Integer.reverseBytes(packed);
+    }
+
+    public float lineHeight(float scale) { return LINE_UNITS * scale; }
+
+    /** Width in pixels of the widest line in s[start, end). */
+    public float width(CharSequence s, int start, int end, float scale) {
+        int w = 0, max = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '\n') { max = Math.max(max, w); w = 0; continue; }
+            w += advance[glyph(c)];
+        }
+        return Math.max(max, w) * scale;
+    }
+
+    public void delete() {
+        glDeleteTextures(atlas);
+        shader.delete();
+    }
+
+    // ---- internals ----
+    private static int glyph(char c) {
+        return (c >= FIRST && c < FIRST + GLYPHS) ? c - FIRST : '?' - FIRST;
+    }
+
+    // with the instance VAO bound and pointing at the data
+    private void drawInstances(int instances, int vw, int vh) {
+        glDisable(GL_DEPTH_TEST);
+        glDisable(GL_CULL_FACE);
+        glEnable(GL_BLEND);
+        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        shader.use();
+        int id = shader.id();
+        glUniform2f(glGetUniformLocation(id, "uViewport"), vw, vh);
+        glUniform2f(glGetUniformLocation(id, "uCell"), CELL_W, CELL_H);
+        glUniform2f(glGetUniformLocation(id, "uPad"), PAD, PAD);
+        glUniform2f(glGetUniformLocation(id, "uGrid"), COLS, ROWS);
+        glUniform1i(glGetUniformLocation(id, "uAtlas"), 0);
+        glActiveTexture(GL_TEXTURE0);
+        glBindTexture(GL_TEXTURE_2D, atlas);
+        GlCounters.state();
+
+        glDrawArraysInstanced(GL_TRIANGLE_STRIP, 0, 4, instances);
+        GlCounters.draw();
+
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        glUseProgram(0);
+        glDisable(GL_BLEND);
+        glEnable(GL_DEPTH_TEST);
+    }
+
+    // ---- cached blocks ----
+    public Block createBlock(int initialGlyphs) { return new Block(initialGlyphs); }
+
+    /**
+     * Text (and solid rects, for panels behind it) laid out once and kept in its own VBO:
+     * {@link #begin} → {@link #rect} / {@link #text}* → {@link #end} uploads it (glBufferSubData, or a bigger buffer when it outgrew the old one),
+     * and {@link #draw} redraws it every frame without touching the data.
+     */
+    public final class Block {
+        private final int blockVao, vbo;
+        private ByteBuffer staging;
+        private int capacity;      // instances the VBO holds
+        private int instances;     // uploaded
+        private int pending;       // laid out since begin
+
+        private Block(int initialGlyphs) {
+            capacity = Math.max(16, initialGlyphs);
+            staging = memAlloc(capacity * INSTANCE_BYTES);
+            vbo = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            glBufferData(GL_ARRAY_BUFFER, (long)capacity * INSTANCE_BYTES, GL_DYNAMIC_DRAW);
+
+            blockVao = glGenVertexArrays();
+            glBindVertexArray(blockVao);
+            glEnableVertexAttribArray(0);
+            glVertexAttribDivisor(0, 1);
+            glVertexAttribPointer(0, 4, GL_FLOAT, false, INSTANCE_BYTES, 0L);
+            glEnableVertexAttribArray(1);
+            glVertexAttribDivisor(1, 1);
+            glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, INSTANCE_BYTES, 16L);
+            glBindVertexArray(0);
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+        }
+
+        public void begin() { pending = 0; }
+
+        /**
+         * Lays out s[start, end) at (x, y); '\n' starts a new line at x. Returns the pen x
+         * after the last character.
+         */
+        public float text(CharSequence s, int start, int end, float x, float y, float scale, int rgba) {
+            float penX = x, penY = y;
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                if (c == '\n') { penX = x; penY += LINE_UNITS * scale; continue; }
+                int g = glyph(c);
+                if (c != ' ') put(penX, penY, scale, g, rgba);
+                penX += advance[g] * scale;
+            }
+            return penX;
+        }
+
+        /** A solid w x h px rect; instances draw in order, so put backdrops first. */
+        public void rect(float x, float y, float w, float h, int rgba) {
+            if (w <= 0f || h <= 0f) return;
+            put(x, y, w, -h, rgba);   // negative glyph = rect, see text.vert
+        }
+
+        public void end() {
+            glBindBuffer(GL_ARRAY_BUFFER, vbo);
+            if (pending > capacity) {
+                capacity = Math.max(pending, capacity * 2);
+                glBufferData(GL_ARRAY_BUFFER, (long)capacity * INSTANCE_BYTES, GL_DYNAMIC_DRAW);
+            }
+            if (pending > 0) glBufferSubData(GL_ARRAY_BUFFER, 0L, memSlice(staging, 0, pending * INSTANCE_BYTES));
+            glBindBuffer(GL_ARRAY_BUFFER, 0);
+            instances = pending;
+        }
+
+        public int instances() { return instances; }
+
+        public void draw(int viewportWidth, int viewportHeight) {
+            if (instances == 0) return;
+            glBindVertexArray(blockVao);
+            drawInstances(instances, Math.max(1, viewportWidth), Math.max(1, viewportHeight));
+        }
+
+        public void delete() {
+            glDeleteVertexArrays(blockVao);
+            glDeleteBuffers(vbo);
+            memFree(staging);
+        }
+
+        private void put(float x, float y, float scale, float glyph, int rgba) {
+            if ((pending + 1) * INSTANCE_BYTES > staging.capacity()) staging = memRealloc(staging, staging.capacity() * 2);
+            int off = pending++ * INSTANCE_BYTES;
+            staging.putFloat(off, x).putFloat(off + 4, y).putFloat(off + 8, scale)
+                   .putFloat(off + 12, glyph).putInt(off + 16, rgba);
+        }
+    }
+
+    private static int createAtlas(byte[] pixels) {
+        ByteBuffer buf = memAlloc(pixels.length);
+        try {
+            buf.put(pixels).flip();
+            int tex = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, tex);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, ATLAS_W, ATLAS_H, 0, GL_RED, GL_UNSIGNED_BYTE, buf);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+            glBindTexture(GL_TEXTURE_2D, 0);
+            return tex;
+        } finally {
+            memFree(buf);
+        }
+    }
+
+    // ---- atlas bake + disk cache ----
+    private static final int HEADER_INTS = 6;
+
+    static byte[] loadOrBake(byte[] advanceOut) {
+        int size = HEADER_INTS * 4 + GLYPHS + ATLAS_W * ATLAS_H;
+        try {
+            if (Files.isRegularFile(CACHE_FILE) && Files.size(CACHE_FILE) == size) {
+                ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(CACHE_FILE));
+                if (in.getInt() == CACHE_MAGIC && in.getInt() == ATLAS_W && in.getInt() == ATLAS_H
+                        && in.getInt() == TEXELS_PER_UNIT && in.getInt() == PAD && in.getInt() == GLYPHS) {
+                    in.get(advanceOut);
+                    byte[] pixels = new byte[ATLAS_W * ATLAS_H];
+                    in.get(pixels);
+                    return pixels;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read font cache, re-baking: " + e);
+        }
+
+        byte[] pixels = bake(advanceOut);
+        try {
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.putInt(CACHE_MAGIC).putInt(ATLAS_W).putInt(ATLAS_H)
+               .putInt(TEXELS_PER_UNIT).putInt(PAD).putInt(GLYPHS)
+               .put(advanceOut).put(pixels);
+            Files.createDirectories(CACHE_FILE.getParent());
+            Files.write(CACHE_FILE, out.array());
+        } catch (IOException e) {
+            System.err.println("Could not write font cache: " + e);
+        }
+        return pixels;
+    }
+
+    /**
+     * Rasterizes every glyph's stb_easy_font quads at SUPERSAMPLE x atlas resolution, then for
+     * each atlas texel searches that raster for the nearest sample of the opposite state.
+     * Distances are stored as 0.5 + d / (2 * PAD), positive inside.
+     */
+    static byte[] bake(byte[] advanceOut) {
+        final int hi = TEXELS_PER_UNIT * SUPERSAMPLE;       // hi-res samples per font unit
+        final int hw = CELL_W * hi, hh = CELL_H * hi;
+        final int cw = CELL_W * TEXELS_PER_UNIT, chh = CELL_H * TEXELS_PER_UNIT;
+        final int radius = PAD * hi;
+
+        byte[] pixels = new byte[ATLAS_W * ATLAS_H];
+        boolean[] ink = new boolean[hw * hh];
+        ByteBuffer quads = memAlloc(16 * 1024);
+        ByteBuffer ch = memAlloc(2);
+        try {
+            for (int g = 0; g < GLYPHS; g++) {
+                ch.put(0, (byte)(FIRST + g)).put(1, (byte)0);
+                advanceOut[g] = (byte)STBEasyFont.stb_easy_font_width(ch);
+
+                Arrays.fill(ink, false);
+                quads.clear();
+                int n = STBEasyFont.stb_easy_font_print(PAD, PAD, ch, null, quads);
+                for (int q = 0; q < n; q++) {
+                    float x0 = Float.MAX_VALUE, y0 = Float.MAX_VALUE, x1 = -Float.MAX_VALUE, y1 = -Float.MAX_VALUE;
+                    for (int v = 0; v < 4; v++) {
+                        int off = (q * 4 + v) * 16;
+                        float x = quads.getFloat(off), y = quads.getFloat(off + 4);
+                        x0 = Math.min(x0, x); x1 = Math.max(x1, x);
+                        y0 = Math.min(y0, y); y1 = Math.max(y1, y);
+                    }
+                    int ix0 = Math.max(0, Math.round(x0 * hi)), ix1 = Math.min(hw, Math.round(x1 * hi));
+                    int iy0 = Math.max(0, Math.round(y0 * hi)), iy1 = Math.min(hh, Math.round(y1 * hi));
+                    for (int y = iy0; y < iy1; y++)
+                        for (int x = ix0; x < ix1; x++) ink[y * hw + x] = true;
+                }
+
+                int cellX = (g % COLS) * cw, cellY = (g / COLS) * chh;
+                for (int ty = 0; ty < chh; ty++) {
+                    for (int tx = 0; tx < cw; tx++) {
+                        int sx = tx * SUPERSAMPLE + SUPERSAMPLE / 2, sy = ty * SUPERSAMPLE + SUPERSAMPLE / 2;
+                        boolean inside = ink[sy * hw + sx];
+                        int best = radius * radius;
+                        for (int dy = -radius; dy <= radius; dy++) {
+                            int y = sy + dy;
+                            if (y < 0 || y >= hh) { if (inside) best = Math.min(best, dy * dy); continue; }
+                            for (int dx = -radius; dx <= radius; dx++) {
+                                int x = sx + dx;
+                                int d2 = dx * dx + dy * dy;
+                                if (d2 >= best) continue;
+                                boolean other = (x < 0 || x >= hw) ? inside : ink[y * hw + x] != inside;
+                                if (other) best = d2;
+                            }
+                        }
+                        float d = Math.max(0f, (float)Math.sqrt(best) - 0.5f) / hi;   // edge sits between samples
+                        float v = 0.5f + (inside ? d : -d) / (2f * PAD);
+                        pixels[(cellY + ty) * ATLAS_W + cellX + tx] = (byte)Math.round(clamp01(v) * 255f);
+                    }
+                }
+            }
+        } finally {
+            memFree(quads);
+            memFree(ch);
+        }
+        return pixels;
+    }
+
+    private static float clamp01(float v) { return v < 0f ? 0f : Math.min(1f, v); }
+}
@@ -2,22 +2,49 @@ package engine.util;
 
 import engine.config.PlanetConfig;
 import engine.gl.AtmosphereRenderer;
-import engine.gl.Shader;
-import org.lwjgl.BufferUtils;
-import org.lwjgl.stb.STBEasyFont;
-
-import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import engine.gl.FramePacer;
+import engine.gl.PostProcess;
+import engine.gl.ResolutionController;
+import engine.gl.SceneTarget;
+import engine.gl.RenderGraph;
+import engine.gl.Renderer;
+import engine.gl.TargetPool;
+import engine.perf.Profiler;
+import engine.perf.RollingStats;
+import engine.res.ResourceManager;
+import engine.sim.SimStats;
+import engine.ui.TextRenderer;
 
 import static java.lang.Math.*;
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
 
 public class DebugMenu {
     private final PlanetConfig.Lighting lighting;
     private final AtmosphereRenderer.Settings atmo;
+    private Renderer.CullStats cullStats;   // optional read-only readout
+    private Profiler profiler;               // optional perf readout + frame-time graph
+    private SimStats simStats;               // optional sim thread hand-off timings
+    private FramePacer pacer;                // optional pacing mode + jitter readout
+    private ResolutionController resCtrl;    // optional dynamic resolution readout
+    private SceneTarget scene;
+    private Renderer renderer;               // optional shell resolution readout
+    private PostProcess post;                // optional tone mapping / bloom readout
+    private RenderGraph graph;
+    private TargetPool targets;
+    private HotReload reload;                // optional last-reload readout
+    private ResourceManager resources;       // optional memory readout
+
+    // perf text + graph samples are refreshed a few times a second, not every frame
+    private static final long PERF_REFRESH_NS = 250_000_000L;
+    private static final float MB = 1024f * 1024f;
+    private static final ResourceManager.Kind[] KINDS = ResourceManager.Kind.values();
+    private static final String[] KIND_NAMES = {"tex", "mesh", "shader"};
+    private long lastPerfRefreshNs = 0;
+    private final StringBuilder perfText = new StringBuilder();
+    private final float[] pct = new float[Profiler.PCTS.length];
+    private final float[] graphMs = new float[Profiler.WINDOW];
+    private int graphCount = 0;
+    private float graphScaleMs = 33.3f;
+    private boolean graphDirty = false;
 
     private boolean visible = true;
     private int selected = 0;
@@ -26,30 +53,26 @@ public class DebugMenu {
     private float azDeg; // 0..360 around Y (0=+X, 90=+Z)
     private float elDeg; // -90..+90 (0=equator, +90=north pole)
 
-    // ---- panel + text rendering (modern GL) ----
-    private final int vao;
-    private final int vbo;         // shared dynamic VBO for both panel + text
-    private final Shader textShader;
-    private final int uViewportLoc;
-    private final int uColorLoc;
-
-    private static final String VS = """
-        #version 330 core
-        layout(location=0) in vec2 aPos;     // pixel coords
-        uniform vec2 uViewport;              // (width, height)
-        void main(){
-            float x =  (aPos.x / uViewport.x) * 2.0 - 1.0;
-            float y =  1.0 - (aPos.y / uViewport.y) * 2.0; // top-left origin
-            gl_Position = vec4(x, y, 0.0, 1.0);
-        }
-    """;
-
-    private static final String FS = """
-        #version 330 core
-        uniform vec3 uColor;
-        out vec4 o;
-        void main(){ o = vec4(uColor, 1.0); }
-    """;
+    // ---- panel + text rendering (modern GL), created on first render ----
+    // Panel, frame-time graph and text are one cached TextRenderer block: solid rects first,
+    // then one instance per glyph, in a VBO of its own. It's rebuilt (glBufferSubData) only
+    // when the composed text, the viewport width or the graph samples change, so an idle
+    // overlay costs one text compose and compare, and a single draw call.
+    private TextRenderer textRenderer;
+    private TextRenderer.Block block;
+
+    private static final int TEXT_COLOR   = TextRenderer.rgba(1f, 1f, 1f, 1f);
+    private static final int HINT_COLOR   = TextRenderer.rgba(0.65f, 0.65f, 0.65f, 1f);
+    private static final int SELECT_COLOR = TextRenderer.rgba(1f, 0.85f, 0.3f, 1f);
+    private static final int PANEL_COLOR  = TextRenderer.rgba(0f, 0f, 0f, 0.55f);
+    private static final int BAND_COLOR   = TextRenderer.rgba(0.10f, 0.10f, 0.10f, 0.55f);
+    private static final int GUIDE_COLOR  = TextRenderer.rgba(0.35f, 0.35f, 0.35f, 1f);
+    private static final int BAR_COLOR    = TextRenderer.rgba(0.3f, 1.0f, 0.3f, 0.9f);
+    private static final int SLOW_COLOR   = TextRenderer.rgba(1.0f, 0.45f, 0.3f, 0.9f);
+
+    private final StringBuilder text = new StringBuilder(2048);
+    private final StringBuilder shownText = new StringBuilder(2048);   // what the block holds
+    private int shownWidth = -1;
 
     private static final String[] ITEMS = new String[]{
             "Light Azimuth (deg)","Light Elevation (deg)",
@@ -78,27 +101,35 @@ public class DebugMenu {
         dirToAngles(lighting.direction, outAzEl);
         this.azDeg = outAzEl[0];
         this.elDeg = outAzEl[1];
+    }
 
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
-        glBufferData(GL_ARRAY_BUFFER, 128 * 1024, GL_STREAM_DRAW);
-        glEnableVertexAttribArray(0);
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0L);
-        glBindVertexArray(0);
-
-        textShader = new Shader(VS, FS);
-        uViewportLoc = glGetUniformLocation(textShader.id(), "uViewport");
-        uColorLoc    = glGetUniformLocation(textShader.id(), "uColor");
+    // GL objects are made lazily so the menu model (and buildText) works without a context
+    private void ensureGl() {
+        if (textRenderer != null) return;
+        textRenderer = new TextRenderer();
+        block = textRenderer.createBlock(2048);
+        shownWidth = -1;   // force a rebuild into the new VBO
     }
 
     public void delete() {
-        glDeleteBuffers(vbo);
-        glDeleteVertexArrays(vao);
-        textShader.delete();
+        if (textRenderer == null) return;
+        block.delete();
+        textRenderer.delete();
+        textRenderer = null;
     }
 
+    public void setCullStats(Renderer.CullStats stats) { this.cullStats = stats; }
+    public void setProfiler(Profiler profiler) { this.profiler = profiler; }
+    public void setSimStats(SimStats stats) { this.simStats = stats; }
+    public void setFramePacer(FramePacer pacer) { this.pacer = pacer; }
+    public void setResolution(ResolutionController ctrl, SceneTarget scene) { this.resCtrl = ctrl; this.scene = scene; }
+    public void setRenderer(Renderer renderer) { this.renderer = renderer; }
+    public void setPost(PostProcess post, RenderGraph graph, TargetPool targets) {
+        this.post = post; this.graph = graph; this.targets = targets;
+    }
+    public void setHotReload(HotReload reload) { this.reload = reload; }
+    public void setResources(ResourceManager resources) { this.resources = resources; }
+
     public boolean isVisible() { return visible; }
     public void setVisible(boolean v) { visible = v; }
 
@@ -180,108 +211,216 @@ public class DebugMenu {
     // ---------- Render ----------
     public void render(int viewportWidth, int viewportHeight) {
         if (!visible) return;
+        ensureGl();
+
+        // Rebuild only when what's shown would actually change
+        refreshPerf();
+        buildText();
+        if (viewportWidth != shownWidth || graphDirty || text.compareTo(shownText) != 0) {
+            rebuild(viewportWidth, countLines(text));
+            shownText.setLength(0);
+            shownText.append(text);
+            shownWidth = viewportWidth;
+            graphDirty = false;
+        }
+        block.draw(viewportWidth, viewportHeight);
+    }
 
-        // Panel geometry
-        float px = 10, py = 10;
+    // ---------- internals ----------
+    private static final float PANEL_X = 10, PANEL_Y = 10;
+
+    private void rebuild(int viewportWidth, int lines) {
+        block.begin();
+
+        // Panel (semi-transparent backdrop + subtle top highlight), 12 px per text line
+        float px = PANEL_X, py = PANEL_Y;
         float pw = Math.max(520, viewportWidth * 0.36f);
-        float ph = 300;
-
-        // Build text
-        String txt = buildText();
-
-        // Generate STB verts (quads)
-        int maxVerts = Math.max(2048, txt.length() * 64);
-        ByteBuffer quadBuf = BufferUtils.createByteBuffer(maxVerts * 16);
-        int quads = STBEasyFont.stb_easy_font_print(px + 10, py + 12, txt, null, quadBuf);
-        FloatBuffer quadFloats = quadBuf.asFloatBuffer();
-
-        // Convert to triangles
-        int triVerts = quads * 6;
-        FloatBuffer tri = BufferUtils.createFloatBuffer(triVerts * 2);
-        for (int q = 0; q < quads; q++) {
-            int base = q * 4;
-            putXY(tri, quadFloats, base + 0);
-            putXY(tri, quadFloats, base + 1);
-            putXY(tri, quadFloats, base + 2);
-            putXY(tri, quadFloats, base + 2);
-            putXY(tri, quadFloats, base + 3);
-            putXY(tri, quadFloats, base + 0);
+        float ph = 24 + TextRenderer.LINE_UNITS * (lines + 1);
+        block.rect(px, py, pw, ph, PANEL_COLOR);
+        block.rect(px, py, pw, ph * 0.33f, BAND_COLOR);
+
+        // Frame-time bars under the panel, newest on the right, 16.7/33.3 ms guides
+        int graphBars = (profiler != null) ? graphCount : 0;
+        if (graphBars > 0) {
+            float gx = px, gy = py + ph + 6, gw = pw, gh = 70;
+            block.rect(gx, gy, gw, gh, PANEL_COLOR);
+            float g60 = gy + gh - gh * (16.7f / graphScaleMs), g30 = gy + gh - gh * (33.3f / graphScaleMs);
+            block.rect(gx, g60, gw, 1f, GUIDE_COLOR);
+            block.rect(gx, g30, gw, 1f, GUIDE_COLOR);
+            float barW = gw / Profiler.WINDOW;
+            float x0 = gx + gw - graphBars * barW;
+            for (int i = 0; i < graphBars; i++) {
+                float v = Math.min(graphMs[i], graphScaleMs);
+                float bh = gh * (v / graphScaleMs);
+                block.rect(x0 + i * barW, gy + gh - bh, Math.max(1f, barW), bh,
+                        graphMs[i] > 17.5f ? SLOW_COLOR : BAR_COLOR);
+            }
+        }
+
+        // Text: hint lines dimmed, the selected row highlighted
+        float x = PANEL_X + 10, y = PANEL_Y + 12, lh = textRenderer.lineHeight(1f);
+        int line = 0;
+        for (int start = 0, n = text.length(); start <= n; line++) {
+            int end = start;
+            while (end < n && text.charAt(end) != '\n') end++;
+            int color = line < 2 ? HINT_COLOR
+                    : (end - start >= 2 && text.charAt(start) == '>' && text.charAt(start + 1) == ' ') ? SELECT_COLOR
+                    : TEXT_COLOR;
+            if (end > start) block.text(text, start, end, x, y, 1f, color);
+            y += lh;
+            start = end + 1;
         }
-        tri.flip();
+        block.end();
+    }
+
+    private static int countLines(CharSequence s) {
+        int n = 1;
+        for (int i = 0; i < s.length(); i++) if (s.charAt(i) == '\n') n++;
+        return n;
+    }
 
-        // Draw
-        glDisable(GL_DEPTH_TEST);
-        glDisable(GL_CULL_FACE);
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+    // Perf text and graph samples are refreshed a few times a second, not every frame
+    private void refreshPerf() {
+        if (profiler == null) return;
+        long now = System.nanoTime();
+        if (now - lastPerfRefreshNs < PERF_REFRESH_NS) return;
+        lastPerfRefreshNs = now;
+
+        StringBuilder sb = perfText;
+        sb.setLength(0);
+        profiler.frameTimes().percentiles(Profiler.PCTS, pct);
+        sb.append("\n  Frame ms p50/p95/p99 : ");
+        Fmt.fixed(sb, pct[0], 2).append(" / ");
+        Fmt.fixed(sb, pct[1], 2).append(" / ");
+        Fmt.fixed(sb, pct[2], 2);
+        sb.append("   draws ").append(profiler.drawCalls()).append("  state ").append(profiler.stateChanges()).append('\n');
+        graphScaleMs = Math.max(33.3f, pct[2] * 1.2f);
+
+        for (int i = 0; i < profiler.sectionCount(); i++) {
+            RollingStats cpu = profiler.cpuStats(i), gpu = profiler.gpuStats(i);
+            cpu.percentiles(Profiler.PCTS, pct);
+            sb.append("    ");
+            Fmt.padRight(sb, profiler.sectionName(i), 12).append(" cpu ");
+            Fmt.fixed(sb, pct[0], 3, 6).append(" (p99 ");
+            Fmt.fixed(sb, pct[2], 3, 6).append(')');
+            if (gpu.count() > 0) {
+                gpu.percentiles(Profiler.PCTS, pct);
+                sb.append("  gpu ");
+                Fmt.fixed(sb, pct[0], 3, 6).append(" (p99 ");
+                Fmt.fixed(sb, pct[2], 3, 6).append(')');
+            }
+            sb.append('\n');
+        }
 
-        textShader.use();
-        glUniform2f(uViewportLoc, (float)viewportWidth, (float)viewportHeight);
+        if (simStats != null) {
+            sb.append("  Sim ");
+            Fmt.fixed(sb, simStats.tickHz, 0).append(" Hz  step p50/p99 ");
+            simStats.stepMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[0], 3).append(" / ");
+            Fmt.fixed(sb, pct[2], 3).append("  age ");
+            simStats.snapshotAgeMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[0], 2).append(" / ");
+            Fmt.fixed(sb, pct[2], 2).append("  shown delay ");
+            simStats.displayDelayMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[0], 2).append(" / ");
+            Fmt.fixed(sb, pct[2], 2);
+            if (simStats.ticksSkipped > 0) sb.append("  skipped ").append(simStats.ticksSkipped);
+            sb.append('\n');
+        }
 
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+        if (pacer != null) {
+            sb.append("  Pacing ").append(pacer.mode().name());
+            if (pacer.mode() == FramePacer.Mode.CAPPED) { sb.append(' '); Fmt.fixed(sb, pacer.capFps(), 0); }
+            sb.append(pacer.jitInput() ? " +JIT input" : "").append("  (F2 mode, F3 JIT)\n");
+            sb.append("    interval p50/p99 ");
+            pacer.intervalMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[0], 2).append(" / ");
+            Fmt.fixed(sb, pct[2], 2).append("  jitter p50/p99 ");
+            pacer.jitterMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[0], 2).append(" / ");
+            Fmt.fixed(sb, pct[2], 2).append("  wait ");
+            Fmt.fixed(sb, pacer.waitMs.mean(), 2).append("  work p95 ");
+            pacer.workMs.percentiles(Profiler.PCTS, pct);
+            Fmt.fixed(sb, pct[1], 2).append('\n');
+        }
 
-        // Panel (semi-transparent backdrop)
-        drawPanel(px, py, pw, ph, 0f, 0f, 0f, 0.55f);
+        if (resCtrl != null) {
+            sb.append("  Res scale ");
+            Fmt.fixed(sb, resCtrl.scale(), 2).append(" (").append(scene.width()).append('x').append(scene.height()).append(')');
+            sb.append(resCtrl.enabled ? "  dynamic" : "  fixed").append(" (F4)  scene gpu ");
+            Fmt.fixed(sb, resCtrl.lastGpuMs(), 2).append(" / budget ");
+            Fmt.fixed(sb, resCtrl.budgetMs, 2).append("  err ");
+            Fmt.fixed(sb, resCtrl.error(), 3).append("  step ");
+            Fmt.fixed(sb, resCtrl.lastStep(), 4).append('\n');
+        }
 
-        // Text (white)
-        glUniform3f(uColorLoc, 1f, 1f, 1f);
-        glBufferData(GL_ARRAY_BUFFER, tri, GL_STREAM_DRAW);
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0L);
-        glEnableVertexAttribArray(0);
-        glDrawArrays(GL_TRIANGLES, 0, triVerts);
+        if (renderer != null) {
+            sb.append("  Shells 1/").append(renderer.shellDownsample).append(" res (F5)  cloud update ");
+            if (renderer.cloudUpdate.frames() > 1) sb.append("1/").append(renderer.cloudUpdate.frames()).append(' ');
+            sb.append(renderer.cloudUpdate.name());
+            sb.append(" (F6)\n");
+            sb.append("  Debug lines ").append(renderer.debugDraw().linesLastFlush())
+              .append(renderer.debugVolumes ? "  volumes on" : "  volumes off").append(" (F7)\n");
+            var cs = renderer.cullStats();
+            sb.append("  Shadows ").append(renderer.shadows ? "on" : "off")
+              .append(", cloud shadows ").append(renderer.cloudShadows ? "on" : "off")
+              .append(" (F8)  casters ").append(cs.shadowCasters)
+              .append("  map refreshes ").append(cs.cloudShadowRefreshes).append('\n');
+            var q = renderer.commandQueue();
+            sb.append("  Draw packets ").append(q.packetsLastFrame())
+              .append("  program/state switches ").append(q.switchesLastFrame()).append('\n');
+        }
 
-        glBindVertexArray(0);
-        glUseProgram(0);
+        if (post != null) {
+            sb.append("  Tone map ").append(post.toneMap.name()).append(" (F9)");
+            if (post.toneMap != PostProcess.ToneMap.OFF) {
+                sb.append("  exposure ");
+                if (post.autoExposure) sb.append("auto");
+                else Fmt.fixed(sb, post.exposure, 2);
+                sb.append("  bloom ");
+                if (post.bloom) Fmt.fixed(sb, post.bloomStrength, 2);
+                else sb.append("off");
+            }
+            sb.append('\n');
+            sb.append("  Graph ").append(graph.schedule().size()).append(" passes (")
+              .append(graph.culledCount()).append(" culled)  ").append(graph.targetSwitches()).append(" binds  transient ")
+              .append(graph.transientCount()).append(" -> ").append(graph.physicalCount()).append(" textures  pool ")
+              .append(targets.size()).append(' ');
+            Fmt.fixed(sb, targets.bytes() / MB, 1).append(" MB (").append(targets.created()).append(" allocs)\n");
+        }
 
-        glDisable(GL_BLEND);
-        glEnable(GL_DEPTH_TEST);
-    }
+        if (reload != null && reload.reloads() > 0) {
+            sb.append("  Reload #").append(reload.reloads()).append(' ').append(reload.lastWhat());
+            sb.append(reload.lastFailed() ? "  FAILED, kept previous  " : "  ");
+            Fmt.fixed(sb, reload.lastMs(), 1).append(" ms\n");
+        }
 
-    // ---------- internals ----------
-    private void drawPanel(float x, float y, float w, float h, float r, float g, float b, float a) {
-        // 2 triangles = 6 verts
-        FloatBuffer rect = BufferUtils.createFloatBuffer(6 * 2);
-        rect.put(x).put(y);
-        rect.put(x + w).put(y);
-        rect.put(x + w).put(y + h);
-        rect.put(x + w).put(y + h);
-        rect.put(x).put(y + h);
-        rect.put(x).put(y);
-        rect.flip();
-
-        // simple color via uColor (we want alpha too, so tint text pass uses blending)
-        glUniform3f(uColorLoc, r, g, b);
-        glBufferData(GL_ARRAY_BUFFER, rect, GL_STREAM_DRAW);
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0L);
-        glEnableVertexAttribArray(0);
-
-        // draw dark panel
-        glDrawArrays(GL_TRIANGLES, 0, 6);
-
-        // overlay a subtle top highlight (optional)
-        float hi = h * 0.33f;
-        FloatBuffer rect2 = BufferUtils.createFloatBuffer(6 * 2);
-        rect2.put(x).put(y);
-        rect2.put(x + w).put(y);
-        rect2.put(x + w).put(y + hi);
-        rect2.put(x + w).put(y + hi);
-        rect2.put(x).put(y + hi);
-        rect2.put(x).put(y);
-        rect2.flip();
-        glUniform3f(uColorLoc, r + 0.10f, g + 0.10f, b + 0.10f);
-        glBufferData(GL_ARRAY_BUFFER, rect2, GL_STREAM_DRAW);
-        glDrawArrays(GL_TRIANGLES, 0, 6);
-    }
+        if (resources != null) {
+            sb.append("  VRAM ");
+            Fmt.fixed(sb, resources.residentBytes() / MB, 1).append(" / ");
+            Fmt.fixed(sb, resources.budgetBytes / MB, 0).append(" MB");
+            for (ResourceManager.Kind k : KINDS) {
+                sb.append("  ").append(KIND_NAMES[k.ordinal()]).append(' ').append(resources.count(k));
+                if (k != ResourceManager.Kind.SHADER) {
+                    sb.append(" (");
+                    Fmt.fixed(sb, resources.residentBytes(k) / MB, 1).append(" MB");
+                    if (resources.evicted(k) > 0) sb.append(", ").append(resources.evicted(k)).append(" evicted");
+                    sb.append(')');
+                }
+            }
+            sb.append('\n');
+        }
 
-    private static void putXY(FloatBuffer dst, FloatBuffer src, int vertIndex) {
-        int off = vertIndex * 4; // STB packs 4 floats per vertex; we only read x,y
-        dst.put(src.get(off));
-        dst.put(src.get(off + 1));
+        RollingStats ft = profiler.frameTimes();
+        graphCount = ft.count();
+        for (int i = 0; i < graphCount; i++) graphMs[i] = ft.get(i);
+        graphDirty = true;
     }
 
-    private String buildText() {
-        StringBuilder sb = new StringBuilder();
+    /** Composes the overlay text into a reused builder (no allocation); returns it. */
+    CharSequence buildText() {
+        StringBuilder sb = text;
+        sb.setLength(0);
         sb.append("F1: Toggle  |  Up/Down: Select  |  Left/Right: Change  |  Shift/Ctrl: big/tiny  |  H: Toggle Atmo  |  R: Sync Angles\n");
         sb.append("Enter: type value  |  digits/-/. to edit  |  Backspace  |  Enter=commit  Esc=cancel\n\n");
 
@@ -290,9 +429,13 @@ public class DebugMenu {
         append(sb, 1,  "Light Elevation (deg)", elDeg);
 
         // readback (normalized vector)
-        float[] d = lighting.direction.clone();
-        normalize(d);
-        sb.append(String.format("  Light Dir Readback   : (%.3f, %.3f, %.3f)%n%n", d[0], d[1], d[2]));
+        float[] d = lighting.direction;
+        float len = (float)sqrt(d[0]*d[0]+d[1]*d[1]+d[2]*d[2]);
+        float inv = len < 1e-6f ? 0f : 1f / len;
+        sb.append("  Light Dir Readback   : (");
+        Fmt.fixed(sb, d[0] * inv, 3).append(", ");
+        Fmt.fixed(sb, d[1] * inv, 3).append(", ");
+        Fmt.fixed(sb, d[2] * inv, 3).append(")\n\n");
 
         // rest
         append(sb, 2,  "Light Color R", lighting.color[0]);
@@ -306,15 +449,27 @@ public class DebugMenu {
         append(sb, 10, "Atmo ThicknessPct", atmo.thicknessPct);
         append(sb, 11, "Atmo Intensity", atmo.intensity);
 
+        if (cullStats != null) {
+            var c = cullStats;
+            sb.append("\n  Bodies drawn/culled/sprite : ").append(c.bodiesDrawn).append(" / ").append(c.bodiesCulled)
+              .append(" (horizon ").append(c.horizonCulled).append(") / ").append(c.sprites).append('\n');
+            sb.append("  Impostors / tile refreshes : ").append(c.impostors).append(" / ").append(c.impostorRefreshes).append('\n');
+            sb.append("  Shells drawn/culled        : ").append(c.shellsDrawn).append(" / ").append(c.shellsCulled)
+              .append("   occlusion queries: ").append(c.occlusionQueries).append('\n');
+        }
+
+        if (profiler != null) sb.append(perfText);
+
         if (editMode) {
             sb.append("\n> Type value: ").append(editBuf).append("_");
         }
-        return sb.toString();
+        return sb;
     }
 
     private void append(StringBuilder sb, int idx, String label, float value) {
         sb.append(idx == selected ? "> " : "  ");
-        sb.append(String.format("%-22s : %.4f%n", label, value));
+        Fmt.padRight(sb, label, 22).append(" : ");
+        Fmt.fixed(sb, value, 4).append('\n');
     }
 
     private boolean isEditable(int idx) {
@@ -0,0 +1,63 @@
+package engine.util;
+
+/**
+ * Allocation-free number/text formatting into a reused StringBuilder, for overlays that
+ * refresh every frame. Covers the handful of patterns we used String.format for.
+ */
+public final class Fmt {
+    private Fmt() {}
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L};
+
+    /** Fixed-point with {@code decimals} (0..6) digits, rounded half-up: like "%.{d}f". */
+    public static StringBuilder fixed(StringBuilder sb, float v, int decimals) {
+        if (Float.isNaN(v)) return sb.append("NaN");
+        if (Float.isInfinite(v)) return sb.append(v > 0 ? "Inf" : "-Inf");
+        decimals = Math.max(0, Math.min(6, decimals));
+
+        long scale = POW10[decimals];
+        double scaled = Math.abs((double)v) * scale + 0.5;
+        if (scaled >= Long.MAX_VALUE) return sb.append(v);   // absurdly large: let Java do it
+        long q = (long)scaled;
+        if (v < 0 && q != 0) sb.append('-');
+
+        sb.append(q / scale);
+        if (decimals > 0) {
+            sb.append('.');
+            long frac = q % scale;
+            for (long p = scale / 10; p > 0; p /= 10) {
+                sb.append((char)('0' + (frac / p) % 10));
+            }
+        }
+        return sb;
+    }
+
+    /** Fixed-point right-aligned to {@code width} chars (like "%6.3f"). */
+    public static StringBuilder fixed(StringBuilder sb, float v, int decimals, int width) {
+        int start = sb.length();
+        fixed(sb, v, decimals);
+        return padLeft(sb, start, width);
+    }
+
+    /** Left-aligned label padded with spaces (like "%-22s"). */
+    public static StringBuilder padRight(StringBuilder sb, CharSequence s, int width) {
+        sb.append(s);
+        for (int i = s.length(); i < width; i++) sb.append(' ');
+        return sb;
+    }
+
+    /** Inserts spaces before sb[start..] so that segment is at least {@code width} long. */
+    public static StringBuilder padLeft(StringBuilder sb, int start, int width) {
+        int len = sb.length() - start;
+        for (int i = len; i < width; i++) sb.insert(start, ' ');
+        return sb;
+    }
+
+    /** Char-by-char equality, so callers can skip work when nothing changed. */
+    public static boolean same(CharSequence a, CharSequence b) {
+        int n = a.length();
+        if (n != b.length()) return false;
+        for (int i = 0; i < n; i++) if (a.charAt(i) != b.charAt(i)) return false;
+        return true;
+    }
+}
@@ -0,0 +1,250 @@
+package engine.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import engine.config.PlanetConfig;
+import engine.config.PlanetConfigReader;
+import engine.gl.Shader;
+import engine.gl.Texture;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Development hot reload. A daemon thread watches the resource directory (see
+ * {@link Resources#setDevRoot}) and prepares whatever changed; the GL thread makes it live
+ * in {@link #apply}, between frames:
+ *
+ *   data/planet.json   parsed on the watcher thread, handed over whole through an atomic
+ *                      reference; only the top-level sections that differ are applied
+ *   shaders/...        recompiled on the GL thread; a broken edit keeps the last good program
+ *   textures           decoded on a worker thread, uploaded on the GL thread
+ *
+ * Latency is measured from the file event to the moment the change is live.
+ */
+public class HotReload implements AutoCloseable {
+    /** Applies the changed sections of a freshly parsed config (GL thread). */
+    public interface ConfigSink {
+        void apply(PlanetConfig next, Set<String> changedSections);
+    }
+
+    public static final String CONFIG_PATH = "data/planet.json";
+
+    // editors save in several steps (truncate, write, rename); wait for the burst to end
+    private static final long SETTLE_MS = 40;
+
+    private final Path root;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> dirs = new HashMap<>();
+    private final Thread thread;
+    private final ExecutorService decoder;
+    private volatile boolean running = true;
+
+    // watcher -> GL thread
+    private record ConfigChange(PlanetConfig cfg, Set<String> sections, long detectedNanos) {}
+    private record Decoded(String path, ByteBuffer encoded, Texture.Image image, long detectedNanos) {}
+    private final AtomicReference<ConfigChange> pendingConfig = new AtomicReference<>();
+    private final ConcurrentHashMap<String, Long> pendingShaders = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Decoded> pendingTextures = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<String> messages = new ConcurrentLinkedQueue<>();
+
+    // watcher thread only
+    private JsonObject lastConfigTree;
+
+    // GL thread: last result, for the overlay
+    private String lastWhat = "";
+    private float lastMs = 0f;
+    private boolean lastFailed = false;
+    private int reloads = 0;
+
+    /**
+     * Starts watching {@code root} recursively. {@code currentConfigJson} is the text the
+     * running config was parsed from, so the first edit only reports what actually changed.
+     */
+    public HotReload(Path root, String currentConfigJson) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.watcher = FileSystems.getDefault().newWatchService();
+        try { lastConfigTree = JsonParser.parseString(currentConfigJson).getAsJsonObject(); }
+        catch (Exception e) { lastConfigTree = new JsonObject(); }
+        registerAll(this.root);
+
+        decoder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "texture-decode");
+            t.setDaemon(true);
+            return t;
+        });
+        thread = new Thread(this::watch, "hot-reload");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Makes pending changes live; call once per frame on the GL thread. Returns true if
+     * anything was applied.
+     */
+    public boolean apply(ConfigSink configSink) {
+        boolean any = false;
+
+        ConfigChange cfg = pendingConfig.getAndSet(null);
+        if (cfg != null) {
+            configSink.apply(cfg.cfg, cfg.sections);
+            done(CONFIG_PATH + " " + cfg.sections, cfg.detectedNanos, false);
+            any = true;
+        }
+
+        if (!pendingShaders.isEmpty()) {
+            StringBuilder errors = new StringBuilder();
+            for (String path : new ArrayList<>(pendingShaders.keySet())) {
+                Long detected = pendingShaders.remove(path);
+                if (detected == null) continue;
+                errors.setLength(0);
+                int swapped = Shader.reload(path, errors);
+                if (swapped == 0 && errors.length() == 0) continue;   // not used by any live shader
+                if (errors.length() > 0) System.err.print("Shader reload failed, keeping previous program:\n" + errors);
+                done(path + " (" + swapped + " program" + (swapped == 1 ? "" : "s") + ")", detected, errors.length() > 0);
+                any = true;
+            }
+        }
+
+        Decoded d;
+        while ((d = pendingTextures.poll()) != null) {
+            int updated;
+            try { updated = Texture.reload(d.path, d.image); }
+            finally { d.image.close(); memFree(d.encoded); }
+            if (updated == 0) continue;   // not a texture anything uses
+            done(d.path, d.detectedNanos, false);
+            any = true;
+        }
+
+        String msg;
+        while ((msg = messages.poll()) != null) System.err.println(msg);
+        return any;
+    }
+
+    public String lastWhat() { return lastWhat; }
+    public float lastMs() { return lastMs; }
+    public boolean lastFailed() { return lastFailed; }
+    public int reloads() { return reloads; }
+
+    @Override
+    public void close() {
+        running = false;
+        try { watcher.close(); } catch (IOException ignored) {}
+        try { thread.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        decoder.shutdownNow();
+        Decoded d;
+        while ((d = pendingTextures.poll()) != null) { d.image.close(); memFree(d.encoded); }
+    }
+
+    // ---- watcher thread ----
+    private void watch() {
+        Map<String, Long> changed = new LinkedHashMap<>();
+        while (running) {
+            try {
+                WatchKey key = watcher.take();
+                long detected = System.nanoTime();
+                collect(key, changed, detected);
+                // coalesce the rest of the save burst
+                while ((key = watcher.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) collect(key, changed, detected);
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+            for (var e : changed.entrySet()) dispatch(e.getKey(), e.getValue());
+            changed.clear();
+        }
+    }
+
+    private void collect(WatchKey key, Map<String, Long> changed, long detected) {
+        Path dir = dirs.get(key);
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == OVERFLOW || dir == null) continue;
+            Path full = dir.resolve((Path) ev.context());
+            if (ev.kind() == ENTRY_CREATE && Files.isDirectory(full)) {
+                try { registerAll(full); } catch (IOException ignored) {}
+                continue;
+            }
+            String rel = root.relativize(full).toString().replace('\\', '/');
+            changed.putIfAbsent(rel, detected);
+        }
+        if (!key.reset()) dirs.remove(key);
+    }
+
+    private void dispatch(String path, long detected) {
+        if (!Files.isRegularFile(root.resolve(path))) return;   // deleted, or an editor temp file gone again
+        if (path.equals(CONFIG_PATH)) reloadConfig(detected);
+        else if (path.startsWith("shaders/")) pendingShaders.put(path, detected);
+        else if (isImage(path)) {
+            try { decoder.execute(() -> decode(path, detected)); }
+            catch (RejectedExecutionException ignored) { }   // closing
+        }
+    }
+
+    private void reloadConfig(long detected) {
+        String json;
+        JsonObject tree;
+        List<String> warnings = new ArrayList<>();
+        PlanetConfig cfg;
+        try {
+            json = Resources.text(CONFIG_PATH);
+            cfg = PlanetConfigReader.read(new StringReader(json), warnings);
+            tree = JsonParser.parseString(json).getAsJsonObject();   // only to see which sections changed
+        } catch (Exception e) {
+            messages.add("planet.json reload failed, keeping current config: " + e.getMessage());
+            return;
+        }
+        for (String w : warnings) messages.add("planet.json: " + w);
+
+        Set<String> sections = new TreeSet<>();
+        for (var e : tree.entrySet()) if (!e.getValue().equals(lastConfigTree.get(e.getKey()))) sections.add(e.getKey());
+        for (String k : lastConfigTree.keySet()) if (!tree.has(k)) sections.add(k);
+        lastConfigTree = tree;
+        if (sections.isEmpty()) return;
+        pendingConfig.set(new ConfigChange(cfg, sections, detected));
+    }
+
+    private void decode(String path, long detected) {
+        byte[] bytes = Resources.bytes(path);
+        if (bytes == null || bytes.length == 0) return;
+        ByteBuffer encoded = memAlloc(bytes.length);
+        encoded.put(bytes).flip();
+        try {
+            pendingTextures.add(new Decoded(path, encoded, Texture.decode(encoded, path), detected));
+        } catch (RuntimeException e) {
+            memFree(encoded);
+            messages.add("Texture reload failed, keeping current pixels: " + e.getMessage());
+        }
+    }
+
+    // ---- internals ----
+    private void done(String what, long detectedNanos, boolean failed) {
+        lastWhat = what;
+        lastMs = (System.nanoTime() - detectedNanos) / 1_000_000f;
+        lastFailed = failed;
+        reloads++;
+        messages.add("Reloaded " + what + (failed ? " with errors" : "") + " in " + Fmt.fixed(new StringBuilder(), lastMs, 1) + " ms");
+    }
+
+    private void registerAll(Path start) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, java.nio.file.attribute.BasicFileAttributes attrs) throws IOException {
+                dirs.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isImage(String path) {
+        String p = path.toLowerCase(Locale.ROOT);
+        return p.endsWith(".png") || p.endsWith(".jpg") || p.endsWith(".jpeg") || p.endsWith(".bmp") || p.endsWith(".tga");
+    }
+}
@@ -1,15 +1,32 @@
 package engine.util;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.stream.Collectors;
 
 public final class Resources {
     private Resources() {}
 
+    // When set, files under this directory win over the classpath copies (see HotReload)
+    private static volatile Path devRoot;
+
+    /** Serves resources from {@code dir} first; null goes back to the classpath only. */
+    public static void setDevRoot(Path dir) { devRoot = dir; }
+    public static Path devRoot() { return devRoot; }
+
     public static String text(String pathOnClasspath) {
+        Path dev = devFile(pathOnClasspath);
+        if (dev != null) {
+            try { return Files.readString(dev, StandardCharsets.UTF_8).replace("\r\n", "\n"); }
+            catch (Exception e) { throw new RuntimeException("Failed reading resource: " + dev, e); }
+        }
         InputStream in = Resources.class.getClassLoader().getResourceAsStream(pathOnClasspath);
         if (in == null) throw new RuntimeException("Resource not found: " + pathOnClasspath);
         try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
@@ -18,4 +35,48 @@ public final class Resources {
             throw new RuntimeException("Failed reading resource: " + pathOnClasspath, e);
         }
     }
+
+    /** Buffered UTF-8 reader over a resource, for streaming parsers; the caller closes it. */
+    public static Reader reader(String pathOnClasspath) {
+        try {
+            Path dev = devFile(pathOnClasspath);
+            InputStream in = dev != null ? Files.newInputStream(dev)
+                    : Resources.class.getClassLoader().getResourceAsStream(pathOnClasspath);
+            if (in == null) throw new RuntimeException("Resource not found: " + pathOnClasspath);
+            return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed reading resource: " + pathOnClasspath, e);
+        }
+    }
+
+    /** Raw bytes of a resource, or null when it doesn't exist. */
+    public static byte[] bytes(String pathOnClasspath) {
+        Path dev = devFile(pathOnClasspath);
+        if (dev != null) {
+            try { return Files.readAllBytes(dev); }
+            catch (Exception e) { return null; }
+        }
+        try (InputStream is = Resources.class.getClassLoader().getResourceAsStream(pathOnClasspath)) {
+            if (is != null) return readAll(is);
+        } catch (Exception ignored) {}
+        try (InputStream is = Resources.class.getResourceAsStream("/" + pathOnClasspath)) {
+            if (is != null) return readAll(is);
+        } catch (Exception ignored) {}
+        return null;
+    }
+
+    private static Path devFile(String path) {
+        Path root = devRoot;
+        if (root == null) return null;
+        Path p = root.resolve(path);
+        return Files.isRegularFile(p) ? p : null;
+    }
+
+    private static byte[] readAll(InputStream is) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(16 * 1024);
+        byte[] buf = new byte[8 * 1024];
+        int r;
+        while ((r = is.read(buf)) != -1) baos.write(buf, 0, r);
+        return baos.toByteArray();
+    }
 }
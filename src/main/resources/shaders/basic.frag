@@ -11,12 +11,50 @@ uniform float uLightIntensity;
 uniform bool uUseTexture;
 uniform sampler2D uAlbedo;
 
+// Eclipses: other bodies between this one and the light, as (centre, radius); see ShadowCasters
+uniform int   uOccluderCount = 0;
+uniform vec4  uOccluders[8];
+uniform float uSunAngle = 0.0047;   // light's angular radius (rad), sets the penumbra width
+
+// Cloud shadows, projected along the light (see CloudShadowMap)
+uniform vec3  uCenter;
+uniform float uRadius;
+uniform bool  uCloudShadowOn = false;
+uniform sampler2D uCloudShadow;
+uniform vec3  uShadowRight;
+uniform vec3  uShadowUp;
+uniform float uCloudShadowStrength;
+
 out vec4 FragColor;
 
+// 1 = fully lit, 0 = umbra; the ray toward the light against each occluder sphere
+float sphereShadow(vec3 p, vec3 L) {
+    float lit = 1.0;
+    for (int i = 0; i < uOccluderCount; ++i) {
+        vec3  oc = uOccluders[i].xyz - p;
+        float t  = dot(oc, L);
+        if (t <= 0.0) continue;
+        float d   = length(oc - L * t);
+        float r   = uOccluders[i].w;
+        float pen = max(t * uSunAngle, 1e-4 * r);
+        lit *= smoothstep(r - pen, r + pen, d);
+    }
+    return lit;
+}
+
+float cloudShadow(vec3 p, vec3 L) {
+    if (!uCloudShadowOn) return 1.0;
+    vec3 d = (p - uCenter) / uRadius;
+    if (dot(d, L) <= 0.0) return 1.0;   // night side: nothing to shadow
+    vec2 uv = vec2(dot(d, uShadowRight), dot(d, uShadowUp)) * 0.5 + 0.5;
+    return mix(1.0, texture(uCloudShadow, uv).r, uCloudShadowStrength);
+}
+
 void main() {
     vec3 N = normalize(vNormal);
     vec3 L = normalize(uLightDir);        // <-- no minus
     float NdotL = max(dot(N, L), 0.0);
+    if (NdotL > 0.0) NdotL *= sphereShadow(vWorldPos, L) * cloudShadow(vWorldPos, L);
 
     vec3 baseColor = uUseTexture ? texture(uAlbedo, vUV).rgb
                                  : vec3(0.7, 0.75, 0.8);
@@ -0,0 +1,40 @@
+#version 330 core
+// 13-tap downsample (box filters over 2x2 groups, weighted toward the centre); the first
+// level also applies the soft threshold so only what's over it blooms.
+in vec2 vUV;
+
+uniform sampler2D uSrc;
+uniform vec2 uSrcUvScale;   // used part of the source / its texture size
+uniform vec2 uSrcTexel;     // 1 / source texture size
+uniform int  uPrefilter;
+uniform vec2 uThreshold;    // threshold, knee
+
+out vec4 FragColor;
+
+vec3 tap(vec2 uv, vec2 off){
+    vec2 maxUv = uSrcUvScale - 0.5 * uSrcTexel;
+    return texture(uSrc, clamp(uv + off * uSrcTexel, 0.5 * uSrcTexel, maxUv)).rgb;
+}
+
+vec3 prefilter(vec3 c){
+    float br = max(c.r, max(c.g, c.b));
+    float t = uThreshold.x, k = uThreshold.y;
+    float soft = clamp(br - t + k, 0.0, 2.0 * k);
+    soft = soft * soft / (4.0 * k + 1e-5);
+    return c * (max(soft, br - t) / max(br, 1e-5));
+}
+
+void main(){
+    vec2 uv = vUV * uSrcUvScale;
+    vec3 a = tap(uv, vec2(-2, -2)), b = tap(uv, vec2(0, -2)), c = tap(uv, vec2(2, -2));
+    vec3 d = tap(uv, vec2(-1, -1)), e = tap(uv, vec2(1, -1));
+    vec3 f = tap(uv, vec2(-2,  0)), g = tap(uv, vec2(0,  0)), h = tap(uv, vec2(2,  0));
+    vec3 i = tap(uv, vec2(-1,  1)), j = tap(uv, vec2(1,  1));
+    vec3 k = tap(uv, vec2(-2,  2)), l = tap(uv, vec2(0,  2)), m = tap(uv, vec2(2,  2));
+
+    vec3 col = (d + e + i + j) * 0.125
+             + (a + b + f + g) * 0.03125 + (b + c + g + h) * 0.03125
+             + (f + g + k + l) * 0.03125 + (g + h + l + m) * 0.03125;
+    if (uPrefilter != 0) col = prefilter(col);
+    FragColor = vec4(col, 1.0);
+}
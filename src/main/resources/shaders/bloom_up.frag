@@ -0,0 +1,22 @@
+#version 330 core
+// 3x3 tent upsample of the smaller level; additively blended onto the larger one.
+in vec2 vUV;
+
+uniform sampler2D uSrc;
+uniform vec2 uSrcUvScale;
+uniform vec2 uSrcTexel;
+
+out vec4 FragColor;
+
+vec3 tap(vec2 uv, vec2 off){
+    vec2 maxUv = uSrcUvScale - 0.5 * uSrcTexel;
+    return texture(uSrc, clamp(uv + off * uSrcTexel, 0.5 * uSrcTexel, maxUv)).rgb;
+}
+
+void main(){
+    vec2 uv = vUV * uSrcUvScale;
+    vec3 col = tap(uv, vec2(0, 0)) * 4.0
+             + (tap(uv, vec2(-1, 0)) + tap(uv, vec2(1, 0)) + tap(uv, vec2(0, -1)) + tap(uv, vec2(0, 1))) * 2.0
+             + (tap(uv, vec2(-1, -1)) + tap(uv, vec2(1, -1)) + tap(uv, vec2(-1, 1)) + tap(uv, vec2(1, 1)));
+    FragColor = vec4(col / 16.0, 1.0);
+}
@@ -0,0 +1,3 @@
+#version 330 core
+out vec4 fragColor;
+void main() { fragColor = vec4(1.0); }   // color writes are masked off during queries
@@ -0,0 +1,10 @@
+#version 330 core
+// Occlusion proxy: the shared sphere mesh scaled to the body's bounding radius
+layout(location=0) in vec3 aPos;
+uniform mat4 uProj;
+uniform mat4 uView;
+uniform mat4 uModel;
+
+void main() {
+    gl_Position = uProj * uView * uModel * vec4(aPos, 1.0);
+}
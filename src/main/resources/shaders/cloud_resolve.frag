@@ -0,0 +1,80 @@
+#version 330 core
+// Temporal cloud cache: pixels shaded this frame are taken as-is, the rest are reprojected
+// from last frame's result through the cloud shell (camera motion plus the clouds' own
+// spin/drift) and clamped to the range of their freshly shaded neighbours.
+uniform sampler2D uCurrent;      // this frame's shaded pixels (others are empty)
+uniform sampler2D uHistory;      // last resolved frame
+uniform int   uGrid;
+uniform int   uChecker;
+uniform ivec2 uPhase;
+uniform ivec2 uLowSize;
+uniform vec2  uPrevLowSize;
+uniform vec2  uTexSize;          // allocated size of the low-res textures
+uniform mat4  uInvViewProj;
+uniform mat4  uPrevViewProj;
+uniform vec3  uCamPos;
+uniform vec3  uCenter;
+uniform float uShellRadius;
+// cloud motion, same convention as clouds.frag: noise = R(rot) * dir.xz + drift * t
+uniform float uRotNow;
+uniform float uRotPrev;
+uniform vec2  uDriftStep;        // drift * (tNow - tPrev)
+uniform float uClampSlack;       // widens the neighbourhood box (0 = strict)
+
+out vec4 fragColor;
+
+vec2 rotY(float a, vec2 v) { return mat2(cos(a), -sin(a), sin(a), cos(a)) * v; }
+
+vec4 fetchFresh(ivec2 q) { return texelFetch(uCurrent, clamp(q, ivec2(0), uLowSize - 1), 0); }
+
+void main(){
+    ivec2 p = ivec2(gl_FragCoord.xy);
+    bool fresh = uChecker != 0 ? (p.x + p.y) % 2 == uPhase.x
+                               : (uGrid <= 1 || p % uGrid == uPhase);
+    if (fresh) { fragColor = texelFetch(uCurrent, p, 0); return; }
+
+    // range of the freshly shaded neighbours; stale history is clamped into it
+    vec4 lo = vec4(1.0), hi = vec4(0.0), nearest;
+    if (uChecker != 0) {
+        vec4 a = fetchFresh(p + ivec2(1, 0)), b = fetchFresh(p - ivec2(1, 0));
+        vec4 c = fetchFresh(p + ivec2(0, 1)), d = fetchFresh(p - ivec2(0, 1));
+        lo = min(min(a, b), min(c, d));
+        hi = max(max(a, b), max(c, d));
+        nearest = a;
+    } else {
+        ivec2 base = p - p % uGrid + uPhase;
+        nearest = fetchFresh(base);
+        for (int j = -1; j <= 1; j++)
+        for (int i = -1; i <= 1; i++) {
+            vec4 s = fetchFresh(base + ivec2(i, j) * uGrid);
+            lo = min(lo, s); hi = max(hi, s);
+        }
+    }
+
+    // world point of this pixel on the cloud shell
+    vec2 ndc = (vec2(p) + 0.5) / vec2(uLowSize) * 2.0 - 1.0;
+    vec4 fw = uInvViewProj * vec4(ndc, 1.0, 1.0);
+    vec3 rd = normalize(fw.xyz / fw.w - uCamPos);
+    vec3 ro = uCamPos - uCenter;
+    float b = dot(ro, rd);
+    float h = b * b - (dot(ro, ro) - uShellRadius * uShellRadius);
+    if (h < 0.0) { fragColor = nearest; return; }   // ray misses the clouds
+    float t = -b - sqrt(h);
+    if (t < 0.0) t = -b + sqrt(h);
+    if (t < 0.0) { fragColor = nearest; return; }
+
+    // where the cloud now under this pixel was last frame
+    vec3 dir = normalize(ro + rd * t);
+    vec2 q = rotY(uRotNow, dir.xz) + uDriftStep;
+    vec3 prevDir = normalize(vec3(rotY(-uRotPrev, q).x, dir.y, rotY(-uRotPrev, q).y));
+
+    vec4 pc = uPrevViewProj * vec4(uCenter + prevDir * uShellRadius, 1.0);
+    vec2 hp = (pc.xy / pc.w * 0.5 + 0.5) * uPrevLowSize;
+    if (pc.w <= 0.0 || any(lessThan(hp, vec2(0.0))) || any(greaterThanEqual(hp, uPrevLowSize))) {
+        fragColor = nearest;   // no history there
+        return;
+    }
+    vec4 hist = texture(uHistory, hp / uTexSize);
+    vec4 slack = (hi - lo) * uClampSlack + vec4(1.0 / 255.0);
+    fragColor = clamp(hist, lo - slack, hi + slack);
+}
@@ -0,0 +1,79 @@
+#version 330 core
+// Cloud transmittance toward the light, orthographic from the light (see CloudShadowMap).
+in vec2 vUV;
+out vec4 fragColor;
+
+uniform vec3  uLightDir;    // planet -> light, normalized
+uniform vec3  uRight;
+uniform vec3  uUp;
+uniform float uTime;
+
+// Layer arrays, same meaning as in clouds.frag
+uniform int   uLayerCount;
+uniform float uLayerScale[4];
+uniform float uLayerOpacity[4];
+uniform float uLayerRotDegPS[4];
+uniform vec2  uLayerScrollUV[4];
+uniform float uLayerCoverage[4];
+uniform float uLayerNoiseScale[4];
+
+// --- same noise as clouds.frag, so the shadows match what is drawn ---
+float hash3D(vec3 p){ return fract(sin(dot(p, vec3(127.1,311.7,74.7))) * 43758.5453); }
+
+float valueNoise3D(vec3 p){
+    vec3 i = floor(p), f = fract(p);
+    float n000 = hash3D(i + vec3(0,0,0));
+    float n100 = hash3D(i + vec3(1,0,0));
+    float n010 = hash3D(i + vec3(0,1,0));
+    float n110 = hash3D(i + vec3(1,1,0));
+    float n001 = hash3D(i + vec3(0,0,1));
+    float n101 = hash3D(i + vec3(1,0,1));
+    float n011 = hash3D(i + vec3(0,1,1));
+    float n111 = hash3D(i + vec3(1,1,1));
+    vec3 u = f*f*(3.0-2.0*f);
+    float nx00 = mix(n000, n100, u.x);
+    float nx10 = mix(n010, n110, u.x);
+    float nx01 = mix(n001, n101, u.x);
+    float nx11 = mix(n011, n111, u.x);
+    float nxy0 = mix(nx00, nx10, u.y);
+    float nxy1 = mix(nx01, nx11, u.y);
+    return mix(nxy0, nxy1, u.z);
+}
+
+float fbm3D(vec3 p){
+    float v = 0.0, a = 0.5;
+    for (int i=0; i<5; ++i){
+        v += a * valueNoise3D(p);
+        p *= 2.02; a *= 0.5;
+    }
+    return v;
+}
+
+void main(){
+    vec2 s = vUV * 2.0 - 1.0;          // surface point across the light, in planet radii
+    vec3 L = normalize(uLightDir);
+
+    float T = 1.0;
+    for (int i = 0; i < uLayerCount; ++i){
+        // the ray from the surface toward the light leaves shell i at this direction
+        vec2 q = s / max(1.0, uLayerScale[i]);
+        float q2 = dot(q, q);
+        if (q2 >= 1.0) continue;
+        vec3 cw = q.x * uRight + q.y * uUp + sqrt(1.0 - q2) * L;
+
+        float rot = radians(uLayerRotDegPS[i]) * uTime;
+        mat2 R = mat2(cos(rot), -sin(rot),
+        sin(rot),  cos(rot));
+        vec2 xz = R * cw.xz;
+        vec3 p3 = vec3(xz.x, cw.y, xz.y);
+        p3 += vec3(uLayerScrollUV[i].x, 0.0, uLayerScrollUV[i].y) * uTime;
+
+        float scale = max(0.1, uLayerNoiseScale[i]);
+        float cval = fbm3D(p3 * scale);
+        float cover = clamp(uLayerCoverage[i], 0.0, 1.0);
+        float m = smoothstep(cover - 0.08, cover + 0.08, cval);
+
+        T *= 1.0 - m * clamp(uLayerOpacity[i], 0.0, 1.0);
+    }
+    fragColor = vec4(T, T, T, 1.0);
+}
@@ -20,6 +20,17 @@ uniform vec3 uLightDir;
 uniform vec3 uLightColor;
 uniform float uLightIntensity;
 
+// Shadowing spheres as (centre, radius), this body's own planet included; see ShadowCasters
+uniform int   uOccluderCount = 0;
+uniform vec4  uOccluders[8];
+uniform float uSunAngle = 0.0047;   // light's angular radius (rad), sets the penumbra width
+
+// Interleaved updates (temporal path): only pixels whose position mod uPhaseGrid equals
+// uPhase are shaded this frame (checkerboard: (x+y) mod 2 == uPhase.x); 1 = shade everything.
+uniform int   uPhaseGrid = 1;
+uniform int   uChecker   = 0;
+uniform ivec2 uPhase     = ivec2(0);
+
 // --- 3D value noise + FBM (renamed to avoid GLSL noise* names) ---
 float hash3D(vec3 p){ return fract(sin(dot(p, vec3(127.1,311.7,74.7))) * 43758.5453); }
 
@@ -52,10 +63,25 @@ float fbm3D(vec3 p){
     return v;
 }
 
-vec3 computeCloudLight(vec3 n, vec3 L, vec3 lightColor, float lightIntensity, out float nightAlpha)
+// 1 = fully lit, 0 = umbra; the ray toward the light against each occluder sphere
+float sphereShadow(vec3 p, vec3 L) {
+    float lit = 1.0;
+    for (int i = 0; i < uOccluderCount; ++i) {
+        vec3  oc = uOccluders[i].xyz - p;
+        float t  = dot(oc, L);
+        if (t <= 0.0) continue;
+        float d   = length(oc - L * t);
+        float r   = uOccluders[i].w;
+        float pen = max(t * uSunAngle, 1e-4 * r);
+        lit *= smoothstep(r - pen, r + pen, d);
+    }
+    return lit;
+}
+
+vec3 computeCloudLight(vec3 n, vec3 L, vec3 lightColor, float lightIntensity, float shadow, out float nightAlpha)
 {
-    // ndl in [0..1]
-    float ndl = clamp(dot(n, L), 0.0, 1.0);
+    // ndl in [0..1], with shadowed light counting as night
+    float ndl = clamp(dot(n, L), 0.0, 1.0) * shadow;
 
     // Stronger day-side curve (smaller exponent => brighter highlights)
     float dayCurve = pow(ndl, 0.45);
@@ -73,6 +99,10 @@ vec3 computeCloudLight(vec3 n, vec3 L, vec3 lightColor, float lightIntensity, ou
 }
 
 void main(){
+    ivec2 px = ivec2(gl_FragCoord.xy);
+    if (uChecker != 0) { if ((px.x + px.y) % 2 != uPhase.x) discard; }
+    else if (uPhaseGrid > 1 && px % uPhaseGrid != uPhase) discard;
+
     vec3 color = vec3(0.0);
     float alpha = 0.0;
 
@@ -80,7 +110,8 @@ void main(){
     vec3 n  = cw;
     vec3  L = normalize(uLightDir);
     float nightAlpha;
-    vec3  light = computeCloudLight(n, L, uLightColor, uLightIntensity, nightAlpha);
+    float shadow = sphereShadow(vWorldPos, L);
+    vec3  light = computeCloudLight(n, L, uLightColor, uLightIntensity, shadow, nightAlpha);
 
     for (int i = 0; i < uLayerCount; ++i){
         // animate: spin around Y + drift (wind) in XZ
@@ -0,0 +1,10 @@
+#version 330 core
+// DebugDraw lines: world-space position + per-vertex color (rgba8, normalized)
+layout(location=0) in vec3 aPos;
+layout(location=1) in vec4 aColor;
+uniform mat4 uProj, uView;
+out vec4 vColor;
+void main() {
+    vColor = aColor;
+    gl_Position = uProj * uView * vec4(aPos, 1.0);
+}
@@ -1,5 +0,0 @@
-// shaders/gizmo.frag
-#version 330 core
-out vec4 fragColor;
-uniform vec3 uColor;
-void main() { fragColor = vec4(uColor, 1.0); }
@@ -1,7 +0,0 @@
-// shaders/gizmo.vert
-#version 330 core
-layout(location=0) in vec3 aPos;
-uniform mat4 uProj, uView;
-void main() {
-    gl_Position = uProj * uView * vec4(aPos, 1.0);
-}
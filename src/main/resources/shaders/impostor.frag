@@ -0,0 +1,10 @@
+#version 330 core
+in vec2 vUV;
+uniform sampler2D uAtlas;
+out vec4 fragColor;
+
+void main() {
+    vec4 c = texture(uAtlas, vUV);   // premultiplied
+    if (c.a < 0.004) discard;
+    fragColor = c;
+}
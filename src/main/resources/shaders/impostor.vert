@@ -0,0 +1,19 @@
+#version 330 core
+// Camera-facing quad built from gl_VertexID (triangle strip, no attributes)
+uniform mat4 uProj;
+uniform mat4 uView;
+uniform vec3 uCenter;
+uniform vec3 uRight;      // billboard basis captured with the sprite
+uniform vec3 uUp;
+uniform float uHalfSize;  // world half-extent of the quad
+uniform vec4 uUVRect;     // atlas tile (u0, v0, u1, v1)
+
+out vec2 vUV;
+
+void main() {
+    vec2 c = vec2((gl_VertexID & 1) != 0 ? 1.0 : -1.0,
+                  (gl_VertexID & 2) != 0 ? 1.0 : -1.0);
+    vec3 w = uCenter + (uRight * c.x + uUp * c.y) * uHalfSize;
+    vUV = mix(uUVRect.xy, uUVRect.zw, c * 0.5 + 0.5);
+    gl_Position = uProj * uView * vec4(w, 1.0);
+}
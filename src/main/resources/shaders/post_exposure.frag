@@ -0,0 +1,23 @@
+#version 330 core
+// One texel: exposure eased toward key / average luminance (eye adaptation).
+uniform sampler2D uLum;     // post_luminance output, fully mipmapped
+uniform sampler2D uPrev;    // last frame's exposure
+uniform float uLumLod;      // the 1x1 level
+uniform int   uPrevValid;
+uniform float uStart;       // exposure to start from when there's no history
+uniform float uKey;
+uniform vec2  uRange;       // min, max exposure
+uniform vec2  uRate;        // blend factor this frame when brightening, darkening the image
+
+out vec4 FragColor;
+
+void main(){
+    float prev = uPrevValid != 0 ? texelFetch(uPrev, ivec2(0), 0).r : uStart;
+    vec2 acc = textureLod(uLum, vec2(0.5), uLumLod).rg;
+    if (acc.g < 1e-4) { FragColor = vec4(prev); return; }   // nothing lit in view: hold
+
+    float avg = exp2(acc.r / acc.g);
+    float target = clamp(uKey / avg, uRange.x, uRange.y);
+    float rate = target > prev ? uRate.x : uRate.y;
+    FragColor = vec4(mix(prev, target, rate));
+}
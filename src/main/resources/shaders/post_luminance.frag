@@ -0,0 +1,17 @@
+#version 330 core
+// Log luminance of the scene, weighted so empty space doesn't drag the average down.
+// R = w * log2(lum), G = w; the mip chain averages both, R / G is the weighted mean.
+in vec2 vUV;
+
+uniform sampler2D uScene;
+uniform vec2  uUvScale;     // rendered size / texture size
+uniform float uLumFloor;
+
+out vec4 FragColor;
+
+void main(){
+    vec3 c = texture(uScene, vUV * uUvScale).rgb;
+    float lum = dot(c, vec3(0.2126, 0.7152, 0.0722));
+    float w = smoothstep(uLumFloor * 0.5, uLumFloor, lum);
+    FragColor = vec4(w * log2(max(lum, 1e-4)), w, 0.0, 1.0);
+}
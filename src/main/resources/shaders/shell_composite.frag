@@ -0,0 +1,42 @@
+#version 330 core
+// Depth-aware (joint bilateral) upsample of the low-res shell buffer onto the full-res scene.
+// Bilinear weights are scaled by how well each low-res depth matches this pixel's depth, so
+// shells don't smear across the planet silhouette.
+uniform sampler2D uShell;        // low-res, premultiplied alpha
+uniform sampler2D uLowDepth;
+uniform sampler2D uSceneDepth;
+uniform int   uFactor;
+uniform ivec2 uLowSize;          // used part of the low-res buffers
+uniform vec2  uProjAB;           // proj[10], proj[14] for linearizing depth
+uniform vec2  uDepthToNdc;       // stored depth -> NDC z: (2, -1), or (1, 0) for [0,1] clip depth
+
+out vec4 fragColor;
+
+// view distance; with reversed-Z the sky (depth 0) is at infinity, kept finite for the weights
+float linearDepth(float d){
+    float den = (d * uDepthToNdc.x + uDepthToNdc.y) + uProjAB.x;
+    return den == 0.0 ? 1e30 : min(uProjAB.y / den, 1e30);
+}
+
+void main(){
+    ivec2 q = ivec2(gl_FragCoord.xy);
+    float zf = linearDepth(texelFetch(uSceneDepth, q, 0).r);
+
+    vec2 lp = (vec2(q) + 0.5) / float(uFactor) - 0.5;
+    ivec2 i0 = ivec2(floor(lp));
+    vec2 f = lp - vec2(i0);
+
+    vec4 sum = vec4(0.0);
+    float wsum = 0.0;
+    for (int k = 0; k < 4; ++k){
+        ivec2 o = ivec2(k & 1, k >> 1);
+        ivec2 p = clamp(i0 + o, ivec2(0), uLowSize - 1);
+        float bw = (o.x == 1 ? f.x : 1.0 - f.x) * (o.y == 1 ? f.y : 1.0 - f.y);
+        float zl = linearDepth(texelFetch(uLowDepth, p, 0).r);
+        float dw = 1.0 / (1e-3 + abs(zl - zf) / max(zf, 1e-3));
+        float w = bw * dw;
+        sum  += texelFetch(uShell, p, 0) * w;
+        wsum += w;
+    }
+    fragColor = wsum > 0.0 ? sum / wsum : texelFetch(uShell, clamp(i0, ivec2(0), uLowSize - 1), 0);
+}
@@ -0,0 +1,19 @@
+#version 330 core
+// Downsamples scene depth for the low-res shell pass: farthest depth of each block, so shells
+// aren't clipped short at the planet's limb (the bilateral composite sorts the edge out).
+// With reversed-Z the farthest depth is the smallest.
+uniform sampler2D uSceneDepth;
+uniform int   uFactor;
+uniform ivec2 uSceneSize;   // rendered full-res size
+uniform int   uReversed;
+
+void main(){
+    ivec2 base = ivec2(gl_FragCoord.xy) * uFactor;
+    float d = uReversed != 0 ? 1.0 : 0.0;
+    for (int y = 0; y < uFactor; ++y)
+        for (int x = 0; x < uFactor; ++x) {
+            float s = texelFetch(uSceneDepth, min(base + ivec2(x, y), uSceneSize - 1), 0).r;
+            d = uReversed != 0 ? min(d, s) : max(d, s);
+        }
+    gl_FragDepth = d;
+}
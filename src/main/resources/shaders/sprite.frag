@@ -0,0 +1,10 @@
+#version 330 core
+uniform vec3  uColor;
+uniform float uAlpha;   // pixel coverage for sub-pixel bodies
+out vec4 fragColor;
+
+void main() {
+    vec2 c = gl_PointCoord * 2.0 - 1.0;
+    if (dot(c, c) > 1.0) discard;
+    fragColor = vec4(uColor, uAlpha);   // straight alpha
+}
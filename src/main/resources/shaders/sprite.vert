@@ -0,0 +1,11 @@
+#version 330 core
+// Single point sprite at a world position (no vertex attributes; VAO is empty)
+uniform mat4  uProj;
+uniform mat4  uView;
+uniform vec3  uPos;
+uniform float uSizePx;
+
+void main() {
+    gl_Position  = uProj * uView * vec4(uPos, 1.0);
+    gl_PointSize = uSizePx;
+}
@@ -0,0 +1,17 @@
+#version 330 core
+in vec2 vUV;
+in vec4 vColor;
+flat in int vSolid;
+
+uniform sampler2D uAtlas;   // signed distance, 0.5 = glyph edge
+
+out vec4 FragColor;
+
+void main(){
+    if (vSolid != 0) { FragColor = vColor; return; }
+    float d = texture(uAtlas, vUV).r;
+    float w = max(fwidth(d) * 0.7, 1e-4);   // ~1 px of antialiasing at any scale
+    float a = vColor.a * smoothstep(0.5 - w, 0.5 + w, d);
+    if (a <= 0.0) discard;
+    FragColor = vec4(vColor.rgb, a);
+}
@@ -0,0 +1,33 @@
+#version 330 core
+// One instance per glyph (or solid rect); the quad corners come from gl_VertexID (triangle strip).
+layout(location=0) in vec4 iGlyph;   // x, y (px, top-left of the line), scale (px per font unit), glyph index
+                                     // or, for a solid rect: x, y, width, -height (px)
+layout(location=1) in vec4 iColor;   // rgba8, normalized
+
+uniform vec2 uViewport;   // (width, height)
+uniform vec2 uCell;       // glyph cell size in font units, padding included
+uniform vec2 uPad;        // padding in font units
+uniform vec2 uGrid;       // atlas columns, rows
+
+out vec2 vUV;
+out vec4 vColor;
+flat out int vSolid;
+
+void main(){
+    vec2 corner = vec2(gl_VertexID & 1, gl_VertexID >> 1);
+    vColor = iColor;
+    vec2 p;
+    if (iGlyph.w < 0.0) {
+        p = iGlyph.xy + corner * vec2(iGlyph.z, -iGlyph.w);
+        vUV = corner;
+        vSolid = 1;
+    } else {
+        p = iGlyph.xy + (corner * uCell - uPad) * iGlyph.z;
+        float g = iGlyph.w;
+        vec2 cell = vec2(mod(g, uGrid.x), floor(g / uGrid.x));
+        vUV = (cell + corner) / uGrid;
+        vSolid = 0;
+    }
+
+    gl_Position = vec4(p.x / uViewport.x * 2.0 - 1.0, 1.0 - p.y / uViewport.y * 2.0, 0.0, 1.0);
+}
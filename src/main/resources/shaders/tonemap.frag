@@ -0,0 +1,42 @@
+#version 330 core
+// HDR scene * exposure + bloom, tone mapped to [0, 1].
+in vec2 vUV;
+
+uniform sampler2D uScene;
+uniform sampler2D uBloom;
+uniform sampler2D uExposureTex;
+uniform vec2  uUvScale;        // rendered size / texture size (output has the same layout)
+uniform vec2  uBloomUvScale;
+uniform int   uMode;           // 0 ACES, 1 filmic, 2 off (clamp, as without HDR)
+uniform int   uAutoExposure;
+uniform float uExposure;
+uniform float uBloomStrength;
+
+out vec4 FragColor;
+
+// Narkowicz's fit of the ACES reference rendering transform
+vec3 aces(vec3 x){
+    return clamp((x * (2.51 * x + 0.03)) / (x * (2.43 * x + 0.59) + 0.14), 0.0, 1.0);
+}
+
+// Hable's filmic curve, white point 11.2
+vec3 hable(vec3 x){
+    const float A = 0.15, B = 0.50, C = 0.10, D = 0.20, E = 0.02, F = 0.30;
+    return ((x * (A * x + C * B) + D * E) / (x * (A * x + B) + D * F)) - E / F;
+}
+vec3 filmic(vec3 x){
+    return clamp(hable(2.0 * x) / hable(vec3(11.2)), 0.0, 1.0);
+}
+
+void main(){
+    vec4 scene = texture(uScene, vUV * uUvScale);
+    vec3 c = scene.rgb;
+    if (uMode == 2) { FragColor = vec4(clamp(c, 0.0, 1.0), scene.a); return; }
+
+    float exposure = uAutoExposure != 0 ? texelFetch(uExposureTex, ivec2(0), 0).r : uExposure;
+    c *= exposure;
+    if (uBloomStrength > 0.0) c += texture(uBloom, vUV * uBloomUvScale).rgb * uBloomStrength * exposure;
+
+    c = uMode == 0 ? aces(c) : filmic(c);
+    FragColor = vec4(c, scene.a);
+}
@@ -0,0 +1,28 @@
+#version 330 core
+in vec2 vUV;
+
+uniform sampler2D uScene;
+uniform vec2 uUvScale;     // rendered size / texture size
+uniform vec2 uTexel;       // 1 / texture size
+uniform float uSharpness;  // 0 = plain bilinear
+
+out vec4 FragColor;
+
+// Bilinear upscale + a contrast-limited unsharp mask in source texels: sharpen against the
+// 4-neighbour average, then clamp to the neighbourhood so edges don't ring.
+void main(){
+    vec2 uv = vUV * uUvScale;
+    vec2 maxUv = uUvScale - 0.5 * uTexel;   // don't bleed in texels outside the rendered rect
+    vec4 c = texture(uScene, min(uv, maxUv));
+    if (uSharpness <= 0.0) { FragColor = c; return; }
+
+    vec4 n = texture(uScene, min(uv + vec2(0.0, uTexel.y), maxUv));
+    vec4 s = texture(uScene, max(uv - vec2(0.0, uTexel.y), 0.5 * uTexel));
+    vec4 e = texture(uScene, min(uv + vec2(uTexel.x, 0.0), maxUv));
+    vec4 w = texture(uScene, max(uv - vec2(uTexel.x, 0.0), 0.5 * uTexel));
+
+    vec4 avg = 0.25 * (n + s + e + w);
+    vec4 lo = min(c, min(min(n, s), min(e, w)));
+    vec4 hi = max(c, max(max(n, s), max(e, w)));
+    FragColor = clamp(c + uSharpness * (c - avg), lo, hi);
+}
@@ -0,0 +1,296 @@
+package engine.gl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.lwjgl.opengl.GL11.GL_RGBA8;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Schedule, culling and aliasing of the frame graph against a backend that only records what
+ * it's asked to do; no GL context needed.
+ */
+class RenderGraphTest {
+    /** Hands out texture names from 100 up and logs every call. */
+    private static final class RecordingBackend implements RenderGraph.Backend {
+        final List<String> calls = new ArrayList<>();
+        final List<RenderGraph.TextureDesc> acquired = new ArrayList<>();
+        int binds;
+        private int next = 100;
+
+        @Override public int acquire(RenderGraph.TextureDesc desc) {
+            acquired.add(desc);
+            calls.add("acquire " + next);
+            return next++;
+        }
+        @Override public void release(int texture) { calls.add("release " + texture); }
+        @Override public void bindTarget(int[] textures, RenderGraph.TextureDesc[] descs, int count, int width, int height) {
+            binds++;
+            StringBuilder s = new StringBuilder("bind");
+            for (int i = 0; i < count; i++) s.append(' ').append(textures[i]);
+            calls.add(s.append(" @").append(width).append('x').append(height).toString());
+        }
+        @Override public void beginPass(String name, boolean timed) { calls.add("begin " + name); }
+        @Override public void endPass(String name, boolean timed) { calls.add("end " + name); }
+    }
+
+    private final RecordingBackend backend = new RecordingBackend();
+    private final RenderGraph g = new RenderGraph(backend);
+    private final PostProcess post = PostProcess.withoutGl();
+
+    // ---- culling ----
+    @Test
+    void exposurePassesCulledWithoutAutoExposure() {
+        frame(false, 6, 1920, 1080);
+        g.compile();
+        assertFalse(pass("luminance").alive());
+        assertFalse(pass("exposure").alive());
+        assertEquals(2, g.culledCount());
+        assertFalse(names().contains("luminance"));
+        assertFalse(names().contains("exposure"));
+    }
+
+    @Test
+    void exposurePassesKeptWithAutoExposure() {
+        frame(true, 6, 1920, 1080);
+        g.compile();
+        assertTrue(pass("luminance").alive());
+        assertTrue(pass("exposure").alive());
+        assertEquals(0, g.culledCount());
+        assertTrue(names().indexOf("exposure") < names().indexOf("tonemap"));
+    }
+
+    @Test
+    void passWithoutConsumerCulledUnlessSideEffect() {
+        var out = g.create("out", 4, 4, GL_RGBA8);
+        var unused = g.create("unused", 4, 4, GL_RGBA8);
+        g.pass("out", ctx -> {}).write(out);
+        g.pass("unused", ctx -> {}).write(unused);
+        g.pass("readback", ctx -> {}).read(out).sideEffect();
+        g.output(out);
+        g.compile();
+        assertEquals(List.of("out", "readback"), names());
+        assertEquals(1, g.culledCount());
+    }
+
+    // ---- ordering ----
+    @Test
+    void readAfterWriteAfterReadAfterWrite() {
+        var t = g.create("t", 8, 8, GL_RGBA8);
+        var u = g.create("u", 8, 8, GL_RGBA8);
+        g.pass("write t", ctx -> {}).write(t);
+        g.pass("read t", ctx -> {}).read(t).write(u);
+        // same target as "write t", so grouping would pull it forward if hazards allowed
+        g.pass("overwrite t", ctx -> {}).write(t);
+        g.output(t);
+        g.output(u);
+        g.compile();
+
+        assertEquals(List.of("write t", "read t", "overwrite t"), names());
+        assertHazardsRespected();
+    }
+
+    @Test
+    void declarationOrderKeptForDependentChain() {
+        var a = g.create("a", 8, 8, GL_RGBA16F);
+        var b = g.create("b", 8, 8, GL_RGBA16F);
+        var back = g.backbuffer(16, 16);
+        // declared so that the reader of each resource comes before anything else touching it
+        g.pass("fill a", ctx -> {}).write(a);
+        g.pass("a to b", ctx -> {}).read(a).write(b);
+        g.pass("blend b", ctx -> {}).modify(b);
+        g.pass("b to back", ctx -> {}).read(b).write(back);
+        g.pass("clear a", ctx -> {}).write(a).sideEffect();
+        g.output(back);
+        g.compile();
+
+        assertHazardsRespected();
+        assertTrue(names().indexOf("clear a") > names().indexOf("a to b"));
+        assertTrue(names().indexOf("blend b") < names().indexOf("b to back"));
+    }
+
+    @Test
+    void hazardsRespectedInPostChain() {
+        frame(true, 6, 1920, 1080);
+        g.compile();
+        assertHazardsRespected();
+        assertEquals("scene", names().get(0));
+        assertEquals("menu", names().get(names().size() - 1));
+    }
+
+    @Test
+    void sameTargetPassesGrouped() {
+        var x = g.create("x", 8, 8, GL_RGBA8);
+        var y = g.create("y", 8, 8, GL_RGBA8);
+        var out = g.create("out", 8, 8, GL_RGBA8);
+        g.pass("x 1", ctx -> {}).modify(x);
+        g.pass("y 1", ctx -> {}).modify(y);
+        g.pass("x 2", ctx -> {}).modify(x);
+        g.pass("y 2", ctx -> {}).modify(y);
+        g.pass("combine", ctx -> {}).read(x).read(y).write(out);
+        g.output(out);
+        g.compile();
+        assertEquals(List.of("x 1", "x 2", "y 1", "y 2", "combine"), names());
+
+        g.execute();
+        assertEquals(3, backend.binds);
+        assertEquals(3, g.targetSwitches());
+    }
+
+    @Test
+    void equalStateKeysKeptTogether() {
+        var p = g.create("p", 8, 8, GL_RGBA8);
+        var q = g.create("q", 8, 8, GL_RGBA8);
+        var r = g.create("r", 8, 8, GL_RGBA8);
+        var out = g.create("out", 8, 8, GL_RGBA8);
+        g.pass("p", ctx -> {}).write(p).state(1);
+        g.pass("q", ctx -> {}).write(q).state(2);
+        g.pass("r", ctx -> {}).write(r).state(1);
+        g.pass("combine", ctx -> {}).read(p).read(q).read(r).write(out);
+        g.output(out);
+        g.compile();
+        assertEquals(List.of("p", "r", "q", "combine"), names());
+    }
+
+    // ---- aliasing ----
+    @Test
+    void matchingTransientsShareOnlyWithoutOverlap() {
+        var t1 = g.create("t1", 64, 64, GL_RGBA16F);
+        var t2 = g.create("t2", 64, 64, GL_RGBA16F);
+        var t3 = g.create("t3", 64, 64, GL_RGBA16F);
+        var out = g.backbuffer(64, 64);
+        Map<String, Integer> seen = new HashMap<>();
+        g.pass("t1", ctx -> seen.put("t1", ctx.texture(t1))).write(t1);
+        g.pass("t2", ctx -> seen.put("t2", ctx.texture(t2))).read(t1).write(t2);
+        g.pass("t3", ctx -> seen.put("t3", ctx.texture(t3))).read(t2).write(t3);
+        g.pass("out", ctx -> {}).read(t3).write(out);
+        g.output(out);
+        g.compile();
+
+        // t1 [0, 1] and t2 [1, 2] overlap in pass 1; t3 [2, 3] starts after t1 is done
+        assertNotEquals(t1.physical(), t2.physical());
+        assertNotEquals(t2.physical(), t3.physical());
+        assertEquals(t1.physical(), t3.physical());
+        assertEquals(2, g.physicalCount());
+        assertEquals(3, g.transientCount());
+
+        g.execute();
+        assertEquals(2, backend.acquired.size());
+        assertEquals(seen.get("t1"), seen.get("t3"));
+        assertNotEquals(seen.get("t1"), seen.get("t2"));
+    }
+
+    @Test
+    void differentDescsNeverShare() {
+        var a = g.create("a", 64, 64, GL_RGBA16F);
+        var b = g.create("b", 64, 64, GL_RGBA16F);
+        var c = g.create("c", 64, 64, GL_RGBA8);     // format differs
+        var d = g.create("d", 32, 64, GL_RGBA16F);   // size differs
+        var out = g.backbuffer(64, 64);
+        g.pass("a", ctx -> {}).write(a);
+        g.pass("b", ctx -> {}).read(a).write(b);
+        g.pass("c", ctx -> {}).read(b).write(c);
+        g.pass("d", ctx -> {}).read(c).write(d);
+        g.pass("out", ctx -> {}).read(d).write(out);
+        g.output(out);
+        g.compile();
+
+        assertNotEquals(a.physical(), c.physical());
+        assertNotEquals(a.physical(), d.physical());
+        assertNotEquals(b.physical(), d.physical());
+        assertEquals(4, g.physicalCount());
+    }
+
+    @Test
+    void lifetimeEndingInAPassNotReusedWithinIt() {
+        var a = g.create("a", 16, 16, GL_RGBA8);
+        var b = g.create("b", 16, 16, GL_RGBA8);
+        var out = g.backbuffer(16, 16);
+        g.pass("a", ctx -> {}).write(a);
+        g.pass("a to b", ctx -> {}).read(a).write(b);   // a's last use, b's first
+        g.pass("out", ctx -> {}).read(b).write(out);
+        g.output(out);
+        g.compile();
+        assertNotEquals(a.physical(), b.physical());
+    }
+
+    /**
+     * PostProcess's transients are the bloom mips (strictly halving, so all sizes differ) and
+     * the RGBA8 tonemap target: nothing in the chain can share a slot.
+     */
+    @Test
+    void postChainNeverAliases() {
+        for (int levels = 1; levels <= 8; levels++) {
+            for (int[] size : new int[][]{{1920, 1080}, {1279, 721}, {64, 48}, {3, 3}}) {
+                g.reset();
+                frame(true, levels, size[0], size[1]);
+                g.compile();
+                assertEquals(g.transientCount(), g.physicalCount(), "levels " + levels + " at " + size[0] + "x" + size[1]);
+            }
+        }
+    }
+
+    @Test
+    void noBloomPassesWhenOff() {
+        post.bloom = false;
+        frame(true, 6, 1920, 1080);
+        g.compile();
+        assertFalse(names().stream().anyMatch(n -> n.startsWith("bloom")));
+        assertEquals(1, g.transientCount());   // only the tonemap target is used
+    }
+
+    // ---- helpers ----
+    /**
+     * The frame Main declares: the scene, PostProcess.addPasses' own chain (declared only, it
+     * can't execute without GL), then upscale and the menu.
+     */
+    private void frame(boolean autoExposure, int bloomLevels, int allocW, int allocH) {
+        var color = g.importTexture("scene color", 1, allocW, allocH, GL_RGBA16F);
+        var depth = g.importTexture("scene depth", 2, allocW, allocH, GL_DEPTH_COMPONENT32F);
+        var back = g.backbuffer(2560, 1440);
+        g.pass("scene", ctx -> {}).write(color).write(depth).untimed();
+
+        post.autoExposure = autoExposure;
+        post.bloomLevels = bloomLevels;
+        var ldr = post.addPasses(g, color, allocW * 3 / 4, allocH * 3 / 4);
+
+        g.pass("upscale", ctx -> {}).read(ldr).write(back);
+        g.pass("menu", ctx -> {}).modify(back);
+        g.output(back);
+    }
+
+    private RenderGraph.Pass pass(String name) {
+        for (RenderGraph.Pass p : g.passes()) if (p.name.equals(name)) return p;
+        throw new AssertionError("No pass " + name);
+    }
+
+    private List<String> names() {
+        List<String> out = new ArrayList<>();
+        for (RenderGraph.Pass p : g.schedule()) out.add(p.name);
+        return out;
+    }
+
+    // every pair of scheduled passes touching the same resource, at least one writing it,
+    // runs in declaration order
+    private void assertHazardsRespected() {
+        List<RenderGraph.Pass> s = g.schedule();
+        for (int i = 0; i < s.size(); i++) {
+            for (int j = i + 1; j < s.size(); j++) {
+                RenderGraph.Pass a = s.get(i), b = s.get(j);
+                if (conflict(a, b))
+                    assertTrue(a.index < b.index, a + " ran before " + b + " but was declared after it");
+            }
+        }
+    }
+
+    private static boolean conflict(RenderGraph.Pass a, RenderGraph.Pass b) {
+        for (RenderGraph.Resource r : a.writes) if (b.reads.contains(r) || b.writes.contains(r)) return true;
+        for (RenderGraph.Resource r : b.writes) if (a.reads.contains(r)) return true;
+        return false;
+    }
+}